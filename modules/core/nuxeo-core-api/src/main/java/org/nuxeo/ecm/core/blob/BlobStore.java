@@ -258,6 +258,19 @@ public interface BlobStore {
     @NotNull
     OptionalOrUnknown<InputStream> getStream(String key) throws IOException;
 
+    /**
+     * Gets the length of the blob for the given key, if it can be known without reading the blob.
+     *
+     * @param key the blob key
+     * @return the blob length, or empty if the blob cannot be found, or unknown if the length is not efficiently
+     *         available
+     * @since 2023.19
+     */
+    @NotNull
+    default OptionalOrUnknown<Long> getBlobLength(String key) {
+        return OptionalOrUnknown.unknown();
+    }
+
     /**
      * Reads a blob based on its key into the given file.
      *
@@ -19,9 +19,15 @@
 package org.nuxeo.ecm.core.blob;
 
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -29,21 +35,39 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
 
 /**
  * Blob store wrapper that caches blobs locally because fetching them may be expensive.
+ * <p>
+ * If a {@linkplain CachingConfiguration#fillChunkSize fill chunk size} is configured and the underlying store can tell
+ * the length of a blob and read byte ranges, a blob missing from the cache is fetched as chunks downloaded in parallel.
+ * A byte range read is then served as soon as the chunks covering it have been downloaded, and the concurrent readers
+ * of a blob share the same download.
  *
  * @since 11.1
  */
@@ -54,6 +78,24 @@ public class CachingBlobStore extends AbstractBlobStore {
     // static because we want all caches to share the same locks
     protected static final Set<Path> LOCKED_FILES = ConcurrentHashMap.newKeySet();
 
+    protected static final AtomicInteger FILL_THREAD_COUNT = new AtomicInteger();
+
+    /**
+     * Maximum number of download threads shared by all the caches.
+     *
+     * @since 2023.19
+     */
+    protected static final int FILL_MAX_THREADS = 64;
+
+    // static because we want all caches to share the same download threads, the reader downloads itself when all are
+    // busy
+    protected static final ExecutorService FILL_EXECUTOR = new ThreadPoolExecutor(0, FILL_MAX_THREADS, 60,
+            TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                Thread thread = new Thread(r, "CachingBlobStore-fill-" + FILL_THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+
     protected final BlobStore store;
 
     protected final CachingConfiguration cacheConfig;
@@ -63,6 +105,21 @@ public class CachingBlobStore extends AbstractBlobStore {
 
     protected final BinaryGarbageCollector gc;
 
+    /**
+     * The chunked fills in progress, by blob key.
+     *
+     * @since 2023.19
+     */
+    protected final Map<String, ChunkedFill> chunkedFills = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the underlying store was found not to honor byte range keys, returning the whole blob or nothing, chunked
+     * fills are then disabled.
+     *
+     * @since 2023.19
+     */
+    protected volatile boolean byteRangeUnsupported;
+
     // lock to avoid doing redundant work in parallel, and protect access to clearOldBlobsLastTime
     protected final Lock clearOldBlobsLock = new ReentrantLock();
 
@@ -211,6 +268,12 @@ public class CachingBlobStore extends AbstractBlobStore {
         if (fileOpt.isPresent()) {
             path = fileOpt.get();
         } else {
+            if (cacheConfig.fillChunkSize > 0 && !byteRangeUnsupported) {
+                OptionalOrUnknown<InputStream> streamOpt = getStreamFromChunkedFill(key);
+                if (!streamOpt.isUnknown()) {
+                    return streamOpt;
+                }
+            }
             // fetch file from storage into the cache
             // go through a tmp file for atomicity
             String tmpKey = cacheStore.copyOrMoveBlob(randomString(), store, key, false);
@@ -222,6 +285,45 @@ public class CachingBlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.of(Files.newInputStream(path));
     }
 
+    /**
+     * Gets the stream for a key, possibly holding a byte range, by filling the cache with the whole blob in chunks.
+     *
+     * @return the stream, or missing if the blob doesn't exist, or unknown if the blob length is not available or
+     *         the store doesn't honor byte ranges
+     * @since 2023.19
+     */
+    protected OptionalOrUnknown<InputStream> getStreamFromChunkedFill(String key) throws IOException {
+        MutableObject<String> keyHolder = new MutableObject<>(key);
+        ByteRange byteRange = getByteRangeFromKey(keyHolder);
+        String blobKey = keyHolder.getValue();
+        ChunkedFill fill = chunkedFills.get(blobKey);
+        if (fill == null) {
+            // the whole blob may be in the cache, a completed fill is removed after its file is in place
+            OptionalOrUnknown<Path> fileOpt = getFileFromCache(blobKey, false);
+            if (fileOpt.isPresent()) {
+                InputStream stream = Files.newInputStream(fileOpt.get());
+                return OptionalOrUnknown.of(byteRange == null ? stream : byteRange.forStream(stream));
+            }
+            OptionalOrUnknown<Long> lengthOpt = store.getBlobLength(blobKey);
+            if (!lengthOpt.isPresent()) {
+                return lengthOpt.isMissing() ? OptionalOrUnknown.missing() : OptionalOrUnknown.unknown();
+            }
+            long length = lengthOpt.get().longValue();
+            fill = chunkedFills.computeIfAbsent(blobKey, k -> new ChunkedFill(k, length));
+            fill.start();
+        }
+        try {
+            return OptionalOrUnknown.of(fill.getStream(byteRange));
+        } catch (IOException e) {
+            if (byteRangeUnsupported) {
+                // the caller falls back to a single request
+                log.debug("Chunked fill failed for blob: {}, the store doesn't honor byte ranges", blobKey);
+                return OptionalOrUnknown.unknown();
+            }
+            throw e;
+        }
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
         OptionalOrUnknown<InputStream> streamOpt = getStream(key);
@@ -241,12 +343,17 @@ public class CachingBlobStore extends AbstractBlobStore {
 
     @Override
     public void deleteBlob(String key) {
+        ChunkedFill fill = chunkedFills.get(key);
+        if (fill != null) {
+            fill.cancel();
+        }
         cacheStore.deleteBlob(key);
         store.deleteBlob(key);
     }
 
     @Override
     public void clear() {
+        chunkedFills.values().forEach(ChunkedFill::cancel);
         cacheStore.clear();
         store.clear();
     }
@@ -364,6 +471,254 @@ public class CachingBlobStore extends AbstractBlobStore {
         }
     }
 
+    /**
+     * The fill of the cache with a blob, downloaded as chunks in parallel into a temporary file which is renamed to the
+     * cached file once complete.
+     * <p>
+     * The chunks are downloaded in order, except for the ones waited for by a reader, which are downloaded first.
+     *
+     * @since 2023.19
+     */
+    protected class ChunkedFill {
+
+        protected final String key;
+
+        protected final long length;
+
+        protected final long chunkSize;
+
+        protected final int chunkCount;
+
+        // the chunks being or already downloaded
+        protected final BitSet claimed = new BitSet();
+
+        // the downloaded chunks
+        protected final BitSet done = new BitSet();
+
+        // the chunks waited for by readers
+        protected final Deque<Integer> wanted = new ArrayDeque<>();
+
+        protected Path tmp;
+
+        protected FileChannel channel;
+
+        // the cached file, once complete
+        protected Path path;
+
+        protected IOException failure;
+
+        protected ChunkedFill(String key, long length) {
+            this.key = key;
+            this.length = length;
+            chunkSize = cacheConfig.fillChunkSize;
+            chunkCount = (int) ((length + chunkSize - 1) / chunkSize);
+        }
+
+        protected void start() throws IOException {
+            synchronized (this) {
+                if (tmp != null || failure != null) {
+                    return; // already started or cancelled
+                }
+                try {
+                    tmp = cacheStore.pathStrategy.createTempFile();
+                    channel = FileChannel.open(tmp, WRITE);
+                    if (length > 0) {
+                        // allocate the whole file, so that the chunks can be written in any order
+                        channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                    throw e;
+                }
+                if (chunkCount == 0) {
+                    complete();
+                    return;
+                }
+            }
+            log.debug("Fetching blob: {} ({} bytes) in {} chunks", key, length, chunkCount);
+            int workers = Math.min(cacheConfig.fillParallelism, chunkCount);
+            // outside of the lock, the caller may fetch chunks itself when all the download threads are busy
+            for (int i = 0; i < workers; i++) {
+                FILL_EXECUTOR.execute(this::fetchChunks);
+            }
+        }
+
+        protected void fetchChunks() {
+            int chunk;
+            while ((chunk = claimNextChunk()) >= 0) {
+                try {
+                    fetchChunk(chunk);
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                    return;
+                }
+                boolean complete;
+                synchronized (this) {
+                    done.set(chunk);
+                    complete = done.cardinality() == chunkCount;
+                    notifyAll();
+                }
+                if (complete) {
+                    complete();
+                }
+            }
+        }
+
+        protected synchronized int claimNextChunk() {
+            if (failure != null) {
+                return -1;
+            }
+            Integer wantedChunk;
+            while ((wantedChunk = wanted.poll()) != null) {
+                if (!claimed.get(wantedChunk.intValue())) {
+                    claimed.set(wantedChunk.intValue());
+                    return wantedChunk.intValue();
+                }
+            }
+            int chunk = claimed.nextClearBit(0);
+            if (chunk >= chunkCount) {
+                return -1;
+            }
+            claimed.set(chunk);
+            return chunk;
+        }
+
+        protected void fetchChunk(int chunk) throws IOException {
+            long start = chunk * chunkSize;
+            long count = Math.min(chunkSize, length - start);
+            String chunkKey = setByteRangeInKey(key, ByteRange.inclusive(start, start + count - 1));
+            Path chunkTmp = null;
+            try {
+                InputStream stream;
+                OptionalOrUnknown<InputStream> streamOpt = store.getStream(chunkKey);
+                if (streamOpt.isUnknown()) {
+                    // low-level store, go through a file
+                    chunkTmp = cacheStore.pathStrategy.createTempFile();
+                    stream = store.readBlob(chunkKey, chunkTmp) ? Files.newInputStream(chunkTmp) : null;
+                } else {
+                    stream = streamOpt.isPresent() ? streamOpt.get() : null;
+                }
+                if (stream == null) {
+                    if (store.getBlobLength(key).isPresent()) {
+                        setByteRangeUnsupported();
+                        throw new IOException("Byte range not supported for chunk " + chunk + " of blob: " + key);
+                    }
+                    throw new IOException("Missing blob: " + key);
+                }
+                try (InputStream in = stream) {
+                    ReadableByteChannel source = Channels.newChannel(in);
+                    long written = 0;
+                    while (written < count) {
+                        long n = channel.transferFrom(source, start + written, count - written);
+                        if (n == 0) {
+                            break;
+                        }
+                        written += n;
+                    }
+                    if (written == count && in.read() != -1) {
+                        // the store returned more than the range
+                        setByteRangeUnsupported();
+                        throw new IOException("Byte range not supported for chunk " + chunk + " of blob: " + key);
+                    } else if (written != count) {
+                        throw new IOException("Unexpected length for chunk " + chunk + " of blob: " + key);
+                    }
+                }
+            } finally {
+                if (chunkTmp != null) {
+                    Files.deleteIfExists(chunkTmp);
+                }
+            }
+        }
+
+        protected void setByteRangeUnsupported() {
+            if (!byteRangeUnsupported) {
+                log.warn("Blob store: {} doesn't honor byte ranges, disabling chunked cache fills", store.getName());
+                byteRangeUnsupported = true;
+            }
+        }
+
+        protected void complete() {
+            Path dest = cacheStore.pathStrategy.getPathForKey(key);
+            try {
+                synchronized (this) {
+                    if (failure != null) {
+                        return;
+                    }
+                    channel.close();
+                    Files.createDirectories(dest.getParent());
+                    PathStrategy.atomicMove(tmp, dest);
+                    path = dest;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            chunkedFills.remove(key, this);
+            log.debug("Fetched blob: {}", key);
+            recordBlobAccess(dest);
+            clearOldBlobs();
+        }
+
+        protected void cancel() {
+            fail(new IOException("Fetch cancelled for blob: " + key));
+        }
+
+        protected void fail(Exception e) {
+            synchronized (this) {
+                if (failure != null || path != null) {
+                    return;
+                }
+                log.debug("Failed to fetch blob: {}", key, e);
+                failure = e instanceof IOException ioe ? ioe : new IOException(e);
+                notifyAll();
+                IOUtils.closeQuietly(channel);
+                if (tmp != null) {
+                    try {
+                        Files.deleteIfExists(tmp);
+                    } catch (IOException ee) {
+                        log.warn(ee, ee);
+                    }
+                }
+            }
+            chunkedFills.remove(key, this);
+        }
+
+        /**
+         * Gets a stream for the given byte range of the blob, or the whole blob if the range is {@code null}, waiting
+         * for the chunks covering it to be downloaded.
+         */
+        protected InputStream getStream(ByteRange byteRange) throws IOException {
+            long start = byteRange == null ? 0 : byteRange.getStart();
+            long end = byteRange == null ? length - 1 : Math.min(byteRange.getEnd(), length - 1);
+            int firstChunk = (int) (start / chunkSize);
+            int lastChunk = end < start ? firstChunk - 1 : (int) (end / chunkSize);
+            FileChannel in;
+            synchronized (this) {
+                for (int chunk = firstChunk; chunk <= lastChunk; chunk++) {
+                    if (!claimed.get(chunk)) {
+                        wanted.add(Integer.valueOf(chunk));
+                    }
+                }
+                while (failure == null && path == null && done.nextClearBit(firstChunk) <= lastChunk) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new NuxeoException("Interrupted while fetching blob: " + key, e);
+                    }
+                }
+                if (failure != null) {
+                    throw new IOException("Failed to fetch blob: " + key, failure);
+                }
+                // open under lock as the temporary file is renamed on completion
+                in = FileChannel.open(path == null ? tmp : path, READ);
+            }
+            in.position(start);
+            return new BoundedInputStream(Channels.newInputStream(in), Math.max(0, end - start + 1));
+        }
+    }
+
     protected static class PathInfo implements Comparable<PathInfo> {
 
         protected final Path path;
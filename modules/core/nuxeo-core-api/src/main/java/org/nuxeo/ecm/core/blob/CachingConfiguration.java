@@ -38,12 +38,33 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public static final String CACHE_MIN_AGE_PROPERTY = "cacheminage";
 
+    /**
+     * The size of the chunks in which a blob is fetched into the cache, or 0 to fetch a blob in one request. Blobs are
+     * fetched in one request when the store doesn't honor byte ranges.
+     *
+     * @since 2023.19
+     */
+    public static final String CACHE_FILL_CHUNK_SIZE_PROPERTY = "cachefillchunksize";
+
+    /**
+     * The maximum number of chunks of a blob fetched in parallel into the cache.
+     *
+     * @since 2023.19
+     */
+    public static final String CACHE_FILL_PARALLELISM_PROPERTY = "cachefillparallelism";
+
     public static final String DEFAULT_CACHE_SIZE = "100 mb";
 
     public static final String DEFAULT_CACHE_COUNT = "10000";
 
     public static final String DEFAULT_CACHE_MIN_AGE = "3600"; // 1h
 
+    /** @since 2023.19 */
+    public static final String DEFAULT_CACHE_FILL_CHUNK_SIZE = "0"; // no chunks
+
+    /** @since 2023.19 */
+    public static final int DEFAULT_CACHE_FILL_PARALLELISM = 4;
+
     public final Path dir;
 
     public final long maxSize;
@@ -52,6 +73,12 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public final long minAge;
 
+    /** @since 2023.19 */
+    public final long fillChunkSize;
+
+    /** @since 2023.19 */
+    public final int fillParallelism;
+
     public CachingConfiguration(String systemPropertyPrefix, Map<String, String> properties) throws IOException {
         super(systemPropertyPrefix, properties);
         dir = Framework.createTempDirectory("nxbincache.");
@@ -61,14 +88,25 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
         maxSize = SizeUtils.parseSizeInBytes(maxSizeProp);
         maxCount = Long.parseLong(maxCountProp);
         minAge = Long.parseLong(minAgeProp);
+        String fillChunkSizeProp = getProperty(CACHE_FILL_CHUNK_SIZE_PROPERTY, DEFAULT_CACHE_FILL_CHUNK_SIZE);
+        fillChunkSize = SizeUtils.parseSizeInBytes(fillChunkSizeProp);
+        fillParallelism = Math.max(1, getIntProperty(CACHE_FILL_PARALLELISM_PROPERTY, DEFAULT_CACHE_FILL_PARALLELISM));
     }
 
     public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge) {
+        this(dir, maxSize, maxCount, minAge, 0, DEFAULT_CACHE_FILL_PARALLELISM);
+    }
+
+    /** @since 2023.19 */
+    public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge, long fillChunkSize,
+            int fillParallelism) {
         super(null, null);
         this.dir = dir;
         this.maxSize = maxSize;
         this.maxCount = maxCount;
         this.minAge = minAge;
+        this.fillChunkSize = fillChunkSize;
+        this.fillParallelism = Math.max(1, fillParallelism);
     }
 
 }
@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.SizeUtils;
+
+/**
+ * A blob provider storing blobs on the local filesystem as deduplicated content-defined chunks.
+ *
+ * @since 2023.19
+ * @see ChunkingBlobStore
+ */
+public class ChunkingBlobProvider extends BlobStoreBlobProvider {
+
+    private static final Logger log = LogManager.getLogger(ChunkingBlobProvider.class);
+
+    public static final String CHUNK_MIN_SIZE_PROPERTY = "chunkMinSize";
+
+    public static final String CHUNK_AVG_SIZE_PROPERTY = "chunkAvgSize";
+
+    public static final String CHUNK_MAX_SIZE_PROPERTY = "chunkMaxSize";
+
+    public static final String DEFAULT_CHUNK_MIN_SIZE = "256 KB";
+
+    public static final String DEFAULT_CHUNK_AVG_SIZE = "1 MB";
+
+    public static final String DEFAULT_CHUNK_MAX_SIZE = "4 MB";
+
+    public static final String CHUNKS = "chunks";
+
+    public static final String STORE_SCROLL_NAME = "chunkingBlobScroll";
+
+    protected LocalBlobStoreConfiguration config;
+
+    @Override
+    protected BlobStore getBlobStore(String blobProviderId, Map<String, String> properties) throws IOException {
+        config = new LocalBlobStoreConfiguration(properties);
+        Path chunksDir = config.storageDir.resolveSibling(CHUNKS);
+        Files.createDirectories(chunksDir);
+        log.info("Registering blob provider '" + blobProviderId + "' using directory: " + config.storageDir.getParent());
+        ContentDefinedChunker chunker = new ContentDefinedChunker( //
+                getSize(CHUNK_MIN_SIZE_PROPERTY, DEFAULT_CHUNK_MIN_SIZE), //
+                getSize(CHUNK_AVG_SIZE_PROPERTY, DEFAULT_CHUNK_AVG_SIZE), //
+                getSize(CHUNK_MAX_SIZE_PROPERTY, DEFAULT_CHUNK_MAX_SIZE));
+        KeyStrategy keyStrategy = getKeyStrategy();
+        PathStrategy manifestPathStrategy;
+        if (keyStrategy.useDeDuplication()) {
+            manifestPathStrategy = new PathStrategySubDirs(config.storageDir, config.descriptor.depth);
+        } else {
+            manifestPathStrategy = new PathStrategyFlat(config.storageDir);
+        }
+        PathStrategy chunkPathStrategy = new PathStrategySubDirs(chunksDir, config.descriptor.depth);
+        BlobStore store = new ChunkingBlobStore(blobProviderId, "Chunking", keyStrategy, manifestPathStrategy,
+                chunkPathStrategy, chunker, allowByteRange());
+        if (isTransactional()) {
+            PathStrategy transientPathStrategy = new PathStrategyFlat(config.tmpDir);
+            BlobStore transientStore = new LocalBlobStore("Chunking_tmp", keyStrategy, transientPathStrategy);
+            store = new TransactionalBlobStore(blobProviderId, store, transientStore);
+        }
+        return store;
+    }
+
+    protected int getSize(String propertyName, String defaultValue) {
+        return Math.toIntExact(SizeUtils.parseSizeInBytes(config.getProperty(propertyName, defaultValue)));
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    @Override
+    protected String getDigestAlgorithm() {
+        return config.digestConfiguration.digestAlgorithm;
+    }
+
+    @Override
+    public String getStoreScrollName() {
+        return STORE_SCROLL_NAME;
+    }
+
+}
@@ -0,0 +1,532 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.mutable.MutableObject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+
+/**
+ * Blob store deduplicating the content of blobs at the chunk level.
+ * <p>
+ * The content of a blob is split into content-defined chunks (see {@link ContentDefinedChunker}), each unique chunk is
+ * stored once in a chunk store under its digest, and a manifest listing the chunks of the blob is stored in a manifest
+ * store under the blob key. Near-identical blobs, like successive versions of a large file, thus share most of their
+ * chunks.
+ * <p>
+ * Deleting a blob only deletes its manifest, the chunks no longer referenced by any manifest are deleted by the garbage
+ * collector.
+ *
+ * @since 2023.19
+ */
+public class ChunkingBlobStore extends AbstractBlobStore {
+
+    private static final Logger log = LogManager.getLogger(ChunkingBlobStore.class);
+
+    public static final String CHUNK_DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Windows FAT filesystems have a time resolution of 2s. Other common filesystems have 1s.
+     */
+    protected static final long TIME_RESOLUTION = 2000;
+
+    protected static final int LOCK_STRIPES = 64;
+
+    /**
+     * Locks by chunk digest, so that the GC doesn't delete a chunk while it's being reused.
+     */
+    protected final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // public for tests
+    public final LocalBlobStore manifestStore;
+
+    // public for tests
+    public final LocalBlobStore chunkStore;
+
+    protected final ContentDefinedChunker chunker;
+
+    protected final boolean allowByteRange;
+
+    protected final ChunkingBlobGarbageCollector gc;
+
+    public ChunkingBlobStore(String blobProviderId, String name, KeyStrategy keyStrategy,
+            PathStrategy manifestPathStrategy, PathStrategy chunkPathStrategy, ContentDefinedChunker chunker,
+            boolean allowByteRange) {
+        super(blobProviderId, name, keyStrategy);
+        manifestStore = new LocalBlobStore(name + "_manifests", keyStrategy, manifestPathStrategy);
+        chunkStore = new LocalBlobStore(name + "_chunks", new KeyStrategyDigest(CHUNK_DIGEST_ALGORITHM),
+                chunkPathStrategy);
+        this.chunker = chunker;
+        this.allowByteRange = allowByteRange;
+        gc = new ChunkingBlobGarbageCollector();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    protected ReentrantLock getLock(String digest) {
+        return locks[Math.floorMod(digest.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * The list of chunks of a blob.
+     */
+    protected static class Manifest {
+
+        protected final List<String> digests = new ArrayList<>();
+
+        protected final List<Long> lengths = new ArrayList<>();
+
+        protected long length;
+
+        protected void add(String digest, long chunkLength) {
+            digests.add(digest);
+            lengths.add(Long.valueOf(chunkLength));
+            length += chunkLength;
+        }
+
+        protected byte[] toBytes() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < digests.size(); i++) {
+                sb.append(digests.get(i)).append(' ').append(lengths.get(i)).append('\n');
+            }
+            return sb.toString().getBytes(UTF_8);
+        }
+
+        protected static Manifest read(InputStream in) throws IOException {
+            Manifest manifest = new Manifest();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int sep = line.indexOf(' ');
+                if (sep <= 0) {
+                    throw new IOException("Invalid manifest line: " + line);
+                }
+                manifest.add(line.substring(0, sep), Long.parseLong(line.substring(sep + 1)));
+            }
+            return manifest;
+        }
+    }
+
+    @Override
+    protected String writeBlobGeneric(BlobWriteContext blobWriteContext) throws IOException {
+        Manifest manifest = new Manifest();
+        try (OutputStream out = chunker.newOutputStream((bytes, length) -> manifest.add(writeChunk(bytes, length),
+                length))) {
+            transfer(blobWriteContext, out);
+        }
+        String key = blobWriteContext.getKey(); // may depend on WriteObserver, for example for digests
+        logTrace("->", "write " + manifest.length + " bytes in " + manifest.digests.size() + " chunks");
+        logTrace("hnote right: " + key);
+        writeManifest(key, manifest);
+        return key;
+    }
+
+    /**
+     * Writes a chunk if it's not already stored, and returns its digest.
+     */
+    protected String writeChunk(byte[] bytes, int length) throws IOException {
+        MessageDigest messageDigest = DigestUtils.getDigest(CHUNK_DIGEST_ALGORITHM);
+        messageDigest.update(bytes, 0, length);
+        String digest = Hex.encodeHexString(messageDigest.digest());
+        Path path = chunkStore.pathStrategy.getPathForKey(digest);
+        ReentrantLock lock = getLock(digest);
+        lock.lock();
+        try {
+            if (Files.exists(path)) { // NOSONAR (squid:S3725)
+                // record the reuse so that a concurrent GC doesn't delete the chunk
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                return digest;
+            }
+        } catch (NoSuchFileException e) {
+            // deleted concurrently, write it again
+        } finally {
+            lock.unlock();
+        }
+        byte[] chunk = Arrays.copyOf(bytes, length);
+        BlobContext blobContext = new BlobContext(new ByteArrayBlob(chunk), (String) null, null);
+        chunkStore.writeBlob(new BlobWriteContext(blobContext, null, () -> digest, KeyStrategyDocId.instance()));
+        return digest;
+    }
+
+    protected void writeManifest(String key, Manifest manifest) throws IOException {
+        BlobContext blobContext = new BlobContext(new ByteArrayBlob(manifest.toBytes()), (String) null, null);
+        manifestStore.writeBlob(new BlobWriteContext(blobContext, null, () -> key, KeyStrategyDocId.instance()));
+    }
+
+    /**
+     * Reads the manifest of a blob, or {@code null} if the blob doesn't exist.
+     */
+    protected Manifest readManifest(String key) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = manifestStore.getStream(key);
+        if (!streamOpt.isPresent()) {
+            return null;
+        }
+        try (InputStream in = streamOpt.get()) {
+            return Manifest.read(in);
+        }
+    }
+
+    @Override
+    public boolean copyBlobIsOptimized(BlobStore sourceStore) {
+        return sourceStore.unwrap() instanceof ChunkingBlobStore chunkingStore
+                && chunkingStore.chunkStore.getDirectory().equals(chunkStore.getDirectory());
+    }
+
+    @Override
+    public String copyOrMoveBlob(String key, BlobStore sourceStore, String sourceKey, boolean atomicMove)
+            throws IOException {
+        if (key != null && copyBlobIsOptimized(sourceStore)) {
+            // same chunks, just copy the manifest
+            ChunkingBlobStore chunkingStore = (ChunkingBlobStore) sourceStore.unwrap();
+            return manifestStore.copyOrMoveBlob(key, chunkingStore.manifestStore, sourceKey, atomicMove);
+        }
+        return copyBlobGeneric(key, sourceStore, sourceKey, atomicMove);
+    }
+
+    protected String copyBlobGeneric(String key, BlobStore sourceStore, String sourceKey, boolean atomicMove)
+            throws IOException {
+        Path tmp = null;
+        try {
+            Path file;
+            OptionalOrUnknown<Path> fileOpt = sourceStore.getFile(sourceKey);
+            if (fileOpt.isPresent()) {
+                file = fileOpt.get();
+            } else {
+                file = tmp = manifestStore.pathStrategy.createTempFile();
+                if (!sourceStore.readBlob(sourceKey, tmp)) {
+                    return null;
+                }
+            }
+            BlobContext blobContext = new BlobContext(null, (String) null, null);
+            BlobWriteContext blobWriteContext;
+            if (key == null) {
+                blobWriteContext = keyStrategy.getBlobWriteContext(blobContext);
+            } else {
+                blobWriteContext = new BlobWriteContext(blobContext, null, () -> key, KeyStrategyDocId.instance());
+            }
+            blobWriteContext.setFile(file);
+            String returnedKey = writeBlobGeneric(blobWriteContext);
+            if (atomicMove) {
+                sourceStore.deleteBlob(sourceKey);
+            }
+            return returnedKey;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    log.warn(e, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public OptionalOrUnknown<Path> getFile(String key) {
+        // the content is never stored as a single file
+        return OptionalOrUnknown.unknown();
+    }
+
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key) throws IOException {
+        ByteRange byteRange;
+        if (allowByteRange) {
+            MutableObject<String> keyHolder = new MutableObject<>(key);
+            byteRange = getByteRangeFromKey(keyHolder);
+            key = keyHolder.getValue();
+        } else {
+            byteRange = null;
+        }
+        Manifest manifest = readManifest(key);
+        if (manifest == null) {
+            logTrace("<--", "missing");
+            logTrace("hnote right: " + key);
+            return OptionalOrUnknown.missing();
+        }
+        long start = byteRange == null ? 0 : byteRange.getStart();
+        long end = byteRange == null ? manifest.length - 1 : Math.min(byteRange.getEnd(), manifest.length - 1);
+        return OptionalOrUnknown.of(new ChunksInputStream(manifest, start, end));
+    }
+
+    @Override
+    public OptionalOrUnknown<Long> getBlobLength(String key) {
+        try {
+            Manifest manifest = readManifest(key);
+            return manifest == null ? OptionalOrUnknown.missing() : OptionalOrUnknown.of(Long.valueOf(manifest.length));
+        } catch (IOException e) {
+            log.warn("Cannot read manifest of blob: {}", key, e);
+            return OptionalOrUnknown.unknown();
+        }
+    }
+
+    @Override
+    public boolean readBlob(String key, Path dest) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = getStream(key);
+        if (!streamOpt.isPresent()) {
+            return false;
+        }
+        try (InputStream stream = streamOpt.get()) {
+            Files.copy(stream, dest, REPLACE_EXISTING);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return manifestStore.exists(key);
+    }
+
+    @Override
+    public void deleteBlob(String key) {
+        // the chunks are deleted by the GC when no longer referenced
+        manifestStore.deleteBlob(key);
+    }
+
+    @Override
+    public void clear() {
+        manifestStore.clear();
+        chunkStore.clear();
+    }
+
+    @Override
+    public BinaryGarbageCollector getBinaryGarbageCollector() {
+        return gc;
+    }
+
+    /**
+     * Stream reassembling a range of the content of a blob from its chunks, opening each chunk only when reached.
+     */
+    protected class ChunksInputStream extends InputStream {
+
+        protected final Manifest manifest;
+
+        protected int chunk;
+
+        // bytes to skip in the next chunk
+        protected long skip;
+
+        protected long remaining;
+
+        protected InputStream current;
+
+        protected ChunksInputStream(Manifest manifest, long start, long end) {
+            this.manifest = manifest;
+            long offset = 0;
+            while (chunk < manifest.digests.size() && offset + manifest.lengths.get(chunk).longValue() <= start) {
+                offset += manifest.lengths.get(chunk++).longValue();
+            }
+            skip = start - offset;
+            remaining = Math.max(0, end - start + 1);
+        }
+
+        protected InputStream current() throws IOException {
+            while (current == null) {
+                if (remaining <= 0 || chunk >= manifest.digests.size()) {
+                    return null;
+                }
+                String digest = manifest.digests.get(chunk++);
+                OptionalOrUnknown<InputStream> streamOpt = chunkStore.getStream(digest);
+                if (!streamOpt.isPresent()) {
+                    throw new IOException("Missing chunk: " + digest);
+                }
+                current = streamOpt.get();
+                if (skip > 0) {
+                    IOUtils.skipFully(current, skip);
+                    skip = 0;
+                }
+            }
+            return current;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            InputStream in;
+            while ((in = current()) != null) {
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n >= 0) {
+                    remaining -= n;
+                    return n;
+                }
+                in.close();
+                current = null;
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            remaining = 0;
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Garbage collector deleting the manifests of unmarked blobs, then the chunks not referenced by any manifest.
+     */
+    public class ChunkingBlobGarbageCollector extends AbstractBlobGarbageCollector {
+
+        @Override
+        public String getId() {
+            return manifestStore.getDirectory().toUri().toString();
+        }
+
+        @Override
+        public void computeToDelete() {
+            toDelete = new HashSet<>();
+            forEachFile(manifestStore, path -> {
+                String key = path.getFileName().toString();
+                try {
+                    Manifest manifest = readManifest(key);
+                    if (manifest == null) {
+                        return; // deleted concurrently
+                    }
+                    status.sizeBinaries += manifest.length;
+                    status.numBinaries++;
+                    toDelete.add(key);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("GC cannot read manifest: {}", path, e);
+                }
+            });
+        }
+
+        @Override
+        public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            for (String key : toDelete) {
+                Manifest manifest;
+                try {
+                    manifest = readManifest(key);
+                } catch (IOException e) {
+                    log.warn("GC cannot read manifest: {}", key, e);
+                    continue;
+                }
+                if (manifest == null) {
+                    // shouldn't happen except if blob concurrently removed
+                    continue;
+                }
+                status.sizeBinariesGC += manifest.length;
+                status.numBinariesGC++;
+                status.sizeBinaries -= manifest.length;
+                status.numBinaries--;
+                if (delete) {
+                    manifestStore.deleteBlob(key);
+                }
+            }
+            if (delete) {
+                removeUnreferencedChunks();
+            }
+        }
+
+        protected void removeUnreferencedChunks() {
+            Set<String> referenced = new HashSet<>();
+            forEachFile(manifestStore, path -> {
+                try (InputStream in = Files.newInputStream(path)) {
+                    referenced.addAll(Manifest.read(in).digests);
+                } catch (NoSuchFileException e) {
+                    // deleted concurrently
+                } catch (IOException e) {
+                    // keep all the chunks rather than lose some
+                    throw new IllegalStateException("GC cannot read manifest: " + path, e);
+                }
+            });
+            // don't delete chunks written or reused since the GC started, their manifest may not be written yet
+            long minTime = startTime - TIME_RESOLUTION;
+            long[] deleted = new long[2];
+            forEachFile(chunkStore, path -> {
+                String digest = path.getFileName().toString();
+                if (referenced.contains(digest)) {
+                    return;
+                }
+                // check the time and delete atomically with respect to a reuse, see writeChunk
+                ReentrantLock lock = getLock(digest);
+                lock.lock();
+                try {
+                    if (Files.getLastModifiedTime(path).toMillis() < minTime) {
+                        long size = Files.size(path);
+                        Files.delete(path);
+                        deleted[0]++;
+                        deleted[1] += size;
+                    }
+                } catch (NoSuchFileException e) {
+                    // deleted concurrently
+                } catch (IOException e) {
+                    log.warn("GC cannot delete chunk: {}", path, e);
+                } finally {
+                    lock.unlock();
+                }
+            });
+            log.debug("GC deleted {} chunks ({} bytes), {} chunks referenced", deleted[0], deleted[1],
+                    referenced.size());
+        }
+
+        protected void forEachFile(LocalBlobStore store, Consumer<Path> consumer) {
+            try (Stream<Path> paths = Files.walk(store.getDirectory())) {
+                paths.filter(Files::isRegularFile)
+                     .filter(path -> !store.pathStrategy.isTempFile(path))
+                     .forEach(consumer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Splits a stream into content-defined chunks, using a Gear rolling hash.
+ * <p>
+ * A chunk boundary is placed after a byte when the rolling hash of the last 64 bytes matches a mask, so boundaries
+ * depend only on the local content: inserting or removing bytes in a stream only changes the chunks around the edit,
+ * and the other chunks stay identical. Chunks are never smaller than the minimum size (except the last one) nor bigger
+ * than the maximum size, and have the average size on random content.
+ *
+ * @since 2023.19
+ */
+public class ContentDefinedChunker {
+
+    /** Receives the chunks. */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+
+        /**
+         * Receives a chunk. The bytes array is reused after this call returns.
+         */
+        void accept(byte[] bytes, int length) throws IOException;
+    }
+
+    // fixed seed, the boundaries must be the same across restarts
+    protected static final long[] GEAR = new SplittableRandom(0x6e7863646368756eL).longs(256).toArray();
+
+    public final int minSize;
+
+    public final int avgSize;
+
+    public final int maxSize;
+
+    protected final long mask;
+
+    public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid chunk sizes: min=" + minSize + ", avg=" + avgSize + ", max=" + maxSize);
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        // the high bits of the Gear hash depend on the most bytes
+        int bits = Math.max(1, 31 - Integer.numberOfLeadingZeros(avgSize - minSize + 1));
+        mask = -1L << (64 - bits);
+    }
+
+    /**
+     * Returns an output stream splitting what is written to it into chunks. Closing the stream emits the last chunk.
+     */
+    public OutputStream newOutputStream(ChunkConsumer consumer) {
+        return new ChunkingOutputStream(consumer);
+    }
+
+    protected class ChunkingOutputStream extends OutputStream {
+
+        protected final ChunkConsumer consumer;
+
+        protected final byte[] buf = new byte[maxSize];
+
+        protected int length;
+
+        protected long hash;
+
+        protected boolean closed;
+
+        protected ChunkingOutputStream(ChunkConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buf[length++] = (byte) b;
+            hash = (hash << 1) + GEAR[b & 0xff];
+            if (length >= minSize && (hash & mask) == 0 || length == maxSize) {
+                emit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                byte v = b[i];
+                buf[length++] = v;
+                hash = (hash << 1) + GEAR[v & 0xff];
+                if (length >= minSize && (hash & mask) == 0 || length == maxSize) {
+                    emit();
+                }
+            }
+        }
+
+        protected void emit() throws IOException {
+            consumer.accept(buf, length);
+            length = 0;
+            hash = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (length > 0) {
+                emit();
+            }
+        }
+    }
+
+}
@@ -242,6 +242,12 @@ public class InMemoryBlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.of(stream);
     }
 
+    @Override
+    public OptionalOrUnknown<Long> getBlobLength(String key) {
+        byte[] bytes = map.get(key);
+        return bytes == null ? OptionalOrUnknown.missing() : OptionalOrUnknown.of(Long.valueOf(bytes.length));
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
         InputStream stream = getStreamInternal(key);
@@ -213,6 +213,16 @@ public class LocalBlobStore extends AbstractBlobStore {
         }
     }
 
+    @Override
+    public OptionalOrUnknown<Long> getBlobLength(String key) {
+        Path file = pathStrategy.getPathForKey(key);
+        try {
+            return OptionalOrUnknown.of(Files.size(file));
+        } catch (IOException e) {
+            return OptionalOrUnknown.missing();
+        }
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
         Path file = pathStrategy.getPathForKey(key);
@@ -18,12 +18,14 @@
  */
 package org.nuxeo.ecm.core.blob;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
@@ -31,8 +33,13 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.TemporalAmount;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -83,6 +90,10 @@ public class TestCachingBlobStoreCaching {
     protected CachingBlobStore getStore(BlobStore target, Path directory, String name, long maxSize, long maxCount,
             long minAge) {
         CachingConfiguration config = new CachingConfiguration(directory, maxSize, maxCount, minAge);
+        return getStore(target, name, config);
+    }
+
+    protected CachingBlobStore getStore(BlobStore target, String name, CachingConfiguration config) {
         CachingBlobStore store = new CachingBlobStore(name, name, target, config);
         store.clearOldBlobsInterval = 0; // clear immediately
         clock = new MutableClock();
@@ -285,6 +296,90 @@ public class TestCachingBlobStoreCaching {
         assertTrue(secondStore.exists(key));
     }
 
+    @Test
+    public void testCachingBlobStoreChunkedFill() throws IOException {
+        List<String> readKeys = new CopyOnWriteArrayList<>();
+        PropertyBasedConfiguration inMemoryConfig = new PropertyBasedConfiguration(null,
+                Map.of(BlobProviderDescriptor.ALLOW_BYTE_RANGE, "true"));
+        BlobStore inMemory = new InMemoryBlobStore("inMemory", inMemoryConfig, KeyStrategyDocId.instance()) {
+            @Override
+            public OptionalOrUnknown<InputStream> getStream(String key) throws IOException {
+                readKeys.add(key);
+                return super.getStream(key);
+            }
+        };
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String key = inMemory.writeBlob(new BlobContext(new ByteArrayBlob(bytes), "foo", XPATH));
+        // 100-byte chunks, 3 in parallel
+        CachingConfiguration config = new CachingConfiguration(dir, 10_000, 100, 1, 100, 3);
+        CachingBlobStore store = getStore(inMemory, "test", config);
+
+        // range read
+        String rangeKey = AbstractBlobStore.setByteRangeInKey(key, ByteRange.inclusive(250, 349));
+        try (InputStream stream = store.getStream(rangeKey).get()) {
+            assertArrayEquals(Arrays.copyOfRange(bytes, 250, 350), IOUtils.toByteArray(stream));
+        }
+        // whole blob, sharing the fill in progress if any
+        try (InputStream stream = store.getStream(key).get()) {
+            assertArrayEquals(bytes, IOUtils.toByteArray(stream));
+        }
+        assertTrue(exists(key));
+        // each chunk was read once, as a range
+        assertEquals(10, readKeys.size());
+        assertEquals(10, readKeys.stream().distinct().count());
+        assertTrue(readKeys.contains(AbstractBlobStore.setByteRangeInKey(key, ByteRange.inclusive(900, 999))));
+
+        // range read served from the cache
+        readKeys.clear();
+        rangeKey = AbstractBlobStore.setByteRangeInKey(key, ByteRange.inclusive(990, 1500));
+        try (InputStream stream = store.getStream(rangeKey).get()) {
+            assertArrayEquals(Arrays.copyOfRange(bytes, 990, 1000), IOUtils.toByteArray(stream));
+        }
+        assertEquals(0, readKeys.size());
+
+        // missing blob
+        assertTrue(store.getStream("nosuchkey").isMissing());
+    }
+
+    @Test
+    public void testCachingBlobStoreChunkedFillWithoutByteRange() throws IOException {
+        List<String> readKeys = new CopyOnWriteArrayList<>();
+        // byte ranges not allowed, range keys are not found
+        BlobStore inMemory = new InMemoryBlobStore("inMemory", KeyStrategyDocId.instance()) {
+            @Override
+            public OptionalOrUnknown<InputStream> getStream(String key) throws IOException {
+                readKeys.add(key);
+                return super.getStream(key);
+            }
+        };
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        String key1 = inMemory.writeBlob(new BlobContext(new ByteArrayBlob(bytes), "foo", XPATH));
+        String key2 = inMemory.writeBlob(new BlobContext(new ByteArrayBlob(bytes), "bar", XPATH));
+        CachingConfiguration config = new CachingConfiguration(dir, 10_000, 100, 1, 100, 3);
+        CachingBlobStore store = getStore(inMemory, "test", config);
+
+        // the chunked fill fails, the blob is fetched with a single request
+        try (InputStream stream = store.getStream(key1).get()) {
+            assertArrayEquals(bytes, IOUtils.toByteArray(stream));
+        }
+        assertTrue(exists(key1));
+        assertTrue(store.byteRangeUnsupported);
+
+        // next fills use a single request
+        readKeys.clear();
+        try (InputStream stream = store.getStream(key2).get()) {
+            assertArrayEquals(bytes, IOUtils.toByteArray(stream));
+        }
+        // no chunk requested, the single request goes through readBlob
+        assertTrue(readKeys.toString(), readKeys.isEmpty());
+    }
+
     protected static class MutableClock extends Clock {
 
         protected Instant instant;
@@ -0,0 +1,200 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+
+/**
+ * @since 2023.19
+ */
+public class TestChunkingBlobStore {
+
+    protected Path dir;
+
+    protected ChunkingBlobStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("testchunkingblobstore.");
+        Path dataDir = Files.createDirectory(dir.resolve("data"));
+        Path chunksDir = Files.createDirectory(dir.resolve("chunks"));
+        store = new ChunkingBlobStore(null, "test", new KeyStrategyDigest("MD5"), new PathStrategySubDirs(dataDir, 2),
+                new PathStrategySubDirs(chunksDir, 2), new ContentDefinedChunker(64, 256, 1024), true);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(dir.toFile());
+    }
+
+    protected static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(1234).nextBytes(bytes);
+        return bytes;
+    }
+
+    protected String write(byte[] bytes) throws IOException {
+        return store.writeBlob(new BlobContext(new ByteArrayBlob(bytes), "id", "content"));
+    }
+
+    protected byte[] read(String key) throws IOException {
+        try (InputStream stream = store.getStream(key).get()) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    protected long countChunks() throws IOException {
+        try (Stream<Path> paths = Files.walk(store.chunkStore.getDirectory())) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    protected void makeChunksOld() throws IOException {
+        try (Stream<Path> paths = Files.walk(store.chunkStore.getDirectory())) {
+            for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        byte[] bytes = randomBytes(100_000);
+        String key = write(bytes);
+        assertEquals(DigestUtils.md5Hex(bytes), key);
+        assertTrue(store.exists(key));
+        assertArrayEquals(bytes, read(key));
+        assertEquals(Long.valueOf(bytes.length), store.getBlobLength(key).get());
+        assertTrue(store.getFile(key).isUnknown());
+
+        // byte ranges across chunks
+        String rangeKey = AbstractBlobStore.setByteRangeInKey(key, ByteRange.inclusive(12_345, 67_890));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 12_345, 67_891), read(rangeKey));
+        rangeKey = AbstractBlobStore.setByteRangeInKey(key, ByteRange.inclusive(99_990, 200_000));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 99_990, 100_000), read(rangeKey));
+
+        // empty blob
+        String emptyKey = write(new byte[0]);
+        assertArrayEquals(new byte[0], read(emptyKey));
+
+        store.deleteBlob(key);
+        assertFalse(store.exists(key));
+        assertTrue(store.getStream(key).isMissing());
+    }
+
+    @Test
+    public void testDeduplication() throws IOException {
+        byte[] bytes = randomBytes(100_000);
+        write(bytes);
+        long chunks = countChunks();
+        // same content: no new chunks
+        write(ArrayUtils.add(bytes, (byte) 0));
+        assertTrue(countChunks() <= chunks + 1);
+        // small edit in the middle: few new chunks
+        chunks = countChunks();
+        byte[] edited = ArrayUtils.insert(50_000, bytes, "inserted bytes".getBytes());
+        String key = write(edited);
+        assertTrue(countChunks() <= chunks + 3);
+        assertArrayEquals(edited, read(key));
+    }
+
+    @Test
+    public void testGC() throws IOException {
+        byte[] bytes1 = randomBytes(100_000);
+        byte[] bytes2 = Arrays.copyOf(bytes1, 50_000);
+        String key1 = write(bytes1);
+        String key2 = write(bytes2);
+        long chunks1 = countChunks();
+        // make chunks old enough to be collected
+        makeChunksOld();
+
+        BinaryGarbageCollector gc = store.getBinaryGarbageCollector();
+        gc.start();
+        gc.mark(key2);
+        gc.stop(true);
+        assertEquals(1, gc.getStatus().getNumBinaries());
+        assertEquals(bytes2.length, gc.getStatus().getSizeBinaries());
+        assertEquals(1, gc.getStatus().getNumBinariesGC());
+        assertEquals(bytes1.length, gc.getStatus().getSizeBinariesGC());
+
+        assertFalse(store.exists(key1));
+        assertArrayEquals(bytes2, read(key2));
+        long chunks2 = countChunks();
+        assertTrue(chunks2 > 0);
+        assertTrue(chunks2 < chunks1);
+    }
+
+    @Test
+    public void testGCConcurrentReuse() throws Exception {
+        byte[] bytes = randomBytes(100_000);
+        write(bytes);
+        makeChunksOld();
+
+        // blobs reusing the unreferenced chunks are written while the GC deletes them
+        BinaryGarbageCollector gc = store.getBinaryGarbageCollector();
+        gc.start();
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<String, byte[]>> future = executor.submit(() -> {
+                Map<String, byte[]> written = new HashMap<>();
+                for (int i = 0; !done.get() || i < 10; i++) {
+                    byte[] b = ArrayUtils.add(bytes, (byte) i);
+                    written.put(write(b), b);
+                }
+                return written;
+            });
+            gc.stop(true);
+            done.set(true);
+            for (Entry<String, byte[]> es : future.get(20, TimeUnit.SECONDS).entrySet()) {
+                assertArrayEquals(es.getValue(), read(es.getKey()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.junit.Test;
+
+/**
+ * @since 2023.19
+ */
+public class TestContentDefinedChunker {
+
+    protected final ContentDefinedChunker chunker = new ContentDefinedChunker(64, 256, 1024);
+
+    protected static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(1234).nextBytes(bytes);
+        return bytes;
+    }
+
+    protected List<String> chunks(byte[] bytes) throws IOException {
+        List<String> chunks = new ArrayList<>();
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        try (OutputStream out = chunker.newOutputStream((b, length) -> {
+            chunks.add(new String(b, 0, length, ISO_8859_1));
+            all.write(b, 0, length);
+        })) {
+            // write in odd-sized pieces to check that the boundaries don't depend on them
+            for (int i = 0; i < bytes.length; i += 1000) {
+                out.write(bytes, i, Math.min(1000, bytes.length - i));
+            }
+        }
+        assertArrayEquals(bytes, all.toByteArray());
+        return chunks;
+    }
+
+    @Test
+    public void testChunkSizes() throws IOException {
+        List<String> chunks = chunks(randomBytes(100_000));
+        for (int i = 0; i < chunks.size(); i++) {
+            int length = chunks.get(i).length();
+            assertTrue(String.valueOf(length), length <= 1024);
+            if (i < chunks.size() - 1) {
+                assertTrue(String.valueOf(length), length >= 64);
+            }
+        }
+        // average size on random content
+        int avg = 100_000 / chunks.size();
+        assertTrue(String.valueOf(avg), avg > 128 && avg < 512);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals(List.of(), chunks(new byte[0]));
+    }
+
+    @Test
+    public void testInsertionOnlyChangesNearbyChunks() throws IOException {
+        byte[] bytes = randomBytes(100_000);
+        List<String> chunks = chunks(bytes);
+        byte[] edited = ArrayUtils.insert(50_000, bytes, "inserted bytes".getBytes());
+        List<String> editedChunks = chunks(edited);
+        Set<String> newChunks = new HashSet<>(editedChunks);
+        newChunks.removeAll(chunks);
+        assertTrue(String.valueOf(newChunks.size()), newChunks.size() <= 3);
+    }
+
+}
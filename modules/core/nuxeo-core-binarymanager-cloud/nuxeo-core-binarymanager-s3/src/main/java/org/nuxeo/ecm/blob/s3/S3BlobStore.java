@@ -367,6 +367,17 @@ public class S3BlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.unknown();
     }
 
+    @Override
+    public OptionalOrUnknown<Long> getBlobLength(String key) {
+        key = getBlobKeyReplacement(key);
+        if (config.useClientSideEncryption || useVersion && key.indexOf(VER_SEP) > 0) {
+            // the stored length is not the one of the blob, or not the one of this version
+            return OptionalOrUnknown.unknown();
+        }
+        long length = lengthOfBlob(key);
+        return length < 0 ? OptionalOrUnknown.missing() : OptionalOrUnknown.of(Long.valueOf(length));
+    }
+
     @Override
     public boolean exists(String key) {
         return bucketKeyExists(bucketKey(key));
@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.bulk.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.bulk.message.BulkBucket;
+import org.nuxeo.ecm.core.bulk.message.BulkCommand;
+import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.runtime.codec.CodecService;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Compares the size of the codecs on bulk messages.
+ *
+ * @since 2023.19
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreBulkFeature.class)
+public class TestBulkCodecs {
+
+    protected static final String[] CODECS = { "java", "avroBinary", "compact", "compactLz4", "compactZstd" };
+
+    // the header byte, object tag, schema fingerprint and null bitmap of the compact codec, that Avro binary doesn't
+    // write as its schema is fixed
+    protected static final int COMPACT_OVERHEAD = 7;
+
+    protected static final String QUERY = "SELECT * FROM Document";
+
+    @Inject
+    protected CodecService codecService;
+
+    @Test
+    public void testBulkCommand() {
+        Map<String, Serializable> params = new HashMap<>();
+        params.put("xpath", "dc:title");
+        params.put("value", "foo");
+        BulkCommand command = new BulkCommand.Builder("setProperties", QUERY, "Administrator").repository("test")
+                                                                                              .bucket(100)
+                                                                                              .batch(25)
+                                                                                              .params(params)
+                                                                                              .build();
+        Map<String, Integer> sizes = compareCodecs(command, BulkCommand.class);
+        assertTrue(sizes.toString(), sizes.get("compact") < sizes.get("avroBinary"));
+    }
+
+    @Test
+    public void testBulkStatus() {
+        BulkStatus status = new BulkStatus(UUID.randomUUID().toString());
+        status.setAction("setProperties");
+        status.setUsername("Administrator");
+        status.setState(BulkStatus.State.RUNNING);
+        status.setSubmitTime(Instant.now());
+        status.setScrollStartTime(Instant.now());
+        status.setProcessed(1234);
+        status.setTotal(5000);
+        Map<String, Serializable> result = new HashMap<>();
+        result.put("url", "/nuxeo/site/api/v1/bulk/foo");
+        status.setResult(result);
+        Map<String, Integer> sizes = compareCodecs(status, BulkStatus.class);
+        assertTrue(sizes.toString(), sizes.get("compact") < sizes.get("avroBinary"));
+    }
+
+    @Test
+    public void testBulkBucket() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        BulkBucket bucket = new BulkBucket(UUID.randomUUID().toString(), ids);
+        Map<String, Integer> sizes = compareCodecs(bucket, BulkBucket.class);
+        // a message without null nor numeric fields leaves nothing to save on the compact overhead
+        assertTrue(sizes.toString(), sizes.get("compact") <= sizes.get("avroBinary") + COMPACT_OVERHEAD);
+        // random ids don't compress much
+        assertTrue(sizes.toString(), sizes.get("compactLz4") <= sizes.get("compact"));
+        assertTrue(sizes.toString(), sizes.get("compactZstd") <= sizes.get("compact"));
+    }
+
+    /**
+     * Checks that each codec decodes what it encodes, returns the encoded sizes by codec.
+     */
+    protected <T> Map<String, Integer> compareCodecs(T object, Class<T> objectClass) {
+        Map<String, Integer> sizes = new HashMap<>();
+        for (String name : CODECS) {
+            Codec<T> codec = codecService.getCodec(name, objectClass);
+            byte[] data = codec.encode(object);
+            assertEquals(name, object, codec.decode(data));
+            sizes.put(name, data.length);
+        }
+        return sizes;
+    }
+
+}
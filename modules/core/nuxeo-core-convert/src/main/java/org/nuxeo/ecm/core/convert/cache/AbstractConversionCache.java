@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+
+/**
+ * Base class for {@link ConversionCache} implementations, making sure that only one thread of this node runs a given
+ * conversion at a time.
+ *
+ * @since 2023.19
+ */
+public abstract class AbstractConversionCache implements ConversionCache {
+
+    private static final Logger log = LogManager.getLogger(AbstractConversionCache.class);
+
+    public static final String CONFIG_CONVERSION_TIMEOUT = "conversionTimeout";
+
+    /** Default maximum time in seconds to wait for a conversion run by another thread or node. */
+    public static final int DEFAULT_CONVERSION_TIMEOUT = 300;
+
+    protected final Map<String, CountDownLatch> inFlight = new ConcurrentHashMap<>();
+
+    protected int conversionTimeout = DEFAULT_CONVERSION_TIMEOUT;
+
+    @Override
+    public void init(Map<String, String> properties) {
+        String timeout = properties.get(CONFIG_CONVERSION_TIMEOUT);
+        if (timeout != null) {
+            conversionTimeout = Integer.parseInt(timeout.trim());
+        }
+    }
+
+    @Override
+    public BlobHolder convert(String key, Supplier<BlobHolder> conversion) {
+        BlobHolder result = get(key);
+        if (result != null) {
+            return result;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch running = inFlight.putIfAbsent(key, latch);
+        if (running == null) {
+            try {
+                return doConvert(key, conversion);
+            } finally {
+                inFlight.remove(key, latch);
+                latch.countDown();
+            }
+        }
+        // another thread runs the same conversion, wait for its result
+        try {
+            if (!running.await(conversionTimeout, TimeUnit.SECONDS)) {
+                log.warn("Timeout waiting for conversion: {}", key);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while waiting for conversion: " + key, e);
+        }
+        result = get(key);
+        if (result == null) {
+            // the conversion failed or its result cannot be cached
+            result = conversion.get();
+        }
+        return result;
+    }
+
+    /**
+     * Runs the conversion and caches its result, called by only one thread at a time for a given key.
+     */
+    protected BlobHolder doConvert(String key, Supplier<BlobHolder> conversion) {
+        // re-check now that we're the only thread converting
+        BlobHolder result = get(key);
+        if (result == null) {
+            result = conversion.get();
+            if (result != null) {
+                put(key, result);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.convert.api.ConversionService;
+
+/**
+ * Backend of the {@link ConversionService} cache, storing conversion results by cache key.
+ *
+ * @see CacheKeyGenerator
+ * @since 2023.19
+ */
+public interface ConversionCache {
+
+    /**
+     * Initializes the cache with the properties of its configuration.
+     */
+    void init(Map<String, String> properties);
+
+    /**
+     * Gets a conversion result from the cache.
+     *
+     * @return the result, or {@code null} if not in the cache
+     */
+    BlobHolder get(String key);
+
+    /**
+     * Puts a conversion result in the cache. Results that cannot be persisted are ignored.
+     */
+    void put(String key, BlobHolder result);
+
+    /**
+     * Gets a conversion result from the cache, or runs the conversion and caches its result.
+     * <p>
+     * Implementations make sure that concurrent calls for the same key don't run the same conversion in parallel: one
+     * call runs the conversion while the others wait for its result.
+     *
+     * @param key the cache key
+     * @param conversion the conversion to run if the result is not in the cache
+     * @return the result
+     */
+    default BlobHolder convert(String key, Supplier<BlobHolder> conversion) {
+        BlobHolder result = get(key);
+        if (result == null) {
+            result = conversion.get();
+            if (result != null) {
+                put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evicts the least recently used results if the cache is over its maximum size.
+     *
+     * @return {@code true} if some results were evicted
+     */
+    boolean gcIfNeeded();
+
+    /**
+     * Removes all the results from the cache.
+     */
+    void clear();
+
+    /**
+     * Called when the conversion service is deactivated.
+     */
+    void shutdown();
+
+}
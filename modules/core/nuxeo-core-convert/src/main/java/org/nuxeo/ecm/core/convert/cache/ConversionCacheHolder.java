@@ -22,14 +22,14 @@ package org.nuxeo.ecm.core.convert.cache;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.logging.log4j.LogManager;
@@ -48,9 +48,23 @@ public class ConversionCacheHolder {
 
     private static final Logger log = LogManager.getLogger(ConversionCacheHolder.class);
 
-    protected static final Map<String, ConversionCacheEntry> cache = new HashMap<>();
+    protected static final Map<String, ConversionCacheEntry> cache = new ConcurrentHashMap<>();
 
-    protected static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    /** @since 2023.19 */
+    protected static final int LOCK_STRIPES = 64;
+
+    /**
+     * Locks by key hash, so that operations on different keys don't wait for each other.
+     *
+     * @since 2023.19
+     */
+    protected static final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
 
     public static final int NB_SUB_PATH_PART = 5;
 
@@ -67,7 +81,12 @@ public class ConversionCacheHolder {
     }
 
     public static int getNbCacheEntries() {
-        return cache.keySet().size();
+        return cache.size();
+    }
+
+    /** @since 2023.19 */
+    protected static ReentrantLock getLock(String key) {
+        return locks[Math.floorMod(key.hashCode(), LOCK_STRIPES)];
     }
 
     protected static List<String> getSubPathFromKey(String key) {
@@ -108,11 +127,12 @@ public class ConversionCacheHolder {
 
     public static void addToCache(String key, BlobHolder result) {
         Objects.requireNonNull(key);
-        cacheLock.writeLock().lock();
+        ReentrantLock lock = getLock(key);
+        lock.lock();
         try {
             doAddToCache(key, result);
         } finally {
-            cacheLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -132,30 +152,25 @@ public class ConversionCacheHolder {
     }
 
     public static void removeFromCache(String key) {
-        cacheLock.writeLock().lock();
+        ReentrantLock lock = getLock(key);
+        lock.lock();
         try {
             doRemoveFromCache(key);
         } finally {
-            cacheLock.writeLock().unlock();
+            lock.unlock();
         }
 
     }
 
     protected static void doRemoveFromCache(String key) {
-        if (cache.containsKey(key)) {
-            ConversionCacheEntry cce = cache.get(key);
+        ConversionCacheEntry cce = cache.remove(key);
+        if (cce != null) {
             cce.remove();
-            cache.remove(key);
         }
     }
 
     public static ConversionCacheEntry getCacheEntry(String key) {
-        cacheLock.readLock().lock();
-        try {
-            return doGetCacheEntry(key);
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return doGetCacheEntry(key);
     }
 
     protected static ConversionCacheEntry doGetCacheEntry(String key) {
@@ -163,16 +178,20 @@ public class ConversionCacheHolder {
     }
 
     public static BlobHolder getFromCache(String key) {
+        if (!cache.containsKey(key)) {
+            return null;
+        }
         // in case of present key but missing file we need to remove the cache key.
-        cacheLock.writeLock().lock();
+        ReentrantLock lock = getLock(key);
+        lock.lock();
         try {
             BlobHolder result = doGetFromCache(key);
             if (result == null) {
-                removeFromCache(key);
+                doRemoveFromCache(key);
             }
             return result;
         } finally {
-            cacheLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -192,24 +211,14 @@ public class ConversionCacheHolder {
     }
 
     public static Set<String> getCacheKeys() {
-        cacheLock.readLock().lock();
-        try {
-            return new HashSet<>(cache.keySet());
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return new HashSet<>(cache.keySet());
     }
 
     /**
      * @since 6.0
      */
     public static void deleteCache() {
-        cacheLock.writeLock().lock();
-        try {
-            cache.clear();
-            new File(ConversionServiceImpl.getCacheBasePath()).delete();
-        } finally {
-            cacheLock.writeLock().unlock();
-        }
+        cache.clear();
+        new File(ConversionServiceImpl.getCacheBasePath()).delete();
     }
 }
@@ -42,7 +42,11 @@ public class GCTask implements Runnable {
     public void run() {
         log.debug("starting GC thread");
         while (GCEnabled) {
-            ConversionCacheGCManager.gcIfNeeded();
+            try {
+                ConversionServiceImpl.getConversionCache().gcIfNeeded();
+            } catch (RuntimeException e) {
+                log.error("Conversion cache GC failed", e);
+            }
             try {
                 long gcInterval = ConversionServiceImpl.getGCIntervalInMinutes();
 
@@ -0,0 +1,518 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobManagerComponent;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.ecm.core.convert.service.ConversionServiceImpl;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link ConversionCache} shared by all the nodes of a cluster, storing the results in a Blob Provider and their
+ * index in a Key/Value store.
+ * <p>
+ * Only one node of the cluster runs a given conversion at a time, the other nodes wait for its result. The least
+ * recently used results are evicted when the storage size is over the {@code diskCacheSize} of the conversion service
+ * configuration, and results not accessed for a while expire.
+ * <p>
+ * This cache is configured with the following properties:
+ * <ul>
+ * <li><em>keyValueStore</em>: the name of the key/value store to use, default "convert".
+ * <li><em>blobProvider</em>: the name of the blob provider to use, default "transient_convert". It must be
+ * transient.
+ * <li><em>defaultBlobProvider</em>: if the blob provider doesn't exist, a namespaced copy of this one will be used
+ * instead. The default is "default".
+ * <li><em>ttl</em>: the time in seconds after which a result not accessed expires, default 7 days.
+ * <li><em>conversionTimeout</em>: the maximum time in seconds to wait for a conversion run by another node, default
+ * 300.
+ * </ul>
+ * <p>
+ * The storage format is the following, where the entry key is the SHA-256 of the cache key:
+ *
+ * <pre>
+ *   __blobsize__:     storage size; because entries may expire due to their TTL, this may be higher than the
+ *                     actual storage size
+ *   __gclock__:       present while a node is evicting entries
+ *
+ *   entryKey.info:    {"size": storage size of the blobs,
+ *                      "blobs": [{"key": key in blob provider, "mimetype": ..., "encoding": ...,
+ *                                 "filename": ..., "length": ..., "digest": ...}, ...]}
+ *   entryKey.access:  last access time in milliseconds
+ *   entryKey.lock:    present while a node runs the conversion
+ *   entryKey.id.put:  present while a node stores a result, so that a concurrent GC keeps its blobs
+ * </pre>
+ *
+ * @since 2023.19
+ */
+public class KeyValueBlobConversionCache extends AbstractConversionCache {
+
+    private static final Logger log = LogManager.getLogger(KeyValueBlobConversionCache.class);
+
+    public static final String CONFIG_KEY_VALUE_STORE = "keyValueStore";
+
+    public static final String CONFIG_BLOB_PROVIDER = "blobProvider";
+
+    public static final String CONFIG_DEFAULT_BLOB_PROVIDER = "defaultBlobProvider";
+
+    public static final String CONFIG_TTL = "ttl";
+
+    public static final String DEFAULT_KEY_VALUE_STORE = "convert";
+
+    public static final String DEFAULT_BLOB_PROVIDER = BlobManagerComponent.TRANSIENT_ID_PREFIX + "_convert";
+
+    public static final String DEFAULT_DEFAULT_BLOB_PROVIDER = "default";
+
+    public static final int DEFAULT_TTL = 7 * 24 * 3600;
+
+    public static final String STORAGE_SIZE = "__blobsize__";
+
+    public static final String GC_LOCK = "__gclock__";
+
+    public static final String DOT_INFO = ".info";
+
+    public static final String DOT_ACCESS = ".access";
+
+    public static final String DOT_LOCK = ".lock";
+
+    public static final String DOT_PUT = ".put";
+
+    public static final String SIZE = "size";
+
+    public static final String BLOBS = "blobs";
+
+    public static final String KEY = "key";
+
+    public static final String MIMETYPE = "mimetype";
+
+    public static final String ENCODING = "encoding";
+
+    public static final String FILENAME = "filename";
+
+    public static final String LENGTH = "length";
+
+    public static final String DIGEST = "digest";
+
+    protected static final long MAX_POLL_SLEEP_MS = 1000;
+
+    protected static final TypeReference<Map<String, Object>> MAP_STRING_OBJECT = new TypeReference<>() {
+    };
+
+    protected final ObjectMapper mapper = new ObjectMapper();
+
+    // identifies the conversions run by this node
+    protected final String owner = UUID.randomUUID().toString();
+
+    protected String keyValueStoreName;
+
+    protected String blobProviderId;
+
+    protected String defaultBlobProviderId;
+
+    protected int ttl;
+
+    @Override
+    public void init(Map<String, String> properties) {
+        super.init(properties);
+        keyValueStoreName = defaultIfBlank(properties.get(CONFIG_KEY_VALUE_STORE), DEFAULT_KEY_VALUE_STORE);
+        blobProviderId = defaultIfBlank(properties.get(CONFIG_BLOB_PROVIDER), DEFAULT_BLOB_PROVIDER);
+        defaultBlobProviderId = defaultIfBlank(properties.get(CONFIG_DEFAULT_BLOB_PROVIDER),
+                DEFAULT_DEFAULT_BLOB_PROVIDER);
+        String ttlStr = properties.get(CONFIG_TTL);
+        ttl = ttlStr == null ? DEFAULT_TTL : Integer.parseInt(ttlStr.trim());
+    }
+
+    protected KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(keyValueStoreName);
+    }
+
+    protected BlobProvider getBlobProvider() {
+        BlobProvider blobProvider = Framework.getService(BlobManager.class)
+                                             .getBlobProviderWithNamespace(blobProviderId, defaultBlobProviderId);
+        if (blobProvider == null) {
+            throw new NuxeoException("No blob provider with id: " + blobProviderId);
+        }
+        if (!blobProvider.isTransient()) {
+            throw new NuxeoException("Blob provider: " + blobProviderId + " used for the conversion cache must be"
+                    + " configured as transient");
+        }
+        return blobProvider;
+    }
+
+    /**
+     * Returns the key of the entry, cache keys can be long and contain any character.
+     */
+    protected String getEntryKey(String key) {
+        return DigestUtils.sha256Hex(key);
+    }
+
+    @Override
+    public BlobHolder get(String key) {
+        String entryKey = getEntryKey(key);
+        KeyValueStore kvs = getKeyValueStore();
+        Map<String, Object> info = jsonToMap(kvs.getString(entryKey + DOT_INFO));
+        if (info == null) {
+            return null;
+        }
+        BlobProvider bp = getBlobProvider();
+        List<Blob> blobs = new ArrayList<>();
+        for (Map<String, Object> blobMap : getBlobMaps(info)) {
+            BlobInfo blobInfo = new BlobInfo();
+            blobInfo.key = (String) blobMap.get(KEY);
+            blobInfo.mimeType = (String) blobMap.get(MIMETYPE);
+            blobInfo.encoding = (String) blobMap.get(ENCODING);
+            blobInfo.filename = (String) blobMap.get(FILENAME);
+            Number length = (Number) blobMap.get(LENGTH);
+            blobInfo.length = length == null ? null : length.longValue();
+            blobInfo.digest = (String) blobMap.get(DIGEST);
+            try {
+                blobs.add(bp.readBlob(blobInfo));
+            } catch (IOException e) {
+                // the blob was removed by a concurrent GC, the entry is obsolete
+                log.debug("Failed to read blob: {} of conversion cache entry: {}", blobInfo.key, key);
+                return null;
+            }
+        }
+        // the entries used recently are the last ones evicted
+        kvs.put(entryKey + DOT_ACCESS, String.valueOf(System.currentTimeMillis()), ttl);
+        kvs.setTTL(entryKey + DOT_INFO, ttl);
+        ConversionCacheHolder.CACHE_HITS.incrementAndGet();
+        return new SimpleCachableBlobHolder(blobs);
+    }
+
+    @Override
+    public void put(String key, BlobHolder result) {
+        List<Blob> blobs = result.getBlobs();
+        if (blobs == null || blobs.isEmpty()) {
+            return;
+        }
+        String entryKey = getEntryKey(key);
+        KeyValueStore kvs = getKeyValueStore();
+        // written before the blobs, see deleteUnusedBlobs
+        String putKey = entryKey + "." + UUID.randomUUID() + DOT_PUT;
+        kvs.put(putKey, owner, conversionTimeout);
+        try {
+            put(key, entryKey, blobs, kvs);
+        } finally {
+            kvs.put(putKey, (String) null);
+        }
+    }
+
+    protected void put(String key, String entryKey, List<Blob> blobs, KeyValueStore kvs) {
+        BlobProvider bp = getBlobProvider();
+        long size = 0;
+        List<Map<String, Object>> blobMaps = new ArrayList<>();
+        for (Blob blob : blobs) {
+            String blobKey;
+            try {
+                blobKey = bp.writeBlob(blob);
+            } catch (IOException e) {
+                log.error("Cannot store conversion result for: {}", key, e);
+                return;
+            }
+            long length = blob.getLength();
+            if (length > 0) {
+                size += length;
+            }
+            Map<String, Object> blobMap = new HashMap<>();
+            blobMap.put(KEY, blobKey);
+            blobMap.put(MIMETYPE, blob.getMimeType());
+            blobMap.put(ENCODING, blob.getEncoding());
+            blobMap.put(FILENAME, blob.getFilename());
+            blobMap.put(LENGTH, length);
+            blobMap.put(DIGEST, blob.getDigest());
+            blobMaps.add(blobMap);
+        }
+        Map<String, Object> info = new HashMap<>();
+        info.put(SIZE, size);
+        info.put(BLOBS, blobMaps);
+        kvs.put(entryKey + DOT_ACCESS, String.valueOf(System.currentTimeMillis()), ttl);
+        String previous = kvs.getString(entryKey + DOT_INFO);
+        kvs.put(entryKey + DOT_INFO, toJson(info), ttl);
+        addStorageSize(size - getSize(jsonToMap(previous)), kvs);
+    }
+
+    /**
+     * Runs the conversion if no other node is running it, otherwise waits for its result.
+     */
+    @Override
+    protected BlobHolder doConvert(String key, Supplier<BlobHolder> conversion) {
+        BlobHolder result = get(key);
+        if (result != null) {
+            return result;
+        }
+        String lockKey = getEntryKey(key) + DOT_LOCK;
+        KeyValueStore kvs = getKeyValueStore();
+        boolean locked = kvs.compareAndSet(lockKey, null, owner, conversionTimeout);
+        if (!locked) {
+            result = waitForConversion(key, lockKey, kvs);
+            if (result != null) {
+                return result;
+            }
+            // the other node failed, or its result cannot be cached
+            locked = kvs.compareAndSet(lockKey, null, owner, conversionTimeout);
+        }
+        try {
+            result = conversion.get();
+            if (result != null) {
+                put(key, result);
+            }
+            return result;
+        } finally {
+            if (locked) {
+                kvs.compareAndSet(lockKey, owner, null);
+            }
+        }
+    }
+
+    /**
+     * Waits for another node to run the conversion.
+     *
+     * @return the result, or {@code null} if the other node didn't cache a result
+     */
+    protected BlobHolder waitForConversion(String key, String lockKey, KeyValueStore kvs) {
+        log.debug("Waiting for conversion: {} run by: {}", () -> key, () -> kvs.getString(lockKey));
+        long deadline = System.currentTimeMillis() + conversionTimeout * 1000L;
+        long sleep = 10;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException("Interrupted while waiting for conversion: " + key, e);
+            }
+            sleep = Math.min(sleep * 2, MAX_POLL_SLEEP_MS);
+            boolean running = kvs.getString(lockKey) != null;
+            BlobHolder result = get(key);
+            if (result != null || !running) {
+                return result;
+            }
+        }
+        log.warn("Timeout waiting for conversion: {}", key);
+        return null;
+    }
+
+    @Override
+    public boolean gcIfNeeded() {
+        KeyValueStore kvs = getKeyValueStore();
+        long storageSize = getStorageSize(kvs);
+        long maxSize = ConversionServiceImpl.getMaxCacheSizeInKB() * 1024L;
+        if (storageSize < maxSize) {
+            return false;
+        }
+        // only one node evicts at a time
+        if (!kvs.compareAndSet(GC_LOCK, null, owner, conversionTimeout)) {
+            return false;
+        }
+        try {
+            // negative max size evicts everything, for tests
+            long toFree = maxSize < 0 ? storageSize : storageSize - maxSize;
+            evict(toFree, kvs);
+            deleteUnusedBlobs();
+        } finally {
+            kvs.compareAndSet(GC_LOCK, owner, null);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the least recently used entries until the given size is freed, and recomputes the storage size.
+     */
+    protected void evict(long toFree, KeyValueStore kvs) {
+        int len = DOT_INFO.length();
+        List<Pair<String, Long>> entries = ((KeyValueStoreProvider) kvs).keyStream()
+                                                                          .filter(k -> k.endsWith(DOT_INFO))
+                                                                          .map(k -> k.substring(0, k.length() - len))
+                                                                          .map(k -> Pair.of(k, getAccessTime(k, kvs)))
+                                                                          .sorted(Comparator.comparing(Pair::getRight))
+                                                                          .collect(Collectors.toList());
+        long freed = 0;
+        long remaining = 0;
+        int evicted = 0;
+        for (Pair<String, Long> entry : entries) {
+            String entryKey = entry.getLeft();
+            long size = getSize(jsonToMap(kvs.getString(entryKey + DOT_INFO)));
+            if (freed < toFree) {
+                kvs.put(entryKey + DOT_INFO, (String) null);
+                kvs.put(entryKey + DOT_ACCESS, (String) null);
+                freed += size;
+                evicted++;
+            } else {
+                remaining += size;
+            }
+        }
+        kvs.put(STORAGE_SIZE, String.valueOf(remaining));
+        log.debug("Evicted {} conversion results, {} bytes", evicted, freed);
+    }
+
+    /**
+     * Deletes from the blob provider the blobs not referenced by an entry anymore.
+     * <p>
+     * The GC doesn't delete the blobs written after its start. A result whose blobs were written before, but whose
+     * entry is stored after the scan of the entries, is found through the put marker written before its blobs: the
+     * markers are collected before the scan, and the entries of the puts still running are marked once they complete.
+     */
+    protected void deleteUnusedBlobs() {
+        BinaryGarbageCollector gc = getBlobProvider().getBinaryGarbageCollector();
+        if (gc.isInProgress()) {
+            log.debug("GC {} already in progress", gc::getId);
+            return;
+        }
+        KeyValueStoreProvider kvs = (KeyValueStoreProvider) getKeyValueStore();
+        boolean delete = false;
+        try {
+            gc.start();
+            List<String> putKeys = kvs.keyStream().filter(k -> k.endsWith(DOT_PUT)).collect(Collectors.toList());
+            kvs.keyStream().filter(k -> k.endsWith(DOT_INFO)).forEach(k -> mark(kvs.getString(k), gc));
+            delete = markPuts(putKeys, kvs, gc);
+        } finally {
+            if (gc.isInProgress()) {
+                gc.stop(delete);
+            }
+        }
+    }
+
+    /**
+     * Waits for the given puts to complete, and marks the blobs of their entries.
+     *
+     * @return {@code false} if a put didn't complete within the conversion timeout
+     */
+    protected boolean markPuts(List<String> putKeys, KeyValueStore kvs, BinaryGarbageCollector gc) {
+        long deadline = System.currentTimeMillis() + conversionTimeout * 1000L;
+        for (String putKey : putKeys) {
+            long sleep = 10;
+            while (kvs.getString(putKey) != null) {
+                if (System.currentTimeMillis() > deadline) {
+                    log.warn("Timeout waiting for conversion result: {} to be stored, not deleting blobs", putKey);
+                    return false;
+                }
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NuxeoException("Interrupted while waiting for conversion result: " + putKey, e);
+                }
+                sleep = Math.min(sleep * 2, MAX_POLL_SLEEP_MS);
+            }
+            String entryKey = putKey.substring(0, putKey.indexOf('.'));
+            mark(kvs.getString(entryKey + DOT_INFO), gc);
+        }
+        return true;
+    }
+
+    protected void mark(String info, BinaryGarbageCollector gc) {
+        getBlobMaps(jsonToMap(info)).forEach(blobMap -> gc.mark((String) blobMap.get(KEY)));
+    }
+
+    @Override
+    public void clear() {
+        ((KeyValueStoreProvider) getKeyValueStore()).clear();
+        deleteUnusedBlobs();
+    }
+
+    @Override
+    public void shutdown() {
+        // the cache is shared with the other nodes
+    }
+
+    protected long getAccessTime(String entryKey, KeyValueStore kvs) {
+        String access = kvs.getString(entryKey + DOT_ACCESS);
+        return access == null ? 0 : Long.parseLong(access);
+    }
+
+    protected long getStorageSize(KeyValueStore kvs) {
+        String size = kvs.getString(STORAGE_SIZE);
+        return size == null ? 0 : Long.parseLong(size);
+    }
+
+    protected void addStorageSize(long delta, KeyValueStore kvs) {
+        if (delta == 0) {
+            return;
+        }
+        for (;;) {
+            String oldValue = kvs.getString(STORAGE_SIZE);
+            long size = oldValue == null ? 0 : Long.parseLong(oldValue);
+            if (kvs.compareAndSet(STORAGE_SIZE, oldValue, String.valueOf(size + delta))) {
+                break;
+            }
+        }
+    }
+
+    protected static long getSize(Map<String, Object> info) {
+        if (info == null) {
+            return 0;
+        }
+        Number size = (Number) info.get(SIZE);
+        return size == null ? 0 : size.longValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static List<Map<String, Object>> getBlobMaps(Map<String, Object> info) {
+        if (info == null) {
+            return List.of();
+        }
+        List<Map<String, Object>> blobMaps = (List<Map<String, Object>>) info.get(BLOBS);
+        return blobMaps == null ? List.of() : blobMaps;
+    }
+
+    protected Map<String, Object> jsonToMap(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return mapper.readValue(json, MAP_STRING_OBJECT);
+        } catch (IOException e) {
+            log.error("Invalid JSON object: {}", json);
+            return null;
+        }
+    }
+
+    protected String toJson(Object object) {
+        try {
+            return mapper.writeValueAsString(object);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+}
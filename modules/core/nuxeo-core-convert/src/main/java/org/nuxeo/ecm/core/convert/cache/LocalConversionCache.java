@@ -0,0 +1,53 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+
+/**
+ * Default {@link ConversionCache} storing the results on the local disk of this node, using
+ * {@link ConversionCacheHolder} and {@link ConversionCacheGCManager}.
+ *
+ * @since 2023.19
+ */
+public class LocalConversionCache extends AbstractConversionCache {
+
+    @Override
+    public BlobHolder get(String key) {
+        return ConversionCacheHolder.getFromCache(key);
+    }
+
+    @Override
+    public void put(String key, BlobHolder result) {
+        ConversionCacheHolder.addToCache(key, result);
+    }
+
+    @Override
+    public boolean gcIfNeeded() {
+        return ConversionCacheGCManager.gcIfNeeded();
+    }
+
+    @Override
+    public void clear() {
+        ConversionCacheHolder.deleteCache();
+    }
+
+    @Override
+    public void shutdown() {
+        ConversionCacheHolder.deleteCache();
+    }
+
+}
@@ -22,12 +22,17 @@ package org.nuxeo.ecm.core.convert.extension;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.nuxeo.common.Environment;
 import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XNodeMap;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.convert.cache.ConversionCache;
+import org.nuxeo.ecm.core.convert.cache.LocalConversionCache;
 
 /**
  * XMap Descriptor for the {@link org.nuxeo.ecm.core.convert.api.ConversionService} configuration.
@@ -97,6 +102,31 @@ public class GlobalConfigDescriptor {
         return diskCacheSize == null ? DEFAULT_DISK_CACHE_IN_KB : diskCacheSize.intValue();
     }
 
+    /** @since 2023.19 */
+    @XNode("cache@class")
+    protected Class<? extends ConversionCache> cacheClass;
+
+    /** @since 2023.19 */
+    @XNodeMap(value = "cache/property", key = "@name", type = HashMap.class, componentType = String.class)
+    protected Map<String, String> cacheProperties = new HashMap<>();
+
+    /**
+     * Creates and initializes the configured cache backend, the default one stores the results on the local disk.
+     *
+     * @since 2023.19
+     */
+    public ConversionCache newConversionCache() {
+        Class<? extends ConversionCache> klass = cacheClass == null ? LocalConversionCache.class : cacheClass;
+        ConversionCache cache;
+        try {
+            cache = klass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new NuxeoException("Cannot instantiate conversion cache: " + klass.getName(), e);
+        }
+        cache.init(cacheProperties);
+        return cache;
+    }
+
     public void update(GlobalConfigDescriptor other) {
         if (other.enableCache != null) {
             enableCache = other.enableCache;
@@ -110,6 +140,10 @@ public class GlobalConfigDescriptor {
         if (other.cachingDirectory != null) {
             cachingDirectory = other.cachingDirectory;
         }
+        if (other.cacheClass != null) {
+            cacheClass = other.cacheClass;
+        }
+        cacheProperties.putAll(other.cacheProperties);
     }
 
 }
@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +38,7 @@ import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.utils.FileUtils;
@@ -50,7 +52,7 @@ import org.nuxeo.ecm.core.convert.api.ConverterCheckResult;
 import org.nuxeo.ecm.core.convert.api.ConverterNotAvailable;
 import org.nuxeo.ecm.core.convert.api.ConverterNotRegistered;
 import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
-import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
+import org.nuxeo.ecm.core.convert.cache.ConversionCache;
 import org.nuxeo.ecm.core.convert.cache.GCTask;
 import org.nuxeo.ecm.core.convert.extension.ChainedConverter;
 import org.nuxeo.ecm.core.convert.extension.Converter;
@@ -95,6 +97,9 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     protected GCTask gcTask;
 
+    /** @since 2023.19 */
+    protected volatile ConversionCache conversionCache;
+
     @Override
     public void activate(ComponentContext context) {
         converterDescriptors.clear();
@@ -104,9 +109,10 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     @Override
     public void deactivate(ComponentContext context) {
-        if (config.isCacheEnabled()) {
-            ConversionCacheHolder.deleteCache();
+        if (config.isCacheEnabled() && conversionCache != null) {
+            conversionCache.shutdown();
         }
+        conversionCache = null;
         converterDescriptors.clear();
         translationHelper.clear();
     }
@@ -188,6 +194,28 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
         return getConversionService().config.getCachingDirectory();
     }
 
+    /**
+     * Gets the cache backend, as configured by the {@code cache} element of the configuration.
+     *
+     * @since 2023.19
+     */
+    public static ConversionCache getConversionCache() {
+        return getConversionService().getOrCreateConversionCache();
+    }
+
+    protected ConversionCache getOrCreateConversionCache() {
+        ConversionCache cache = conversionCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = conversionCache;
+                if (cache == null) {
+                    cache = conversionCache = config.newConversionCache();
+                }
+            }
+        }
+        return cache;
+    }
+
     /* Service API */
 
     @Override
@@ -330,21 +358,27 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
         String cacheKey = CacheKeyGenerator.computeKey(converterName, blobHolder, parameters);
 
-        BlobHolder result = ConversionCacheHolder.getFromCache(cacheKey);
-
-        if (result == null) {
-            Converter converter = desc.getConverterInstance();
-            result = converter.convert(blobHolder, parameters);
-
-            if (config.isCacheEnabled()) {
-                ConversionCacheHolder.addToCache(cacheKey, result);
-            }
-        } else if (result.getBlobs() != null && result.getBlobs().size() == 1) {
-            // we need to reset the filename if result is a single file from the cache because the name is just a hash
-            result.getBlob().setFilename(null);
+        Converter converter = desc.getConverterInstance();
+        Map<String, Serializable> converterParameters = parameters;
+        MutableBoolean converted = new MutableBoolean();
+        Supplier<BlobHolder> conversion = () -> {
+            converted.setTrue();
+            return converter.convert(blobHolder, converterParameters);
+        };
+        BlobHolder result;
+        if (config.isCacheEnabled()) {
+            // runs the conversion only if no other thread or node is running it
+            result = getOrCreateConversionCache().convert(cacheKey, conversion);
+        } else {
+            result = conversion.get();
         }
 
         if (result != null) {
+            if (converted.isFalse() && result.getBlobs() != null && result.getBlobs().size() == 1) {
+                // we need to reset the filename if result is a single file from the cache because the name is just a
+                // hash
+                result.getBlob().setFilename(null);
+            }
             updateResultBlobMimeType(result, desc);
             updateResultBlobFileName(blobHolder, result);
         }
@@ -29,6 +29,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,6 +46,7 @@ import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
 import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
+import org.nuxeo.ecm.core.convert.cache.ConversionCache;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheGCManager;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
@@ -127,4 +135,35 @@ public class TestCache {
         assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
     }
 
+    @Test
+    public void testSingleFlight() throws Exception {
+        ConversionCache cache = ConversionServiceImpl.getConversionCache();
+        AtomicInteger count = new AtomicInteger();
+        int threads = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<BlobHolder>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> cache.convert("somekey", () -> {
+                    count.incrementAndGet();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                    return new SimpleCachableBlobHolder(Blobs.createBlob("foo"));
+                })));
+            }
+            for (Future<BlobHolder> future : futures) {
+                assertEquals("foo", future.get(20, TimeUnit.SECONDS).getBlob().getString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // the other threads waited for the result of the first one
+        assertEquals(1, count.get());
+        ConversionCacheHolder.removeFromCache("somekey");
+    }
+
 }
@@ -0,0 +1,222 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.common.utils.FileUtils;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.cache.ConversionCache;
+import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
+import org.nuxeo.ecm.core.convert.cache.KeyValueBlobConversionCache;
+import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
+import org.nuxeo.ecm.core.convert.service.ConversionServiceImpl;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 2023.19
+ */
+@RunWith(FeaturesRunner.class)
+@Features(ConvertFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/convert-service-config-keyvalueblob.xml")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/converters-test-contrib3.xml")
+public class TestKeyValueBlobConversionCache {
+
+    protected static final int THREADS = 5;
+
+    protected int maxCacheSize;
+
+    @After
+    public void after() {
+        if (maxCacheSize != 0) {
+            ConversionServiceImpl.setMaxCacheSizeInKB(maxCacheSize);
+        }
+        getCache().clear();
+    }
+
+    protected ConversionCache getCache() {
+        return ConversionServiceImpl.getConversionCache();
+    }
+
+    protected KeyValueStoreProvider getKeyValueStore() {
+        return (KeyValueStoreProvider) Framework.getService(KeyValueService.class).getKeyValueStore("convert");
+    }
+
+    protected long countEntries() {
+        return getKeyValueStore().keyStream().filter(k -> k.endsWith(KeyValueBlobConversionCache.DOT_INFO)).count();
+    }
+
+    protected static Supplier<BlobHolder> conversion(AtomicInteger count, String content) {
+        return () -> {
+            count.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return new SimpleCachableBlobHolder(Blobs.createBlob(content));
+        };
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        assertTrue(getCache() instanceof KeyValueBlobConversionCache);
+        ConversionService cs = Framework.getService(ConversionService.class);
+        File file = FileUtils.getResourceFileFromContext("test-data/hello.doc");
+        Blob blob = Blobs.createBlob(file, "application/msword", null, "hello.doc");
+        BlobHolder bh = new SimpleBlobHolder(blob);
+        long cacheHits = ConversionCacheHolder.getCacheHits();
+
+        BlobHolder result = cs.convert("identity", bh, null);
+        assertNotNull(result);
+        assertEquals(1, countEntries());
+
+        BlobHolder cached = cs.convert("identity", bh, null);
+        assertEquals(1, countEntries());
+        assertEquals(1, ConversionCacheHolder.getCacheHits() - cacheHits);
+        assertEquals(blob.getLength(), cached.getBlob().getLength());
+        assertEquals(blob.getDigest(), cached.getBlob().getDigest());
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        ConversionCache cache = getCache();
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<BlobHolder>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> cache.convert("somekey", conversion(count, "foo"))));
+            }
+            for (Future<BlobHolder> future : futures) {
+                assertEquals("foo", future.get(20, TimeUnit.SECONDS).getBlob().getString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void testWaitForOtherNode() throws Exception {
+        ConversionCache cache = getCache();
+        // another node is running the conversion
+        String lockKey = DigestUtils.sha256Hex("somekey") + KeyValueBlobConversionCache.DOT_LOCK;
+        KeyValueStore kvs = getKeyValueStore();
+        kvs.put(lockKey, "othernode", 60);
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<BlobHolder> future = executor.submit(() -> cache.convert("somekey", conversion(count, "foo")));
+            Thread.sleep(500);
+            assertFalse(future.isDone());
+            // the other node stores its result
+            cache.put("somekey", new SimpleCachableBlobHolder(Blobs.createBlob("bar")));
+            kvs.put(lockKey, (String) null);
+            assertEquals("bar", future.get(20, TimeUnit.SECONDS).getBlob().getString());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    public void testEviction() {
+        ConversionCache cache = getCache();
+        cache.put("key1", new SimpleCachableBlobHolder(Blobs.createBlob("foo")));
+        cache.put("key2", new SimpleCachableBlobHolder(Blobs.createBlob("bar")));
+        assertEquals(2, countEntries());
+        assertFalse(cache.gcIfNeeded());
+
+        // negative max size evicts everything
+        maxCacheSize = ConversionServiceImpl.getMaxCacheSizeInKB();
+        ConversionServiceImpl.setMaxCacheSizeInKB(-1);
+        assertTrue(cache.gcIfNeeded());
+        assertEquals(0, countEntries());
+        assertNull(cache.get("key1"));
+        assertNull(cache.get("key2"));
+    }
+
+    @Test
+    public void testEvictionKeepsBlobsOfPendingPut() throws Exception {
+        ConversionCache cache = getCache();
+        KeyValueStore kvs = getKeyValueStore();
+        // a put is storing its blobs
+        String entryKey = DigestUtils.sha256Hex("key3");
+        String putKey = entryKey + ".test" + KeyValueBlobConversionCache.DOT_PUT;
+        kvs.put(putKey, "othernode", 60);
+        BlobProvider bp = Framework.getService(BlobManager.class)
+                                   .getBlobProviderWithNamespace(KeyValueBlobConversionCache.DEFAULT_BLOB_PROVIDER,
+                                           KeyValueBlobConversionCache.DEFAULT_DEFAULT_BLOB_PROVIDER);
+        String blobKey = bp.writeBlob(Blobs.createBlob("foo"));
+        // the blob is older than the GC start
+        Thread.sleep(2500);
+
+        maxCacheSize = ConversionServiceImpl.getMaxCacheSizeInKB();
+        ConversionServiceImpl.setMaxCacheSizeInKB(-1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> future = executor.submit(cache::gcIfNeeded);
+            Thread.sleep(500);
+            assertFalse(future.isDone());
+            // the put stores its entry after the GC scanned the entries
+            kvs.put(entryKey + KeyValueBlobConversionCache.DOT_INFO,
+                    "{\"size\":3,\"blobs\":[{\"key\":\"" + blobKey + "\",\"mimetype\":\"text/plain\",\"length\":3}]}");
+            kvs.put(putKey, (String) null);
+            assertTrue(future.get(20, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        BlobHolder cached = cache.get("key3");
+        assertNotNull(cached);
+        assertEquals("foo", cached.getBlob().getString());
+    }
+
+}
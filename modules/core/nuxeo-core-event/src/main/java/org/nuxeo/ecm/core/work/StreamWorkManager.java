@@ -386,6 +386,13 @@ public class StreamWorkManager extends WorkManagerImpl {
         RecordFilterChain filter = getRecordFilter();
         settings = new Settings(DEFAULT_CONCURRENCY, getPartitions(DEFAULT_CONCURRENCY), getCodec(), policy, filter);
         descriptors.forEach(item -> settings.setConcurrency(NAMESPACE_PREFIX + item.getId(), item.getMaxThreads()));
+        // I/O bound queues can run their works on virtual threads
+        ComputationPolicy virtualThreadsPolicy = new ComputationPolicyBuilder().continueOnFailure(true)
+                                                                               .virtualThreads(true)
+                                                                               .build();
+        descriptors.stream()
+                   .filter(WorkQueueDescriptor::isVirtualThreads)
+                   .forEach(item -> settings.setPolicy(NAMESPACE_PREFIX + item.getId(), virtualThreadsPolicy));
         descriptors.forEach(
                 item -> settings.setPartitions(NAMESPACE_PREFIX + item.getId(), getPartitions(item.getMaxThreads())));
     }
@@ -457,6 +464,7 @@ public class StreamWorkManager extends WorkManagerImpl {
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).running, "running");
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).completed, "completed");
         queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).canceled, "canceled");
+        queueMetrics.putGauge(() -> getMetricsWithNuxeoClassLoader(queueId).queued, "queued");
         registry.registerAll(queueMetrics);
     }
 
@@ -519,7 +527,7 @@ public class StreamWorkManager extends WorkManagerImpl {
             // give an approximation that can be higher that actual one because of the over provisioning
             running = min(lag.lag(), settings.getPartitions(queue));
         }
-        return new WorkQueueMetrics(queueId, lag.lag(), running, lag.lower(), 0);
+        return new WorkQueueMetrics(queueId, lag.lag(), running, lag.lower(), 0, lag.lag() - running);
     }
 
     @Override
@@ -61,6 +61,7 @@ import org.nuxeo.ecm.core.work.api.WorkSchedulePath;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.log.VirtualThreads;
 import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
@@ -225,7 +226,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             throw new IllegalStateException("work queue " + config.id + " already have an executor");
         }
         NuxeoBlockingQueue queue = queuing.init(config);
-        ThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + config.id + "-");
+        ThreadFactory threadFactory = getThreadFactory(config);
         int maxPoolSize = config.getMaxThreads();
         WorkThreadPoolExecutor executor = new WorkThreadPoolExecutor(maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS,
                 queue, threadFactory);
@@ -236,6 +237,22 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         log.info("Initialized work queue {}, {}", config.id, config);
     }
 
+    /**
+     * @since 2023.19
+     */
+    protected ThreadFactory getThreadFactory(WorkQueueDescriptor config) {
+        String prefix = THREAD_PREFIX + config.id + "-";
+        if (config.isVirtualThreads()) {
+            if (VirtualThreads.isSupported()) {
+                // the pool size still limits the number of running works
+                return VirtualThreads.newThreadFactory(prefix);
+            }
+            log.warn("Virtual threads are not supported by this JVM, using platform threads for work queue: {}",
+                    config.id);
+        }
+        return new NamedThreadFactory(prefix);
+    }
+
     void activateQueue(WorkQueueDescriptor config) {
         if (ALL_QUEUES.equals(config.id)) {
             throw new IllegalArgumentException("cannot activate all queues");
@@ -267,6 +284,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         queueMetrics.putGauge(() -> getMetrics(queueId).running, "running");
         queueMetrics.putGauge(() -> getMetrics(queueId).completed, "completed");
         queueMetrics.putGauge(() -> getMetrics(queueId).canceled, "canceled");
+        queueMetrics.putGauge(() -> getMetrics(queueId).queued, "queued");
         registry.registerAll(queueMetrics);
     }
 
@@ -81,6 +81,23 @@ public class WorkQueueDescriptor implements Descriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /**
+     * When {@code true}, the works of this queue run on virtual threads instead of platform threads, when supported by
+     * the JVM. This is suited to queues whose works mostly wait on I/O. The number of works running concurrently is
+     * still limited by {@link #getMaxThreads()}, which can then be raised with little overhead.
+     *
+     * @since 2023.19
+     */
+    @XNode("virtualThreads")
+    public Boolean virtualThreads;
+
+    /**
+     * @since 2023.19
+     */
+    public boolean isVirtualThreads() {
+        return Boolean.TRUE.equals(virtualThreads);
+    }
+
     @XNodeList(value = "category", type = HashSet.class, componentType = String.class)
     public Set<String> categories = Collections.emptySet();
 
@@ -107,6 +124,7 @@ public class WorkQueueDescriptor implements Descriptor {
         merged.capacity = other.capacity != null ? other.capacity : capacity;
         merged.processing = other.processing != null ? other.processing : processing;
         merged.maxThreads = other.maxThreads != null ? other.maxThreads : maxThreads;
+        merged.virtualThreads = other.virtualThreads != null ? other.virtualThreads : virtualThreads;
         merged.categories = new HashSet<>(categories);
         merged.categories.addAll(other.categories);
         return merged;
@@ -125,6 +143,8 @@ public class WorkQueueDescriptor implements Descriptor {
         sb.append(isProcessingEnabled());
         sb.append(" maxThreads=");
         sb.append(getMaxThreads());
+        sb.append(" virtualThreads=");
+        sb.append(isVirtualThreads());
         sb.append(" capacity=");
         sb.append(getCapacity());
         sb.append(")");
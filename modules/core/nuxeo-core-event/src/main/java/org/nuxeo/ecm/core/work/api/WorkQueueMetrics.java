@@ -37,12 +37,28 @@ public class WorkQueueMetrics implements Serializable {
 
     public final Number canceled;
 
+    /**
+     * The works waiting to run, excluding the running ones.
+     *
+     * @since 2023.19
+     */
+    public final Number queued;
+
     public WorkQueueMetrics(String queueId, Number scheduled, Number running, Number completed, Number canceled) {
+        this(queueId, scheduled, running, completed, canceled, scheduled);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public WorkQueueMetrics(String queueId, Number scheduled, Number running, Number completed, Number canceled,
+            Number queued) {
         this.queueId = queueId;
         this.scheduled = scheduled;
         this.running = running;
         this.completed = completed;
         this.canceled = canceled;
+        this.queued = queued;
     }
 
     @Override
@@ -54,6 +70,7 @@ public class WorkQueueMetrics implements Serializable {
         result = prime * result +  running.hashCode();
         result = prime * result +  completed.hashCode();
         result = prime * result +  canceled.hashCode();
+        result = prime * result +  queued.hashCode();
         return result;
     }
 
@@ -84,6 +101,9 @@ public class WorkQueueMetrics implements Serializable {
         if (canceled.longValue() != other.canceled.longValue()) {
             return false;
         }
+        if (queued.longValue() != other.queued.longValue()) {
+            return false;
+        }
         return true;
     }
 
@@ -100,6 +120,8 @@ public class WorkQueueMetrics implements Serializable {
                 .append(completed)
                 .append(", ")
                 .append(canceled)
+                .append(", ")
+                .append(queued)
                 .append("]");
         return builder.toString();
     }
@@ -123,4 +145,11 @@ public class WorkQueueMetrics implements Serializable {
     public Number getCanceled() {
         return canceled;
     }
+
+    /**
+     * @since 2023.19
+     */
+    public Number getQueued() {
+        return queued;
+    }
 }
\ No newline at end of file
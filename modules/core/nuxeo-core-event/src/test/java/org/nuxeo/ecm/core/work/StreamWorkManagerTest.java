@@ -65,6 +65,8 @@ public class StreamWorkManagerTest extends AbstractWorkManagerTest {
         // stream workmanager has only an estimation of the max running
         assertTrue("running", running <= current.running.longValue());
         assertEquals("scheduled or running", scheduled + running, current.scheduled.longValue());
+        assertEquals("queued", current.scheduled.longValue() - current.running.longValue(),
+                current.queued.longValue());
         // stream workmanager has no canceled metrics
     }
 
@@ -57,6 +57,19 @@ public interface DocumentWriter {
      */
     DocumentTranslationMap write(Collection<ExportedDocument> docs) throws IOException;
 
+    /**
+     * Prepares the write of a document, for instance by serializing it.
+     * <p>
+     * A concurrent {@link DocumentPipe} calls it from its worker threads before writing the document from the pipe
+     * thread, implementations must be thread safe.
+     *
+     * @param doc the document that will be written
+     * @since 2023.19
+     */
+    default void prepare(ExportedDocument doc) throws IOException {
+        // nothing to prepare by default
+    }
+
     /**
      * Closes the writer.
      */
@@ -18,10 +18,19 @@
  */
 package org.nuxeo.ecm.core.io.impl;
 
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.io.DocumentPipe;
 import org.nuxeo.ecm.core.io.DocumentReader;
 import org.nuxeo.ecm.core.io.DocumentTransformer;
@@ -30,22 +39,57 @@ import org.nuxeo.ecm.core.io.DocumentWriter;
 import org.nuxeo.ecm.core.io.ExportedDocument;
 import org.nuxeo.ecm.core.io.impl.transformers.PropertyDeprecationRemover;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Meter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public class DocumentPipeImpl implements DocumentPipe {
 
+    protected static final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /**
+     * Documents written by all the pipes, its rate gives the documents per second.
+     *
+     * @since 2023.19
+     */
+    protected static final Meter documentsMeter = registry.meter(
+            MetricName.build("nuxeo", "io", "pipe", "documents"));
+
     private final List<DocumentTransformer> transformers;
 
     private final int pageSize;
 
+    private final int concurrency;
+
     private DocumentReader reader;
 
     private DocumentWriter writer;
 
     public DocumentPipeImpl(int pageSize) {
+        this(pageSize, 1);
+    }
+
+    /**
+     * Creates a pipe reading pages of documents and transforming them with {@code concurrency} worker threads.
+     * <p>
+     * Pages are read and written in order from the thread running the pipe, workers apply the transformers and
+     * {@link DocumentWriter#prepare prepare} the write of the documents. At most twice {@code concurrency} pages are
+     * in memory.
+     *
+     * @since 2023.19
+     */
+    public DocumentPipeImpl(int pageSize, int concurrency) {
+        if (concurrency > 1 && pageSize == 0) {
+            throw new IllegalArgumentException("A concurrent pipe needs a page size");
+        }
         this.pageSize = pageSize;
+        this.concurrency = Math.max(concurrency, 1);
         this.transformers = new ArrayList<>();
         this.transformers.add(new PropertyDeprecationRemover());
     }
@@ -116,9 +160,12 @@ public class DocumentPipeImpl implements DocumentPipe {
                 applyTransforms(doc);
                 DocumentTranslationMap map = writer.write(doc);
                 maps.add(map);
+                documentsMeter.mark();
                 handleBatchEnd();
             }
 
+        } else if (concurrency > 1) {
+            readAndWriteDocsConcurrently(maps);
         } else {
             // handle multiple doc case
             ExportedDocument[] docs;
@@ -129,12 +176,70 @@ public class DocumentPipeImpl implements DocumentPipe {
                     if (map != null) {
                         maps.add(map);
                     }
+                    documentsMeter.mark(docs.length);
                     handleBatchEnd();
                 }
             }
         }
     }
 
+    /**
+     * @since 2023.19
+     */
+    protected void readAndWriteDocsConcurrently(List<DocumentTranslationMap> maps) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, newThreadFactory("Nuxeo-IO-Pipe"));
+        try {
+            Deque<Future<ExportedDocument[]>> pages = new ArrayDeque<>();
+            ExportedDocument[] docs;
+            while ((docs = reader.read(pageSize)) != null) {
+                if (docs.length != 0) {
+                    ExportedDocument[] page = docs;
+                    pages.add(executor.submit(() -> prepare(page)));
+                    if (pages.size() >= 2 * concurrency) {
+                        writePage(pages.poll(), maps);
+                    }
+                }
+            }
+            while (!pages.isEmpty()) {
+                writePage(pages.poll(), maps);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected ExportedDocument[] prepare(ExportedDocument[] docs) throws IOException {
+        applyTransforms(docs);
+        for (ExportedDocument doc : docs) {
+            writer.prepare(doc);
+        }
+        return docs;
+    }
+
+    protected void writePage(Future<ExportedDocument[]> page, List<DocumentTranslationMap> maps) throws IOException {
+        ExportedDocument[] docs;
+        try {
+            docs = page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new NuxeoException(cause);
+        }
+        DocumentTranslationMap map = writer.write(docs);
+        if (map != null) {
+            maps.add(map);
+        }
+        documentsMeter.mark(docs.length);
+        handleBatchEnd();
+    }
+
     public void applyTransforms(ExportedDocument doc) throws IOException {
         for (DocumentTransformer tr : transformers) {
             tr.transform(doc);
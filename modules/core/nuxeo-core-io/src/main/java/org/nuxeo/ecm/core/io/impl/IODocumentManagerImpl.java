@@ -43,6 +43,7 @@ import org.nuxeo.ecm.core.io.impl.plugins.DocumentTreeReader;
 import org.nuxeo.ecm.core.io.impl.plugins.DocumentsListReader;
 import org.nuxeo.ecm.core.io.impl.plugins.NuxeoArchiveReader;
 import org.nuxeo.ecm.core.io.impl.plugins.NuxeoArchiveWriter;
+import org.nuxeo.runtime.api.Framework;
 
 /**
  * IODocumentManager basic implementation.
@@ -53,6 +54,17 @@ public class IODocumentManagerImpl implements IODocumentManager {
 
     private static final long serialVersionUID = -3131999198524020179L;
 
+    /**
+     * Number of threads transforming and serializing the exported documents.
+     *
+     * @since 2023.19
+     */
+    public static final String EXPORT_CONCURRENCY_PROP = "nuxeo.core.io.export.concurrency";
+
+    protected static int getExportConcurrency() {
+        return Integer.parseInt(Framework.getProperty(EXPORT_CONCURRENCY_PROP, "1"));
+    }
+
     @Override
     public DocumentTranslationMap importDocuments(InputStream in, String repo, DocumentRef root) {
         DocumentReader reader = null;
@@ -113,7 +125,7 @@ public class IODocumentManagerImpl implements IODocumentManager {
         DocumentWriter writer = null;
         try {
             CoreSession coreSession = CoreInstance.getCoreSessionSystem(repo);
-            DocumentPipe pipe = new DocumentPipeImpl(10);
+            DocumentPipe pipe = new DocumentPipeImpl(10, getExportConcurrency());
             // XXX check format before creating writer
             writer = new NuxeoArchiveWriter(out);
             pipe.setWriter(writer);
@@ -152,7 +164,7 @@ public class IODocumentManagerImpl implements IODocumentManager {
         DocumentWriter writer = null;
 
         try {
-            DocumentPipe pipe = new DocumentPipeImpl(10);
+            DocumentPipe pipe = new DocumentPipeImpl(10, getExportConcurrency());
             // XXX check format before creating writer
             writer = new NuxeoArchiveWriter(out);
             pipe.setWriter(writer);
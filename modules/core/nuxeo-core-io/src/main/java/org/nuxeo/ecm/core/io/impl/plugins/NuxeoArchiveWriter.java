@@ -22,11 +22,16 @@
 package org.nuxeo.ecm.core.io.impl.plugins;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -44,6 +49,11 @@ import org.nuxeo.ecm.core.io.ExportConstants;
 import org.nuxeo.ecm.core.io.ExportedDocument;
 import org.nuxeo.ecm.core.io.impl.AbstractDocumentWriter;
 import org.nuxeo.ecm.core.io.impl.DocumentTranslationMapImpl;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Meter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
@@ -57,8 +67,25 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
     @Deprecated(since = "2023.3")
     protected static final String ENABLE_EXTRA_FILES_COUNT_KEY = "nuxeo.core.io.archive.extra.files.count";
 
+    /**
+     * Bytes written to all the archives before compression, its rate gives the bytes per second.
+     *
+     * @since 2023.19
+     */
+    protected static final Meter bytesMeter = SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                                                    .meter(MetricName.build("nuxeo", "io", "archive",
+                                                                            "bytes"));
+
     protected ZipOutputStream out;
 
+    /**
+     * XML files of the documents prepared by the workers of a concurrent pipe, by file name.
+     *
+     * @since 2023.19
+     */
+    protected final Map<ExportedDocument, Map<String, byte[]>> preparedXML = Collections.synchronizedMap(
+            new IdentityHashMap<>());
+
     public NuxeoArchiveWriter(File destination) throws IOException {
         this(new BufferedOutputStream(new FileOutputStream(destination)), Deflater.DEFAULT_COMPRESSION);
     }
@@ -106,6 +133,32 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
         return map;
     }
 
+    /**
+     * Serializes the XML files of the document, which is the costly part of the write.
+     */
+    @Override
+    public void prepare(ExportedDocument doc) throws IOException {
+        preparedXML.put(doc, renderXML(doc));
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected static Map<String, byte[]> renderXML(ExportedDocument doc) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put(ExportConstants.DOCUMENT_FILE, renderXML(doc.getDocument()));
+        for (Map.Entry<String, Document> ext : doc.getDocuments().entrySet()) {
+            files.put(ext.getKey() + ".xml", renderXML(ext.getValue()));
+        }
+        return files;
+    }
+
+    protected static byte[] renderXML(Document doc) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeXML(doc, bytes);
+        return bytes.toByteArray();
+    }
+
     @Override
     public void close() {
         if (out != null) {
@@ -131,23 +184,17 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
             // System.out.println(">> add entry: "+entry.getName());
         }
 
-        // write metadata
-        ZipEntry entry = new ZipEntry(path + ExportConstants.DOCUMENT_FILE);
-        out.putNextEntry(entry);
-        try {
-            writeXML(doc.getDocument(), out);
-        } finally {
-            out.closeEntry();
-            // System.out.println(">> add entry: "+entry.getName());
+        // write metadata and external documents
+        Map<String, byte[]> xmlFiles = preparedXML.remove(doc);
+        if (xmlFiles == null) {
+            xmlFiles = renderXML(doc);
         }
-
-        // write external documents
-        for (Map.Entry<String, Document> ext : doc.getDocuments().entrySet()) {
-            String fileName = ext.getKey() + ".xml";
-            entry = new ZipEntry(path + fileName);
+        for (Map.Entry<String, byte[]> xmlFile : xmlFiles.entrySet()) {
+            ZipEntry entry = new ZipEntry(path + xmlFile.getKey());
             out.putNextEntry(entry);
             try {
-                writeXML(ext.getValue(), out);
+                out.write(xmlFile.getValue());
+                bytesMeter.mark(xmlFile.getValue().length);
             } finally {
                 out.closeEntry();
             }
@@ -157,16 +204,29 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
         Map<String, Blob> blobs = doc.getBlobs();
         for (Map.Entry<String, Blob> blobEntry : blobs.entrySet()) {
             String fileName = blobEntry.getKey();
-            entry = new ZipEntry(path + fileName);
+            ZipEntry entry = new ZipEntry(path + fileName);
             out.putNextEntry(entry);
-            try (InputStream in = blobEntry.getValue().getStream()) {
-                IOUtils.copy(in, out);
-            }
+            bytesMeter.mark(writeBlob(blobEntry.getValue()));
             // DO NOT CALL out.close(), we want to keep writing to it
             out.closeEntry();
         }
     }
 
+    /**
+     * Copies a blob to the current entry, directly from its file when the blob store keeps it locally.
+     *
+     * @since 2023.19
+     */
+    protected long writeBlob(Blob blob) throws IOException {
+        File file = blob.getFile();
+        if (file != null) {
+            return Files.copy(file.toPath(), out);
+        }
+        try (InputStream in = blob.getStream()) {
+            return IOUtils.copyLarge(in, out);
+        }
+    }
+
     protected static void writeXML(Document doc, OutputStream out) throws IOException {
         OutputFormat format = AbstractDocumentWriter.createPrettyPrint();
         XMLWriter writer = new XMLWriter(out, format);
@@ -0,0 +1,133 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.IdentityQueryTransformer;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.OperandList;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of parsed NXQL queries, shared by all the sessions.
+ * <p>
+ * The parsed queries are kept private to the cache: as the callers are free to alter the query they get (adding
+ * a select operand, annotating the predicates while they are analyzed...), each call returns a copy of the cached
+ * query, which is much cheaper than parsing it again.
+ *
+ * @since 2023.19
+ */
+public final class SQLQueryCache {
+
+    public static final String MAX_SIZE_PROPERTY = "org.nuxeo.core.query.cache.maxSize";
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    private static volatile Cache<String, SQLQuery> cache = newCache(DEFAULT_MAX_SIZE);
+
+    // Utility class
+    private SQLQueryCache() {
+    }
+
+    /**
+     * Resets the cache to hold at most {@code maxSize} queries, a size of 0 disabling it.
+     */
+    public static void configure(int maxSize) {
+        cache = newCache(maxSize);
+    }
+
+    private static Cache<String, SQLQuery> newCache(int maxSize) {
+        return maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build() : null;
+    }
+
+    /**
+     * Gets the underlying cache, for monitoring, or {@code null} if the cache is disabled.
+     */
+    public static Cache<String, SQLQuery> getCache() {
+        return cache;
+    }
+
+    public static void clear() {
+        Cache<String, SQLQuery> c = cache;
+        if (c != null) {
+            c.invalidateAll();
+        }
+    }
+
+    /**
+     * Parses a query, or gets it from the cache if it was already parsed.
+     *
+     * @return a query owned by the caller
+     */
+    public static SQLQuery parse(String string) throws QueryParseException {
+        Cache<String, SQLQuery> c = cache;
+        if (c == null) {
+            return SQLQueryParser.parse(string);
+        }
+        SQLQuery query = c.getIfPresent(string);
+        if (query == null) {
+            // a query that doesn't parse is not cached, the exception is thrown to each caller
+            query = SQLQueryParser.parse(string);
+            c.put(string, query);
+        }
+        return copy(query);
+    }
+
+    /**
+     * Copies a query, sharing only its immutable nodes.
+     */
+    public static SQLQuery copy(SQLQuery query) {
+        SQLQuery copy = QueryCopier.INSTANCE.transform(query);
+        copy.setQueryString(query.getQueryString());
+        return copy;
+    }
+
+    protected static class QueryCopier extends IdentityQueryTransformer {
+
+        protected static final QueryCopier INSTANCE = new QueryCopier();
+
+        @Override
+        public FromClause transform(FromClause node) {
+            return new FromClause(node.type, transform(node.elements));
+        }
+
+        @Override
+        public WhereClause transform(WhereClause node) {
+            if (node == null || node.predicate == null) {
+                return node;
+            }
+            return super.transform(node);
+        }
+
+        @Override
+        public Operand transform(Operand node) {
+            // missing side of a unary operator
+            return node == null ? null : super.transform(node);
+        }
+
+        @Override
+        public OperandList transform(OperandList node) {
+            // function without arguments
+            return node == null ? null : super.transform(node);
+        }
+    }
+
+}
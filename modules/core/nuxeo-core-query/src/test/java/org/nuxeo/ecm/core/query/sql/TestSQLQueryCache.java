@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * @since 2023.19
+ */
+public class TestSQLQueryCache {
+
+    @After
+    public void after() {
+        SQLQueryCache.configure(SQLQueryCache.DEFAULT_MAX_SIZE);
+    }
+
+    @Test
+    public void testSameAsParser() {
+        for (String query : TestQueryParser2.GOOD_QUERIES) {
+            SQLQuery expected = SQLQueryParser.parse(query);
+            for (int i = 0; i < 2; i++) {
+                SQLQuery cached = SQLQueryCache.parse(query);
+                assertEquals(query, expected, cached);
+                assertEquals(query, expected.toString(), cached.toString());
+                assertEquals(query, cached.getQueryString());
+            }
+        }
+        SQLQuery query = SQLQueryCache.parse("SELECT p, q FROM LOCATION l1");
+        assertEquals(FromClause.LOCATION, query.from.type);
+    }
+
+    @Test
+    public void testCopyIsPrivate() {
+        String nxql = "SELECT * FROM Document WHERE dc:title = 'foo' ORDER BY dc:created";
+        SQLQuery query = SQLQueryCache.parse(nxql);
+        query.select.add(new Reference("ecm:uuid"));
+        query.where.predicate.info = "analyzed";
+        SQLQuery other = SQLQueryCache.parse(nxql);
+        assertNotSame(query.select, other.select);
+        assertEquals(0, other.select.count());
+        assertNull(other.where.predicate.info);
+    }
+
+    @Test
+    public void testStats() {
+        SQLQueryCache.configure(2);
+        SQLQueryCache.parse("SELECT * FROM Document");
+        SQLQueryCache.parse("SELECT * FROM Document");
+        SQLQueryCache.parse("SELECT * FROM Folder");
+        CacheStats stats = SQLQueryCache.getCache().stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+    }
+
+    @Test
+    public void testInvalidQuery() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                SQLQueryCache.parse("SELECT FROM");
+                fail();
+            } catch (QueryParseException e) {
+                // expected
+            }
+        }
+        assertEquals(0, SQLQueryCache.getCache().size());
+    }
+
+    @Test
+    public void testDisabled() {
+        SQLQueryCache.configure(0);
+        assertNull(SQLQueryCache.getCache());
+        SQLQuery query = SQLQueryCache.parse("SELECT * FROM Document");
+        assertEquals("Document", query.from.get(0));
+    }
+
+}
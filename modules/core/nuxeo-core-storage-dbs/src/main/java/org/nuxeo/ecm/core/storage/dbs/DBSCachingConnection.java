@@ -25,8 +25,10 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -54,6 +56,20 @@ public class DBSCachingConnection implements DBSConnection {
 
     private final Cache<String, String> childCache;
 
+    /**
+     * The repository-wide off-heap second-level cache, behind the connection or repository cache.
+     * <p>
+     * {@code null} if disabled or if the repository supports transactions.
+     */
+    private final DBSOffHeapStateCache offHeapCache;
+
+    /**
+     * The coalescer of backend reads shared with the other connections.
+     * <p>
+     * {@code null} if the repository supports transactions.
+     */
+    private final DBSStateReadCoalescer readCoalescer;
+
     /**
      * The local invalidations, due to writes to this connection, that should be propagated to other connections (and
      * other cluster nodes) at post-commit time.
@@ -95,6 +111,8 @@ public class DBSCachingConnection implements DBSConnection {
             cache = repository.getCache();
             childCache = repository.getChildCache();
         }
+        offHeapCache = repository.getOffHeapCache();
+        readCoalescer = repository.getReadCoalescer();
         // local invalidations
         invalidationsPropagator = repository.getInvalidationsPropagator();
         if (invalidationsPropagator == null) {
@@ -153,7 +171,17 @@ public class DBSCachingConnection implements DBSConnection {
     public State readState(String id) {
         State state = cache.getIfPresent(id);
         if (state == null) {
-            state = connection.readState(id);
+            state = getFromOffHeapCache(id);
+        }
+        if (state == null) {
+            if (readCoalescer == null) {
+                state = connection.readState(id);
+            } else {
+                state = readCoalescer.readStates(List.of(id), this::readStateFromBackend)
+                                     .stream()
+                                     .findFirst()
+                                     .orElse(null);
+            }
             if (state != null) {
                 putInCache(state);
             }
@@ -172,12 +200,31 @@ public class DBSCachingConnection implements DBSConnection {
         ImmutableMap<String, State> statesMap = cache.getAllPresent(ids);
         List<String> idsToRetrieve = new ArrayList<>(ids);
         idsToRetrieve.removeAll(statesMap.keySet());
-        // Read missing states from repository
-        List<State> states = connection.readStates(idsToRetrieve);
+        // Read from the off-heap cache
+        List<State> offHeapStates = new ArrayList<>();
+        if (offHeapCache != null) {
+            for (Iterator<String> it = idsToRetrieve.iterator(); it.hasNext();) {
+                State state = getFromOffHeapCache(it.next());
+                if (state != null) {
+                    offHeapStates.add(state);
+                    it.remove();
+                }
+            }
+        }
+        // Read missing states from repository, in a single call shared with concurrent readers
+        List<State> states;
+        if (idsToRetrieve.isEmpty()) {
+            states = new ArrayList<>();
+        } else if (readCoalescer == null) {
+            states = connection.readStates(idsToRetrieve);
+        } else {
+            states = readCoalescer.readStates(idsToRetrieve, this::readStatesFromBackend);
+        }
         // Cache them
         states.forEach(this::putInCache);
         // Add previous cached one
         states.addAll(statesMap.values());
+        states.addAll(offHeapStates);
         return states;
     }
 
@@ -213,6 +260,9 @@ public class DBSCachingConnection implements DBSConnection {
         String stateId = childCache.getIfPresent(childCacheKey);
         if (stateId != null) {
             State state = cache.getIfPresent(stateId);
+            if (state == null) {
+                state = getFromOffHeapCache(stateId);
+            }
             if (state != null) {
                 // As we don't have invalidation for childCache we need to check if retrieved state is the right one
                 // and not a previous document which was moved or renamed
@@ -229,17 +279,49 @@ public class DBSCachingConnection implements DBSConnection {
         return state;
     }
 
+    private List<State> readStateFromBackend(List<String> ids) {
+        State state = connection.readState(ids.get(0));
+        return state == null ? List.of() : List.of(state);
+    }
+
+    private List<State> readStatesFromBackend(List<String> ids) {
+        List<State> states = connection.readStates(ids);
+        states.removeIf(Objects::isNull);
+        return states;
+    }
+
     private void putInCache(State state) {
         if (state != null) {
-            String stateId = state.get(KEY_ID).toString();
-            cache.put(stateId, state);
-            Object stateParentId = state.get(KEY_PARENT_ID);
-            if (stateParentId != null) {
-                childCache.put(computeChildCacheKey(stateParentId.toString(), state.get(KEY_NAME).toString()), stateId);
+            putInFrontCache(state);
+            if (offHeapCache != null) {
+                offHeapCache.put(state);
             }
         }
     }
 
+    private void putInFrontCache(State state) {
+        String stateId = state.get(KEY_ID).toString();
+        cache.put(stateId, state);
+        Object stateParentId = state.get(KEY_PARENT_ID);
+        if (stateParentId != null) {
+            childCache.put(computeChildCacheKey(stateParentId.toString(), state.get(KEY_NAME).toString()), stateId);
+        }
+    }
+
+    /**
+     * Gets a state from the off-heap cache, and promotes it to the connection or repository cache.
+     */
+    private State getFromOffHeapCache(String id) {
+        if (offHeapCache == null) {
+            return null;
+        }
+        State state = offHeapCache.getIfPresent(id);
+        if (state != null) {
+            putInFrontCache(state);
+        }
+        return state;
+    }
+
     private String computeChildCacheKey(String parentId, String name) {
         return parentId + '_' + name;
     }
@@ -250,6 +332,12 @@ public class DBSCachingConnection implements DBSConnection {
 
     private void invalidate(Collection<String> ids) {
         cache.invalidateAll(ids);
+        if (readCoalescer != null) {
+            readCoalescer.invalidate(ids);
+        }
+        if (offHeapCache != null) {
+            offHeapCache.invalidateAll(ids);
+        }
         if (invalidations != null) {
             invalidations.addAll(ids);
         }
@@ -257,6 +345,14 @@ public class DBSCachingConnection implements DBSConnection {
 
     protected void sendInvalidationsToOthers() {
         if (invalidations != null && !invalidations.isEmpty()) {
+            if (offHeapCache != null) {
+                // other connections may have cached the previous value before our commit
+                if (invalidations.all) {
+                    offHeapCache.invalidateAll();
+                } else if (invalidations.ids != null) {
+                    offHeapCache.invalidateAll(invalidations.ids);
+                }
+            }
             if (clusterInvalidator != null) {
                 // send to other cluster nodes
                 clusterInvalidator.sendInvalidations(invalidations);
@@ -295,8 +391,20 @@ public class DBSCachingConnection implements DBSConnection {
             if (invals.all) {
                 cache.invalidateAll();
                 childCache.invalidateAll();
+                if (readCoalescer != null) {
+                    readCoalescer.invalidateAll();
+                }
+                if (offHeapCache != null) {
+                    offHeapCache.invalidateAll();
+                }
             } else if (invals.ids != null) {
                 cache.invalidateAll(invals.ids);
+                if (readCoalescer != null) {
+                    readCoalescer.invalidate(invals.ids);
+                }
+                if (offHeapCache != null) {
+                    offHeapCache.invalidateAll(invals.ids);
+                }
             }
         }
     }
@@ -39,6 +39,7 @@ import org.nuxeo.runtime.metrics.MetricsService;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
+import io.dropwizard.metrics5.Gauge;
 import io.dropwizard.metrics5.MetricName;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
@@ -56,12 +57,32 @@ public class DBSCachingRepository implements DBSRepository {
 
     protected static final String METRIC_CHILD_CACHE_NAME = "nuxeo.repositories.repository.childCache";
 
+    /** @since 2023.19 */
+    protected static final String METRIC_OFFHEAP_CACHE_NAME = "nuxeo.repositories.repository.offHeapCache";
+
+    /** @since 2023.19 */
+    protected static final String METRIC_READ_STATES_NAME = "nuxeo.repositories.repository.readStates";
+
     private final DBSRepository repository;
 
     protected final Cache<String, State> cache;
 
     protected final Cache<String, String> childCache;
 
+    /**
+     * The repository-wide off-heap second-level cache, or {@code null} if disabled.
+     *
+     * @since 2023.19
+     */
+    protected final DBSOffHeapStateCache offHeapCache;
+
+    /**
+     * The coalescer of concurrent backend reads, or {@code null} if the repository supports transactions.
+     *
+     * @since 2023.19
+     */
+    protected final DBSStateReadCoalescer readCoalescer;
+
     protected final DBSRepositoryDescriptor descriptor;
 
     protected final DBSInvalidationsPropagator invalidationsPropagator;
@@ -78,11 +99,14 @@ public class DBSCachingRepository implements DBSRepository {
             // each connection will have its own cache
             cache = null;
             childCache = null;
+            readCoalescer = null;
         } else {
             // one global cache held by the repository
             cache = newCache(true);
             childCache = newChildCache(true);
+            readCoalescer = newReadCoalescer();
         }
+        offHeapCache = newOffHeapCache();
         log.info("DBS cache activated on '{}' repository", this::getName);
         invalidationsPropagator = initInvalidationsPropagator();
         clusterInvalidator = initClusterInvalidator(descriptor);
@@ -96,6 +120,23 @@ public class DBSCachingRepository implements DBSRepository {
         return childCache;
     }
 
+    /** @since 2023.19 */
+    protected DBSOffHeapStateCache getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    /** @since 2023.19 */
+    protected DBSStateReadCoalescer getReadCoalescer() {
+        return readCoalescer;
+    }
+
+    /** @since 2023.19 */
+    protected DBSStateReadCoalescer newReadCoalescer() {
+        MetricName name = MetricName.build(METRIC_READ_STATES_NAME).tagged("repository", repository.getName());
+        return new DBSStateReadCoalescer(registry.counter(name.resolve("backend")),
+                registry.counter(name.resolve("backend.calls")), registry.counter(name.resolve("coalesced")));
+    }
+
     protected DBSInvalidationsPropagator getInvalidationsPropagator() {
         return invalidationsPropagator;
     }
@@ -122,9 +163,36 @@ public class DBSCachingRepository implements DBSRepository {
         return c;
     }
 
+    /**
+     * Creates the off-heap second-level cache shared by all connections, if configured and if the repository doesn't
+     * use transactions.
+     *
+     * @since 2023.19
+     */
+    protected DBSOffHeapStateCache newOffHeapCache() {
+        long maxBytes = descriptor.getCacheOffHeapMaxSize();
+        if (maxBytes <= 0) {
+            return null;
+        }
+        if (supportsTransactions()) {
+            // a repository-wide cache would expose the states read or written by uncommitted transactions
+            log.warn("DBS off-heap cache is not supported on '{}' repository which uses transactions", getName());
+            return null;
+        }
+        DBSOffHeapStateCache c = new DBSOffHeapStateCache(maxBytes, descriptor.cacheTTL,
+                descriptor.cacheConcurrencyLevel);
+        MetricName name = MetricName.build(METRIC_OFFHEAP_CACHE_NAME).tagged("repository", repository.getName());
+        registry.registerAll(GuavaCacheMetric.of(c.getCache(), name));
+        registry.register(name.resolve("bytes"), (Gauge<Long>) c::getBytes);
+        log.info("DBS off-heap cache of {} bytes activated on '{}' repository", maxBytes, getName());
+        return c;
+    }
+
     protected void removeCacheMetrics() {
         registry.removeMatching((name, metric) -> name.getKey().startsWith(METRIC_CACHE_NAME)
-                || name.getKey().startsWith(METRIC_CHILD_CACHE_NAME));
+                || name.getKey().startsWith(METRIC_CHILD_CACHE_NAME)
+                || name.getKey().startsWith(METRIC_OFFHEAP_CACHE_NAME)
+                || name.getKey().startsWith(METRIC_READ_STATES_NAME));
     }
 
     protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
@@ -184,6 +252,9 @@ public class DBSCachingRepository implements DBSRepository {
             cache.invalidateAll();
             childCache.invalidateAll();
         }
+        if (offHeapCache != null) {
+            offHeapCache.invalidateAll();
+        }
         removeCacheMetrics();
         log.info("DBS cache deactivated on '{}' repository", this::getName);
     }
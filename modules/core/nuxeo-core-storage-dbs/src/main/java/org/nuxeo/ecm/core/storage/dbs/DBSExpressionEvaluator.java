@@ -25,6 +25,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.FACETED_TAG_LABEL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_MIXIN_TYPES;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
@@ -55,6 +56,7 @@ import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.query.sql.model.Expression;
 import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
 import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
 import org.nuxeo.ecm.core.query.sql.model.Predicate;
@@ -62,6 +64,7 @@ import org.nuxeo.ecm.core.query.sql.model.Reference;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.query.sql.model.SelectClause;
 import org.nuxeo.ecm.core.query.sql.model.SelectList;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.types.ComplexType;
@@ -410,6 +413,80 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         }
     }
 
+    /**
+     * Returns the equality constraints that any document matching the expression satisfies, as a map of internal key
+     * to string value.
+     * <p>
+     * Only the {@code =} predicates on a string literal that are at the top level of the expression or of its
+     * {@code AND} clauses are returned. Path predicates are resolved to ids: {@code ecm:path =} is returned as a
+     * constraint on the document id, {@code ecm:path STARTSWITH} as a constraint on its ancestors. A key constrained
+     * on an array is satisfied if any array element matches.
+     * <p>
+     * This is meant to restrict the candidate documents to evaluate, matching documents must still be evaluated.
+     *
+     * @since 2023.19
+     */
+    public Map<String, String> getEqualityConstraints() {
+        Map<String, String> constraints = new HashMap<>();
+        if (expression != null) {
+            collectEqualityConstraints(expression, constraints);
+        }
+        return constraints;
+    }
+
+    /** NXQL names whose internal value is a string or an array of strings. */
+    protected static final Set<String> EQUALITY_CONSTRAINT_ECM_NAMES = Set.of(NXQL.ECM_UUID, NXQL.ECM_PARENTID,
+            NXQL.ECM_NAME, NXQL.ECM_PRIMARYTYPE, NXQL.ECM_LIFECYCLESTATE, NXQL.ECM_PROXY_TARGETID,
+            NXQL.ECM_PROXY_VERSIONABLEID, NXQL.ECM_VERSION_VERSIONABLEID, NXQL.ECM_ANCESTORID);
+
+    protected void collectEqualityConstraints(Expression expr, Map<String, String> constraints) {
+        if (expr.operator == Operator.AND) {
+            if (expr instanceof MultiExpression) {
+                for (Predicate predicate : ((MultiExpression) expr).predicates) {
+                    collectEqualityConstraints(predicate, constraints);
+                }
+            } else {
+                if (expr.lvalue instanceof Expression) {
+                    collectEqualityConstraints((Expression) expr.lvalue, constraints);
+                }
+                if (expr.rvalue instanceof Expression) {
+                    collectEqualityConstraints((Expression) expr.rvalue, constraints);
+                }
+            }
+            return;
+        }
+        if (!(expr.lvalue instanceof Reference) || !(expr.rvalue instanceof StringLiteral)) {
+            return;
+        }
+        Reference ref = (Reference) expr.lvalue;
+        if (ref.cast != null) {
+            return;
+        }
+        String name = ref.name;
+        String value = ((StringLiteral) expr.rvalue).value;
+        String key;
+        if (NXQL.ECM_PATH.equals(name) && (expr.operator == Operator.EQ || expr.operator == Operator.STARTSWITH)) {
+            if (value.length() > 1 && value.endsWith("/")) {
+                value = value.substring(0, value.length() - 1);
+            }
+            key = expr.operator == Operator.EQ ? KEY_ID : KEY_ANCESTOR_IDS;
+            value = pathResolver.getIdForPath(value);
+            if (value == null) {
+                // no such path, nothing to restrict on
+                return;
+            }
+        } else if (expr.operator != Operator.EQ) {
+            return;
+        } else if (EQUALITY_CONSTRAINT_ECM_NAMES.contains(name)) {
+            key = DBSSession.convToInternal(name);
+        } else if (!name.startsWith(NXQL.ECM_PREFIX) && !name.contains("/")) {
+            key = name;
+        } else {
+            return;
+        }
+        constraints.putIfAbsent(key, value);
+    }
+
     /**
      * Walks the select clause and order by clause, and returns the projection.
      */
@@ -0,0 +1,466 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.storage.State;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * A second-level {@link State} cache storing serialized states outside of the Java heap.
+ * <p>
+ * The off-heap memory is allocated upfront, lazily by slabs of {@value #SLAB_SIZE} bytes, and split into blocks of
+ * {@value #BLOCK_SIZE} bytes. Each state is encoded in a compact binary form into blocks taken from a free list, and
+ * its blocks are given back to the free list when the state is evicted or invalidated, so that the direct memory used
+ * never exceeds the configured budget and doesn't depend on the garbage collection of buffers. A read returns a new
+ * decoded {@link State}.
+ * <p>
+ * The cache evicts the least recently used entries when the blocks of the cached states exceed the budget minus the
+ * room kept for the states being written. States bigger than the eighth of the budget are not cached.
+ * <p>
+ * This cache is shared by all the connections, so it must only be used for repositories without transactions, where
+ * a state read from the backend is always a committed one.
+ *
+ * @since 2023.19
+ */
+public class DBSOffHeapStateCache {
+
+    private static final Logger log = LogManager.getLogger(DBSOffHeapStateCache.class);
+
+    protected static final int BLOCK_SIZE = 512;
+
+    protected static final int SLAB_SIZE = 4 * 1024 * 1024;
+
+    protected static final byte NULL = 0;
+
+    protected static final byte STRING = 1;
+
+    protected static final byte LONG = 2;
+
+    protected static final byte DOUBLE = 3;
+
+    protected static final byte BOOLEAN = 4;
+
+    protected static final byte CALENDAR = 5;
+
+    protected static final byte STATE = 6;
+
+    protected static final byte LIST = 7;
+
+    protected static final byte ARRAY = 8;
+
+    protected static final byte SERIALIZED = 9;
+
+    protected final Cache<String, CachedState> cache;
+
+    protected final Arena arena;
+
+    protected final long maxBytes;
+
+    protected final long maxEntryBytes;
+
+    protected final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * @param maxBytes the maximum size in bytes of the serialized states
+     * @param ttl the time to live in minutes of an entry, or {@code null} for no expiration
+     * @param concurrencyLevel the concurrency level, or {@code null} for the default one
+     */
+    public DBSOffHeapStateCache(long maxBytes, Long ttl, Integer concurrencyLevel) {
+        this.maxBytes = maxBytes;
+        arena = new Arena(maxBytes);
+        maxEntryBytes = maxBytes / 8;
+        // keep room for the states written before the cache evicts the least recently used ones
+        CacheBuilder<String, CachedState> builder = CacheBuilder.newBuilder()
+                                                                .maximumWeight(maxBytes - maxEntryBytes)
+                                                                .weigher(DBSOffHeapStateCache::weigh)
+                                                                .removalListener(this::onRemoval)
+                                                                .recordStats();
+        if (ttl != null) {
+            builder = builder.expireAfterWrite(ttl.longValue(), TimeUnit.MINUTES);
+        }
+        if (concurrencyLevel != null) {
+            builder = builder.concurrencyLevel(concurrencyLevel.intValue());
+        }
+        cache = builder.build();
+    }
+
+    protected static int weigh(String id, CachedState cached) {
+        return cached.blocks.length * BLOCK_SIZE;
+    }
+
+    protected void onRemoval(RemovalNotification<String, CachedState> notification) {
+        bytes.addAndGet(-notification.getValue().length);
+        notification.getValue().release(arena);
+    }
+
+    /**
+     * Gets the underlying cache of serialized states, to report its statistics.
+     */
+    public Cache<String, CachedState> getCache() {
+        return cache;
+    }
+
+    /**
+     * Gets the total size in bytes of the cached states.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Gets the size in bytes of the blocks in use, including the ones of the states being read or written.
+     */
+    public long getAllocatedBytes() {
+        return arena.getAllocatedBytes();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Gets a copy of the cached state, or {@code null} if absent.
+     */
+    public State getIfPresent(String id) {
+        CachedState cached = cache.getIfPresent(id);
+        if (cached == null || !cached.retain()) {
+            // concurrently removed
+            return null;
+        }
+        byte[] data;
+        try {
+            data = arena.read(cached.blocks, cached.length);
+        } finally {
+            cached.release(arena);
+        }
+        try {
+            return (State) readValue(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException | SerializationException | ClassCastException e) {
+            log.warn("Cannot decode cached state: {}", id, e);
+            cache.invalidate(id);
+            return null;
+        }
+    }
+
+    public void put(State state) {
+        String id = state.get(KEY_ID).toString();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(BLOCK_SIZE);
+        try {
+            writeValue(new DataOutputStream(baos), state);
+        } catch (IOException | SerializationException e) {
+            log.debug("Cannot encode state: {}", id, e);
+            return;
+        }
+        if (baos.size() > maxEntryBytes) {
+            return;
+        }
+        byte[] data = baos.toByteArray();
+        int[] blocks = arena.allocate((data.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        if (blocks == null) {
+            // the blocks of the evicted states are still being read
+            log.debug("No off-heap room to cache state: {}", id);
+            return;
+        }
+        arena.write(blocks, data);
+        // account the bytes before the put, as it can trigger the removal listener of evicted entries
+        bytes.addAndGet(data.length);
+        cache.put(id, new CachedState(blocks, data.length));
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<String> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    protected static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value.getClass() == GregorianCalendar.class) {
+            Calendar calendar = (Calendar) value;
+            out.writeByte(CALENDAR);
+            out.writeLong(calendar.getTimeInMillis());
+            writeString(out, calendar.getTimeZone().getID());
+        } else if (value.getClass() == State.class) {
+            State state = (State) value;
+            out.writeByte(STATE);
+            out.writeInt(state.size());
+            for (Entry<String, Serializable> es : state.entrySet()) {
+                writeString(out, es.getKey());
+                writeValue(out, es.getValue());
+            }
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(ARRAY);
+            writeString(out, array.getClass().getComponentType().getName());
+            out.writeInt(array.length);
+            for (Object item : array) {
+                writeValue(out, item);
+            }
+        } else {
+            byte[] data = SerializationUtils.serialize((Serializable) value);
+            out.writeByte(SERIALIZED);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+
+    protected static Serializable readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case LONG:
+            return Long.valueOf(in.readLong());
+        case DOUBLE:
+            return Double.valueOf(in.readDouble());
+        case BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case CALENDAR:
+            long millis = in.readLong();
+            Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+            calendar.setTimeInMillis(millis);
+            return calendar;
+        case STATE:
+            int size = in.readInt();
+            State state = new State(size);
+            for (int i = 0; i < size; i++) {
+                String key = readString(in);
+                state.put(key, readValue(in));
+            }
+            return state;
+        case LIST:
+            int length = in.readInt();
+            ArrayList<Object> list = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                list.add(readValue(in));
+            }
+            return list;
+        case ARRAY:
+            Class<?> componentType;
+            try {
+                componentType = Class.forName(readString(in), false, DBSOffHeapStateCache.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+            Object[] array = (Object[]) Array.newInstance(componentType, in.readInt());
+            for (int i = 0; i < array.length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        case SERIALIZED:
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return SerializationUtils.deserialize(data);
+        default:
+            throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    protected static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] data = string.getBytes(UTF_8);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new String(data, UTF_8);
+    }
+
+    /**
+     * The blocks holding an encoded state.
+     * <p>
+     * The blocks are held by the cache and by the readers copying them, and are freed once they are all done.
+     */
+    protected static final class CachedState {
+
+        protected final int[] blocks;
+
+        protected final int length;
+
+        // the cache holds the first reference
+        protected final AtomicInteger references = new AtomicInteger(1);
+
+        protected CachedState(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        protected boolean retain() {
+            for (;;) {
+                int count = references.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        protected void release(Arena arena) {
+            if (references.decrementAndGet() == 0) {
+                arena.free(blocks);
+            }
+        }
+    }
+
+    /**
+     * The off-heap memory, split into fixed-size blocks allocated from a free list.
+     */
+    protected static final class Arena {
+
+        protected final int blockCount;
+
+        protected final int blocksPerSlab;
+
+        protected final ByteBuffer[] slabs;
+
+        // guarded by this
+        protected final int[] freeBlocks;
+
+        // guarded by this
+        protected int freeCount;
+
+        // guarded by this, the blocks from this one have never been allocated
+        protected int nextBlock;
+
+        protected Arena(long maxBytes) {
+            blockCount = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes / BLOCK_SIZE));
+            blocksPerSlab = SLAB_SIZE / BLOCK_SIZE;
+            slabs = new ByteBuffer[(blockCount + blocksPerSlab - 1) / blocksPerSlab];
+            freeBlocks = new int[blockCount];
+        }
+
+        /**
+         * Allocates blocks, or returns {@code null} if there are not enough free blocks.
+         */
+        protected synchronized int[] allocate(int count) {
+            if (freeCount + blockCount - nextBlock < count) {
+                return null;
+            }
+            int[] blocks = new int[count];
+            for (int i = 0; i < count; i++) {
+                if (freeCount > 0) {
+                    blocks[i] = freeBlocks[--freeCount];
+                } else {
+                    int block = nextBlock++;
+                    int slab = block / blocksPerSlab;
+                    if (slabs[slab] == null) {
+                        int size = Math.min(blocksPerSlab, blockCount - slab * blocksPerSlab) * BLOCK_SIZE;
+                        slabs[slab] = ByteBuffer.allocateDirect(size);
+                    }
+                    blocks[i] = block;
+                }
+            }
+            return blocks;
+        }
+
+        protected synchronized void free(int[] blocks) {
+            for (int block : blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+        }
+
+        protected synchronized long getAllocatedBytes() {
+            return (long) (nextBlock - freeCount) * BLOCK_SIZE;
+        }
+
+        protected void write(int[] blocks, byte[] data) {
+            for (int i = 0; i < blocks.length; i++) {
+                int offset = i * BLOCK_SIZE;
+                getSlab(blocks[i]).put(getPosition(blocks[i]), data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+            }
+        }
+
+        protected byte[] read(int[] blocks, int length) {
+            byte[] data = new byte[length];
+            for (int i = 0; i < blocks.length; i++) {
+                int offset = i * BLOCK_SIZE;
+                getSlab(blocks[i]).get(getPosition(blocks[i]), data, offset, Math.min(BLOCK_SIZE, length - offset));
+            }
+            return data;
+        }
+
+        // the slab of an allocated block is visible to the threads seeing the cache entry holding the block
+        protected ByteBuffer getSlab(int block) {
+            return slabs[block / blocksPerSlab];
+        }
+
+        protected int getPosition(int block) {
+            return (block % blocksPerSlab) * BLOCK_SIZE;
+        }
+    }
+
+}
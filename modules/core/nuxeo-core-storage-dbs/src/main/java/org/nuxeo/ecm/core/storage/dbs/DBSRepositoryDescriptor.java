@@ -26,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.ecm.core.api.repository.PoolConfiguration;
@@ -134,6 +136,20 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
 
+    /**
+     * The maximum size of the off-heap second-level cache, for instance {@code 512m}. The off-heap cache is disabled if
+     * not set, or if the repository uses transactions.
+     *
+     * @since 2023.19
+     */
+    @XNode("cache@offHeapMaxSize")
+    public String cacheOffHeapMaxSize;
+
+    /** @since 2023.19 */
+    public long getCacheOffHeapMaxSize() {
+        return StringUtils.isBlank(cacheOffHeapMaxSize) ? 0 : SizeUtils.parseSizeInBytes(cacheOffHeapMaxSize.trim());
+    }
+
     /** @since 8.10 */
     @XNode("clustering/invalidatorClass")
     public Class<? extends DBSClusterInvalidator> clusterInvalidatorClass;
@@ -208,6 +224,9 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
+        if (other.cacheOffHeapMaxSize != null) {
+            cacheOffHeapMaxSize = other.cacheOffHeapMaxSize;
+        }
         if (other.clusterInvalidatorClass != null) {
             clusterInvalidatorClass = other.clusterInvalidatorClass;
         }
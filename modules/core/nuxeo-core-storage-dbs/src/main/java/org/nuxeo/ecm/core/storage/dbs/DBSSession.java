@@ -142,7 +142,7 @@ import org.nuxeo.ecm.core.model.Session;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
-import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.SQLQueryCache;
 import org.nuxeo.ecm.core.query.sql.model.Operand;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
@@ -1570,7 +1570,7 @@ public class DBSSession extends BaseSession {
 
         // transform the query according to the transformers defined by the
         // security policies
-        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        SQLQuery sqlQuery = SQLQueryCache.parse(query);
         for (SQLQuery.Transformer transformer : queryFilter.getQueryTransformers()) {
             sqlQuery = transformer.transform(queryFilter.getPrincipal(), sqlQuery);
         }
@@ -1810,7 +1810,7 @@ public class DBSSession extends BaseSession {
 
     @Override
     public ScrollResult<String> scroll(String query, int batchSize, int keepAliveSeconds) {
-        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        SQLQuery sqlQuery = SQLQueryCache.parse(query);
         SelectClause selectClause = sqlQuery.select;
         selectClause.add(new Reference(NXQL.ECM_UUID));
         sqlQuery = new DBSQueryOptimizer().optimize(sqlQuery);
@@ -1820,7 +1820,7 @@ public class DBSSession extends BaseSession {
 
     @Override
     public ScrollResult<String> scroll(String query, QueryFilter queryFilter, int batchSize, int keepAliveSeconds) {
-        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        SQLQuery sqlQuery = SQLQueryCache.parse(query);
         SelectClause selectClause = sqlQuery.select;
         selectClause.add(new Reference(NXQL.ECM_UUID));
         sqlQuery = new DBSQueryOptimizer().optimize(sqlQuery);
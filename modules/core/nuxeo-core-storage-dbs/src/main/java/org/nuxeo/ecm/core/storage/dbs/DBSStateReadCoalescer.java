@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.storage.State;
+
+import io.dropwizard.metrics5.Counter;
+
+/**
+ * Coalesces the concurrent backend reads of the same states ("single-flight").
+ * <p>
+ * The first caller reading a missing state owns its read and batches it with its other missing states in a single
+ * backend call. Concurrent callers asking for the same state wait for this read instead of calling the backend.
+ * <p>
+ * This is only used when the cache is shared by all the connections, that is when the repository doesn't support
+ * transactions, as a connection must otherwise see its own uncommitted changes.
+ *
+ * @since 2023.19
+ */
+public class DBSStateReadCoalescer {
+
+    private static final Logger log = LogManager.getLogger(DBSStateReadCoalescer.class);
+
+    protected final Map<String, CompletableFuture<State>> inFlight = new ConcurrentHashMap<>();
+
+    protected final Counter backendReads;
+
+    protected final Counter backendCalls;
+
+    protected final Counter coalescedReads;
+
+    /**
+     * @param backendReads counts the states read from the backend
+     * @param backendCalls counts the backend calls
+     * @param coalescedReads counts the states obtained from a read done by another caller
+     */
+    public DBSStateReadCoalescer(Counter backendReads, Counter backendCalls, Counter coalescedReads) {
+        this.backendReads = backendReads;
+        this.backendCalls = backendCalls;
+        this.coalescedReads = coalescedReads;
+    }
+
+    /**
+     * Reads the states for the given ids, joining the reads already in flight and reading the other ones with a single
+     * call to the loader.
+     *
+     * @param ids the ids to read
+     * @param loader the backend read, returning the existing states for a list of ids
+     * @return the existing states, in no particular order
+     */
+    public List<State> readStates(List<String> ids, Function<List<String>, List<State>> loader) {
+        Map<String, CompletableFuture<State>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<State>> joined = new HashMap<>();
+        for (String id : ids) {
+            if (owned.containsKey(id) || joined.containsKey(id)) {
+                continue;
+            }
+            CompletableFuture<State> future = new CompletableFuture<>();
+            CompletableFuture<State> existing = inFlight.putIfAbsent(id, future);
+            if (existing == null) {
+                owned.put(id, future);
+            } else {
+                joined.put(id, existing);
+            }
+        }
+        List<State> states = new ArrayList<>(ids.size());
+        // do our own reads first, so that two callers waiting for each other's reads cannot deadlock
+        if (!owned.isEmpty()) {
+            states.addAll(load(owned, loader));
+        }
+        List<String> failed = new ArrayList<>();
+        for (Entry<String, CompletableFuture<State>> en : joined.entrySet()) {
+            try {
+                State state = en.getValue().join();
+                if (state != null) {
+                    states.add(state);
+                }
+            } catch (CompletionException | CancellationException e) {
+                // the owner gets the exception, retry on our own
+                failed.add(en.getKey());
+            }
+        }
+        coalescedReads.inc(joined.size() - failed.size());
+        if (!failed.isEmpty()) {
+            log.debug("Retrying the failed reads of: {}", failed);
+            backendCalls.inc();
+            backendReads.inc(failed.size());
+            states.addAll(loader.apply(failed));
+        }
+        return states;
+    }
+
+    protected List<State> load(Map<String, CompletableFuture<State>> owned,
+            Function<List<String>, List<State>> loader) {
+        try {
+            backendCalls.inc();
+            backendReads.inc(owned.size());
+            List<State> states = loader.apply(new ArrayList<>(owned.keySet()));
+            Map<String, State> statesById = new HashMap<>();
+            for (State state : states) {
+                statesById.put(state.get(KEY_ID).toString(), state);
+            }
+            owned.forEach((id, future) -> future.complete(statesById.get(id)));
+            return states;
+        } catch (RuntimeException e) {
+            owned.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+    }
+
+    /**
+     * Forgets the reads in flight for the given ids, so that the next readers don't get a value read before a write.
+     */
+    public void invalidate(Collection<String> ids) {
+        ids.forEach(inFlight::remove);
+    }
+
+    public void invalidateAll() {
+        inFlight.clear();
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+
+/**
+ * @since 2023.19
+ */
+public class TestDBSOffHeapStateCache {
+
+    private static State newState(String id, String name) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        state.put(KEY_NAME, name);
+        return state;
+    }
+
+    @Test
+    public void testPutAndGet() {
+        DBSOffHeapStateCache cache = new DBSOffHeapStateCache(1024 * 1024, null, null);
+        assertNull(cache.getIfPresent("ID"));
+
+        State state = newState("ID", "foo");
+        cache.put(state);
+        assertTrue(cache.getBytes() > 0);
+        State cached = cache.getIfPresent("ID");
+        assertNotNull(cached);
+        assertNotSame(state, cached);
+        assertEquals(state, cached);
+        assertEquals(1, cache.getCache().stats().hitCount());
+        assertEquals(1, cache.getCache().stats().missCount());
+
+        // replace
+        long bytes = cache.getBytes();
+        cache.put(newState("ID", "foobar"));
+        assertEquals("foobar", cache.getIfPresent("ID").get(KEY_NAME));
+        assertTrue(cache.getBytes() > bytes);
+
+        cache.invalidate("ID");
+        assertNull(cache.getIfPresent("ID"));
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void testEvictionOnBytes() {
+        long maxBytes = 20_000;
+        DBSOffHeapStateCache cache = new DBSOffHeapStateCache(maxBytes, null, 1);
+        String name = StringUtils.repeat('x', 1000);
+        for (int i = 0; i < 100; i++) {
+            cache.put(newState("ID" + i, name));
+        }
+        assertTrue(cache.getBytes() <= maxBytes);
+        assertTrue(cache.getCache().stats().evictionCount() > 0);
+        assertNull(cache.getIfPresent("ID0"));
+        assertNotNull(cache.getIfPresent("ID99"));
+
+        // too big to be cached
+        cache.put(newState("BIG", StringUtils.repeat('x', (int) maxBytes)));
+        assertNull(cache.getIfPresent("BIG"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.getBytes());
+        assertEquals(0, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testBlocksAreReused() {
+        long maxBytes = 64 * 1024;
+        DBSOffHeapStateCache cache = new DBSOffHeapStateCache(maxBytes, null, 1);
+        String name = StringUtils.repeat('x', 2000);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(newState("ID" + i % 100, name + i));
+            assertTrue(cache.getAllocatedBytes() <= maxBytes);
+        }
+        assertEquals(name + 9999, cache.getIfPresent("ID99").get(KEY_NAME));
+        cache.invalidateAll();
+        assertEquals(0, cache.getAllocatedBytes());
+    }
+
+    @Test
+    public void testValueTypes() {
+        DBSOffHeapStateCache cache = new DBSOffHeapStateCache(1024 * 1024, null, null);
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        calendar.setTimeInMillis(1_700_000_000_123L);
+        State child = new State();
+        child.put("name", "child");
+        child.put("size", Long.valueOf(-1));
+        ArrayList<Serializable> children = new ArrayList<>();
+        children.add(child);
+        children.add(new State());
+        State state = newState("ID", "caf\u00e9 \ud83d\ude00");
+        state.put("long", Long.valueOf(Long.MAX_VALUE));
+        state.put("double", Double.valueOf(1.5));
+        state.put("bool", Boolean.TRUE);
+        state.put("date", calendar);
+        state.put("strings", new String[] { "a", null, "" });
+        state.put("longs", new Long[] { Long.valueOf(1), Long.valueOf(2) });
+        state.put("child", child);
+        state.put("children", children);
+        cache.put(state);
+
+        State cached = cache.getIfPresent("ID");
+        assertEquals(state, cached);
+        assertEquals(String[].class, cached.get("strings").getClass());
+        assertEquals(Long[].class, cached.get("longs").getClass());
+        Calendar cachedCalendar = (Calendar) cached.get("date");
+        assertEquals(calendar.getTimeInMillis(), cachedCalendar.getTimeInMillis());
+        assertEquals(calendar.getTimeZone(), cachedCalendar.getTimeZone());
+
+        // other values are serialized
+        state = newState("OTHER", "other");
+        state.put("int", Integer.valueOf(3));
+        cache.put(state);
+        assertEquals(Integer.valueOf(3), cache.getIfPresent("OTHER").get("int"));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+
+import io.dropwizard.metrics5.Counter;
+
+/**
+ * @since 2023.19
+ */
+public class TestDBSStateReadCoalescer {
+
+    protected final Counter backendReads = new Counter();
+
+    protected final Counter backendCalls = new Counter();
+
+    protected final Counter coalescedReads = new Counter();
+
+    protected final DBSStateReadCoalescer coalescer = new DBSStateReadCoalescer(backendReads, backendCalls,
+            coalescedReads);
+
+    protected final List<List<String>> loads = Collections.synchronizedList(new ArrayList<>());
+
+    protected final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void after() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    protected static State newState(String id) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        return state;
+    }
+
+    protected static List<String> ids(List<State> states) {
+        return states.stream().map(state -> state.get(KEY_ID).toString()).sorted().collect(Collectors.toList());
+    }
+
+    protected List<State> load(List<String> ids) {
+        loads.add(ids);
+        return ids.stream().filter(id -> !id.startsWith("missing")).map(TestDBSStateReadCoalescer::newState).collect(
+                Collectors.toList());
+    }
+
+    @Test
+    public void testReadStates() {
+        List<State> states = coalescer.readStates(List.of("id1", "id2", "missing", "id1"), this::load);
+        assertEquals(List.of("id1", "id2"), ids(states));
+        assertEquals(List.of(List.of("id1", "id2", "missing")), loads);
+        assertEquals(3, backendReads.getCount());
+        assertEquals(1, backendCalls.getCount());
+        assertEquals(0, coalescedReads.getCount());
+    }
+
+    @Test
+    public void testConcurrentReadsAreCoalesced() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<List<State>> first = executor.submit(() -> coalescer.readStates(List.of("id1", "id2"), ids -> {
+            loading.countDown();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+            return load(ids);
+        }));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        Future<List<State>> second = executor.submit(() -> coalescer.readStates(List.of("id2", "id3"), this::load));
+        // the second reader only loads what is not in flight, then waits for the first reader
+        while (loads.isEmpty()) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of(List.of("id3")), loads);
+        release.countDown();
+
+        assertEquals(List.of("id1", "id2"), ids(first.get(10, TimeUnit.SECONDS)));
+        assertEquals(List.of("id2", "id3"), ids(second.get(10, TimeUnit.SECONDS)));
+        assertEquals(2, backendCalls.getCount());
+        assertEquals(3, backendReads.getCount());
+        assertEquals(1, coalescedReads.getCount());
+    }
+
+    @Test
+    public void testFailedReadIsNotShared() {
+        try {
+            coalescer.readStates(List.of("id1"), ids -> {
+                throw new NuxeoException("failure");
+            });
+            fail();
+        } catch (NuxeoException e) {
+            assertEquals("failure", e.getMessage());
+        }
+        // nothing left in flight
+        assertEquals(List.of("id1"), ids(coalescer.readStates(List.of("id1"), this::load)));
+    }
+
+}
@@ -79,9 +79,13 @@ public class MemConnection extends DBSConnectionBase {
     // the global state, from the repository (thread-safe map)
     protected Map<String, State> states;
 
+    // the indexes on the global state, from the repository
+    protected MemIndexes indexes;
+
     public MemConnection(MemRepository repository) {
         super(repository);
         states = repository.states;
+        indexes = repository.indexes;
     }
 
     @Override
@@ -159,6 +163,7 @@ public class MemConnection extends DBSConnectionBase {
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
         states.put(id, state);
+        indexes.add(id, state);
     }
 
     @Override
@@ -176,11 +181,18 @@ public class MemConnection extends DBSConnectionBase {
                         throw new ConcurrentUpdateException((String) state.get(KEY_ID));
                     }
                 }
-                for (Entry<String, Serializable> en : conditionalUpdates.getUpdates().entrySet()) {
-                    applyDiff(state, en.getKey(), en.getValue());
+            }
+            Map<String, Serializable> indexedValues = indexes.getIndexedValues(state);
+            try {
+                if (conditionalUpdates != null) {
+                    for (Entry<String, Serializable> en : conditionalUpdates.getUpdates().entrySet()) {
+                        applyDiff(state, en.getKey(), en.getValue());
+                    }
                 }
+                applyDiff(state, diff);
+            } finally {
+                indexes.update(id, indexedValues, state);
             }
-            applyDiff(state, diff);
         }
     }
 
@@ -188,16 +200,18 @@ public class MemConnection extends DBSConnectionBase {
     public void deleteStates(Set<String> ids) {
         log.trace("Mem: REMOVE {}", ids);
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.remove(id);
+            if (state == null) {
                 log.debug("Missing on remove: {}", id);
+            } else {
+                indexes.remove(id, state);
             }
         }
     }
 
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
+        for (State state : getStates(indexes.getChildIds(parentId, name))) {
             if (ignored.contains(state.get(KEY_ID))) {
                 continue;
             }
@@ -221,7 +235,7 @@ public class MemConnection extends DBSConnectionBase {
     public List<State> queryKeyValue(String key, Object value, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {}", key, value);
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -239,7 +253,12 @@ public class MemConnection extends DBSConnectionBase {
     public List<State> queryKeyValue(String key1, Object value1, String key2, Object value2, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {} AND {} = {}", key1, value1, key2, value2);
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        Set<String> ids = indexes.getIds(key1, value1);
+        if (ids == null) {
+            ids = indexes.getIds(key2, value2);
+        }
+        Collection<State> candidates = ids == null ? states.values() : getStates(ids);
+        for (State state : candidates) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -261,9 +280,8 @@ public class MemConnection extends DBSConnectionBase {
     @Override
     public Stream<State> getDescendants(String rootId, Set<String> keys, int limit) {
         log.trace("Mem: QUERY {} = {}", KEY_ANCESTOR_IDS, rootId);
-        Stream<State> stream = states.values() //
-                                     .stream()
-                                     .filter(state -> hasAncestor(state, rootId));
+        Stream<State> stream = getCandidateStates(KEY_ANCESTOR_IDS, rootId).stream()
+                                                                           .filter(state -> hasAncestor(state, rootId));
         if (limit != 0) {
             stream = stream.limit(limit);
         }
@@ -278,7 +296,7 @@ public class MemConnection extends DBSConnectionBase {
     @Override
     public boolean queryKeyValuePresence(String key, String value, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {}", key, value);
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -298,7 +316,7 @@ public class MemConnection extends DBSConnectionBase {
         log.trace("Mem: QUERY {} OFFSET {} LIMIT {}", evaluator, offset, limit);
         evaluator.parse();
         List<Map<String, Serializable>> projections = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 if (distinctDocuments) {
@@ -345,7 +363,7 @@ public class MemConnection extends DBSConnectionBase {
         log.trace("Mem: QUERY {}", evaluator);
         evaluator.parse();
         List<String> ids = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 String id = matches.get(0).get(ECM_UUID).toString();
@@ -364,6 +382,49 @@ public class MemConnection extends DBSConnectionBase {
         throw new NuxeoException("Unknown or timed out scrollId");
     }
 
+    /**
+     * Gets the states to check for a key/value equality, using an index if the key is indexed.
+     *
+     * @since 2023.19
+     */
+    protected Collection<State> getCandidateStates(String key, Object value) {
+        Set<String> ids = indexes.getIds(key, value);
+        return ids == null ? states.values() : getStates(ids);
+    }
+
+    /**
+     * Gets the states to evaluate for a query, using the most selective index matching one of its equality
+     * constraints.
+     *
+     * @since 2023.19
+     */
+    protected Collection<State> getCandidateStates(DBSExpressionEvaluator evaluator) {
+        Set<String> ids = null;
+        for (Entry<String, String> en : evaluator.getEqualityConstraints().entrySet()) {
+            Set<String> candidateIds = KEY_ID.equals(en.getKey()) ? Set.of(en.getValue())
+                    : indexes.getIds(en.getKey(), en.getValue());
+            if (candidateIds != null && (ids == null || candidateIds.size() < ids.size())) {
+                ids = candidateIds;
+            }
+        }
+        if (ids == null) {
+            return states.values();
+        }
+        log.trace("Mem:    using {} indexed candidates", ids.size());
+        return getStates(ids);
+    }
+
+    protected List<State> getStates(Set<String> ids) {
+        List<State> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            State state = states.get(id);
+            if (state != null) {
+                list.add(state);
+            }
+        }
+        return list;
+    }
+
     /**
      * Applies a {@link StateDiff} in-place onto a base {@link State}.
      * <p>
@@ -542,8 +603,8 @@ public class MemConnection extends DBSConnectionBase {
         List<State> results = new ArrayList<>();
         if (IN.equals(operator)) {
             HashSet<Object> possibleValues = new HashSet<>((Collection<?>) value2);
-            states.forEach((id, state) -> {
-                if (ignored.contains(id)) {
+            getCandidateStates(key1, value1).forEach(state -> {
+                if (ignored.contains(state.get(KEY_ID))) {
                     return;
                 }
                 if (state.get(key1) == value1) {
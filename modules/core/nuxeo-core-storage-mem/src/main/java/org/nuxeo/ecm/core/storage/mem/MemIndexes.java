@@ -0,0 +1,212 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_CREATED;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_OWNER;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PROXY_TARGET_ID;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.storage.State;
+
+/**
+ * Hash indexes on the documents of a {@link MemRepository}.
+ * <p>
+ * For each indexed key, maps a value to the ids of the documents having this value. Array values are indexed on each
+ * of their elements. A composite index on the parent id and name is also maintained for child lookups.
+ * <p>
+ * Indexes only restrict the candidate documents, callers must still check the returned documents. The indexed values
+ * of a document must be captured with {@link #getIndexedValues} before it is modified in place, to be able to
+ * {@link #update} the indexes afterwards.
+ *
+ * @since 2023.19
+ */
+public class MemIndexes {
+
+    private static final Logger log = LogManager.getLogger(MemIndexes.class);
+
+    public static final Set<String> DEFAULT_INDEXED_KEYS = Set.of(KEY_PARENT_ID, KEY_ANCESTOR_IDS,
+            KEY_PROXY_TARGET_ID);
+
+    // keys directly updated by the lock methods, cannot be indexed
+    protected static final Set<String> NON_INDEXABLE_KEYS = Set.of(KEY_LOCK_OWNER, KEY_LOCK_CREATED);
+
+    /** Indexed key -&gt; value -&gt; ids. */
+    protected final Map<String, Map<Object, Set<String>>> indexes = new HashMap<>();
+
+    /** (parent id, name) -&gt; ids. */
+    protected final Map<List<Object>, Set<String>> childIndex = new ConcurrentHashMap<>();
+
+    // indexed keys and the keys of the child index
+    protected final Set<String> keys = new LinkedHashSet<>();
+
+    public MemIndexes(Collection<String> indexedKeys) {
+        for (String key : indexedKeys) {
+            if (NON_INDEXABLE_KEYS.contains(key)) {
+                log.warn("Cannot index key: {}", key);
+                continue;
+            }
+            indexes.put(key, new ConcurrentHashMap<>());
+        }
+        keys.addAll(indexes.keySet());
+        keys.add(KEY_PARENT_ID);
+        keys.add(KEY_NAME);
+    }
+
+    public boolean isIndexed(String key) {
+        return indexes.containsKey(key);
+    }
+
+    /**
+     * Gets the ids of the documents having the given value for the key, or one array element equal to it.
+     *
+     * @return the ids, or {@code null} if the key is not indexed
+     */
+    public Set<String> getIds(String key, Object value) {
+        Map<Object, Set<String>> index = indexes.get(key);
+        if (index == null) {
+            return null;
+        }
+        Set<String> ids = index.get(value);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Gets the ids of the children of a parent having the given name.
+     */
+    public Set<String> getChildIds(String parentId, String name) {
+        Set<String> ids = childIndex.get(List.of(parentId, name));
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Captures the values of the indexed keys of a state.
+     */
+    public Map<String, Serializable> getIndexedValues(State state) {
+        Map<String, Serializable> values = new HashMap<>();
+        for (String key : keys) {
+            Serializable value = state.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    public void add(String id, State state) {
+        add(id, getIndexedValues(state));
+    }
+
+    public void remove(String id, State state) {
+        remove(id, getIndexedValues(state));
+    }
+
+    /**
+     * Updates the indexes for a state modified in place.
+     *
+     * @param oldValues the indexed values captured before the modification
+     */
+    public void update(String id, Map<String, Serializable> oldValues, State state) {
+        Map<String, Serializable> newValues = getIndexedValues(state);
+        for (Map.Entry<String, Map<Object, Set<String>>> en : indexes.entrySet()) {
+            String key = en.getKey();
+            Serializable oldValue = oldValues.get(key);
+            Serializable newValue = newValues.get(key);
+            if (!Objects.deepEquals(oldValue, newValue)) {
+                forEachValue(oldValue, v -> removeId(en.getValue(), v, id));
+                forEachValue(newValue, v -> addId(en.getValue(), v, id));
+            }
+        }
+        List<Object> oldChildKey = getChildKey(oldValues);
+        List<Object> newChildKey = getChildKey(newValues);
+        if (!Objects.equals(oldChildKey, newChildKey)) {
+            if (oldChildKey != null) {
+                removeId(childIndex, oldChildKey, id);
+            }
+            if (newChildKey != null) {
+                addId(childIndex, newChildKey, id);
+            }
+        }
+    }
+
+    protected void add(String id, Map<String, Serializable> values) {
+        indexes.forEach((key, index) -> forEachValue(values.get(key), v -> addId(index, v, id)));
+        List<Object> childKey = getChildKey(values);
+        if (childKey != null) {
+            addId(childIndex, childKey, id);
+        }
+    }
+
+    protected void remove(String id, Map<String, Serializable> values) {
+        indexes.forEach((key, index) -> forEachValue(values.get(key), v -> removeId(index, v, id)));
+        List<Object> childKey = getChildKey(values);
+        if (childKey != null) {
+            removeId(childIndex, childKey, id);
+        }
+    }
+
+    protected static List<Object> getChildKey(Map<String, Serializable> values) {
+        Serializable parentId = values.get(KEY_PARENT_ID);
+        Serializable name = values.get(KEY_NAME);
+        return parentId == null || name == null ? null : List.<Object> of(parentId, name);
+    }
+
+    protected static void forEachValue(Serializable value, Consumer<Object> consumer) {
+        if (value instanceof Object[]) {
+            for (Object v : (Object[]) value) {
+                if (v != null) {
+                    consumer.accept(v);
+                }
+            }
+        } else if (value != null && !(value instanceof State) && !(value instanceof List)) {
+            consumer.accept(value);
+        }
+    }
+
+    protected static <K> void addId(Map<K, Set<String>> index, K value, String id) {
+        index.compute(value, (k, ids) -> {
+            if (ids == null) {
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    protected static <K> void removeId(Map<K, Set<String>> index, K value, String id) {
+        index.computeIfPresent(value, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+}
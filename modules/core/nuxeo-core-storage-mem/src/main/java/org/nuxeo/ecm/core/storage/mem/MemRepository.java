@@ -26,6 +26,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -61,8 +62,18 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The secondary indexes on {@link #states}.
+     *
+     * @since 2023.19
+     */
+    protected MemIndexes indexes;
+
+    protected final Set<String> indexedKeys;
+
     public MemRepository(MemRepositoryDescriptor descriptor) {
         super(descriptor.name, descriptor);
+        indexedKeys = descriptor.getIndexedKeys();
         initRepository();
     }
 
@@ -75,10 +86,12 @@ public class MemRepository extends DBSRepositoryBase {
     public void shutdown() {
         super.shutdown();
         states = null;
+        indexes = null;
     }
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
+        indexes = new MemIndexes(indexedKeys);
         try (MemConnection connection = getConnection()) {
             connection.initRepository();
         }
@@ -18,6 +18,12 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 
@@ -32,9 +38,39 @@ public class MemRepositoryDescriptor extends DBSRepositoryDescriptor {
     public MemRepositoryDescriptor() {
     }
 
+    /**
+     * Additional document keys to index, on top of {@link MemIndexes#DEFAULT_INDEXED_KEYS}.
+     *
+     * @since 2023.19
+     */
+    @XNodeList(value = "indexes/index", type = ArrayList.class, componentType = String.class)
+    public List<String> indexes = new ArrayList<>();
+
+    /**
+     * Gets the document keys to index.
+     *
+     * @since 2023.19
+     */
+    public Set<String> getIndexedKeys() {
+        Set<String> keys = new LinkedHashSet<>(MemIndexes.DEFAULT_INDEXED_KEYS);
+        keys.addAll(indexes);
+        return keys;
+    }
+
     @Override
     public MemRepositoryDescriptor clone() {
-        return (MemRepositoryDescriptor) super.clone();
+        MemRepositoryDescriptor clone = (MemRepositoryDescriptor) super.clone();
+        clone.indexes = new ArrayList<>(indexes);
+        return clone;
+    }
+
+    @Override
+    public void merge(DBSRepositoryDescriptor other) {
+        super.merge(other);
+        if (other instanceof MemRepositoryDescriptor) {
+            ((MemRepositoryDescriptor) other).indexes.stream().filter(key -> !indexes.contains(key)).forEach(
+                    indexes::add);
+        }
     }
 
 }
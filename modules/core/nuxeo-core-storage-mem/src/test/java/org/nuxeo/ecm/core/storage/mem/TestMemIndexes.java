@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PRIMARY_TYPE;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+
+/**
+ * @since 2023.19
+ */
+public class TestMemIndexes {
+
+    protected static State doc(String id, String parentId, String name, String... ancestorIds) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        state.put(KEY_PARENT_ID, parentId);
+        state.put(KEY_NAME, name);
+        state.put(KEY_ANCESTOR_IDS, ancestorIds);
+        state.put(KEY_PRIMARY_TYPE, "File");
+        return state;
+    }
+
+    @Test
+    public void testAddRemove() {
+        MemIndexes indexes = new MemIndexes(MemIndexes.DEFAULT_INDEXED_KEYS);
+        indexes.add("a", doc("a", "root", "foo", "root"));
+        indexes.add("b", doc("b", "a", "bar", "root", "a"));
+
+        assertEquals(Set.of("a"), indexes.getChildIds("root", "foo"));
+        assertEquals(Set.of("b"), indexes.getChildIds("a", "bar"));
+        assertTrue(indexes.getChildIds("root", "bar").isEmpty());
+        assertEquals(Set.of("a", "b"), indexes.getIds(KEY_ANCESTOR_IDS, "root"));
+        assertEquals(Set.of("b"), indexes.getIds(KEY_ANCESTOR_IDS, "a"));
+        // not indexed
+        assertFalse(indexes.isIndexed(KEY_PRIMARY_TYPE));
+        assertNull(indexes.getIds(KEY_PRIMARY_TYPE, "File"));
+
+        indexes.remove("b", doc("b", "a", "bar", "root", "a"));
+        assertTrue(indexes.getChildIds("a", "bar").isEmpty());
+        assertTrue(indexes.getIds(KEY_ANCESTOR_IDS, "a").isEmpty());
+        assertEquals(Set.of("a"), indexes.getIds(KEY_ANCESTOR_IDS, "root"));
+    }
+
+    @Test
+    public void testUpdate() {
+        MemIndexes indexes = new MemIndexes(List.of(KEY_PARENT_ID, KEY_ANCESTOR_IDS, KEY_PRIMARY_TYPE));
+        State state = doc("b", "a", "bar", "root", "a");
+        indexes.add("b", state);
+        assertEquals(Set.of("b"), indexes.getIds(KEY_PRIMARY_TYPE, "File"));
+
+        // move and rename
+        Map<String, Serializable> indexedValues = indexes.getIndexedValues(state);
+        StateDiff diff = new StateDiff();
+        diff.put(KEY_PARENT_ID, "c");
+        diff.put(KEY_NAME, "baz");
+        diff.put(KEY_ANCESTOR_IDS, new Object[] { "root", "c" });
+        diff.put(KEY_PRIMARY_TYPE, "Note");
+        MemConnection.applyDiff(state, diff);
+        indexes.update("b", indexedValues, state);
+
+        assertTrue(indexes.getChildIds("a", "bar").isEmpty());
+        assertEquals(Set.of("b"), indexes.getChildIds("c", "baz"));
+        assertTrue(indexes.getIds(KEY_PARENT_ID, "a").isEmpty());
+        assertEquals(Set.of("b"), indexes.getIds(KEY_PARENT_ID, "c"));
+        assertTrue(indexes.getIds(KEY_ANCESTOR_IDS, "a").isEmpty());
+        assertEquals(Set.of("b"), indexes.getIds(KEY_ANCESTOR_IDS, "root"));
+        assertEquals(Set.of("b"), indexes.getIds(KEY_ANCESTOR_IDS, "c"));
+        assertTrue(indexes.getIds(KEY_PRIMARY_TYPE, "File").isEmpty());
+        assertEquals(Set.of("b"), indexes.getIds(KEY_PRIMARY_TYPE, "Note"));
+    }
+
+}
@@ -78,10 +78,15 @@ import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
 import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 @Deploy("org.nuxeo.ecm.core.storage.sql.test.tests:OSGI-INF/test-backend-core-types-contrib.xml")
 public class TestSQLBackend extends SQLBackendTestCase {
 
@@ -468,6 +473,60 @@ public class TestSQLBackend extends SQLBackendTestCase {
         // session.save();
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.storage.sql.test.tests:OSGI-INF/test-copy-threshold-contrib.xml")
+    public void testCopyRows() throws Exception {
+        assumeTrue("COPY is only supported on PostgreSQL", DatabaseHelper.DATABASE instanceof DatabasePostgreSQL);
+        Counter copyRows = SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                                 .counter(MetricName.build("nuxeo", "repositories", "repository",
+                                                         "copy", "rows").tagged("repository", repository.getName()));
+        long copied = copyRows.getCount();
+
+        // values needing escaping in the COPY text format or in array literals
+        String[] titles = { "tab\there", "line\nfeed\r\nend", "back\\slash \\N", "quotes '\" {a,b} \u00e9\u20ac",
+                null };
+        String[][] subjects = { { "a,b", "{c}", "\"q\"", "back\\slash", "NULL" }, {}, null, { "\t\n" },
+                { " spaced " } };
+        GregorianCalendar cal = new GregorianCalendar(2008, Calendar.JULY, 14, 12, 34, 56);
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        for (int i = 0; i < titles.length; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", titles[i]);
+            node.setSimpleProperty("tst:bignote", titles[i]);
+            node.setSimpleProperty("tst:count", i % 2 == 0 ? Long.valueOf(i) : null);
+            node.setSimpleProperty("tst:rate", i % 2 == 0 ? null : Double.valueOf(i + 0.5));
+            node.setSimpleProperty("tst:created", i % 2 == 0 ? cal : null);
+            if (subjects[i] != null) {
+                node.setCollectionProperty("tst:subjects", subjects[i]);
+            }
+        }
+        session.save();
+        // the hierarchy and test schema rows were copied
+        assertTrue(copyRows.getCount() >= copied + 2 * titles.length);
+
+        // reopen a session to read from database and not caches
+        session.close();
+        session = repository.getConnection();
+        root = session.getRootNode();
+        for (int i = 0; i < titles.length; i++) {
+            Node node = session.getChildNode(root, "doc" + i, false);
+            assertNotNull(node);
+            assertEquals(titles[i], node.getSimpleProperty("tst:title").getString());
+            assertEquals(titles[i], node.getSimpleProperty("tst:bignote").getString());
+            assertEquals(i % 2 == 0 ? Long.valueOf(i) : null, node.getSimpleProperty("tst:count").getValue());
+            assertEquals(i % 2 == 0 ? null : Double.valueOf(i + 0.5), node.getSimpleProperty("tst:rate").getValue());
+            if (i % 2 == 0) {
+                assertEqualsCalendars(cal, (GregorianCalendar) node.getSimpleProperty("tst:created").getValue());
+            } else {
+                assertNull(node.getSimpleProperty("tst:created").getValue());
+            }
+            String[] expected = subjects[i] == null ? new String[0] : subjects[i];
+            assertArrayEquals(expected, node.getCollectionProperty("tst:subjects").getStrings());
+        }
+        session.close();
+    }
+
     /**
      * Test persistence of date in another time zone than the default one.
      *
@@ -3897,6 +3956,86 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals("/r2/node0/node1/node2/node3/node4" + "/node5/node6/node7/node8/node9", nodes.get(1).getPath());
     }
 
+    @Test
+    public void testPathCacheMove() throws Exception {
+        assumeTrue(repository.getPathCache() != null);
+
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node foo = session.addChildNode(root, "foo", null, "TestDoc", false);
+        Node bar = session.addChildNode(foo, "bar", null, "TestDoc", false);
+        Node gee = session.addChildNode(bar, "gee", null, "TestDoc", false);
+        Node dest = session.addChildNode(root, "dest", null, "TestDoc", false);
+        session.save();
+        session.close();
+
+        // compute the path, caching the hierarchy links
+        session = repository.getConnection();
+        Node node = session.getNodeById(gee.getId());
+        assertEquals("/foo/bar/gee", node.getPath());
+
+        // clear context and mapper cache, the path cache should still be used
+        SessionImpl sessionImpl = (SessionImpl) session;
+        sessionImpl.context.pristine.clear();
+        sessionImpl.getMapper().clearCache();
+        JDBCConnection jdbc = (JDBCConnection) ((SoftRefCachingMapper) sessionImpl.getMapper()).mapper;
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        assertEquals("/foo/bar/gee", sessionImpl.context.getPath(node.getHierFragment()));
+        assertEquals(0, jdbc.executeCount);
+        jdbc.countExecutes = false;
+        session.close();
+
+        // move an ancestor in another session
+        Session session2 = repository.getConnection();
+        session2.move(session2.getNodeById(bar.getId()), session2.getNodeById(dest.getId()), "bar2");
+        session2.save();
+        session2.close();
+
+        // the descendant path is computed from the new link
+        session = repository.getConnection();
+        assertEquals("/dest/bar2/gee", session.getNodeById(gee.getId()).getPath());
+        session.close();
+    }
+
+    @Test
+    public void testPathCachePage() throws Exception {
+        assumeTrue(repository.getPathCache() != null);
+
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node foo = session.addChildNode(root, "foo", null, "TestDoc", false);
+        Node bar = session.addChildNode(foo, "bar", null, "TestDoc", false);
+        List<Serializable> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Node folder = session.addChildNode(bar, "folder" + i, null, "TestDoc", false);
+            ids.add(session.addChildNode(folder, "doc", null, "TestDoc", false).getId());
+        }
+        session.save();
+        session.close();
+        repository.getPathCache().clear();
+
+        // loading a page of documents caches the links of all their ancestors at once
+        session = repository.getConnection();
+        List<Node> nodes = session.getNodesByIds(ids);
+        assertEquals("/foo/bar/folder3/doc", nodes.get(3).getPath());
+        assertNotNull(repository.getPathCache().get(bar.getId()));
+
+        // the paths are then computed without any query
+        SessionImpl sessionImpl = (SessionImpl) session;
+        sessionImpl.context.pristine.clear();
+        sessionImpl.getMapper().clearCache();
+        JDBCConnection jdbc = (JDBCConnection) ((SoftRefCachingMapper) sessionImpl.getMapper()).mapper;
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            assertEquals("/foo/bar/folder" + i + "/doc", sessionImpl.context.getPath(nodes.get(i).getHierFragment()));
+        }
+        assertEquals(0, jdbc.executeCount);
+        jdbc.countExecutes = false;
+        session.close();
+    }
+
     @Test
     public void testParallelPrepareUserReadAcls() throws Throwable {
         assumeTrue(!(DatabaseHelper.DATABASE instanceof DatabaseOracle)); // NXP-18684
@@ -0,0 +1,667 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * A {@link RowMapper} that uses a Caffeine cache shared by all the sessions of a repository.
+ * <p>
+ * The cache is bounded by the estimated size in bytes of the rows, configured by the {@value #CACHE_SIZE_PROP} caching
+ * mapper property, and uses the W-TinyLFU eviction policy, so that eviction doesn't depend on the GC like with
+ * {@link SoftRefCachingRowMapper}.
+ * <p>
+ * The cache only holds committed {@link Row}s:
+ * <ul>
+ * <li>rows written by a session are kept out of the cache, and read from the underlying {@link RowMapper}, until the
+ * transaction ends,
+ * <li>at commit, the written rows are invalidated in the cache, and the invalidations are queued to the other sessions
+ * through their {@link VCSInvalidationsQueue}, to be processed at the start of their next transaction.
+ * </ul>
+ * Each invalidation takes a new sequence number, recorded for the invalidated row in a fixed array of stripes, and a row
+ * read from the database is only put in the cache if its stripe was not invalidated since the read started, so that a
+ * row read before a concurrent commit cannot be cached afterwards while the other rows are still cached under write
+ * load.
+ *
+ * @since 2023.19
+ */
+public class CaffeineCachingRowMapper implements RowMapper {
+
+    private static final Logger log = LogManager.getLogger(CaffeineCachingRowMapper.class);
+
+    /** Caching mapper property for the maximum size of the cache, in bytes, with an optional KB, MB or GB suffix. */
+    public static final String CACHE_SIZE_PROP = "cacheSize";
+
+    public static final String CACHE_SIZE_DEFAULT = "100MB";
+
+    private static final String ABSENT = "__ABSENT__\0\0\0";
+
+    /**
+     * The shared caches, one per repository, identified by the repository's invalidations propagator.
+     */
+    // used synchronized
+    private static final Map<VCSInvalidationsPropagator, SharedCache> SHARED_CACHES = new WeakHashMap<>();
+
+    /**
+     * The cache shared by all the mappers of a repository.
+     */
+    protected static class SharedCache {
+
+        protected final Cache<RowId, Row> cache;
+
+        /** Number of stripes tracking the invalidations, a power of 2. */
+        protected static final int STRIPES = 4096;
+
+        /** Incremented for each invalidation. */
+        protected final AtomicLong invalidationCounter = new AtomicLong();
+
+        /** The counter value of the last invalidation of the rows of each stripe. */
+        protected final AtomicLongArray stripeInvalidations = new AtomicLongArray(STRIPES);
+
+        /** The counter value of the last invalidation of all the rows. */
+        protected final AtomicLong allInvalidation = new AtomicLong();
+
+        protected SharedCache(String repositoryName, long maxWeight) {
+            cache = Caffeine.newBuilder()
+                            .maximumWeight(maxWeight)
+                            .weigher((RowId rowId, Row row) -> estimateSize(row))
+                            .recordStats()
+                            .build();
+            setMetrics(repositoryName);
+        }
+
+        protected void setMetrics(String repositoryName) {
+            MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            registerGauge(registry, repositoryName, "size", cache::estimatedSize);
+            registerGauge(registry, repositoryName, "weight",
+                    () -> cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+            registerGauge(registry, repositoryName, "evictions", () -> cache.stats().evictionCount());
+            registerGauge(registry, repositoryName, "hit-ratio", () -> cache.stats().hitRate());
+        }
+
+        protected void registerGauge(MetricRegistry registry, String repositoryName, String name, Gauge<?> gauge) {
+            MetricName gaugeName = MetricName.build("nuxeo", "repositories", "repository", "cache", "caffeine", name)
+                                             .tagged("repository", repositoryName);
+            registry.remove(gaugeName);
+            registry.register(gaugeName, gauge);
+        }
+
+        /**
+         * Gets the counter to pass to {@link #put} for a row about to be read from the database.
+         */
+        protected long getReadCounter() {
+            return invalidationCounter.get();
+        }
+
+        protected Row get(RowId rowId) {
+            return cache.getIfPresent(rowId);
+        }
+
+        protected static int stripe(RowId rowId) {
+            int h = rowId.hashCode();
+            return (h ^ (h >>> 16)) & (STRIPES - 1);
+        }
+
+        /**
+         * Puts a row read from the database, unless it was invalidated since the read started.
+         */
+        protected void put(RowId rowId, Row row, long readCounter) {
+            // the check is atomic with the put, and an invalidation is recorded before removing the row
+            cache.asMap()
+                 .compute(rowId, (k, v) -> stripeInvalidations.get(stripe(k)) <= readCounter
+                         && allInvalidation.get() <= readCounter ? row : v);
+        }
+
+        protected void invalidate(RowId rowId) {
+            long counter = invalidationCounter.incrementAndGet();
+            stripeInvalidations.accumulateAndGet(stripe(rowId), counter, Math::max);
+            cache.invalidate(rowId);
+        }
+
+        protected void invalidate(VCSInvalidations invalidations) {
+            if (invalidations.all) {
+                invalidateAll();
+                return;
+            }
+            if (invalidations.modified != null) {
+                invalidations.modified.forEach(this::invalidate);
+            }
+            if (invalidations.deleted != null) {
+                invalidations.deleted.forEach(this::invalidate);
+            }
+        }
+
+        protected void invalidateAll() {
+            long counter = invalidationCounter.incrementAndGet();
+            allInvalidation.accumulateAndGet(counter, Math::max);
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Clears the shared cache of a repository, if any.
+     *
+     * @param invalidationsPropagator the invalidations propagator identifying the repository
+     */
+    public static void clearSharedCache(VCSInvalidationsPropagator invalidationsPropagator) {
+        SharedCache sharedCache;
+        synchronized (SHARED_CACHES) {
+            sharedCache = SHARED_CACHES.get(invalidationsPropagator);
+        }
+        if (sharedCache != null) {
+            sharedCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the shared cache of a repository, creating it if needed.
+     */
+    protected static SharedCache getSharedCache(VCSInvalidationsPropagator invalidationsPropagator,
+            String repositoryName, Map<String, String> properties) {
+        synchronized (SHARED_CACHES) {
+            return SHARED_CACHES.computeIfAbsent(invalidationsPropagator, k -> {
+                String size = properties.getOrDefault(CACHE_SIZE_PROP, CACHE_SIZE_DEFAULT);
+                log.info("Creating VCS row cache for repository: {} with size: {}", repositoryName, size);
+                return new SharedCache(repositoryName, SizeUtils.parseSizeInBytes(size));
+            });
+        }
+    }
+
+    protected SharedCache sharedCache;
+
+    protected Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    protected RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions at
+     * post-commit time.
+     */
+    protected final VCSInvalidations localInvalidations;
+
+    /**
+     * The rows written by this mapper in the current transaction, which must not be read from or put in the shared
+     * cache.
+     */
+    protected final Set<RowId> localWrites;
+
+    /**
+     * The queue of invalidations received from other sessions, to process at pre-transaction time.
+     */
+    // public for unit tests
+    public final VCSInvalidationsQueue invalidationsQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    protected VCSInvalidationsPropagator invalidationsPropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public CaffeineCachingRowMapper() {
+        localInvalidations = new VCSInvalidations();
+        localWrites = new HashSet<>();
+        invalidationsQueue = new VCSInvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            VCSInvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.invalidationsPropagator = invalidationsPropagator;
+        invalidationsPropagator.addQueue(invalidationsQueue);
+        sharedCache = getSharedCache(invalidationsPropagator, repositoryName, properties);
+        setMetrics(repositoryName);
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheHitCount = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "caffeine", "hit")
+                          .tagged("repository", repositoryName));
+        cacheGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "caffeine", "timer")
+                          .tagged("repository", repositoryName));
+        sorRows = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "caffeine", "sor", "rows")
+                          .tagged("repository", repositoryName));
+        sorGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "caffeine", "sor", "timer")
+                          .tagged("repository", repositoryName));
+    }
+
+    public void close() {
+        clearCache();
+        invalidationsPropagator.removeQueue(invalidationsQueue);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(Row row) {
+        return row.tableName == ABSENT; // == is ok
+    }
+
+    /**
+     * Estimates the memory used by a row, in bytes.
+     */
+    protected static int estimateSize(Row row) {
+        // object header, fields and arrays of references
+        long size = 64;
+        if (row.values != null) {
+            size += 16 + 8L * row.values.length;
+            for (Serializable value : row.values) {
+                size += estimateSize(value);
+            }
+        }
+        if (row.keys != null) {
+            // keys are shared with the model
+            size += 16 + 8L * row.keys.length;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    protected static long estimateSize(Serializable value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 40 + ((String) value).length();
+        } else if (value instanceof Calendar) {
+            return 450;
+        } else if (value instanceof ACLRow) {
+            ACLRow acl = (ACLRow) value;
+            return 64 + estimateSize(acl.name) + estimateSize(acl.permission) + estimateSize(acl.user)
+                    + estimateSize(acl.group) + estimateSize(acl.creator) + estimateSize(acl.begin)
+                    + estimateSize(acl.end);
+        } else if (value instanceof Serializable[]) {
+            Serializable[] array = (Serializable[]) value;
+            long size = 16 + 8L * array.length;
+            for (Serializable v : array) {
+                size += estimateSize(v);
+            }
+            return size;
+        } else {
+            // Long, Boolean, Double, ...
+            return 16;
+        }
+    }
+
+    protected void cachePut(Row row, long readCounter) {
+        if (localWrites.contains(row)) {
+            return;
+        }
+        row = row.clone();
+        // for ACL collections, make sure the order is correct
+        // (without the cache, the query to get a list of collection does an
+        // ORDER BY pos, so users of the cache must get the same behavior)
+        if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+            row.values = sortACLRows((ACLRow[]) row.values);
+        }
+        sharedCache.put(new RowId(row), row, readCounter);
+    }
+
+    protected ACLRow[] sortACLRows(ACLRow[] acls) {
+        List<ACLRow> list = new ArrayList<>(Arrays.asList(acls));
+        Collections.sort(list, ACLRowPositionComparator.INSTANCE);
+        ACLRow[] res = new ACLRow[acls.length];
+        return list.toArray(res);
+    }
+
+    protected void cachePutAbsent(RowId rowId, long readCounter) {
+        if (localWrites.contains(rowId)) {
+            return;
+        }
+        sharedCache.put(new RowId(rowId), new Row(ABSENT, (Serializable) null), readCounter);
+    }
+
+    protected void cachePutAbsentIfNull(RowId rowId, Row row, long readCounter) {
+        if (row != null) {
+            cachePut(row, readCounter);
+        } else {
+            cachePutAbsent(rowId, readCounter);
+        }
+    }
+
+    protected void cachePutAbsentIfRowId(RowId rowId, long readCounter) {
+        if (rowId instanceof Row) {
+            cachePut((Row) rowId, readCounter);
+        } else {
+            cachePutAbsent(rowId, readCounter);
+        }
+    }
+
+    @SuppressWarnings("resource") // Time.Context closed by stop()
+    protected Row cacheGet(RowId rowId) {
+        if (localWrites.contains(rowId)) {
+            return null;
+        }
+        final Timer.Context context = cacheGetTimer.time();
+        try {
+            Row row = sharedCache.get(rowId);
+            if (row != null && !isAbsent(row)) {
+                row = row.clone();
+            }
+            if (row != null) {
+                cacheHitCount.inc();
+            }
+            return row;
+        } finally {
+            context.stop();
+        }
+    }
+
+    protected void addLocalModified(RowId rowId) {
+        localWrites.add(new RowId(rowId));
+        if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+            localInvalidations.addModified(new RowId(rowId));
+        }
+    }
+
+    protected void addLocalDeleted(RowId rowId) {
+        localWrites.add(new RowId(rowId));
+        if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+            localInvalidations.addDeleted(new RowId(rowId));
+        }
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public VCSInvalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        VCSInvalidations remoteInvalidations = rowMapper.receiveInvalidations();
+        if (remoteInvalidations != null) {
+            // only we received them, invalidate the shared cache
+            sharedCache.invalidate(remoteInvalidations);
+        }
+
+        VCSInvalidations invalidations = invalidationsQueue.getInvalidations();
+        return invalidations.isEmpty() ? null : invalidations;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(VCSInvalidations invalidations) {
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new VCSInvalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+        // the rows written by this transaction are now committed
+        localWrites.forEach(sharedCache::invalidate);
+        localWrites.clear();
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            if (invalidations.all) {
+                sharedCache.invalidateAll();
+            }
+
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other local mappers
+            invalidationsPropagator.propagateInvalidations(invalidations, invalidationsQueue);
+        }
+    }
+
+    /**
+     * Clears the state of this mapper. The shared cache, which only holds committed rows, is kept when a session is
+     * closed or rolled back, it is cleared by {@link RepositoryImpl#clearCaches}.
+     */
+    @Override
+    public void clearCache() {
+        localInvalidations.clear();
+        localWrites.clear();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the shared cache is reported by the caffeine size gauge
+        return 0;
+    }
+
+    @Override
+    public void rollback() {
+        try {
+            rowMapper.rollback();
+        } finally {
+            clearCache();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new LinkedList<>();
+        for (RowId rowId : rowIds) {
+            Row row = cacheGet(rowId);
+            if (row == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else if (isAbsent(row)) {
+                res.add(new RowId(rowId));
+            } else {
+                res.add(row);
+            }
+        }
+        if (!todo.isEmpty()) {
+            @SuppressWarnings("resource")
+            final Timer.Context context = sorGetTimer.time();
+            try {
+                long readCounter = sharedCache.getReadCounter();
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePutAbsentIfRowId(rowId, readCounter);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            } finally {
+                context.stop();
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Record the writes then pass them to the mapper.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        for (Row row : batch.creates) {
+            // we need to send modified invalidations for created
+            // fragments because other session's ABSENT fragments have
+            // to be invalidated
+            addLocalModified(row);
+        }
+        for (RowUpdate rowu : batch.updates) {
+            addLocalModified(rowu.row);
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            addLocalDeleted(rowId);
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            addLocalDeleted(rowId);
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long readCounter = sharedCache.getReadCounter();
+            row = rowMapper.readSimpleRow(rowId);
+            cachePutAbsentIfNull(rowId, row, readCounter);
+            return row;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long readCounter = sharedCache.getReadCounter();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            row = new Row(rowId.tableName, rowId.id, array);
+            cachePut(row, readCounter);
+            return row.values;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row.values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long readCounter = sharedCache.getReadCounter();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, readCounter);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow,
+            boolean excludeSpecialChildren, boolean excludeACL) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow, excludeSpecialChildren,
+                excludeACL);
+        VCSInvalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            invalidations.modified.forEach(this::addLocalModified);
+        }
+        if (invalidations.deleted != null) {
+            invalidations.deleted.forEach(this::addLocalDeleted);
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info))) {
+                addLocalDeleted(new RowId(fragmentName, info.id));
+            }
+        }
+    }
+
+}
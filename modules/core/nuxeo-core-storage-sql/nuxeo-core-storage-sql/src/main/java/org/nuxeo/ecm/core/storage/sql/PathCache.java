@@ -0,0 +1,160 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repository-wide cache of the hierarchy links of the documents (parent id and name), used to compute paths without
+ * fetching all the ancestors from the database.
+ * <p>
+ * Only the link of a node to its parent is kept, so that a move or rename only invalidates the moved node and not its
+ * descendants. The full paths are materialized by walking the links in memory.
+ * <p>
+ * The cache is invalidated by the repository's {@link VCSInvalidationsPropagator}, so it receives the invalidations of
+ * the local sessions and of the other cluster nodes like the caching mappers. Each invalidation of hierarchy rows
+ * increments a generation, and a link is only stored if the generation didn't change since the storing session
+ * processed its own invalidations, which prevents caching a link read before a concurrent change.
+ *
+ * @since 2023.19
+ */
+public class PathCache {
+
+    public static final String PATH_CACHE_SIZE_PROP = "org.nuxeo.vcs.path.cache.size";
+
+    public static final String PATH_CACHE_SIZE_DEFAULT = "100000";
+
+    /**
+     * The link of a node to its parent.
+     */
+    public static class Entry {
+
+        public final Serializable parentId;
+
+        public final String name;
+
+        public Entry(Serializable parentId, String name) {
+            this.parentId = parentId;
+            this.name = name;
+        }
+    }
+
+    // access-ordered for LRU eviction, used synchronized
+    protected final Map<Serializable, Entry> entries;
+
+    protected long generation; // used synchronized
+
+    public PathCache(int maxSize) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Serializable, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Gets the current generation, to be passed later to {@link #put}.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the link of the given node to its parent, or {@code null} if not cached.
+     */
+    public synchronized Entry get(Serializable id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Stores the link of the given node to its parent, unless an invalidation happened since the given generation.
+     */
+    public synchronized void put(Serializable id, Serializable parentId, String name, long expectedGeneration) {
+        if (generation == expectedGeneration) {
+            entries.put(id, new Entry(parentId, name));
+        }
+    }
+
+    /**
+     * Stores the links of the given nodes to their parents, unless an invalidation happened since the given generation.
+     */
+    public synchronized void putAll(Map<Serializable, Entry> links, long expectedGeneration) {
+        if (generation == expectedGeneration) {
+            entries.putAll(links);
+        }
+    }
+
+    /**
+     * Invalidates the link of the given node to its parent.
+     */
+    public synchronized void invalidate(Serializable id) {
+        entries.remove(id);
+        generation++;
+    }
+
+    /**
+     * Invalidates the links of the hierarchy rows of the given invalidations.
+     */
+    public synchronized void invalidate(VCSInvalidations invalidations) {
+        boolean changed;
+        if (invalidations.all) {
+            entries.clear();
+            changed = true;
+        } else {
+            changed = invalidateHierarchyRows(invalidations.modified);
+            changed |= invalidateHierarchyRows(invalidations.deleted);
+        }
+        // the links being stored are only stale if a hierarchy row changed
+        if (changed) {
+            generation++;
+        }
+    }
+
+    /**
+     * Invalidates the links of the hierarchy rows among the given rows.
+     *
+     * @return {@code true} if there was a hierarchy row
+     */
+    protected boolean invalidateHierarchyRows(Set<RowId> rowIds) {
+        if (rowIds == null) {
+            return false;
+        }
+        boolean changed = false;
+        for (RowId rowId : rowIds) {
+            if (Model.HIER_TABLE_NAME.equals(rowId.tableName)) {
+                entries.remove(rowId.id);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+}
@@ -173,6 +173,28 @@ public class PersistenceContext {
 
     protected final Counter cacheHitCount;
 
+    /**
+     * The repository-wide cache of hierarchy links, or {@code null} if disabled.
+     *
+     * @since 2023.19
+     */
+    protected final PathCache pathCache;
+
+    /**
+     * The generation of the path cache when invalidations were last processed.
+     *
+     * @since 2023.19
+     */
+    protected long pathCacheGeneration;
+
+    /**
+     * Whether this session moved or removed nodes in the current transaction, in which case the path cache, holding
+     * committed links, is not used until the transaction ends.
+     *
+     * @since 2023.19
+     */
+    protected boolean pathCacheBypassed;
+
     /**
      * Threshold at which we warn that a Selection may be too big, with stack trace.
      */
@@ -210,6 +232,10 @@ public class PersistenceContext {
                                                 .tagged("repository", session.getRepositoryName()));
         cacheHitCount = registry.counter(MetricName.build("nuxeo", "repositories", "repository", "cache", "hit")
                                                    .tagged("repository", session.getRepositoryName()));
+        pathCache = session.repository.getPathCache();
+        if (pathCache != null) {
+            pathCacheGeneration = pathCache.getGeneration();
+        }
         try {
             bigSelWarnThreshold = Long.parseLong(
                     Framework.getProperty(SEL_WARN_THRESHOLD_PROP, SEL_WARN_THRESHOLD_DEFAULT));
@@ -228,6 +254,7 @@ public class PersistenceContext {
         modified.clear(); // not empty when rolling back before save
         createdIds.clear();
         userChangeIds.clear();
+        pathCacheBypassed = false;
         return n;
     }
 
@@ -577,6 +604,8 @@ public class PersistenceContext {
             sel.gatherInvalidations(invalidations);
         }
         mapper.sendInvalidations(invalidations);
+        // our changes are now committed and propagated to the path cache
+        pathCacheBypassed = false;
     }
 
     /**
@@ -586,6 +615,10 @@ public class PersistenceContext {
      */
     public void processReceivedInvalidations() {
         VCSInvalidations invals = mapper.receiveInvalidations();
+        // received invalidations have been propagated to the path cache
+        if (pathCache != null) {
+            pathCacheGeneration = pathCache.getGeneration();
+        }
         if (invals == null) {
             return;
         }
@@ -987,6 +1020,7 @@ public class PersistenceContext {
      */
     public void removeNode(SimpleFragment hierFragment, List<NodeInfo> nodeInfos) {
         Serializable rootId = hierFragment.getId();
+        invalidatePathCache(rootId);
 
         // get root info before deletion. may be a version or proxy
         SimpleFragment versionFragment;
@@ -1225,16 +1259,14 @@ public class PersistenceContext {
      * @param fetch {@code true} if we can use the database, {@code false} if only caches should be used
      */
     public PathAndId getPathOrMissingParentId(SimpleFragment hierFragment, boolean fetch) {
+        boolean usePathCache = pathCache != null && !pathCacheBypassed;
         LinkedList<String> list = new LinkedList<>();
-        Serializable parentId;
+        // keeps the fetched ancestors referenced during the walk, as pristine fragments are weakly referenced
+        List<Fragment> ancestors = null;
+        String name = getChildName(hierFragment, usePathCache);
+        Serializable parentId = hierFragment.get(Model.HIER_PARENT_KEY);
         while (true) {
-            String name = hierFragment.getString(Model.HIER_CHILD_NAME_KEY);
-            if (name == null) {
-                // (empty string for normal databases, null for Oracle)
-                name = "";
-            }
             list.addFirst(name);
-            parentId = hierFragment.get(Model.HIER_PARENT_KEY);
             if (parentId == null) {
                 // root
                 break;
@@ -1242,6 +1274,14 @@ public class PersistenceContext {
             // recurse in the parent
             RowId rowId = new RowId(Model.HIER_TABLE_NAME, parentId);
             hierFragment = (SimpleFragment) getIfPresent(rowId);
+            if (hierFragment == null && usePathCache) {
+                PathCache.Entry entry = pathCache.get(parentId);
+                if (entry != null) {
+                    name = entry.name;
+                    parentId = entry.parentId;
+                    continue;
+                }
+            }
             if (hierFragment == null) {
                 // try in mapper cache
                 hierFragment = (SimpleFragment) getFromMapper(rowId, false, true);
@@ -1249,13 +1289,21 @@ public class PersistenceContext {
                     if (!fetch) {
                         return new PathAndId(null, parentId);
                     }
-                    hierFragment = (SimpleFragment) getFromMapper(rowId, true, false);
+                    if (ancestors == null) {
+                        // fetch all the missing ancestors at once instead of one query per level
+                        ancestors = session.getHierarchyAndAncestors(Collections.singleton(parentId));
+                        hierFragment = (SimpleFragment) getIfPresent(rowId);
+                    }
+                    if (hierFragment == null) {
+                        hierFragment = (SimpleFragment) getFromMapper(rowId, true, false);
+                    }
                 }
             }
+            name = getChildName(hierFragment, usePathCache);
+            parentId = hierFragment.get(Model.HIER_PARENT_KEY);
         }
         String path;
         if (list.size() == 1) {
-            String name = list.peek();
             if (name.isEmpty()) {
                 // root, special case
                 path = "/";
@@ -1269,6 +1317,54 @@ public class PersistenceContext {
         return new PathAndId(path, null);
     }
 
+    /**
+     * Gets the name of a hierarchy fragment, and records its link to its parent in the path cache.
+     */
+    protected String getChildName(SimpleFragment hierFragment, boolean usePathCache) {
+        String name = getChildName(hierFragment);
+        if (usePathCache && hierFragment.getState() == State.PRISTINE) {
+            pathCache.put(hierFragment.getId(), hierFragment.get(Model.HIER_PARENT_KEY), name, pathCacheGeneration);
+        }
+        return name;
+    }
+
+    protected static String getChildName(SimpleFragment hierFragment) {
+        String name = hierFragment.getString(Model.HIER_CHILD_NAME_KEY);
+        // (empty string for normal databases, null for Oracle)
+        return name == null ? "" : name;
+    }
+
+    /**
+     * Records in the path cache the links of the given hierarchy fragments at once, typically the ancestors of a page
+     * of documents fetched together.
+     *
+     * @since 2023.19
+     */
+    protected void cachePathLinks(List<Fragment> hierFragments) {
+        if (pathCache == null || pathCacheBypassed) {
+            return;
+        }
+        Map<Serializable, PathCache.Entry> links = new HashMap<>();
+        for (Fragment fragment : hierFragments) {
+            if (fragment.getState() == State.PRISTINE) {
+                SimpleFragment hierFragment = (SimpleFragment) fragment;
+                links.put(hierFragment.getId(),
+                        new PathCache.Entry(hierFragment.get(Model.HIER_PARENT_KEY), getChildName(hierFragment)));
+            }
+        }
+        pathCache.putAll(links, pathCacheGeneration);
+    }
+
+    /**
+     * Stops using the path cache until the end of the transaction, and invalidates the link of the given node.
+     */
+    protected void invalidatePathCache(Serializable id) {
+        if (pathCache != null) {
+            pathCacheBypassed = true;
+            pathCache.invalidate(id);
+        }
+    }
+
     /**
      * Finds the id of the enclosing non-complex-property node.
      *
@@ -1476,6 +1572,7 @@ public class PersistenceContext {
         getHierSelectionContext(complexProp).recordExisting(hierFragment, true);
         // path invalidated
         source.path = null;
+        invalidatePathCache(id);
     }
 
     /**
@@ -125,6 +125,13 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
 
     protected VCSClusterInvalidator clusterInvalidator;
 
+    /**
+     * Cache of the hierarchy links used to compute paths, or {@code null} if disabled.
+     *
+     * @since 2023.19
+     */
+    protected final PathCache pathCache;
+
     public boolean requiresClusterSQL;
 
     private Model model;
@@ -134,7 +141,8 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
     public RepositoryImpl(RepositoryDescriptor repositoryDescriptor) {
         this.repositoryDescriptor = repositoryDescriptor;
         sessions = new CopyOnWriteArrayList<>();
-        invalidationsPropagator = new VCSInvalidationsPropagator();
+        pathCache = createPathCache();
+        invalidationsPropagator = new VCSInvalidationsPropagator(pathCache);
 
         sessionCount = registry.counter(MetricName.build("nuxeo", "repositories", "repository", "sessions")
                                                   .tagged("repository", repositoryDescriptor.name));
@@ -180,6 +188,32 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
                 return getCacheMapperSize();
             }
         });
+        gaugeName = MetricName.build("nuxeo", "repositories", "repository", "cache", "path")
+                              .tagged("repository", repositoryDescriptor.name);
+        registry.remove(gaugeName);
+        registry.register(gaugeName, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return getCachePathSize();
+            }
+        });
+    }
+
+    /**
+     * Creates the cache of the hierarchy links used to compute paths.
+     * <p>
+     * The cache relies on the local propagation of invalidations done by the caching mappers, so it's disabled if
+     * there is no caching mapper.
+     *
+     * @since 2023.19
+     */
+    protected PathCache createPathCache() {
+        int size = Integer.parseInt(
+                Framework.getProperty(PathCache.PATH_CACHE_SIZE_PROP, PathCache.PATH_CACHE_SIZE_DEFAULT));
+        if (size <= 0 || getCachingMapperClass() == null) {
+            return null;
+        }
+        return new PathCache(size);
     }
 
     protected Mapper createCachingMapper(Model model, Mapper mapper) {
@@ -230,6 +264,15 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
         return invalidationsPropagator;
     }
 
+    /**
+     * Gets the cache of the hierarchy links used to compute paths, or {@code null} if disabled.
+     *
+     * @since 2023.19
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
     public boolean isChangeTokenEnabled() {
         return repositoryDescriptor.isChangeTokenEnabled();
     }
@@ -462,6 +505,11 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
         for (SessionImpl session : sessions) {
             n += session.clearCaches();
         }
+        if (pathCache != null) {
+            n += pathCache.size();
+            pathCache.clear();
+        }
+        CaffeineCachingRowMapper.clearSharedCache(invalidationsPropagator);
         if (lockManager != null) {
             lockManager.clearLockManagerCaches();
         }
@@ -503,6 +551,13 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
         return size;
     }
 
+    /**
+     * @since 2023.19
+     */
+    public long getCachePathSize() {
+        return pathCache == null ? 0 : pathCache.size();
+    }
+
     @Override
     public void processClusterInvalidationsNext() {
         // TODO pass through or something
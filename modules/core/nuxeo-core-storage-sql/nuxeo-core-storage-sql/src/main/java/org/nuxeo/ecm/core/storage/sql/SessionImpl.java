@@ -1031,7 +1031,8 @@ public class SessionImpl implements Session {
     }
 
     /**
-     * Fetches the hierarchy fragment for the given rows and all their ancestors.
+     * Fetches the hierarchy fragment for the given rows and all their ancestors, and records their links in the path
+     * cache.
      *
      * @param ids the fragment ids
      */
@@ -1042,7 +1043,9 @@ public class SessionImpl implements Session {
         for (Serializable id : allIds) {
             rowIds.add(new RowId(Model.HIER_TABLE_NAME, id));
         }
-        return context.getMulti(rowIds, true);
+        List<Fragment> fragments = context.getMulti(rowIds, true);
+        context.cachePathLinks(fragments);
+        return fragments;
     }
 
     @SuppressWarnings("resource") // Time.Context closed by stop()
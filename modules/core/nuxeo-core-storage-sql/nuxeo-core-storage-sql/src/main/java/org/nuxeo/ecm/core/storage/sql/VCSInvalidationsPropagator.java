@@ -19,10 +19,35 @@
 package org.nuxeo.ecm.core.storage.sql;
 
 import org.nuxeo.ecm.core.storage.InvalidationsPropagator;
+import org.nuxeo.ecm.core.storage.InvalidationsQueue;
 
 /**
  * Propagator of invalidations to a set of {@link VCSInvalidationsQueue}s.
+ * <p>
+ * The invalidations are also applied to the repository {@link PathCache}, if any.
  */
 public class VCSInvalidationsPropagator extends InvalidationsPropagator<VCSInvalidations> {
 
+    protected final PathCache pathCache;
+
+    public VCSInvalidationsPropagator() {
+        this(null);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public VCSInvalidationsPropagator(PathCache pathCache) {
+        this.pathCache = pathCache;
+    }
+
+    @Override
+    public void propagateInvalidations(VCSInvalidations invalidations,
+            InvalidationsQueue<VCSInvalidations> skipQueue) {
+        if (pathCache != null) {
+            pathCache.invalidate(invalidations);
+        }
+        super.propagateInvalidations(invalidations, skipQueue);
+    }
+
 }
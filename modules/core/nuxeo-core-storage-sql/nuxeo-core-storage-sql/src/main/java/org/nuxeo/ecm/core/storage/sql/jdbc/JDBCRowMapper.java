@@ -64,8 +64,15 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Update;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
 /**
  * A {@link JDBCRowMapper} maps {@link Row}s to and from a JDBC database.
  */
@@ -78,6 +85,17 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
     /** Property to determine whether collection appends delete all then re-insert, or are optimized for append. */
     public static final String COLLECTION_DELETE_BEFORE_APPEND_PROP = "org.nuxeo.vcs.list-delete-before-append";
 
+    /**
+     * Property for the minimum number of rows created in a table by a single save above which they are bulk loaded
+     * using the database {@code COPY} protocol instead of batched inserts, if the dialect supports it. The default of
+     * {@code 0} disables bulk loading.
+     *
+     * @since 2023.19
+     */
+    public static final String COPY_THRESHOLD_PROP = "org.nuxeo.vcs.copy.threshold";
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
     /**
      * Cluster invalidator, or {@code null} if this mapper does not participate in invalidation propagation (cluster
      * invalidator, lock manager).
@@ -92,6 +110,12 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final CollectionIO scalarCollectionIO;
 
+    private final int copyThreshold;
+
+    private final Timer copyTimer;
+
+    private final Counter copyRowsCounter;
+
     public JDBCRowMapper(Model model, SQLInfo sqlInfo, VCSClusterInvalidator clusterInvalidator,
             VCSInvalidationsPropagator invalidationsPropagator) {
         super(model, sqlInfo);
@@ -101,6 +125,11 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         collectionDeleteBeforeAppend = configurationService.isBooleanTrue(COLLECTION_DELETE_BEFORE_APPEND_PROP);
         aclCollectionIO = new ACLCollectionIO(collectionDeleteBeforeAppend);
         scalarCollectionIO = new ScalarCollectionIO(collectionDeleteBeforeAppend);
+        copyThreshold = dialect.supportsCopy() ? configurationService.getInteger(COPY_THRESHOLD_PROP, 0) : 0;
+        copyTimer = registry.timer(MetricName.build("nuxeo", "repositories", "repository", "copy", "timer")
+                                             .tagged("repository", getRepositoryName()));
+        copyRowsCounter = registry.counter(MetricName.build("nuxeo", "repositories", "repository", "copy", "rows")
+                                                     .tagged("repository", getRepositoryName()));
     }
 
     @Override
@@ -506,9 +535,13 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         if (sql == null) {
             throw new NuxeoException("Unknown table: " + tableName);
         }
+        List<Column> columns = sqlInfo.getInsertColumns(tableName);
+        if (copyThreshold > 0 && rows.size() >= copyThreshold && isCopySupported(columns)) {
+            copySimpleRows(tableName, sql, columns, rows);
+            return;
+        }
         boolean batched = supportsBatchUpdates && rows.size() > 1;
         String loggedSql = batched ? sql + " -- BATCHED" : sql;
-        List<Column> columns = sqlInfo.getInsertColumns(tableName);
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             int batch = 0;
             for (Iterator<Row> rowIt = rows.iterator(); rowIt.hasNext();) {
@@ -545,6 +578,46 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         }
     }
 
+    /**
+     * Checks that all the columns take their value unchanged, as bulk loading cannot apply SQL functions to them.
+     */
+    protected boolean isCopySupported(List<Column> columns) {
+        return columns.stream().allMatch(column -> "?".equals(column.getFreeVariableSetter()));
+    }
+
+    /**
+     * Bulk loads multiple simple rows, all for the same table.
+     * <p>
+     * The database triggers maintaining the ancestors and read ACLs are fired as for regular inserts.
+     */
+    protected void copySimpleRows(String tableName, String sql, List<Column> columns, List<Row> rows) {
+        Table table = sqlInfo.getDatabase().getTable(tableName);
+        List<Serializable[]> values = new ArrayList<>(rows.size());
+        String loggedSql = sql + " -- COPY";
+        for (Row row : rows) {
+            if (logger.isLogEnabled()) {
+                logger.logSQL(loggedSql, columns, row);
+            }
+            Serializable[] v = new Serializable[columns.size()];
+            int i = 0;
+            for (Column column : columns) {
+                v[i++] = row.get(column.getKey());
+            }
+            values.add(v);
+        }
+        final Timer.Context timerContext = copyTimer.time();
+        try {
+            long count = dialect.copyRows(connection, table, columns, values);
+            countExecute();
+            copyRowsCounter.inc(count);
+        } catch (SQLException e) {
+            checkConcurrentUpdate(e);
+            throw new NuxeoException("Could not copy rows into: " + tableName, e);
+        } finally {
+            timerContext.stop();
+        }
+    }
+
     /**
      * Updates multiple collection rows, all for the same table.
      */
@@ -49,7 +49,7 @@ import org.nuxeo.ecm.core.api.trash.TrashService;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
-import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.SQLQueryCache;
 import org.nuxeo.ecm.core.query.sql.model.BooleanLiteral;
 import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
 import org.nuxeo.ecm.core.query.sql.model.DefaultQueryVisitor;
@@ -303,7 +303,7 @@ public class NXQLQueryMaker implements QueryMaker {
 
         // transform the query according to the transformers defined by the
         // security policies
-        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        SQLQuery sqlQuery = SQLQueryCache.parse(query);
         for (SQLQuery.Transformer transformer : queryFilter.getQueryTransformers()) {
             sqlQuery = transformer.transform(queryFilter.getPrincipal(), sqlQuery);
         }
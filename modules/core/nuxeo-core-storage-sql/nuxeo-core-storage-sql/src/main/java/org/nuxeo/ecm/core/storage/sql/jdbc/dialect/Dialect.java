@@ -1371,6 +1371,31 @@ public abstract class Dialect {
         return true;
     }
 
+    /**
+     * Does the dialect support bulk loading of rows through {@link #copyRows}.
+     *
+     * @since 2023.19
+     */
+    public boolean supportsCopy() {
+        return false;
+    }
+
+    /**
+     * Bulk loads rows into a table using the database-specific protocol (PostgreSQL {@code COPY}), which avoids the
+     * per-row statement execution of batched inserts. Triggers are fired as for regular inserts.
+     *
+     * @param connection the connection
+     * @param table the table
+     * @param columns the columns to fill
+     * @param rows the values of each row, in the order of the columns
+     * @return the number of rows loaded
+     * @since 2023.19
+     */
+    public long copyRows(Connection connection, Table table, List<Column> columns, List<Serializable[]> rows)
+            throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Registers return parameters.
      * <p>
@@ -19,7 +19,11 @@
  */
 package org.nuxeo.ecm.core.storage.sql.jdbc.dialect;
 
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -31,6 +35,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,6 +72,7 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Join;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.TableAlias;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.datasource.ConnectionHelper;
 
 /**
  * PostgreSQL-specific dialect.
@@ -120,6 +126,13 @@ public class DialectPostgreSQL extends Dialect {
 
     protected String idSequenceName;
 
+    /** The PostgreSQL driver connection class, to access the {@code COPY} API. */
+    protected Class<?> pgConnectionClass;
+
+    protected Method pgConnectionGetCopyAPIMethod;
+
+    protected Method copyManagerCopyInMethod;
+
     public DialectPostgreSQL(DatabaseMetaData metadata, RepositoryDescriptor repositoryDescriptor) {
         super(metadata, repositoryDescriptor);
         fulltextAnalyzer = repositoryDescriptor == null ? null
@@ -173,6 +186,20 @@ public class DialectPostgreSQL extends Dialect {
         } catch (SQLException e) {
             throw new NuxeoException(e);
         }
+        initCopyReflection();
+    }
+
+    // use reflection to avoid linking the driver
+    protected void initCopyReflection() {
+        try {
+            pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+            pgConnectionGetCopyAPIMethod = pgConnectionClass.getMethod("getCopyAPI");
+            Class<?> copyManagerClass = Class.forName("org.postgresql.copy.CopyManager");
+            copyManagerCopyInMethod = copyManagerClass.getMethod("copyIn", String.class, Reader.class);
+        } catch (ReflectiveOperationException e) {
+            log.debug("PostgreSQL COPY API not available", e);
+            pgConnectionClass = null;
+        }
     }
 
     protected boolean getCompatibilityFulltextTable(DatabaseMetaData metadata) throws SQLException {
@@ -423,6 +450,154 @@ public class DialectPostgreSQL extends Dialect {
         }
     }
 
+    @Override
+    public boolean supportsCopy() {
+        return pgConnectionClass != null;
+    }
+
+    @Override
+    public long copyRows(Connection connection, Table table, List<Column> columns, List<Serializable[]> rows)
+            throws SQLException {
+        String sql = getCopySql(table, columns);
+        StringBuilder buf = new StringBuilder();
+        for (Serializable[] values : rows) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buf.append('\t');
+                }
+                appendCopyValue(buf, values[i], columns.get(i));
+            }
+            buf.append('\n');
+        }
+        try {
+            Object pgConnection = ConnectionHelper.unwrap(connection).unwrap(pgConnectionClass);
+            Object copyManager = pgConnectionGetCopyAPIMethod.invoke(pgConnection);
+            Reader reader = new StringReader(buf.toString());
+            return ((Long) copyManagerCopyInMethod.invoke(copyManager, sql, reader)).longValue();
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    protected String getCopySql(Table table, List<Column> columns) {
+        return "COPY " + table.getQuotedName() + " ("
+                + columns.stream().map(Column::getQuotedName).collect(Collectors.joining(", ")) + ") FROM STDIN";
+    }
+
+    /**
+     * Appends a value in the {@code COPY} text format, using the same conversions as
+     * {@link #setToPreparedStatement(PreparedStatement, int, Serializable, Column)}.
+     */
+    protected void appendCopyValue(StringBuilder buf, Serializable value, Column column) throws SQLException {
+        if (value == null) {
+            buf.append("\\N");
+            return;
+        }
+        if (column.getJdbcType() == Types.ARRAY) {
+            if (!(value instanceof Object[])) {
+                throw new SQLException("Expected an array value instead of: " + value);
+            }
+            StringBuilder array = new StringBuilder();
+            appendArrayLiteral(array, (Object[]) value, column.getJdbcBaseType());
+            appendCopyText(buf, array);
+        } else {
+            appendCopyText(buf, getCopyText(value, column.getJdbcType(), column.getType()));
+        }
+    }
+
+    protected CharSequence getCopyText(Object value, int jdbcType, ColumnType type) throws SQLException {
+        switch (jdbcType) {
+        case Types.VARCHAR:
+        case Types.CLOB:
+            return (String) value;
+        case Types.BIT:
+        case Types.BOOLEAN:
+            return ((Boolean) value).booleanValue() ? "t" : "f";
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+            return String.valueOf(((Number) value).longValue());
+        case Types.DOUBLE:
+            return String.valueOf(((Double) value).doubleValue());
+        case Types.TIMESTAMP:
+            // same default timezone interpretation as setTimestamp()
+            return getTimestampFromCalendar((Calendar) value).toString();
+        case Types.BINARY:
+            byte[] bytes = (byte[]) value;
+            StringBuilder hex = new StringBuilder(2 + 2 * bytes.length).append("\\x");
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex;
+        case Types.OTHER:
+            if (type == null || type.isId() || type == ColumnType.FTSTORED) {
+                return value.toString();
+            }
+            throw new SQLException("Unhandled type: " + type);
+        default:
+            throw new SQLException("Unhandled JDBC type: " + jdbcType);
+        }
+    }
+
+    /**
+     * Appends a PostgreSQL array literal, quoting all the elements.
+     */
+    protected void appendArrayLiteral(StringBuilder buf, Object[] elements, int jdbcBaseType) throws SQLException {
+        buf.append('{');
+        for (int i = 0; i < elements.length; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            Object element = elements[i];
+            if (element == null) {
+                buf.append("NULL");
+                continue;
+            }
+            CharSequence text = getCopyText(element, jdbcBaseType, null);
+            buf.append('"');
+            for (int j = 0; j < text.length(); j++) {
+                char c = text.charAt(j);
+                if (c == '"' || c == '\\') {
+                    buf.append('\\');
+                }
+                buf.append(c);
+            }
+            buf.append('"');
+        }
+        buf.append('}');
+    }
+
+    /**
+     * Appends text escaped for the {@code COPY} text format.
+     */
+    protected static void appendCopyText(StringBuilder buf, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\':
+                buf.append("\\\\");
+                break;
+            case '\t':
+                buf.append("\\t");
+                break;
+            case '\n':
+                buf.append("\\n");
+                break;
+            case '\r':
+                buf.append("\\r");
+                break;
+            default:
+                buf.append(c);
+            }
+        }
+    }
+
     @Override
     @SuppressWarnings("boxing")
     public Serializable getFromResultSet(ResultSet rs, int index, Column column) throws SQLException {
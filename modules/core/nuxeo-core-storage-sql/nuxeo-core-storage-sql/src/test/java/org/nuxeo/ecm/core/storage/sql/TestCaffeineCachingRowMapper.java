@@ -0,0 +1,301 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestCaffeineCachingRowMapper {
+
+    protected static final String TABLE = "dublincore";
+
+    /**
+     * In-memory {@link RowMapper} counting its reads.
+     */
+    protected static class MemRowMapper implements RowMapper {
+
+        protected final Map<RowId, Row> rows = new HashMap<>();
+
+        protected int reads;
+
+        @Override
+        public Serializable generateNewId() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+            List<RowId> res = new ArrayList<>();
+            if (cacheOnly) {
+                rowIds.forEach(rowId -> res.add(new RowId(rowId)));
+                return res;
+            }
+            for (RowId rowId : rowIds) {
+                reads++;
+                Row row = rows.get(rowId);
+                res.add(row == null ? new RowId(rowId) : row.clone());
+            }
+            return res;
+        }
+
+        @Override
+        public void write(RowBatch batch) {
+            batch.creates.forEach(row -> rows.put(new RowId(row), row.clone()));
+            batch.updates.forEach(rowu -> rows.put(new RowId(rowu.row), rowu.row.clone()));
+            batch.deletes.forEach(rows::remove);
+        }
+
+        @Override
+        public Row readSimpleRow(RowId rowId) {
+            reads++;
+            Row row = rows.get(rowId);
+            return row == null ? null : row.clone();
+        }
+
+        @Override
+        public Map<String, String> getBinaryFulltext(RowId rowId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Serializable[] readCollectionRowArray(RowId rowId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+                Serializable criterion, boolean limitToOne) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow,
+                boolean excludeSpecialChildren, boolean excludeACL) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public VCSInvalidations receiveInvalidations() {
+            return null;
+        }
+
+        @Override
+        public void sendInvalidations(VCSInvalidations invalidations) {
+        }
+
+        @Override
+        public void clearCache() {
+        }
+
+        @Override
+        public long getCacheSize() {
+            return 0;
+        }
+
+        @Override
+        public void rollback() {
+        }
+    }
+
+    protected MemRowMapper db;
+
+    protected VCSInvalidationsPropagator propagator;
+
+    @Before
+    public void setUp() {
+        db = new MemRowMapper();
+        propagator = new VCSInvalidationsPropagator();
+        db.rows.put(new RowId(TABLE, "id1"), newRow("id1", "foo"));
+    }
+
+    protected static Row newRow(Serializable id, String title) {
+        Row row = new Row(TABLE, id);
+        row.put("title", title);
+        return row;
+    }
+
+    protected CaffeineCachingRowMapper newMapper(Map<String, String> properties) {
+        CaffeineCachingRowMapper mapper = new CaffeineCachingRowMapper();
+        mapper.initialize("test", null, db, propagator, properties);
+        return mapper;
+    }
+
+    protected CaffeineCachingRowMapper newMapper() {
+        return newMapper(Collections.emptyMap());
+    }
+
+    protected static RowMapper.RowBatch update(Row row) {
+        RowMapper.RowBatch batch = new RowMapper.RowBatch();
+        batch.updates.add(new RowMapper.RowUpdate(row));
+        return batch;
+    }
+
+    @Test
+    public void testSharedAcrossMappers() {
+        CaffeineCachingRowMapper mapper1 = newMapper();
+        CaffeineCachingRowMapper mapper2 = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+
+        assertEquals("foo", mapper1.readSimpleRow(rowId).get("title"));
+        assertEquals(1, db.reads);
+        // second session hits the shared cache
+        assertEquals("foo", mapper2.readSimpleRow(rowId).get("title"));
+        List<? extends RowId> rows = mapper2.read(Collections.singleton(rowId), false);
+        assertTrue(rows.get(0) instanceof Row);
+        assertEquals(1, db.reads);
+
+        // absent rows are cached too
+        RowId missing = new RowId(TABLE, "nosuchid");
+        assertNull(mapper1.readSimpleRow(missing));
+        assertNull(mapper2.readSimpleRow(missing));
+        assertEquals(2, db.reads);
+    }
+
+    @Test
+    public void testTransactionIsolation() {
+        CaffeineCachingRowMapper mapper1 = newMapper();
+        CaffeineCachingRowMapper mapper2 = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+        mapper2.readSimpleRow(rowId);
+
+        // uncommitted write in the first session
+        mapper1.write(update(newRow("id1", "bar")));
+        // the writer reads its own write
+        assertEquals("bar", mapper1.readSimpleRow(rowId).get("title"));
+        // the other session still sees the committed row
+        assertEquals("foo", mapper2.readSimpleRow(rowId).get("title"));
+        assertEquals("foo", mapper2.sharedCache.get(rowId).get("title"));
+
+        // commit
+        mapper1.sendInvalidations(null);
+        assertNull(mapper2.sharedCache.get(rowId));
+        VCSInvalidations invalidations = mapper2.receiveInvalidations();
+        assertNotNull(invalidations);
+        assertTrue(invalidations.modified.contains(rowId));
+        assertEquals("bar", mapper2.readSimpleRow(rowId).get("title"));
+    }
+
+    @Test
+    public void testRollback() {
+        CaffeineCachingRowMapper mapper1 = newMapper();
+        CaffeineCachingRowMapper mapper2 = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+        mapper2.readSimpleRow(rowId);
+
+        mapper1.write(update(newRow("id1", "bar")));
+        mapper1.rollback();
+        db.rows.put(rowId, newRow("id1", "foo"));
+        mapper1.sendInvalidations(null);
+        // nothing was invalidated
+        assertNull(mapper2.receiveInvalidations());
+        assertEquals("foo", mapper2.sharedCache.get(rowId).get("title"));
+    }
+
+    @Test
+    public void testReadConcurrentWithInvalidation() {
+        CaffeineCachingRowMapper mapper = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+        long readCounter = mapper.sharedCache.getReadCounter();
+        Row staleRow = newRow("id1", "stale");
+        // a commit happens while the row is being read
+        mapper.sharedCache.invalidate(rowId);
+        mapper.sharedCache.put(rowId, staleRow, readCounter);
+        assertNull(mapper.sharedCache.get(rowId));
+        // later reads are cached
+        mapper.readSimpleRow(rowId);
+        assertNotNull(mapper.sharedCache.get(rowId));
+    }
+
+    @Test
+    public void testReadConcurrentWithOtherInvalidation() {
+        CaffeineCachingRowMapper mapper = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+        long readCounter = mapper.sharedCache.getReadCounter();
+        // a commit of other rows happens while the row is being read
+        for (int i = 0; i < 10; i++) {
+            RowId other = new RowId(TABLE, "other" + i);
+            if (CaffeineCachingRowMapper.SharedCache.stripe(other) != CaffeineCachingRowMapper.SharedCache.stripe(
+                    rowId)) {
+                mapper.sharedCache.invalidate(other);
+            }
+        }
+        mapper.sharedCache.put(rowId, newRow("id1", "foo"), readCounter);
+        assertNotNull(mapper.sharedCache.get(rowId));
+
+        // but not after all the rows were invalidated
+        readCounter = mapper.sharedCache.getReadCounter();
+        mapper.sharedCache.invalidateAll();
+        mapper.sharedCache.put(rowId, newRow("id1", "foo"), readCounter);
+        assertNull(mapper.sharedCache.get(rowId));
+    }
+
+    @Test
+    public void testClearSharedCache() {
+        CaffeineCachingRowMapper mapper = newMapper();
+        RowId rowId = new RowId(TABLE, "id1");
+        mapper.readSimpleRow(rowId);
+        // a session cleared at close or rollback keeps the shared cache
+        mapper.clearCache();
+        assertNotNull(mapper.sharedCache.get(rowId));
+        CaffeineCachingRowMapper.clearSharedCache(propagator);
+        assertNull(mapper.sharedCache.get(rowId));
+    }
+
+    @Test
+    public void testSizeBound() {
+        CaffeineCachingRowMapper mapper = newMapper(
+                Collections.singletonMap(CaffeineCachingRowMapper.CACHE_SIZE_PROP, "10KB"));
+        for (int i = 0; i < 1000; i++) {
+            Serializable id = "id" + i;
+            db.rows.put(new RowId(TABLE, id), newRow(id, "title" + i));
+            mapper.readSimpleRow(new RowId(TABLE, id));
+        }
+        mapper.sharedCache.cache.cleanUp();
+        long weight = mapper.sharedCache.cache.policy().eviction().get().weightedSize().getAsLong();
+        assertTrue(String.valueOf(weight), weight <= 10 * 1024);
+        assertTrue(mapper.sharedCache.cache.estimatedSize() < 1000);
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestPathCache {
+
+    @Test
+    public void testPutGet() {
+        PathCache cache = new PathCache(10);
+        cache.put("foo", "root", "foo", cache.getGeneration());
+        PathCache.Entry entry = cache.get("foo");
+        assertNotNull(entry);
+        assertEquals("root", entry.parentId);
+        assertEquals("foo", entry.name);
+        assertNull(cache.get("bar"));
+    }
+
+    @Test
+    public void testEviction() {
+        PathCache cache = new PathCache(2);
+        long generation = cache.getGeneration();
+        cache.put("a", "root", "a", generation);
+        cache.put("b", "root", "b", generation);
+        // access a so that b is the eldest
+        cache.get("a");
+        cache.put("c", "root", "c", generation);
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testInvalidations() {
+        PathCache cache = new PathCache(10);
+        long generation = cache.getGeneration();
+        cache.put("foo", "root", "foo", generation);
+        cache.put("bar", "foo", "bar", generation);
+
+        VCSInvalidations invalidations = new VCSInvalidations();
+        invalidations.addModified(new RowId(Model.HIER_TABLE_NAME, "foo"));
+        // not a hierarchy row
+        invalidations.addModified(new RowId("dublincore", "bar"));
+        cache.invalidate(invalidations);
+        assertNull(cache.get("foo"));
+        assertNotNull(cache.get("bar"));
+
+        invalidations = new VCSInvalidations();
+        invalidations.addDeleted(new RowId(Model.HIER_TABLE_NAME, "bar"));
+        cache.invalidate(invalidations);
+        assertNull(cache.get("bar"));
+
+        cache.put("foo", "root", "foo", cache.getGeneration());
+        cache.invalidate(new VCSInvalidations(true));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testGenerationOnlyChangedByHierarchyRows() {
+        PathCache cache = new PathCache(10);
+        long generation = cache.getGeneration();
+        VCSInvalidations invalidations = new VCSInvalidations();
+        invalidations.addModified(new RowId("dublincore", "foo"));
+        cache.invalidate(invalidations);
+        assertEquals(generation, cache.getGeneration());
+        cache.put("foo", "root", "foo", generation);
+        assertNotNull(cache.get("foo"));
+
+        invalidations.addDeleted(new RowId(Model.HIER_TABLE_NAME, "bar"));
+        cache.invalidate(invalidations);
+        assertNotEquals(generation, cache.getGeneration());
+    }
+
+    @Test
+    public void testPutAll() {
+        PathCache cache = new PathCache(10);
+        long generation = cache.getGeneration();
+        Map<Serializable, PathCache.Entry> links = new HashMap<>();
+        links.put("foo", new PathCache.Entry("root", "foo"));
+        links.put("bar", new PathCache.Entry("foo", "bar"));
+        cache.putAll(links, generation);
+        assertEquals(2, cache.size());
+        assertEquals("foo", cache.get("bar").parentId);
+
+        cache.clear();
+        cache.putAll(links, generation);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testStalePutIgnored() {
+        PathCache cache = new PathCache(10);
+        long generation = cache.getGeneration();
+        // concurrent move committed after the generation was read
+        cache.invalidate("foo");
+        cache.put("foo", "root", "foo", generation);
+        assertNull(cache.get("foo"));
+        // with the new generation the link is stored
+        cache.put("foo", "other", "foo", cache.getGeneration());
+        assertEquals("other", cache.get("foo").parentId);
+    }
+
+}
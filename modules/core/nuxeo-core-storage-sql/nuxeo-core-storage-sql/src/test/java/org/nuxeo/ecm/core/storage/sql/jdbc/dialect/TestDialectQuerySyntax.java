@@ -26,6 +26,7 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 
 import org.hamcrest.core.StringContains;
 import org.jmock.Expectations;
@@ -38,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.storage.FulltextQueryAnalyzer;
 import org.nuxeo.ecm.core.storage.FulltextQueryAnalyzer.FulltextQuery;
 import org.nuxeo.ecm.core.storage.FulltextQueryAnalyzer.Op;
+import org.nuxeo.ecm.core.storage.sql.ColumnType;
 import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
 
 @RunWith(JMock.class)
@@ -274,6 +276,22 @@ public class TestDialectQuerySyntax {
         assertDialectFT("(foo & bar:*) @#AND#@ ?? ILIKE '% foo bar%'", "\"foo bar*\"");
     }
 
+    @Test
+    public void testPostgreSQLCopyText() throws Exception {
+        DialectPostgreSQL pg = new DialectPostgreSQL(metadata, repositoryDescriptor);
+        StringBuilder buf = new StringBuilder();
+        DialectPostgreSQL.appendCopyText(buf, "a\tb\nc\\d");
+        assertEquals("a\\tb\\nc\\\\d", buf.toString());
+
+        assertEquals("t", pg.getCopyText(Boolean.TRUE, Types.BIT, ColumnType.BOOLEAN).toString());
+        assertEquals("123", pg.getCopyText(Long.valueOf(123), Types.BIGINT, ColumnType.LONG).toString());
+        assertEquals("\\x00ff", pg.getCopyText(new byte[] { 0, -1 }, Types.BINARY, ColumnType.BLOB).toString());
+
+        buf = new StringBuilder();
+        pg.appendArrayLiteral(buf, new String[] { "foo", "a\"b", null, "c\\d" }, Types.VARCHAR);
+        assertEquals("{\"foo\",\"a\\\"b\",NULL,\"c\\\\d\"}", buf.toString());
+    }
+
     @Test
     public void testMySQL() throws Exception {
         dialect = new DialectMySQL(metadata, repositoryDescriptor);
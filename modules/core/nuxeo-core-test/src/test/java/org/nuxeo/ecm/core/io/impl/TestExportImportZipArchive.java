@@ -28,6 +28,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Comparator;
+import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -123,14 +124,25 @@ public class TestExportImportZipArchive {
         doTestExportAsZipAndReimport(file -> new NuxeoArchiveReader(new FileInputStream(file)));
     }
 
+    @Test
+    public void testConcurrentExportAsZipAndReimport() throws Exception {
+        // one document per page to have several pages in flight
+        doTestExportAsZipAndReimport(NuxeoArchiveReader::new, () -> new DocumentPipeImpl(1, 4));
+    }
+
     protected void doTestExportAsZipAndReimport(ThrowableFunction<File, NuxeoArchiveReader, IOException> archiveReader)
             throws Exception {
+        doTestExportAsZipAndReimport(archiveReader, () -> new DocumentPipeImpl(10));
+    }
+
+    protected void doTestExportAsZipAndReimport(ThrowableFunction<File, NuxeoArchiveReader, IOException> archiveReader,
+            Supplier<DocumentPipe> exportPipe) throws Exception {
         File archive = Framework.createTempFile("core-io-archive", "zip");
 
         DocumentReader reader = new DocumentTreeReader(session, workspace);
         DocumentWriter writer = new NuxeoArchiveWriter(archive);
 
-        DocumentPipe pipe = new DocumentPipeImpl(10);
+        DocumentPipe pipe = exportPipe.get();
         pipe.setReader(reader);
         pipe.setWriter(writer);
         pipe.run();
@@ -19,6 +19,7 @@
 
 package org.nuxeo.ecm.core.action;
 
+import static org.nuxeo.ecm.core.bulk.BulkServiceImpl.DONE_STREAM;
 import static org.nuxeo.ecm.core.bulk.BulkServiceImpl.STATUS_STREAM;
 import static org.nuxeo.lib.stream.computation.AbstractComputation.INPUT_1;
 import static org.nuxeo.lib.stream.computation.AbstractComputation.OUTPUT_1;
@@ -27,6 +28,11 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
@@ -34,15 +40,38 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.DocumentBlobManager;
+import org.nuxeo.ecm.core.blob.ScalableBloomFilter;
 import org.nuxeo.ecm.core.blob.scroll.AbstractBlobScroll;
+import org.nuxeo.ecm.core.bulk.BulkCodecs;
+import org.nuxeo.ecm.core.bulk.BulkService;
 import org.nuxeo.ecm.core.bulk.action.computation.AbstractBulkComputation;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
+import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.AbstractComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.Topology;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * Removes the orphan document blobs.
+ * <p>
+ * When the {@value #BLOOM_FILTER_PARAM} parameter is {@code true}, each node marks the blob keys referenced by the
+ * repository into a {@link ScalableBloomFilter}, then only the keys absent from this filter are verified with a query,
+ * the other ones being very likely referenced. The filter uses bounded memory, less than 2 bytes per referenced blob
+ * with the default false positive probability. It is built once per command on each node, in the background: the keys
+ * received before it is built are all verified with a query. It is released when the command is done.
  *
  * @since 2023
  */
@@ -52,6 +81,11 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
 
     public static final String DRY_RUN_PARAM = "dryRun";
 
+    /**
+     * @since 2023.19
+     */
+    public static final String BLOOM_FILTER_PARAM = "bloomFilter";
+
     public static final String RESULT_DELETED_SIZE_KEY = "deletedSize";
 
     public static final String RESULT_TOTAL_SIZE_KEY = "totalSize";
@@ -66,6 +100,8 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
                        .addComputation(GarbageCollectOrphanBlobsComputation::new,
                                List.of(INPUT_1 + ":" + ACTION_FULL_NAME, //
                                        OUTPUT_1 + ":" + STATUS_STREAM))
+                       .addComputation(GarbageCollectOrphanBlobsCompletionComputation::new,
+                               List.of(INPUT_1 + ":" + DONE_STREAM))
                        .build();
     }
 
@@ -76,8 +112,49 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
          */
         public static final String SAMPLE_MODULO_PROPERTY = "nuxeo.bulk.action.garbageCollectOrphanBlobs.sample.modulo";
 
+        /**
+         * @since 2023.19
+         */
+        public static final String BLOOM_FILTER_CAPACITY_PROPERTY = "nuxeo.bulk.action.garbageCollectOrphanBlobs.bloomFilter.capacity";
+
+        /**
+         * @since 2023.19
+         */
+        public static final String BLOOM_FILTER_FPP_PROPERTY = "nuxeo.bulk.action.garbageCollectOrphanBlobs.bloomFilter.fpp";
+
+        /**
+         * @since 2023.19
+         */
+        public static final String METRIC_PREFIX = "nuxeo.bulk.action.garbageCollectOrphanBlobs";
+
+        protected static final String DEFAULT_BLOOM_FILTER_CAPACITY = "1000000";
+
+        protected static final String DEFAULT_BLOOM_FILTER_FPP = "0.01";
+
+        protected static final int MARK_TX_TIMEOUT_SEC = 86_400; // 1 day
+
+        // filters of the commands running on this node, by command id
+        protected static final Map<String, CompletableFuture<ScalableBloomFilter>> MARKED = new ConcurrentHashMap<>();
+
+        // the mark phase runs outside of the computation threads, one command at a time
+        protected static final ExecutorService MARK_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Nuxeo-GarbageCollectOrphanBlobs-Mark");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+        protected final Counter markedCounter = registry.counter(MetricName.build(METRIC_PREFIX, "marked"));
+
+        protected final Counter skippedCounter = registry.counter(MetricName.build(METRIC_PREFIX, "skipped"));
+
+        protected final Counter verifiedCounter = registry.counter(MetricName.build(METRIC_PREFIX, "verified"));
+
         protected boolean dryRun;
 
+        protected ScalableBloomFilter bloomFilter;
+
         protected long sampleCounter;
 
         protected long sampleModulo = Long.MAX_VALUE;
@@ -100,6 +177,89 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
             BulkCommand command = getCurrentCommand();
             Serializable dryRunParamValue = command.getParam(DRY_RUN_PARAM);
             dryRun = dryRunParamValue != null && Boolean.parseBoolean(dryRunParamValue.toString());
+            Serializable bloomFilterParamValue = command.getParam(BLOOM_FILTER_PARAM);
+            if (bloomFilterParamValue != null && Boolean.parseBoolean(bloomFilterParamValue.toString())) {
+                bloomFilter = getMarkedBlobs(command);
+            } else {
+                bloomFilter = null;
+            }
+        }
+
+        /**
+         * Gets the Bloom filter of the blob keys referenced by the command repository, starting to build it in the
+         * background on first call.
+         *
+         * @return the filter, or {@code null} if it is not built yet or if it cannot be built
+         * @since 2023.19
+         */
+        protected ScalableBloomFilter getMarkedBlobs(BulkCommand command) {
+            if (!MARKED.containsKey(command.getId())) {
+                // the completion computation releases the filters on a single node, the other ones release them here
+                releaseDoneCommands();
+            }
+            CompletableFuture<ScalableBloomFilter> future = MARKED.computeIfAbsent(command.getId(),
+                    id -> CompletableFuture.supplyAsync(() -> markBlobs(id, command.getRepository()), MARK_EXECUTOR)
+                                           .whenComplete((filter, e) -> {
+                                               if (e != null && MARKED.containsKey(id)) {
+                                                   log.error("Cannot mark blobs for command: {}", id, e);
+                                               }
+                                           }));
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return null;
+            }
+            return future.join();
+        }
+
+        protected static void releaseDoneCommands() {
+            BulkService bulkService = Framework.getService(BulkService.class);
+            for (String commandId : MARKED.keySet()) {
+                BulkStatus.State state = bulkService.getStatus(commandId).getState();
+                if (state == BulkStatus.State.COMPLETED || state == BulkStatus.State.ABORTED
+                        || state == BulkStatus.State.UNKNOWN) {
+                    releaseMarkedBlobs(commandId);
+                }
+            }
+        }
+
+        /**
+         * Releases the Bloom filter of a command, cancelling its build if still running.
+         *
+         * @since 2023.19
+         */
+        public static void releaseMarkedBlobs(String commandId) {
+            CompletableFuture<ScalableBloomFilter> future = MARKED.remove(commandId);
+            if (future != null) {
+                future.cancel(false);
+                log.debug("Released marked blobs for command: {}", commandId);
+            }
+        }
+
+        /**
+         * Marks the blob keys referenced by a repository, stopping if the command filter is released meanwhile.
+         */
+        protected ScalableBloomFilter markBlobs(String commandId, String repositoryName) {
+            long capacity = Long.parseLong(
+                    Framework.getProperty(BLOOM_FILTER_CAPACITY_PROPERTY, DEFAULT_BLOOM_FILTER_CAPACITY));
+            double fpp = Double.parseDouble(Framework.getProperty(BLOOM_FILTER_FPP_PROPERTY, DEFAULT_BLOOM_FILTER_FPP));
+            ScalableBloomFilter filter = new ScalableBloomFilter(capacity, fpp);
+            Repository repository = Framework.getService(RepositoryService.class).getRepository(repositoryName);
+            log.info("Marking blobs for repository: {}", repositoryName);
+            long start = System.currentTimeMillis();
+            TransactionHelper.runInTransaction(MARK_TX_TIMEOUT_SEC, () -> repository.markReferencedBlobs((key, r) -> {
+                if (!MARKED.containsKey(commandId)) {
+                    throw new CancellationException("Command done: " + commandId);
+                }
+                filter.put(stripProviderId(key));
+                markedCounter.inc();
+            }));
+            log.info("Marked blobs for repository: {} in {}ms, filter size: {}", () -> repositoryName,
+                    () -> System.currentTimeMillis() - start,
+                    () -> FileUtils.byteCountToDisplaySize(filter.getSizeInBytes()));
+            return filter;
+        }
+
+        protected static String stripProviderId(String key) {
+            return key.substring(key.indexOf(':') + 1);
         }
 
         @Override
@@ -112,6 +272,13 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
                 String key = AbstractBlobScroll.getBlobKey(k);
                 Long size = AbstractBlobScroll.getBlobSize(k);
                 totalSize += size;
+                if (bloomFilter != null && bloomFilter.mightContain(stripProviderId(key))) {
+                    // very likely referenced, not worth a query
+                    skippedCounter.inc();
+                    delta.incrementSkipCount();
+                    continue;
+                }
+                verifiedCounter.inc();
                 try {
                     boolean deleted = documentBlobManager.deleteBlob(repository, key, dryRun);
                     if (deleted) {
@@ -148,4 +315,35 @@ public class GarbageCollectOrphanBlobsAction implements StreamProcessorTopology
 
     }
 
+    /**
+     * On command completion, releases the Bloom filter of the command.
+     *
+     * @since 2023.19
+     */
+    public static class GarbageCollectOrphanBlobsCompletionComputation extends AbstractComputation {
+
+        public static final String NAME = "bulk/garbageCollectOrphanBlobsCompletion";
+
+        protected Codec<BulkStatus> codec;
+
+        public GarbageCollectOrphanBlobsCompletionComputation() {
+            super(NAME, 1, 0);
+        }
+
+        @Override
+        public void init(ComputationContext context) {
+            super.init(context);
+            codec = BulkCodecs.getStatusCodec();
+        }
+
+        @Override
+        public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+            BulkStatus status = codec.decode(record.getData());
+            if (ACTION_NAME.equals(status.getAction())) {
+                GarbageCollectOrphanBlobsComputation.releaseMarkedBlobs(status.getId());
+            }
+            context.askForCheckpoint();
+        }
+    }
+
 }
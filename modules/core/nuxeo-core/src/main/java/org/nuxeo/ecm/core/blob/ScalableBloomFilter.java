@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * A Bloom filter of strings growing with the number of inserted elements.
+ * <p>
+ * When the current filter reaches its capacity, a new filter twice as big and with a tighter false positive
+ * probability is added, so that the overall false positive probability stays below the requested one whatever the
+ * number of elements, without knowing this number beforehand.
+ * <p>
+ * Like any Bloom filter, {@link #mightContain} never returns {@code false} for an inserted element, but may return
+ * {@code true} for an element that was never inserted. This class is thread-safe.
+ *
+ * @since 2023.19
+ */
+public class ScalableBloomFilter {
+
+    protected static final int GROWTH_FACTOR = 2;
+
+    protected static final double TIGHTENING_RATIO = 0.5;
+
+    protected final List<BloomFilter<CharSequence>> filters = new ArrayList<>();
+
+    protected long capacity;
+
+    protected double fpp;
+
+    protected long count;
+
+    /**
+     * @param initialCapacity the number of elements of the first filter
+     * @param fpp the overall false positive probability, between 0 and 1 excluded
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid initial capacity: " + initialCapacity);
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid false positive probability: " + fpp);
+        }
+        capacity = initialCapacity;
+        // the sum of the geometric series of the filters probabilities is the requested one
+        this.fpp = fpp * (1 - TIGHTENING_RATIO);
+        addFilter();
+    }
+
+    protected void addFilter() {
+        filters.add(BloomFilter.create(Funnels.stringFunnel(UTF_8), capacity, fpp));
+        count = 0;
+    }
+
+    public synchronized void put(String element) {
+        if (mightContain(element)) {
+            return;
+        }
+        if (count >= capacity) {
+            capacity *= GROWTH_FACTOR;
+            fpp *= TIGHTENING_RATIO;
+            addFilter();
+        }
+        filters.get(filters.size() - 1).put(element);
+        count++;
+    }
+
+    public synchronized boolean mightContain(String element) {
+        for (BloomFilter<CharSequence> filter : filters) {
+            if (filter.mightContain(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the size of the filter in bytes, approximately.
+     */
+    public synchronized long getSizeInBytes() {
+        long bits = 0;
+        long c = capacity;
+        double p = fpp;
+        // recompute the size of each filter from its parameters, Guava doesn't expose it
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            bits += (long) (-c * Math.log(p) / (Math.log(2) * Math.log(2)));
+            c /= GROWTH_FACTOR;
+            p /= TIGHTENING_RATIO;
+        }
+        return bits / Byte.SIZE;
+    }
+
+}
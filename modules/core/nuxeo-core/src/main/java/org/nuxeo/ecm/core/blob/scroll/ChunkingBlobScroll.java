@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob.scroll;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.BlobStore.OptionalOrUnknown;
+import org.nuxeo.ecm.core.blob.ChunkingBlobProvider;
+import org.nuxeo.ecm.core.blob.ChunkingBlobStore;
+import org.nuxeo.ecm.core.blob.PathStrategy;
+
+/**
+ * Scroll blobs of the chunking blob store of a {@link ChunkingBlobProvider}, the scroll query is the provider id.
+ * <p>
+ * The blobs are the manifests of the store, their size is the size of their content.
+ *
+ * @since 2023.19
+ */
+public class ChunkingBlobScroll extends AbstractBlobScroll<ChunkingBlobProvider> {
+
+    private static final Logger log = LogManager.getLogger(ChunkingBlobScroll.class);
+
+    protected Iterator<Path> it;
+
+    protected Stream<Path> stream;
+
+    protected PathStrategy pathStrategy;
+
+    protected ChunkingBlobStore store;
+
+    @Override
+    public void init(ChunkingBlobProvider chunkingBlobProvider) {
+        store = (ChunkingBlobStore) chunkingBlobProvider.store.unwrap();
+        try {
+            this.pathStrategy = store.manifestStore.getPathStrategy();
+            this.stream = Files.walk(store.manifestStore.getDirectory())
+                               .filter(path -> !Files.isDirectory(path) && !pathStrategy.isTempFile(path));
+            this.it = this.stream.iterator();
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+        super.close();
+    }
+
+    protected long getSize(String key) {
+        OptionalOrUnknown<Long> lengthOpt = store.getBlobLength(key);
+        if (!lengthOpt.isPresent()) {
+            log.error("Cannot get size for blob: {}", key);
+            return 0;
+        }
+        return lengthOpt.get().longValue();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.it.hasNext();
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = size; i > 0 && hasNext();) {
+            String key = pathStrategy.getKeyForPath(this.it.next().toString());
+            addTo(result, key, () -> getSize(key));
+            i--;
+        }
+        return result;
+    }
+
+}
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 import javax.transaction.Synchronization;
@@ -49,9 +50,12 @@ import org.nuxeo.ecm.core.api.repository.PoolConfiguration;
 import org.nuxeo.ecm.core.api.repository.RepositoryManager;
 import org.nuxeo.ecm.core.model.Repository;
 import org.nuxeo.ecm.core.model.Session;
+import org.nuxeo.ecm.core.query.sql.SQLQueryCache;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.capabilities.CapabilitiesService;
 import org.nuxeo.runtime.cluster.ClusterService;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentManager;
 import org.nuxeo.runtime.model.ComponentName;
@@ -59,6 +63,13 @@ import org.nuxeo.runtime.model.ComponentStartOrders;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import com.google.common.cache.Cache;
+
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * Component and service managing low-level repository instances.
  */
@@ -76,6 +87,9 @@ public class RepositoryService extends DefaultComponent {
 
     public static final String XP_REPOSITORY = "repository";
 
+    /** @since 2023.19 */
+    public static final String QUERY_CACHE_METRIC_NAME = "nuxeo.repositories.query.cache";
+
     private final Map<String, Repository> repositories = new ConcurrentHashMap<>();
 
     // for monitoring
@@ -85,6 +99,8 @@ public class RepositoryService extends DefaultComponent {
 
     protected KeyedObjectPool<String, Session> pool;
 
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
     public void shutdown() {
         log.info("Shutting down repository manager");
         repositories.values().forEach(Repository::shutdown);
@@ -99,6 +115,7 @@ public class RepositoryService extends DefaultComponent {
     @Override
     public void start(ComponentContext context) {
         initPool();
+        initQueryCache();
         TransactionHelper.runInTransaction(this::doCreateRepositories);
         Framework.getRuntime().getComponentManager().addListener(new ComponentManager.Listener() {
             @Override
@@ -117,6 +134,41 @@ public class RepositoryService extends DefaultComponent {
     public void stop(ComponentContext context) {
         TransactionHelper.runInTransaction(this::shutdown);
         shutdownPool();
+        shutdownQueryCache();
+    }
+
+    /**
+     * Sizes the cache of parsed queries shared by the repositories, and exposes its statistics.
+     *
+     * @since 2023.19
+     */
+    protected void initQueryCache() {
+        int maxSize = Integer.parseInt(Framework.getProperty(SQLQueryCache.MAX_SIZE_PROPERTY,
+                String.valueOf(SQLQueryCache.DEFAULT_MAX_SIZE)));
+        SQLQueryCache.configure(maxSize);
+        MetricName name = MetricName.build(QUERY_CACHE_METRIC_NAME);
+        registry.removeMatching((metricName, metric) -> metricName.getKey().startsWith(QUERY_CACHE_METRIC_NAME));
+        registry.register(name.resolve("size"), (Gauge<Long>) () -> getQueryCacheStat(Cache::size));
+        registry.register(name.resolve("hit.count"),
+                (Gauge<Long>) () -> getQueryCacheStat(c -> c.stats().hitCount()));
+        registry.register(name.resolve("miss.count"),
+                (Gauge<Long>) () -> getQueryCacheStat(c -> c.stats().missCount()));
+        registry.register(name.resolve("eviction.count"),
+                (Gauge<Long>) () -> getQueryCacheStat(c -> c.stats().evictionCount()));
+        registry.register(name.resolve("hit.ratio"), (Gauge<Double>) () -> {
+            Cache<String, SQLQuery> cache = SQLQueryCache.getCache();
+            return cache == null ? 0 : cache.stats().hitRate();
+        });
+    }
+
+    protected long getQueryCacheStat(ToLongFunction<Cache<String, SQLQuery>> stat) {
+        Cache<String, SQLQuery> cache = SQLQueryCache.getCache();
+        return cache == null ? 0 : stat.applyAsLong(cache);
+    }
+
+    protected void shutdownQueryCache() {
+        registry.removeMatching((metricName, metric) -> metricName.getKey().startsWith(QUERY_CACHE_METRIC_NAME));
+        SQLQueryCache.clear();
     }
 
     protected void initPoolConfig() {
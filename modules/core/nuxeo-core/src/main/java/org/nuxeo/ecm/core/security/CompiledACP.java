@@ -0,0 +1,314 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.security;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.Access;
+
+/**
+ * Compiled form of an {@link ACP}, evaluating accesses with bitwise operations instead of comparing the principals and
+ * permissions of each ACE.
+ * <p>
+ * The principals and permissions of the ACEs are interned into integer ids shared by all the compiled ACPs. The
+ * principals of a user and the permissions implying a permission are then represented as bitmaps of these ids, see
+ * {@link Principals} and {@link Permissions}, so that once compiled an ACP is evaluated without any allocation. The
+ * number of interned principals is bounded, transient users are never interned: the principals without an id are
+ * matched by name.
+ * <p>
+ * The evaluation gives the same result as {@link ACP#getAccess(String[], String[])} when given the principals of
+ * {@link SecurityService#getPrincipalsToCheck} and the permissions of {@link SecurityService#getPermissionsToCheck},
+ * which always contain {@link org.nuxeo.ecm.core.api.security.SecurityConstants#EVERYONE EVERYONE} and
+ * {@link org.nuxeo.ecm.core.api.security.SecurityConstants#EVERYTHING EVERYTHING}.
+ *
+ * @since 2023.19
+ */
+public final class CompiledACP {
+
+    /**
+     * Maximum number of interned principals, the principals interned beyond are matched by name.
+     */
+    public static final int MAX_PRINCIPALS = 100_000;
+
+    // only the principals of the ACEs are interned, not all the users and groups checked, nor the transient users
+    protected static final Interner PRINCIPALS = new Interner(MAX_PRINCIPALS);
+
+    protected static final Interner PERMISSIONS = new Interner(Integer.MAX_VALUE);
+
+    private final int size;
+
+    private final int[] principalIds;
+
+    private final String[] principalNames;
+
+    private final int[] permissionIds;
+
+    private final BitSet granted;
+
+    // null if none of the ACEs has a begin or end date
+    private long[] begins;
+
+    private long[] ends;
+
+    private CompiledACP(int size) {
+        this.size = size;
+        principalIds = new int[size];
+        principalNames = new String[size];
+        permissionIds = new int[size];
+        granted = new BitSet(size);
+    }
+
+    /**
+     * Compiles the ACEs of an ACP, in order.
+     * <p>
+     * The compiled ACP doesn't follow the later changes of the given ACP.
+     */
+    public static CompiledACP compile(ACP acp) {
+        ACL[] acls = acp.getACLs();
+        int size = 0;
+        for (ACL acl : acls) {
+            size += acl.size();
+        }
+        CompiledACP compiled = new CompiledACP(size);
+        int i = 0;
+        for (ACL acl : acls) {
+            for (ACE ace : acl) {
+                compiled.set(i++, ace);
+            }
+        }
+        return compiled;
+    }
+
+    private void set(int i, ACE ace) {
+        principalNames[i] = ace.getUsername();
+        principalIds[i] = NuxeoPrincipal.isTransientUsername(ace.getUsername()) ? -1
+                : PRINCIPALS.intern(ace.getUsername());
+        permissionIds[i] = PERMISSIONS.intern(ace.getPermission());
+        granted.set(i, ace.isGranted());
+        Calendar begin = ace.getBegin();
+        Calendar end = ace.getEnd();
+        if (begin != null || end != null) {
+            if (begins == null) {
+                begins = new long[size];
+                ends = new long[size];
+                for (int j = 0; j < size; j++) {
+                    begins[j] = Long.MIN_VALUE;
+                    ends[j] = Long.MAX_VALUE;
+                }
+            }
+            begins[i] = begin == null ? Long.MIN_VALUE : begin.getTimeInMillis();
+            ends[i] = end == null ? Long.MAX_VALUE : end.getTimeInMillis();
+        }
+    }
+
+    /**
+     * Returns the access given by the first effective ACE matching one of the principals and one of the permissions.
+     */
+    public Access getAccess(Principals principals, Permissions permissions) {
+        long now = 0;
+        for (int i = 0; i < size; i++) {
+            if (!permissions.contains(permissionIds[i]) || !principals.contains(principalIds[i], principalNames[i])) {
+                continue;
+            }
+            if (begins != null) {
+                // same as ACE#isEffective
+                if (now == 0) {
+                    now = System.currentTimeMillis();
+                }
+                if (now < begins[i] || now > ends[i]) {
+                    continue;
+                }
+            }
+            return granted.get(i) ? Access.GRANT : Access.DENY;
+        }
+        return Access.UNKNOWN;
+    }
+
+    /**
+     * Returns the number of compiled ACEs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Builds the principals to check for a user, typically computed by {@link SecurityService#getPrincipalsToCheck}.
+     */
+    public static Principals principals(String[] names) {
+        return PRINCIPALS.newPrincipals(names);
+    }
+
+    /**
+     * Builds the permissions to check for a permission, typically computed by
+     * {@link SecurityService#getPermissionsToCheck}.
+     */
+    public static Permissions permissions(String[] names) {
+        BitSet bits = new BitSet();
+        for (String name : names) {
+            int id = PERMISSIONS.intern(name);
+            if (id >= 0) {
+                bits.set(id);
+            }
+        }
+        return new Permissions(names, bits);
+    }
+
+    /**
+     * The principals of a user: the user name, its groups and {@code Everyone}, as a bitmap of the ids of the ones
+     * already interned.
+     */
+    public static final class Principals {
+
+        private final String[] names;
+
+        private final BitSet bits;
+
+        // ids interned after these principals were built are checked by name
+        private final int limit;
+
+        private Principals(String[] names, BitSet bits, int limit) {
+            this.names = names;
+            this.bits = bits;
+            this.limit = limit;
+        }
+
+        /**
+         * Gets the names of the principals, that must not be modified.
+         */
+        public String[] getNames() {
+            return names;
+        }
+
+        /**
+         * Checks whether these principals are made of the given user name and groups, in the order computed by
+         * {@link SecurityService#getPrincipalsToCheck}.
+         */
+        public boolean isFor(String name, List<String> groups) {
+            int size = groups == null ? 0 : groups.size();
+            if (names.length != size + 2 || !Objects.equals(names[size], name)) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                if (!Objects.equals(names[i], groups.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected boolean contains(int id, String name) {
+            if (name == null) {
+                return false;
+            } else if (id >= 0 && id < limit) {
+                return bits.get(id);
+            }
+            // not interned, or interned after these principals were built
+            for (String n : names) {
+                if (name.equals(n)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The permissions implying a permission, as a bitmap of their ids.
+     */
+    public static final class Permissions {
+
+        private final String[] names;
+
+        private final BitSet bits;
+
+        private Permissions(String[] names, BitSet bits) {
+            this.names = names;
+            this.bits = bits;
+        }
+
+        /**
+         * Gets the names of the permissions, that must not be modified.
+         */
+        public String[] getNames() {
+            return names;
+        }
+
+        protected boolean contains(int id) {
+            return id >= 0 && bits.get(id);
+        }
+    }
+
+    protected static final class Interner {
+
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        private final int maxSize;
+
+        // guarded by this
+        private int size;
+
+        protected Interner(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Returns the id of a name, or -1 if the name is null or if it cannot be interned anymore.
+         */
+        protected int intern(String name) {
+            if (name == null) {
+                return -1;
+            }
+            Integer id = ids.get(name);
+            if (id == null) {
+                synchronized (this) {
+                    if (size >= maxSize) {
+                        id = ids.get(name);
+                        return id == null ? -1 : id.intValue();
+                    }
+                    id = ids.computeIfAbsent(name, k -> size++);
+                }
+            }
+            return id.intValue();
+        }
+
+        protected int size() {
+            return ids.size();
+        }
+
+        protected synchronized Principals newPrincipals(String[] names) {
+            // no name can be interned while the bitmap is built, so that an id below the limit is in the bitmap if
+            // and only if its name is one of the principals
+            BitSet bits = new BitSet();
+            for (String name : names) {
+                Integer id = name == null ? null : ids.get(name);
+                if (id != null) {
+                    bits.set(id.intValue());
+                }
+            }
+            return new Principals(names, bits, size);
+        }
+    }
+
+}
@@ -24,6 +24,8 @@ package org.nuxeo.ecm.core.security;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
@@ -39,6 +41,9 @@ import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.ComponentName;
 import org.nuxeo.runtime.model.DefaultComponent;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * @author Bogdan Stefanescu
  * @author Olivier Grisel
@@ -61,6 +66,22 @@ public class SecurityService extends DefaultComponent {
 
     private SecurityPolicyService securityPolicyService;
 
+    /**
+     * The permissions to check for a permission, cleared when the permissions change.
+     *
+     * @since 2023.19
+     */
+    protected final Map<String, CompiledACP.Permissions> permissionsToCheck = new ConcurrentHashMap<>();
+
+    /**
+     * The principals to check for a user, checked against its current groups on each use.
+     *
+     * @since 2023.19
+     */
+    protected final Cache<NuxeoPrincipal, CompiledACP.Principals> principalsToCheck = CacheBuilder.newBuilder()
+                                                                                                  .weakKeys()
+                                                                                                  .build();
+
     // private SecurityManager securityManager;
 
     @Override
@@ -88,6 +109,8 @@ public class SecurityService extends DefaultComponent {
                 && contribution instanceof SecurityPolicyDescriptor) {
             securityPolicyService.registerDescriptor((SecurityPolicyDescriptor) contribution);
         }
+        // the permission groups may have changed
+        permissionsToCheck.clear();
     }
 
     @Override
@@ -101,6 +124,8 @@ public class SecurityService extends DefaultComponent {
                 && contribution instanceof SecurityPolicyDescriptor) {
             securityPolicyService.unregisterDescriptor((SecurityPolicyDescriptor) contribution);
         }
+        // the permission groups may have changed
+        permissionsToCheck.clear();
     }
 
     public PermissionProvider getPermissionProvider() {
@@ -127,15 +152,15 @@ public class SecurityService extends DefaultComponent {
             return true;
         }
         // fully check each ACE in turn
-        String[] resolvedPermissions = getPermissionsToCheck(permission);
-        String[] additionalPrincipals = getPrincipalsToCheck(principal);
+        CompiledACP.Permissions permissions = getCompiledPermissionsToCheck(permission);
+        CompiledACP.Principals principals = getCompiledPrincipalsToCheck(principal);
 
         // get the ordered list of ACE
         ACP acp = doc.getSession().getMergedACP(doc);
 
         // check pluggable policies
-        Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, resolvedPermissions,
-                additionalPrincipals);
+        Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, permissions.getNames(),
+                principals.getNames());
         if (access != null && !Access.UNKNOWN.equals(access)) {
             return access.toBoolean();
         }
@@ -143,7 +168,8 @@ public class SecurityService extends DefaultComponent {
         if (acp == null) {
             return false; // no ACP on that doc - by default deny
         }
-        access = acp.getAccess(additionalPrincipals, resolvedPermissions);
+        // a single check doesn't pay off compiling the ACP, built anew for each call
+        access = acp.getAccess(principals.getNames(), permissions.getNames());
 
         return access.toBoolean();
     }
@@ -162,16 +188,18 @@ public class SecurityService extends DefaultComponent {
             return permissions;
         }
 
-        String[] additionalPrincipals = getPrincipalsToCheck(principal);
+        CompiledACP.Principals principals = getCompiledPrincipalsToCheck(principal);
         ACP acp = doc.getSession().getMergedACP(doc);
+        // compiled once for all the permissions
+        CompiledACP compiledACP = acp == null ? null : CompiledACP.compile(acp);
 
         List<String> result = new ArrayList<>();
         for (String permission : permissions) {
-            String[] resolvedPermissions = getPermissionsToCheck(permission);
-            Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, resolvedPermissions,
-                    additionalPrincipals);
+            CompiledACP.Permissions resolvedPermissions = getCompiledPermissionsToCheck(permission);
+            Access access = securityPolicyService.checkPermission(doc, acp, principal, permission,
+                    resolvedPermissions.getNames(), principals.getNames());
             if (access == null || Access.UNKNOWN.equals(access)) {
-                access = acp == null ? null : acp.getAccess(additionalPrincipals, resolvedPermissions);
+                access = compiledACP == null ? null : compiledACP.getAccess(principals, resolvedPermissions);
             }
             if (access != null && access.toBoolean()) {
                 result.add(permission);
@@ -200,6 +228,33 @@ public class SecurityService extends DefaultComponent {
         }
     }
 
+    /**
+     * Gets the permissions to check for the given permission, as computed by {@link #getPermissionsToCheck}, compiled
+     * for the evaluation of ACPs.
+     *
+     * @since 2023.19
+     */
+    public CompiledACP.Permissions getCompiledPermissionsToCheck(String permission) {
+        return permissionsToCheck.computeIfAbsent(permission,
+                p -> CompiledACP.permissions(getPermissionsToCheck(p)));
+    }
+
+    /**
+     * Gets the principals to check for the given user, as computed by {@link #getPrincipalsToCheck}, compiled for the
+     * evaluation of ACPs.
+     *
+     * @since 2023.19
+     */
+    public CompiledACP.Principals getCompiledPrincipalsToCheck(NuxeoPrincipal principal) {
+        List<String> groups = principal.getAllGroups();
+        CompiledACP.Principals principals = principalsToCheck.getIfPresent(principal);
+        if (principals == null || !principals.isFor(principal.getName(), groups)) {
+            principals = CompiledACP.principals(getPrincipalsToCheck(principal));
+            principalsToCheck.put(principal, principals);
+        }
+        return principals;
+    }
+
     public static String[] getPrincipalsToCheck(NuxeoPrincipal principal) {
         List<String> userGroups = principal.getAllGroups();
         if (userGroups == null) {
@@ -0,0 +1,57 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @since 2023.19
+ */
+public class TestScalableBloomFilter {
+
+    @Test
+    public void testNoFalseNegatives() {
+        // start small to force the filter to grow several times
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("key" + i));
+        }
+        assertTrue(filter.filters.size() > 1);
+    }
+
+    @Test
+    public void testFalsePositiveProbability() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        // 1% expected, leave some margin
+        assertTrue(String.valueOf(falsePositives), falsePositives < 200);
+        assertTrue(filter.getSizeInBytes() > 0);
+    }
+
+}
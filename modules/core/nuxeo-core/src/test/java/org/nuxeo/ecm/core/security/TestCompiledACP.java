@@ -0,0 +1,198 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.EVERYONE;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.EVERYTHING;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.READ;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.READ_WRITE;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.RESTRICTED_READ;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.WRITE;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+
+/**
+ * @since 2023.19
+ */
+public class TestCompiledACP {
+
+    protected static final String[] PERMISSIONS = { READ, WRITE, READ_WRITE, RESTRICTED_READ, EVERYTHING, "Browse" };
+
+    protected static String[] principals(String user, String... groups) {
+        String[] principals = Arrays.copyOf(groups, groups.length + 2);
+        principals[groups.length] = user;
+        principals[groups.length + 1] = EVERYONE;
+        return principals;
+    }
+
+    protected static String[] permissions(String permission, String... groups) {
+        String[] permissions = Arrays.copyOf(new String[] { permission }, groups.length + 2);
+        System.arraycopy(groups, 0, permissions, 1, groups.length);
+        permissions[groups.length + 1] = EVERYTHING;
+        return permissions;
+    }
+
+    protected static void assertSameAccess(ACP acp, String[] principals, String[] permissions) {
+        assertEquals(acp.getAccess(principals, permissions), CompiledACP.compile(acp)
+                                                                        .getAccess(CompiledACP.principals(principals),
+                                                                                CompiledACP.permissions(permissions)));
+    }
+
+    @Test
+    public void testAccess() {
+        ACP acp = new ACPImpl();
+        ACL acl = acp.getOrCreateACL();
+        acl.add(new ACE("bob", WRITE, false));
+        acl.add(new ACE("members", READ_WRITE, true));
+        acl.add(new ACE(EVERYONE, EVERYTHING, false));
+        CompiledACP compiled = CompiledACP.compile(acp);
+        assertEquals(3, compiled.size());
+
+        CompiledACP.Principals bob = CompiledACP.principals(principals("bob", "members"));
+        CompiledACP.Principals alice = CompiledACP.principals(principals("alice", "members"));
+        CompiledACP.Principals john = CompiledACP.principals(principals("john"));
+        CompiledACP.Permissions read = CompiledACP.permissions(permissions(READ, READ_WRITE));
+        CompiledACP.Permissions write = CompiledACP.permissions(permissions(WRITE, READ_WRITE));
+
+        assertEquals(Access.GRANT, compiled.getAccess(bob, read));
+        assertEquals(Access.DENY, compiled.getAccess(bob, write));
+        assertEquals(Access.GRANT, compiled.getAccess(alice, write));
+        assertEquals(Access.DENY, compiled.getAccess(john, read));
+        assertEquals(Access.UNKNOWN, CompiledACP.compile(new ACPImpl()).getAccess(bob, read));
+    }
+
+    @Test
+    public void testRestrictedRead() {
+        ACP acp = new ACPImpl();
+        acp.getOrCreateACL().add(new ACE("bob", EVERYTHING, true));
+        assertSameAccess(acp, principals("bob"), permissions(RESTRICTED_READ));
+        assertSameAccess(acp, principals("bob"), permissions(READ));
+    }
+
+    @Test
+    public void testEffectiveDates() {
+        Calendar past = new GregorianCalendar();
+        past.add(Calendar.DAY_OF_MONTH, -1);
+        Calendar future = new GregorianCalendar();
+        future.add(Calendar.DAY_OF_MONTH, 1);
+        ACP acp = new ACPImpl();
+        ACL acl = acp.getOrCreateACL();
+        acl.add(ACE.builder("bob", READ).isGranted(false).begin(future).build()); // pending
+        acl.add(ACE.builder("bob", READ).isGranted(false).end(past).build()); // archived
+        acl.add(ACE.builder("bob", READ).begin(past).end(future).build());
+        CompiledACP compiled = CompiledACP.compile(acp);
+        assertEquals(Access.GRANT, compiled.getAccess(CompiledACP.principals(principals("bob")),
+                CompiledACP.permissions(permissions(READ))));
+        assertSameAccess(acp, principals("bob"), permissions(READ));
+    }
+
+    @Test
+    public void testPrincipalInternedLater() {
+        // the principals are built before any ACE references this group
+        String group = "group-interned-later";
+        CompiledACP.Principals principals = CompiledACP.principals(principals("bob", group));
+        CompiledACP.Principals others = CompiledACP.principals(principals("alice"));
+        ACP acp = new ACPImpl();
+        acp.getOrCreateACL().add(new ACE(group, READ, true));
+        CompiledACP compiled = CompiledACP.compile(acp);
+        CompiledACP.Permissions read = CompiledACP.permissions(permissions(READ));
+        assertEquals(Access.GRANT, compiled.getAccess(principals, read));
+        assertEquals(Access.UNKNOWN, compiled.getAccess(others, read));
+        // once interned
+        assertEquals(Access.GRANT, compiled.getAccess(CompiledACP.principals(principals("bob", group)), read));
+    }
+
+    @Test
+    public void testTransientUserNotInterned() {
+        String user = "transient/bob@example.com/1234";
+        int size = CompiledACP.PRINCIPALS.size();
+        ACP acp = new ACPImpl();
+        acp.getOrCreateACL().add(new ACE(user, READ, true));
+        CompiledACP compiled = CompiledACP.compile(acp);
+        assertEquals(size, CompiledACP.PRINCIPALS.size());
+        CompiledACP.Permissions read = CompiledACP.permissions(permissions(READ));
+        assertEquals(Access.GRANT, compiled.getAccess(CompiledACP.principals(principals(user)), read));
+        assertEquals(Access.UNKNOWN, compiled.getAccess(CompiledACP.principals(principals("bob")), read));
+    }
+
+    @Test
+    public void testInternerBounded() {
+        CompiledACP.Interner interner = new CompiledACP.Interner(2);
+        assertEquals(0, interner.intern("a"));
+        assertEquals(1, interner.intern("b"));
+        assertEquals(-1, interner.intern("c"));
+        assertEquals(0, interner.intern("a"));
+        assertEquals(2, interner.size());
+    }
+
+    @Test
+    public void testIsFor() {
+        CompiledACP.Principals principals = CompiledACP.principals(principals("bob", "g1", "g2"));
+        assertTrue(principals.isFor("bob", Arrays.asList("g1", "g2")));
+        assertFalse(principals.isFor("bob", Arrays.asList("g1")));
+        assertFalse(principals.isFor("bob", Arrays.asList("g1", "g3")));
+        assertFalse(principals.isFor("alice", Arrays.asList("g1", "g2")));
+        assertTrue(CompiledACP.principals(principals("bob")).isFor("bob", null));
+    }
+
+    @Test
+    public void testSameAsACPWithDeepGroupHierarchy() {
+        Random random = new Random(42);
+        // a user member of a deep hierarchy of groups
+        List<String> groups = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            groups.add("group" + i);
+        }
+        for (int n = 0; n < 500; n++) {
+            ACP acp = new ACPImpl();
+            int aclCount = 1 + random.nextInt(3);
+            for (int a = 0; a < aclCount; a++) {
+                ACL acl = new ACLImpl(a == 0 ? ACL.LOCAL_ACL : ACL.INHERITED_ACL + a);
+                int aceCount = random.nextInt(20);
+                for (int e = 0; e < aceCount; e++) {
+                    String principal = random.nextInt(10) == 0 ? EVERYONE
+                            : random.nextInt(5) == 0 ? "user" + random.nextInt(5) : "group" + random.nextInt(400);
+                    String permission = PERMISSIONS[random.nextInt(PERMISSIONS.length)];
+                    acl.add(new ACE(principal, permission, random.nextBoolean()));
+                }
+                acp.addACL(acl);
+            }
+            String user = "user" + random.nextInt(5);
+            String[] userGroups = groups.subList(0, random.nextInt(groups.size())).toArray(new String[0]);
+            for (String permission : PERMISSIONS) {
+                assertSameAccess(acp, principals(user, userGroups), permissions(permission, READ_WRITE));
+                assertSameAccess(acp, principals(user, userGroups), permissions(permission));
+            }
+        }
+    }
+
+}
@@ -29,6 +29,9 @@ import static org.opensearch.common.xcontent.XContentFactory.jsonBuilder;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -38,6 +41,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.apache.logging.log4j.LogManager;
@@ -93,6 +97,7 @@ import org.opensearch.action.search.SearchRequest;
 import org.opensearch.action.search.SearchResponse;
 import org.opensearch.action.search.SearchScrollRequest;
 import org.opensearch.action.search.SearchType;
+import org.opensearch.action.support.IndicesOptions;
 import org.opensearch.common.ParsingException;
 import org.opensearch.common.io.stream.BytesStreamOutput;
 import org.opensearch.common.settings.Settings;
@@ -109,6 +114,7 @@ import org.opensearch.search.SearchHit;
 import org.opensearch.search.SearchModule;
 import org.opensearch.search.aggregations.Aggregation;
 import org.opensearch.search.aggregations.AggregationBuilders;
+import org.opensearch.search.aggregations.bucket.terms.Terms;
 import org.opensearch.search.builder.SearchSourceBuilder;
 import org.opensearch.search.sort.SortOrder;
 
@@ -141,6 +147,29 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
     // @since 2021.21
     protected String latestLogIdAfterDate;
 
+    /**
+     * Writes the log entries into monthly indexes {@code <audit index>-yyyy.MM} chosen by event date.
+     *
+     * @since 2023.19
+     */
+    public static final String PARTITION_ENABLED_PROP = ElasticSearchConstants.AUDIT_PARTITION_ENABLED_PROPERTY;
+
+    /**
+     * Number of past months kept when partitioning is enabled, older partitions are dropped on rollover and entries with
+     * an older event date are not written. Defaults to 0, keeping all partitions.
+     *
+     * @since 2023.19
+     */
+    public static final String PARTITION_RETENTION_PROP = "audit.elasticsearch.partition.retention.months";
+
+    protected static final int PARTITION_DELETE_TIMEOUT_SECONDS = 60;
+
+    // @since 2023.19, null when partitioning is disabled
+    protected ESAuditPartitions partitions;
+
+    // @since 2023.19
+    protected final Map<String, Boolean> initializedPartitions = new ConcurrentHashMap<>();
+
     protected CursorService<Iterator<SearchHit>, SearchHit, String> cursorService;
 
     public ESAuditBackend(NXAuditEventsService component, AuditBackendDescriptor config) {
@@ -176,6 +205,10 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         log.info("Activate Elasticsearch backend for Audit");
         ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
         ESClient client = esa.getClient();
+        if (Framework.isBooleanPropertyTrue(PARTITION_ENABLED_PROP)) {
+            partitions = new ESAuditPartitions(getESIndexName());
+            log.info("Audit entries are written to monthly indexes: {}", partitions.getPattern());
+        }
         ensureUIDSequencer(client);
         return client;
     }
@@ -252,7 +285,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
         // Perform search
         List<LogEntry> logEntries;
-        SearchRequest request = createSearchRequest();
+        SearchRequest request = createSearchRequest(predicate);
         request.source(source);
         if (limit == 0) {
             // return all result -> use the scroll api
@@ -358,11 +391,140 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
     }
 
     protected SearchRequest createSearchRequest() {
-        return new SearchRequest(getESIndexName()).searchType(SearchType.DFS_QUERY_THEN_FETCH);
+        return createSearchRequest(null, null);
+    }
+
+    /**
+     * Creates a search request on the partitions holding the entries matching the event date bounds of the predicate.
+     *
+     * @since 2023.19
+     */
+    protected SearchRequest createSearchRequest(MultiExpression predicate) {
+        Date[] range = ESAuditPartitions.getEventDateRange(predicate);
+        return createSearchRequest(range[0], range[1]);
+    }
+
+    /**
+     * Creates a search request on the partitions holding the entries with an event date between {@code from} and
+     * {@code to}, both possibly {@code null}.
+     *
+     * @since 2023.19
+     */
+    protected SearchRequest createSearchRequest(Date from, Date to) {
+        if (!isPartitioned()) {
+            return new SearchRequest(getESIndexName()).searchType(SearchType.DFS_QUERY_THEN_FETCH);
+        }
+        List<String> indices = partitions.getPartitions(from, to);
+        // entries written before partitioning was enabled
+        indices.add(partitions.getBaseName());
+        SearchRequest request = new SearchRequest(indices.toArray(String[]::new)).searchType(
+                SearchType.DFS_QUERY_THEN_FETCH).indicesOptions(IndicesOptions.lenientExpandOpen());
+        // skip the shards that cannot match the query, whatever their number
+        request.setPreFilterShardSize(1);
+        return request;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public boolean isPartitioned() {
+        return partitions != null;
+    }
+
+    /**
+     * Returns the index where to write a log entry, or {@code null} if its event date is older than the partitions
+     * kept.
+     *
+     * @since 2023.19
+     */
+    protected String getWriteIndexName(Date eventDate) {
+        if (!isPartitioned()) {
+            return getESIndexName();
+        }
+        Date date = eventDate == null ? new Date() : eventDate;
+        Date limit = getRetentionLimit();
+        if (limit != null && date.before(limit)) {
+            // its partition is dropped, don't recreate it
+            return null;
+        }
+        String partition = partitions.getPartition(date);
+        if (!initializedPartitions.containsKey(partition)) {
+            // concurrent writers may init the same partition, which is idempotent
+            initPartition(partition);
+            if (initializedPartitions.putIfAbsent(partition, Boolean.TRUE) == null && limit != null) {
+                dropExpiredPartitions(limit);
+            }
+        }
+        return partition;
+    }
+
+    protected void initPartition(String partition) {
+        log.debug("Rollover audit entries to index: {}", partition);
+        ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
+        esa.initIndexForType(partition, ElasticSearchConstants.ENTRY_TYPE);
+    }
+
+    /**
+     * Returns the oldest event date kept, or {@code null} if all the partitions are kept.
+     *
+     * @since 2023.19
+     */
+    protected Date getRetentionLimit() {
+        int retention = Integer.parseInt(Framework.getProperty(PARTITION_RETENTION_PROP, "0"));
+        return ESAuditPartitions.getRetentionLimit(YearMonth.now(ZoneOffset.UTC), retention);
+    }
+
+    protected void dropExpiredPartitions(Date limit) {
+        try {
+            dropPartitionsBefore(limit);
+        } catch (RuntimeException e) {
+            // the next rollover will retry
+            log.warn("Cannot drop audit partitions before: {}", limit, e);
+        }
+    }
+
+    /**
+     * Drops the partitions holding only log entries with an event date before the given date.
+     *
+     * @return the dropped indexes
+     * @since 2023.19
+     */
+    public List<String> dropPartitionsBefore(Date date) {
+        List<String> dropped = new ArrayList<>();
+        if (!isPartitioned()) {
+            return dropped;
+        }
+        SearchRequest request = new SearchRequest(partitions.getPattern()).indicesOptions(
+                IndicesOptions.lenientExpandOpen());
+        request.source(new SearchSourceBuilder().size(0)
+                                                .aggregation(AggregationBuilders.terms("indices")
+                                                                                .field("_index")
+                                                                                .size(10_000)));
+        SearchResponse response = esClient.search(request);
+        if (response.getAggregations() == null) {
+            return dropped;
+        }
+        Terms terms = response.getAggregations().get("indices");
+        for (Terms.Bucket bucket : terms.getBuckets()) {
+            String index = bucket.getKeyAsString();
+            if (partitions.isBefore(index, date)) {
+                log.info("Dropping audit index: {} holding entries before: {}", index, date);
+                esClient.deleteIndex(index, PARTITION_DELETE_TIMEOUT_SECONDS);
+                initializedPartitions.remove(index);
+                dropped.add(index);
+            }
+        }
+        return dropped;
     }
 
     @Override
     public LogEntry getLogEntryByID(long id) {
+        if (isPartitioned()) {
+            SearchRequest request = createSearchRequest();
+            request.source(new SearchSourceBuilder().query(QueryBuilders.termQuery(LOG_ID, id)).size(1));
+            List<LogEntry> entries = buildLogEntries(runRequest(request));
+            return entries.isEmpty() ? null : entries.get(0);
+        }
         GetResponse ret = esClient.get(new GetRequest(getESIndexName(), String.valueOf(id)));
         if (!ret.isExists()) {
             return null;
@@ -500,15 +662,22 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
                 entry.setId(block.get(i));
                 log.debug("Indexing log entry: {}", entry);
                 entry.setLogDate(new Date());
+                String indexName = getWriteIndexName(entry.getEventDate());
+                if (indexName == null) {
+                    log.warn("Skipping audit entry: {} older than the partition retention", entry);
+                    continue;
+                }
                 try (OutputStream out = new BytesStreamOutput(); //
                         JsonGenerator jg = factory.createGenerator(out); //
                         XContentBuilder builder = jsonBuilder(out)) {
                     ObjectMapper mapper = new ObjectMapper();
                     mapper.writeValue(jg, entry);
-                    bulkRequest.add(
-                            new IndexRequest(getESIndexName()).id(String.valueOf(entry.getId())).source(builder));
+                    bulkRequest.add(new IndexRequest(indexName).id(String.valueOf(entry.getId())).source(builder));
                 }
             }
+            if (bulkRequest.numberOfActions() == 0) {
+                return;
+            }
 
             BulkResponse bulkResponse = esClient.bulk(bulkRequest);
             if (bulkResponse.hasFailures()) {
@@ -527,7 +696,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     @Override
     public Long getEventsCount(String eventId) {
-        SearchResponse res = esClient.search(new SearchRequest(getESIndexName()).source(new SearchSourceBuilder().query(
+        SearchResponse res = esClient.search(createSearchRequest().source(new SearchSourceBuilder().query(
                 QueryBuilders.constantScoreQuery(QueryBuilders.termQuery("eventId", eventId))).size(0)));
         return res.getHits().getTotalHits().value;
     }
@@ -539,10 +708,20 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     public SearchResponse search(SearchRequest request) {
         String[] indices = request.indices();
-        if (indices == null || indices.length != 1) {
+        if (indices == null || indices.length == 0) {
             throw new IllegalStateException("Search on audit must include index name: " + request);
         }
-        if (!getESIndexName().equals(indices[0])) {
+        if (isPartitioned()) {
+            // the base index holds the entries written before the partitioning, along the monthly indexes
+            for (String index : indices) {
+                if (!index.equals(partitions.getBaseName()) && !index.equals(partitions.getPattern())
+                        && partitions.getMonth(index) == null) {
+                    throw new IllegalStateException("Search on audit must be on audit indexes: " + request);
+                }
+            }
+            return runRequest(request);
+        }
+        if (indices.length != 1 || !getESIndexName().equals(indices[0])) {
             throw new IllegalStateException("Search on audit must be on audit index: " + request);
         }
         return runRequest(request);
@@ -708,7 +887,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
      */
     protected void ensureUIDSequencer(ESClient esClient) {
         boolean auditIndexExists = esClient.indexExists(getESIndexName());
-        if (!auditIndexExists) {
+        if (!auditIndexExists && !isPartitioned()) {
             return;
         }
 
@@ -717,6 +896,10 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         request.source(new SearchSourceBuilder().query(QueryBuilders.matchAllQuery())
                                                 .aggregation(AggregationBuilders.max("maxAgg").field("id")));
         SearchResponse searchResponse = esClient.search(request);
+        if (searchResponse.getAggregations() == null) {
+            // no audit index yet
+            return;
+        }
         Aggregation agg = searchResponse.getAggregations().get("maxAgg");
         long maxLogEntryId = 0;
         if (agg.getMetadata() != null && agg.getMetadata().containsKey(Aggregation.CommonFields.VALUE)) {
@@ -752,18 +935,30 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         BulkRequest bulkRequest = new BulkRequest();
         for (String json : jsonEntries) {
             try {
-                Object entryId = new JSONObject(json).opt(LOG_ID);
+                JSONObject jsonObject = new JSONObject(json);
+                Object entryId = jsonObject.opt(LOG_ID);
                 if (entryId == null) {
                     throw new NuxeoException("A json entry has an empty id. entry=" + json);
                 }
-                IndexRequest request = new IndexRequest(getESIndexName()).id(entryId.toString());
+                String indexName = getESIndexName();
+                if (isPartitioned()) {
+                    String eventDate = jsonObject.optString(LOG_EVENT_DATE, null);
+                    indexName = getWriteIndexName(eventDate == null ? null : Date.from(Instant.parse(eventDate)));
+                    if (indexName == null) {
+                        log.warn("Skipping audit entry: {} older than the partition retention", entryId);
+                        continue;
+                    }
+                }
+                IndexRequest request = new IndexRequest(indexName).id(entryId.toString());
                 request.source(json, XContentType.JSON);
                 bulkRequest.add(request);
             } catch (JSONException e) {
                 throw new NuxeoException("Unable to deserialize json entry=" + json, e);
             }
         }
-        esClient.bulk(bulkRequest);
+        if (bulkRequest.numberOfActions() > 0) {
+            esClient.bulk(bulkRequest);
+        }
     }
 
     @SuppressWarnings("resource") // CursorResult is being registered, must not be closed
@@ -778,7 +973,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         SearchSourceBuilder source = createSearchRequestSource(predicate, orders);
         source.size(batchSize);
         // create request
-        SearchRequest request = createSearchRequest();
+        SearchRequest request = createSearchRequest(predicate);
         request.source(source).scroll(TimeValue.timeValueSeconds(keepAliveSeconds));
         SearchResponse response = runRequest(request);
         // register cursor
@@ -0,0 +1,188 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch.audit;
+
+import static java.time.ZoneOffset.UTC;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_DATE;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.nuxeo.ecm.core.query.sql.model.Literals;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+
+/**
+ * Naming of the monthly partitions of the audit index.
+ * <p>
+ * Log entries are written to the index {@code <base>-yyyy.MM} of the UTC month of their event date. Reads target
+ * either the months covered by the event date bounds of a query, or all the partitions.
+ *
+ * @since 2023.19
+ */
+public class ESAuditPartitions {
+
+    protected static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy.MM");
+
+    protected final String baseName;
+
+    public ESAuditPartitions(String baseName) {
+        this.baseName = baseName;
+    }
+
+    public String getBaseName() {
+        return baseName;
+    }
+
+    /**
+     * Returns the wildcard expression matching all the partitions.
+     */
+    public String getPattern() {
+        return baseName + "-*";
+    }
+
+    public String getPartition(YearMonth month) {
+        return baseName + "-" + MONTH_FORMATTER.format(month);
+    }
+
+    public String getPartition(Date eventDate) {
+        return getPartition(YearMonth.from(eventDate.toInstant().atZone(UTC)));
+    }
+
+    /**
+     * Returns the month of a partition, or {@code null} if the index is not a partition.
+     */
+    public YearMonth getMonth(String indexName) {
+        String prefix = baseName + "-";
+        if (!indexName.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(indexName.substring(prefix.length()), MONTH_FORMATTER);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the partitions holding the entries with an event date between {@code from} and {@code to}, both
+     * inclusive and possibly {@code null} for an unbounded range.
+     * <p>
+     * Without both bounds the pattern matching all the partitions is returned, Elasticsearch then skips the shards
+     * that cannot match the event date range.
+     */
+    public List<String> getPartitions(Date from, Date to) {
+        List<String> partitions = new ArrayList<>();
+        if (from == null || to == null) {
+            partitions.add(getPattern());
+            return partitions;
+        }
+        YearMonth month = YearMonth.from(from.toInstant().atZone(UTC));
+        YearMonth last = YearMonth.from(to.toInstant().atZone(UTC));
+        do {
+            // an empty range still targets one partition, a request without index would search all the indexes
+            partitions.add(getPartition(month));
+            month = month.plusMonths(1);
+        } while (!month.isAfter(last));
+        return partitions;
+    }
+
+    /**
+     * Returns whether all the entries of a partition have an event date strictly before {@code date}.
+     */
+    public boolean isBefore(String indexName, Date date) {
+        YearMonth month = getMonth(indexName);
+        if (month == null) {
+            return false;
+        }
+        Instant end = month.plusMonths(1).atDay(1).atStartOfDay(UTC).toInstant();
+        return !end.isAfter(date.toInstant());
+    }
+
+    /**
+     * Returns the oldest event date kept when keeping the given number of past months before {@code current}, or
+     * {@code null} if all the partitions are kept.
+     */
+    public static Date getRetentionLimit(YearMonth current, int months) {
+        if (months <= 0) {
+            return null;
+        }
+        return Date.from(current.minusMonths(months).atDay(1).atStartOfDay(UTC).toInstant());
+    }
+
+    /**
+     * Returns the event date bounds {@code [from, to]} of a query predicate, a bound being {@code null} when it cannot
+     * be computed.
+     */
+    public static Date[] getEventDateRange(MultiExpression andPredicate) {
+        Date[] range = new Date[2];
+        for (Predicate predicate : andPredicate.predicates) {
+            if (!(predicate.lvalue instanceof Reference)
+                    || !LOG_EVENT_DATE.equals(((Reference) predicate.lvalue).name)) {
+                continue;
+            }
+            Operator operator = predicate.operator;
+            Date value;
+            try {
+                value = toDate(Literals.valueOf(predicate.rvalue));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            if (value == null) {
+                continue;
+            }
+            if (Operator.EQ.equals(operator)) {
+                range[0] = max(range[0], value);
+                range[1] = min(range[1], value);
+            } else if (Operator.GT.equals(operator) || Operator.GTEQ.equals(operator)) {
+                range[0] = max(range[0], value);
+            } else if (Operator.LT.equals(operator) || Operator.LTEQ.equals(operator)) {
+                range[1] = min(range[1], value);
+            }
+        }
+        return range;
+    }
+
+    protected static Date toDate(Object value) {
+        if (value instanceof ZonedDateTime) {
+            return Date.from(((ZonedDateTime) value).toInstant());
+        } else if (value instanceof Calendar) {
+            return ((Calendar) value).getTime();
+        } else if (value instanceof Date) {
+            return (Date) value;
+        }
+        // strings may hold Elasticsearch date math, don't prune
+        return null;
+    }
+
+    protected static Date max(Date a, Date b) {
+        return a == null || b.after(a) ? b : a;
+    }
+
+    protected static Date min(Date a, Date b) {
+        return a == null || b.before(a) ? b : a;
+    }
+
+}
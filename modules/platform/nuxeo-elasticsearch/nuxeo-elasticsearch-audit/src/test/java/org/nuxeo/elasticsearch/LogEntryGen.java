@@ -64,8 +64,13 @@ public class LogEntryGen {
         Assert.assertTrue(Framework.getService(AuditLogger.class).await(10,TimeUnit.SECONDS));
         ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
 
-        esa.getClient().flush(esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE));
-        esa.getClient().refresh(esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE));
+        String index = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+        esa.getClient().flush(index);
+        esa.getClient().refresh(index);
+        if (Framework.isBooleanPropertyTrue(ElasticSearchConstants.AUDIT_PARTITION_ENABLED_PROPERTY)) {
+            esa.getClient().flush(index + "-*");
+            esa.getClient().refresh(index + "-*");
+        }
 
     }
 
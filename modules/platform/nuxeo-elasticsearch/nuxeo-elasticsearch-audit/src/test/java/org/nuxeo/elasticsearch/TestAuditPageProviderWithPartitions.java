@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.service.AuditBackend;
+import org.nuxeo.ecm.platform.query.api.PageProvider;
+import org.nuxeo.elasticsearch.audit.ESAuditBackend;
+import org.nuxeo.elasticsearch.audit.ESAuditPartitions;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.common.xcontent.XContentType;
+
+/**
+ * Runs the audit page providers on the monthly audit indexes.
+ *
+ * @since 2023.19
+ */
+@WithFrameworkProperty(name = ElasticSearchConstants.AUDIT_PARTITION_ENABLED_PROPERTY, value = "true")
+@SuppressWarnings("unchecked")
+public class TestAuditPageProviderWithPartitions extends TestAuditPageProviderWithElasticSearch {
+
+    protected ESAuditBackend backend;
+
+    @Before
+    public void dropPartitions() throws Exception {
+        backend = (ESAuditBackend) Framework.getService(AuditBackend.class);
+        assertTrue(backend.isPartitioned());
+        // the monthly indexes are not part of the indexes reset by the test setup
+        backend.dropPartitionsBefore(new Date(Long.MAX_VALUE));
+        LogEntryGen.flushAndSync();
+    }
+
+    @Test
+    public void testPageProviderOnPartitionsAndAuditIndex() throws Exception {
+        LogEntryGen.generate("partitioned", "pentry", "pcategory", 10);
+        // an entry written before partitioning was enabled
+        String auditIndex = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+        String source = "{\"id\":0,\"eventId\":\"pentry10\",\"docUUID\":\"partitioned\"}";
+        esa.getClient().index(new IndexRequest(auditIndex).id("0").source(source, XContentType.JSON));
+        LogEntryGen.flushAndSync();
+
+        PageProvider<?> pp = pps.getPageProvider("SearchById", null, 20L, 0L, new HashMap<String, Serializable>(),
+                "partitioned");
+        List<LogEntry> entries = (List<LogEntry>) pp.getCurrentPage();
+        assertEquals(11, entries.size());
+        assertEquals(11, pp.getResultsCount());
+    }
+
+    @Test
+    @WithFrameworkProperty(name = ESAuditBackend.PARTITION_RETENTION_PROP, value = "2")
+    public void testEntriesOlderThanRetentionAreSkipped() throws Exception {
+        Date old = Date.from(ZonedDateTime.now(ZoneOffset.UTC).minusYears(1).toInstant());
+        LogEntry oldEntry = LogEntryGen.doCreateEntry("retention", "oldEntry", "rcategory");
+        oldEntry.setEventDate(old);
+        LogEntry newEntry = LogEntryGen.doCreateEntry("retention", "newEntry", "rcategory");
+        backend.addLogEntries(List.of(oldEntry, newEntry));
+        LogEntryGen.flushAndSync();
+
+        // the partition of the old entry, dropped by the retention, is not recreated
+        String auditIndex = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+        ESAuditPartitions partitions = new ESAuditPartitions(auditIndex);
+        assertFalse(esa.getClient().indexExists(partitions.getPartition(old)));
+        List<LogEntry> entries = backend.getLogEntriesFor("retention", "test");
+        assertEquals(1, entries.size());
+        assertEquals("newEntry", entries.get(0).getEventId());
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_DATE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+import org.nuxeo.elasticsearch.audit.ESAuditPartitions;
+
+/**
+ * @since 2023.19
+ */
+public class TestESAuditPartitions {
+
+    protected final ESAuditPartitions partitions = new ESAuditPartitions("audit");
+
+    protected static Date date(String instant) {
+        return Date.from(Instant.parse(instant));
+    }
+
+    @Test
+    public void testPartitionNames() {
+        assertEquals("audit-2024.01", partitions.getPartition(date("2024-01-31T23:59:59Z")));
+        assertEquals("audit-2024.02", partitions.getPartition(date("2024-02-01T00:00:00Z")));
+        assertEquals(YearMonth.of(2024, 2), partitions.getMonth("audit-2024.02"));
+        assertNull(partitions.getMonth("audit"));
+        assertNull(partitions.getMonth("audit-foo"));
+        assertNull(partitions.getMonth("other-2024.02"));
+    }
+
+    @Test
+    public void testPartitionsForRange() {
+        assertEquals(Arrays.asList("audit-2023.11", "audit-2023.12", "audit-2024.01"),
+                partitions.getPartitions(date("2023-11-15T00:00:00Z"), date("2024-01-02T00:00:00Z")));
+        assertEquals(Collections.singletonList("audit-*"), partitions.getPartitions(date("2023-11-15T00:00:00Z"), null));
+        assertEquals(Collections.singletonList("audit-*"), partitions.getPartitions(null, null));
+        // empty range
+        assertEquals(Collections.singletonList("audit-2024.01"),
+                partitions.getPartitions(date("2024-01-15T00:00:00Z"), date("2023-11-15T00:00:00Z")));
+    }
+
+    @Test
+    public void testEventDateRange() {
+        MultiExpression predicate = new AuditQueryBuilder().predicate(Predicates.eq(LOG_EVENT_ID, "documentCreated"))
+                                                           .and(Predicates.gte(LOG_EVENT_DATE,
+                                                                   date("2024-01-10T00:00:00Z")))
+                                                           .and(Predicates.gt(LOG_EVENT_DATE,
+                                                                   date("2024-01-05T00:00:00Z")))
+                                                           .and(Predicates.lt(LOG_EVENT_DATE,
+                                                                   date("2024-03-01T00:00:00Z")))
+                                                           .predicate();
+        Date[] range = ESAuditPartitions.getEventDateRange(predicate);
+        assertEquals(date("2024-01-10T00:00:00Z"), range[0]);
+        assertEquals(date("2024-03-01T00:00:00Z"), range[1]);
+
+        // date math is left to Elasticsearch
+        predicate = new AuditQueryBuilder().predicate(Predicates.gt(LOG_EVENT_DATE, "now-1d")).predicate();
+        range = ESAuditPartitions.getEventDateRange(predicate);
+        assertNull(range[0]);
+        assertNull(range[1]);
+    }
+
+    @Test
+    public void testRetention() {
+        Date limit = date("2024-03-01T00:00:00Z");
+        assertTrue(partitions.isBefore("audit-2024.02", limit));
+        assertFalse(partitions.isBefore("audit-2024.03", limit));
+        assertFalse(partitions.isBefore("audit", limit));
+        assertEquals(limit, ESAuditPartitions.getRetentionLimit(YearMonth.of(2024, 6), 3));
+        assertNull(ESAuditPartitions.getRetentionLimit(YearMonth.of(2024, 6), 0));
+    }
+
+}
@@ -107,12 +107,25 @@ public class ElasticsearchWaitForIndexingOperation {
         if (refresh) {
             esa.refreshRepositoryIndex(repo.getRepositoryName());
             if (waitForAuditStoredInEs) {
-                esa.getClient().refresh(esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE));
+                refreshAuditIndex();
             }
         }
         return Boolean.TRUE;
     }
 
+    protected void refreshAuditIndex() {
+        String auditIndex = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+        if (!Framework.isBooleanPropertyTrue(ElasticSearchConstants.AUDIT_PARTITION_ENABLED_PROPERTY)) {
+            esa.getClient().refresh(auditIndex);
+            return;
+        }
+        // entries are written to the monthly indexes, the audit index only holds the ones written before
+        esa.getClient().refresh(auditIndex + "-*");
+        if (esa.getClient().indexExists(auditIndex)) {
+            esa.getClient().refresh(auditIndex);
+        }
+    }
+
     protected long computeRemainingTime(long start) {
         long elapsed = System.currentTimeMillis() - start;
         // at least one second
@@ -21,7 +21,10 @@ package org.nuxeo.elasticsearch;
 
 import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_ENABLED_PROPERTY;
-import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_INDEXING_QUEUE_ID;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_INDEXING_THRESHOLD_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_IDS;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEXING_QUEUE_ID;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_ON_STARTUP_PROPERTY;
 
 import java.io.IOException;
@@ -100,6 +103,9 @@ public class ElasticSearchComponent extends DefaultComponent
 
     protected static final long REINDEX_TIMEOUT = 20;
 
+    // @since 2023.19
+    protected static final String DEFAULT_BULK_INDEXING_THRESHOLD = "100";
+
     // Indexing commands that where received before the index initialization
     protected final List<IndexingCommand> stackedCommands = Collections.synchronizedList(new ArrayList<>());
 
@@ -262,6 +268,11 @@ public class ElasticSearchComponent extends DefaultComponent
         esa.dropAndInitIndex(indexName);
     }
 
+    @Override
+    public void initIndexForType(String indexName, String type) {
+        esa.initIndexForType(indexName, type);
+    }
+
     @Override
     public void dropAndInitRepositoryIndex(String repositoryName, boolean syncAlias) {
         esa.dropAndInitRepositoryIndex(repositoryName, syncAlias);
@@ -316,14 +327,15 @@ public class ElasticSearchComponent extends DefaultComponent
     @Override
     public long getPendingWorkerCount() {
         WorkManager wm = Framework.getService(WorkManager.class);
-        return wm.getMetrics(INDEXING_QUEUE_ID).scheduled.longValue();
+        return INDEXING_QUEUE_IDS.stream().mapToLong(queueId -> wm.getMetrics(queueId).scheduled.longValue()).sum();
     }
 
     @SuppressWarnings("deprecation")
     @Override
     public long getRunningWorkerCount() {
         WorkManager wm = Framework.getService(WorkManager.class);
-        return runIndexingWorkerCount.get() + wm.getMetrics(INDEXING_QUEUE_ID).getRunning().longValue();
+        return runIndexingWorkerCount.get()
+                + INDEXING_QUEUE_IDS.stream().mapToLong(queueId -> wm.getMetrics(queueId).getRunning().longValue()).sum();
     }
 
     @Override
@@ -352,8 +364,12 @@ public class ElasticSearchComponent extends DefaultComponent
             WorkManager wm = Framework.getService(WorkManager.class);
             boolean completed;
             do {
-                completed = wm.awaitCompletion(INDEXING_QUEUE_ID, 300, TimeUnit.SECONDS);
-            } while (!completed);
+                completed = true;
+                // recursive indexing and reindexing may schedule works in other queues
+                for (String queueId : INDEXING_QUEUE_IDS) {
+                    completed &= wm.awaitCompletion(queueId, 300, TimeUnit.SECONDS);
+                }
+            } while (!completed || getPendingWorkerCount() > 0);
             return true;
         });
     }
@@ -475,8 +491,15 @@ public class ElasticSearchComponent extends DefaultComponent
             return;
         }
         WorkManager wm = Framework.getService(WorkManager.class);
+        int bulkThreshold = Integer.parseInt(
+                Framework.getProperty(BULK_INDEXING_THRESHOLD_PROPERTY, DEFAULT_BULK_INDEXING_THRESHOLD));
         for (String repositoryName : asyncCommands.keySet()) {
-            IndexingWorker idxWork = new IndexingWorker(repositoryName, asyncCommands.get(repositoryName));
+            List<IndexingCommand> cmds = asyncCommands.get(repositoryName);
+            IndexingWorker idxWork = new IndexingWorker(repositoryName, cmds);
+            if (cmds.size() >= bulkThreshold) {
+                // a large transaction must not delay the interactive indexing
+                idxWork.setCategory(BULK_INDEXING_QUEUE_ID);
+            }
             // we are in afterCompletion don't wait for a commit
             wm.schedule(idxWork, false);
         }
@@ -500,6 +523,7 @@ public class ElasticSearchComponent extends DefaultComponent
             throw new IllegalArgumentException("Expecting an NXQL query");
         }
         ScrollingIndexingWorker worker = new ScrollingIndexingWorker(repositoryName, nxql, syncAlias);
+        worker.setCategory(REINDEXING_QUEUE_ID);
         WorkManager wm = Framework.getService(WorkManager.class);
         wm.schedule(worker);
     }
@@ -18,6 +18,8 @@
  */
 package org.nuxeo.elasticsearch;
 
+import java.util.List;
+
 public final class ElasticSearchConstants {
 
     public static final String AGG_INCLUDE_PROP = "include";
@@ -133,6 +135,57 @@ public final class ElasticSearchConstants {
     /** @since 7.4 */
     public static final String INDEXING_QUEUE_ID = "elasticSearchIndexing";
 
+    /**
+     * Queue of the indexing of large sets of commands and of the recursive indexing, so that it does not delay the
+     * interactive indexing.
+     *
+     * @since 2023.19
+     */
+    public static final String BULK_INDEXING_QUEUE_ID = "elasticSearchBulkIndexing";
+
+    /**
+     * Queue of the reindexing of the repository or of a NXQL query.
+     *
+     * @since 2023.19
+     */
+    public static final String REINDEXING_QUEUE_ID = "elasticSearchReindexing";
+
+    /** @since 2023.19 */
+    public static final List<String> INDEXING_QUEUE_IDS = List.of(INDEXING_QUEUE_ID, BULK_INDEXING_QUEUE_ID,
+            REINDEXING_QUEUE_ID);
+
+    /**
+     * Minimum number of commands of an indexing worker to be scheduled in the bulk indexing queue.
+     *
+     * @since 2023.19
+     */
+    public static final String BULK_INDEXING_THRESHOLD_PROPERTY = "elasticsearch.indexing.bulk.threshold";
+
+    /**
+     * Stream of the indexing works in failure, retried with a backoff before landing in the Work dead letter queue.
+     *
+     * @since 2023.19
+     */
+    public static final String INDEXING_RETRY_STREAM = "elasticsearch/indexingRetry";
+
+    /**
+     * Property enabling the write of the audit entries to monthly indexes, searched through the
+     * {@link #ENTRY_TYPE audit index} name suffixed by {@code -*}.
+     *
+     * @since 2023.19
+     */
+    public static final String AUDIT_PARTITION_ENABLED_PROPERTY = "audit.elasticsearch.partition.enabled";
+
+    /**
+     * Gets the indexes to search for the audit entries, the monthly indexes being searched along the audit index when
+     * {@link #AUDIT_PARTITION_ENABLED_PROPERTY partitioned}.
+     *
+     * @since 2023.19
+     */
+    public static String getAuditSearchIndices(String auditIndex, boolean partitioned) {
+        return partitioned ? auditIndex + "," + auditIndex + "-*" : auditIndex;
+    }
+
     public static final String EPOCH_MILLIS_FORMAT = "epoch_millis";
 
     /** @since 10.2 */
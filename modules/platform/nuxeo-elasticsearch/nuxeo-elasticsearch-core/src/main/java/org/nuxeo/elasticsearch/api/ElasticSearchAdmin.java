@@ -58,6 +58,15 @@ public interface ElasticSearchAdmin {
      */
     void dropAndInitIndex(String indexName);
 
+    /**
+     * Initializes an index that is not registered, using the settings and mapping of the first registered index with
+     * the given type. Nothing is done if the index already exists.
+     *
+     * @throws NoSuchElementException if there is no Elasticsearch index with the given type.
+     * @since 2023.19
+     */
+    void initIndexForType(String indexName, String type);
+
     /**
      * Reinitialize the index of a repository. This will drop the existing index, recreate it with its settings and
      * mapping, the index will be empty.
@@ -360,6 +360,17 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
         indexInitDone = true;
     }
 
+    @Override
+    public void initIndexForType(String indexName, String type) {
+        ElasticSearchIndexConfig conf = indexConfig.values()
+                                                   .stream()
+                                                   .filter(c -> type.equals(c.getType()))
+                                                   .findFirst()
+                                                   .orElseThrow(() -> new NoSuchElementException(
+                                                           "No index defined for type: " + type));
+        initIndex(indexName, conf, false);
+    }
+
     @Override
     public void dropAndInitRepositoryIndex(String repositoryName, boolean syncAlias) {
         log.info("Drop and init index of repository: {}", repositoryName);
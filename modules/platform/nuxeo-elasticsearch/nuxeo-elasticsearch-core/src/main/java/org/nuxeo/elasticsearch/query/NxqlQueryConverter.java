@@ -22,7 +22,6 @@ package org.nuxeo.elasticsearch.query;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_SCORE_FIELD;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.FULLTEXT_FIELD;
 
-import java.io.StringReader;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -54,7 +53,7 @@ import org.nuxeo.ecm.core.api.trash.TrashService;
 import org.nuxeo.ecm.core.api.trash.TrashService.Feature;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
-import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.SQLQueryCache;
 import org.nuxeo.ecm.core.query.sql.model.DefaultQueryVisitor;
 import org.nuxeo.ecm.core.query.sql.model.EsHint;
 import org.nuxeo.ecm.core.query.sql.model.Expression;
@@ -230,7 +229,7 @@ public final class NxqlQueryConverter {
         String query = completeQueryWithSelect(nxql);
         SQLQuery nxqlQuery;
         try {
-            nxqlQuery = SQLQueryParser.parse(new StringReader(query));
+            nxqlQuery = SQLQueryCache.parse(query);
         } catch (QueryParseException e) {
             e.addInfo("Query: " + query);
             throw e;
@@ -59,6 +59,7 @@ public abstract class AbstractIndexingWorker extends BaseIndexingWorker {
         }
         ElasticSearchIndexing esi = Framework.getService(ElasticSearchIndexing.class);
         doIndexingWork(esi, cmds);
+        markIndexed(cmds.size());
     }
 
     protected abstract void doIndexingWork(ElasticSearchIndexing esi, List<IndexingCommand> cmds);
@@ -20,19 +20,48 @@
 package org.nuxeo.elasticsearch.work;
 
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_RETRY_STREAM;
 
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.ecm.core.work.WorkComputation;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.stream.StreamService;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * Abstract class for sharing the worker state
  */
 public abstract class BaseIndexingWorker extends AbstractWork {
 
+    private static final Logger log = LogManager.getLogger(BaseIndexingWorker.class);
+
     private static final long serialVersionUID = 1L;
 
+    // @since 2023.19
+    protected String category = INDEXING_QUEUE_ID;
+
     @Override
     public String getCategory() {
-        return INDEXING_QUEUE_ID;
+        return category;
+    }
+
+    /**
+     * Sets the queue of the worker, one of the {@link org.nuxeo.elasticsearch.ElasticSearchConstants#INDEXING_QUEUE_IDS
+     * indexing queues}.
+     *
+     * @since 2023.19
+     */
+    public void setCategory(String category) {
+        this.category = category;
     }
 
     @Override
@@ -45,9 +74,55 @@ public abstract class BaseIndexingWorker extends AbstractWork {
 
     @Override
     public void work() {
+        if (schedulingTime > 0) {
+            getRegistry().timer(getMetricName("lag"))
+                         .update(System.currentTimeMillis() - schedulingTime, TimeUnit.MILLISECONDS);
+        }
         doWork();
     }
 
     protected abstract void doWork();
 
+    /**
+     * Reports the number of documents indexed by the worker.
+     *
+     * @since 2023.19
+     */
+    protected void markIndexed(long count) {
+        getRegistry().meter(getMetricName("documents")).mark(count);
+    }
+
+    protected MetricRegistry getRegistry() {
+        return SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+    }
+
+    protected MetricName getMetricName(String name) {
+        return MetricName.build("nuxeo.elasticsearch.indexing." + name).tagged("queue", getCategory());
+    }
+
+    /**
+     * Sends the worker to the indexing retry stream, the Work dead letter queue is used only once the retries are
+     * exhausted.
+     *
+     * @since 2023.19
+     */
+    @Override
+    protected void appendWorkToDeadLetterQueue() {
+        if (!State.RUNNING.equals(getWorkInstanceState())) {
+            return;
+        }
+        StreamService service = Framework.getService(StreamService.class);
+        if (service == null) {
+            return;
+        }
+        try {
+            service.getStreamManager()
+                   .append(INDEXING_RETRY_STREAM, Record.of(getId(), WorkComputation.serialize(this)));
+            getRegistry().counter(getMetricName("retry")).inc();
+        } catch (IllegalArgumentException e) {
+            log.debug("No indexing retry stream, fallback to the dead letter queue", e);
+            super.appendWorkToDeadLetterQueue();
+        }
+    }
+
 }
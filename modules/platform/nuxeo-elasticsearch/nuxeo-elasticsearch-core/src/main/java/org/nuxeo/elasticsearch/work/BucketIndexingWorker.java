@@ -89,6 +89,7 @@ public class BucketIndexingWorker extends BaseIndexingWorker implements Work {
             esi.indexNonRecursive(getIndexingCommands(session, ids));
             ids.clear();
         }
+        markIndexed(documentCount);
         if (syncAlias) {
             log.warn("Re-indexing job: {} completed.", () -> getSchedulePath().getParentPath());
             ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
@@ -65,8 +65,10 @@ public class ChildrenIndexingWorker extends AbstractIndexingWorker implements Wo
 
             IndexingCommand childCommand = cmd.clone(child);
             esi.indexNonRecursive(childCommand);
+            markIndexed(1);
             if (child.isFolder()) {
                 ChildrenIndexingWorker subWorker = new ChildrenIndexingWorker(childCommand);
+                subWorker.setCategory(getCategory());
                 WorkManager wm = Framework.getService(WorkManager.class);
                 wm.schedule(subWorker);
             }
@@ -0,0 +1,236 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch.work;
+
+import static org.nuxeo.ecm.core.work.AbstractWork.GLOBAL_DLQ_COUNT_REGISTRY_NAME;
+import static org.nuxeo.ecm.core.work.WorkManagerImpl.DEAD_LETTER_QUEUE;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_RETRY_STREAM;
+import static org.nuxeo.elasticsearch.bulk.IndexAction.getOptionAsInteger;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.DurationUtils;
+import org.nuxeo.ecm.core.work.WorkComputation;
+import org.nuxeo.ecm.core.work.WorkHolder;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.computation.AbstractComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.computation.Watermark;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.stream.StreamService;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Runs again the indexing works in failure, with an exponential backoff between attempts.
+ * <p>
+ * A work in failure is not retried in place, which would block the records behind it for the whole backoff: it is
+ * appended once to the end of the stream, with the time of its next attempt and its number of attempts in the record
+ * watermark. A record read before its attempt is due is held in memory until then by a computation timer, and the
+ * stream position is checkpointed only when no record is held. A work still failing once the retries are exhausted is
+ * moved to the Work dead letter queue, where it can be reprocessed manually.
+ *
+ * @since 2023.19
+ */
+public class IndexingRetryProcessor implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(IndexingRetryProcessor.class);
+
+    public static final String COMPUTATION_NAME = "elasticsearch/indexingRetry";
+
+    public static final String MAX_RETRIES_OPTION = "maxRetries";
+
+    public static final int MAX_RETRIES_DEFAULT = 10;
+
+    public static final String DELAY_OPTION = "delay";
+
+    public static final String DELAY_DEFAULT = "5s";
+
+    public static final String MAX_DELAY_OPTION = "maxDelay";
+
+    public static final String MAX_DELAY_DEFAULT = "10m";
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        int maxRetries = Math.min(getOptionAsInteger(options, MAX_RETRIES_OPTION, MAX_RETRIES_DEFAULT),
+                Short.MAX_VALUE);
+        Duration delay = DurationUtils.parse(options.getOrDefault(DELAY_OPTION, DELAY_DEFAULT));
+        Duration maxDelay = DurationUtils.parse(options.getOrDefault(MAX_DELAY_OPTION, MAX_DELAY_DEFAULT));
+        return Topology.builder()
+                       .addComputation(
+                               () -> new IndexingRetryComputation(COMPUTATION_NAME, maxRetries, delay, maxDelay),
+                               Collections.singletonList("i1:" + INDEXING_RETRY_STREAM))
+                       .build();
+    }
+
+    public static class IndexingRetryComputation extends AbstractComputation {
+
+        protected static final String TIMER_NAME = "retry";
+
+        protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+        protected final int maxRetries;
+
+        protected final long delayMs;
+
+        protected final long maxDelayMs;
+
+        // records read before their next attempt is due, ordered by due time
+        protected final Queue<Record> pending = new PriorityQueue<>(
+                Comparator.comparingLong(IndexingRetryComputation::getDueTime));
+
+        protected Record current;
+
+        public IndexingRetryComputation(String name, int maxRetries, Duration delay, Duration maxDelay) {
+            super(name, 1, 0);
+            this.maxRetries = maxRetries;
+            this.delayMs = delay.toMillis();
+            this.maxDelayMs = maxDelay.toMillis();
+        }
+
+        @Override
+        public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+            if (getDueTime(record) > System.currentTimeMillis()) {
+                // held until due, the record is not appended again
+                pending.add(record);
+                scheduleNextRetry(context);
+                return;
+            }
+            retry(record);
+            checkpointIfNothingPending(context);
+        }
+
+        @Override
+        public void processTimer(ComputationContext context, String key, long timestamp) {
+            long now = System.currentTimeMillis();
+            while (!pending.isEmpty() && getDueTime(pending.peek()) <= now) {
+                retry(pending.poll());
+            }
+            scheduleNextRetry(context);
+            checkpointIfNothingPending(context);
+        }
+
+        protected void scheduleNextRetry(ComputationContext context) {
+            if (!pending.isEmpty()) {
+                context.setTimer(TIMER_NAME, getDueTime(pending.peek()));
+            }
+        }
+
+        /**
+         * Checkpoints the stream position only when no record is held, so that a held record is read again after a
+         * restart instead of being lost.
+         */
+        protected void checkpointIfNothingPending(ComputationContext context) {
+            if (pending.isEmpty()) {
+                context.askForCheckpoint();
+            }
+        }
+
+        /**
+         * Returns the time of the next attempt of the record. A record appended by a failing work has no watermark: it
+         * is due now, for its first attempt.
+         */
+        protected static long getDueTime(Record record) {
+            return Watermark.ofValue(record.getWatermark()).getTimestamp();
+        }
+
+        protected void retry(Record record) {
+            current = record;
+            int attempt = Watermark.ofValue(record.getWatermark()).getSequence();
+            Work work = WorkComputation.deserialize(record.getData());
+            log.debug("Retrying indexing work: {} with category: {}, attempt: {}", work::getId, work::getCategory,
+                    () -> attempt + 1);
+            // not in a RUNNING state so that a failure doesn't append the work to the retry stream again
+            work.setWorkInstanceState(Work.State.UNKNOWN);
+            try {
+                new WorkHolder(work).run();
+                cleanup(work, null);
+                registry.counter(getMetricName(work, "retry.success")).inc();
+            } catch (RuntimeException e) {
+                cleanup(work, e);
+                if (attempt + 1 < maxRetries) {
+                    log.debug("Indexing work: {} still fails, next attempt in: {}ms", work.getId(),
+                            getDelay(attempt), e);
+                    long next = System.currentTimeMillis() + getDelay(attempt);
+                    append(new Record(record.getKey(), record.getData(),
+                            Watermark.ofTimestamp(next, (short) (attempt + 1)).getValue()));
+                } else {
+                    appendToDeadLetterQueue(work, record, e);
+                }
+            }
+        }
+
+        @Override
+        public void processFailure(ComputationContext context, Throwable failure) {
+            Work work = WorkComputation.deserialize(current.getData());
+            appendToDeadLetterQueue(work, current, failure);
+            // the timer is consumed even when processing it fails
+            scheduleNextRetry(context);
+        }
+
+        /**
+         * Returns the delay before the attempt following the given one, doubled at each attempt up to the max delay.
+         */
+        protected long getDelay(int attempt) {
+            if (attempt >= Long.numberOfLeadingZeros(Math.max(delayMs, 1)) - 1) {
+                return maxDelayMs;
+            }
+            return Math.min(delayMs << attempt, maxDelayMs);
+        }
+
+        protected void append(Record record) {
+            Framework.getService(StreamService.class).getStreamManager().append(INDEXING_RETRY_STREAM, record);
+        }
+
+        protected void appendToDeadLetterQueue(Work work, Record record, Throwable failure) {
+            log.error("Indexing work: {} with category: {} still fails after retries, moving it to: {}",
+                    work.getId(), work.getCategory(), DEAD_LETTER_QUEUE, failure);
+            String key = work.getCategory() + ":" + work.getId();
+            Framework.getService(StreamService.class)
+                     .getLogManager()
+                     .getAppender(DEAD_LETTER_QUEUE)
+                     .append(key, Record.of(key, record.getData()));
+            registry.counter(GLOBAL_DLQ_COUNT_REGISTRY_NAME).inc();
+            registry.counter(getMetricName(work, "retry.failure")).inc();
+        }
+
+        protected MetricName getMetricName(Work work, String name) {
+            return MetricName.build("nuxeo.elasticsearch.indexing." + name).tagged("queue", work.getCategory());
+        }
+
+        protected void cleanup(Work work, Exception exception) {
+            try {
+                work.cleanUp(true, exception);
+            } catch (RuntimeException e) {
+                log.error("{}: Failure on cleanup", work.getId(), e);
+            }
+        }
+    }
+
+}
@@ -20,6 +20,7 @@
 
 package org.nuxeo.elasticsearch.work;
 
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_INDEXING_QUEUE_ID;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.RECURSIVE_INDEXING_USING_BULK_SERVICE_PROPERTY;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_USING_CHILDREN_TRAVERSAL_PROPERTY;
 import static org.nuxeo.elasticsearch.bulk.IndexAction.ACTION_NAME;
@@ -92,11 +93,16 @@ public class IndexingWorker extends AbstractIndexingWorker implements Work {
     }
 
     protected Work getWorker(IndexingCommand cmd) {
+        BaseIndexingWorker worker;
         if (cmd.getType() != Type.UPDATE_DIRECT_CHILDREN && Boolean.parseBoolean(
                 Framework.getProperty(REINDEX_USING_CHILDREN_TRAVERSAL_PROPERTY, "false"))) {
-            return new ChildrenIndexingWorker(cmd);
+            worker = new ChildrenIndexingWorker(cmd);
+        } else {
+            worker = new ScrollingIndexingWorker(cmd.getRepositoryName(), getNxqlQuery(cmd));
         }
-        return new ScrollingIndexingWorker(cmd.getRepositoryName(), getNxqlQuery(cmd));
+        // the recursive indexing must not delay the interactive one
+        worker.setCategory(BULK_INDEXING_QUEUE_ID);
+        return worker;
     }
 
     protected String getNxqlQuery(IndexingCommand cmd) {
@@ -113,6 +113,7 @@ public class ScrollingIndexingWorker extends BaseIndexingWorker implements Work
             return;
         }
         BucketIndexingWorker subWorker = new BucketIndexingWorker(repositoryName, bucket, syncAlias);
+        subWorker.setCategory(getCategory());
         getWorkManager().schedule(subWorker);
     }
 
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.work.AbstractWork.GLOBAL_DLQ_COUNT_REGISTRY_NAME;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_INDEXING_QUEUE_ID;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_INDEXING_THRESHOLD_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.listener.ElasticSearchInlineListener;
+import org.nuxeo.elasticsearch.work.BaseIndexingWorker;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Tests the routing of the indexing works to their queue and the retry of the works in failure.
+ *
+ * @since 2023.19
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RepositoryElasticSearchFeature.class)
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-indexing-retry-contrib.xml")
+public class TestIndexingQueues {
+
+    protected static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected WorkManager workManager;
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    @Before
+    public void setupIndex() {
+        esa.initIndexes(true);
+        ElasticSearchInlineListener.useSyncIndexing.set(Boolean.FALSE);
+    }
+
+    @After
+    public void resetSyncIndexing() {
+        ElasticSearchInlineListener.useSyncIndexing.remove();
+    }
+
+    protected void waitForCompletion() throws Exception {
+        workManager.awaitCompletion(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        esa.prepareWaitForIndexing().get(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        esa.refresh();
+    }
+
+    protected long getCompleted(String queueId) {
+        return workManager.getMetrics(queueId).getCompleted().longValue();
+    }
+
+    protected void createDocuments(int count) {
+        for (int i = 0; i < count; i++) {
+            session.createDocument(session.createDocumentModel("/", "doc" + i, "File"));
+        }
+    }
+
+    @Test
+    @WithFrameworkProperty(name = BULK_INDEXING_THRESHOLD_PROPERTY, value = "5")
+    public void testBulkThresholdRouting() throws Exception {
+        // a small transaction is indexed by the interactive queue
+        long completed = getCompleted(INDEXING_QUEUE_ID);
+        long bulkCompleted = getCompleted(BULK_INDEXING_QUEUE_ID);
+        createDocuments(1);
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        assertEquals(completed + 1, getCompleted(INDEXING_QUEUE_ID));
+        assertEquals(bulkCompleted, getCompleted(BULK_INDEXING_QUEUE_ID));
+
+        // a transaction above the threshold is indexed by the bulk queue
+        TransactionHelper.startTransaction();
+        completed = getCompleted(INDEXING_QUEUE_ID);
+        createDocuments(10);
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        assertEquals(completed, getCompleted(INDEXING_QUEUE_ID));
+        assertEquals(bulkCompleted + 1, getCompleted(BULK_INDEXING_QUEUE_ID));
+        TransactionHelper.startTransaction();
+    }
+
+    @Test
+    public void testRetryThenDeadLetterQueue() throws Exception {
+        Counter retries = registry.counter(getMetricName("retry"));
+        Counter failures = registry.counter(getMetricName("retry.failure"));
+        Counter dlq = registry.counter(GLOBAL_DLQ_COUNT_REGISTRY_NAME);
+        long retryCount = retries.getCount();
+        long failureCount = failures.getCount();
+        long dlqCount = dlq.getCount();
+        FailingIndexingWorker.ATTEMPTS.set(0);
+
+        workManager.schedule(new FailingIndexingWorker());
+        workManager.awaitCompletion(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        // the work is sent to the retry stream once its own retries are exhausted
+        assertEquals(retryCount + 1, retries.getCount());
+
+        // then retried by the processor, before landing in the dead letter queue
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        while (failures.getCount() == failureCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(failureCount + 1, failures.getCount());
+        assertEquals(dlqCount + 1, dlq.getCount());
+        // run by the work manager with its own retry, then by the 3 retries of the processor
+        assertTrue(String.valueOf(FailingIndexingWorker.ATTEMPTS.get()), FailingIndexingWorker.ATTEMPTS.get() >= 4);
+    }
+
+    protected MetricName getMetricName(String name) {
+        return MetricName.build("nuxeo.elasticsearch.indexing." + name).tagged("queue", INDEXING_QUEUE_ID);
+    }
+
+    /**
+     * An indexing worker that always fails.
+     */
+    public static class FailingIndexingWorker extends BaseIndexingWorker {
+
+        private static final long serialVersionUID = 1L;
+
+        protected static final AtomicInteger ATTEMPTS = new AtomicInteger();
+
+        @Override
+        protected void doWork() {
+            ATTEMPTS.incrementAndGet();
+            throw new NuxeoException("Failing indexing");
+        }
+
+        @Override
+        public String getTitle() {
+            return "Failing indexing";
+        }
+    }
+
+}
@@ -22,7 +22,9 @@ package org.nuxeo.elasticsearch.test;
 import static java.lang.Boolean.TRUE;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEX_BULK_MAX_SIZE_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEXING_QUEUE_ID;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -147,6 +149,8 @@ public class TestReindex {
         esi.runReindexingWorker(session.getRepositoryName(), "SELECT * FROM Document");
         esi.runReindexingWorker(session.getRepositoryName(), "SELECT * FROM Relation");
         waitForCompletion();
+        // reindexing has its own queue
+        assertTrue(workManager.getMetrics(REINDEXING_QUEUE_ID).getCompleted().longValue() > 0);
         docs2 = ess.query(new NxQueryBuilder(session).nxql(nxql).limit(100));
 
         assertEquals(getDigest(coreDocs), getDigest(docs2));
@@ -34,6 +34,8 @@ import org.nuxeo.runtime.api.Framework;
  */
 public class AuditRequestFilter extends AbstractSearchRequestFilterImpl {
 
+    protected static final String IGNORE_UNAVAILABLE = "ignore_unavailable=true";
+
     @Override
     public void init(CoreSession session, String indices, String rawQuery, String payload) {
         RequestValidator validator = new RequestValidator();
@@ -42,7 +44,14 @@ public class AuditRequestFilter extends AbstractSearchRequestFilterImpl {
             throw new IllegalArgumentException("Invalid index submitted: " + indices);
         }
         ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
-        this.indices = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+        // the audit entries may be written to monthly indexes
+        boolean partitioned = Framework.isBooleanPropertyTrue(ElasticSearchConstants.AUDIT_PARTITION_ENABLED_PROPERTY);
+        this.indices = ElasticSearchConstants.getAuditSearchIndices(
+                esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE), partitioned);
+        if (partitioned) {
+            // the audit index doesn't exist when partitioning is enabled from the start
+            rawQuery = rawQuery == null ? IGNORE_UNAVAILABLE : rawQuery + "&" + IGNORE_UNAVAILABLE;
+        }
         this.rawQuery = rawQuery;
         this.payload = validator.getPayload(payload);
         if (payload == null && !principal.isAdministrator()) {
@@ -0,0 +1,202 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.audit.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.lib.stream.codec.Codec;
+
+/**
+ * Local append-only file where the audit writer puts the log entries it cannot write to the audit backend, to replay
+ * them later.
+ * <p>
+ * Each log entry is stored as its encoded length followed by its encoding. Entries are read back in order, the file is
+ * truncated once all of them are read and acknowledged. The read position is not persisted: after a restart the
+ * entries read since the last truncation are read again.
+ * <p>
+ * This class is not thread safe, each writer computation uses its own file.
+ *
+ * @since 2023.19
+ */
+public class AuditSpillFile {
+
+    protected final Path path;
+
+    protected final Codec<LogEntryImpl> codec;
+
+    protected final long maxSize;
+
+    // position of the next entry to read
+    protected long readPosition;
+
+    // number of entries not yet acknowledged
+    protected long pending;
+
+    // position and number of the entries returned by the last read
+    protected long readEndPosition;
+
+    protected int readCount;
+
+    public AuditSpillFile(Path path, Codec<LogEntryImpl> codec, long maxSize) {
+        this.path = path;
+        this.codec = codec;
+        this.maxSize = maxSize;
+        try {
+            Files.createDirectories(path.getParent());
+            pending = countEntries();
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot open audit spill file: " + path, e);
+        }
+    }
+
+    protected long countEntries() throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long count = 0;
+        long end = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length = in.readInt();
+                in.skipNBytes(length);
+                end += Integer.BYTES + length;
+                count++;
+            }
+        } catch (EOFException e) {
+            // end of file
+        }
+        if (Files.size(path) > end) {
+            // drop an incomplete last entry written during a crash
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        return count;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the number of entries not yet acknowledged.
+     */
+    public long getPending() {
+        return pending;
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * Appends log entries to the file, they are written to the storage device before returning.
+     *
+     * @throws NuxeoException if the file cannot be written or would exceed its maximum size
+     */
+    public void append(List<LogEntry> entries) {
+        try {
+            List<byte[]> encoded = new ArrayList<>(entries.size());
+            long size = 0;
+            for (LogEntry entry : entries) {
+                byte[] bytes = codec.encode((LogEntryImpl) entry);
+                encoded.add(bytes);
+                size += Integer.BYTES + bytes.length;
+            }
+            long currentSize = Files.exists(path) ? Files.size(path) : 0;
+            if (currentSize + size > maxSize) {
+                throw new NuxeoException("Audit spill file is full: " + path);
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)));
+                for (byte[] bytes : encoded) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.flush();
+                // the entries are acknowledged to the stream once appended, they must survive a crash
+                channel.force(true);
+            }
+            pending += entries.size();
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot write audit spill file: " + path, e);
+        }
+    }
+
+    /**
+     * Reads the next log entries, at most {@code max}. They are read again by the next call unless {@link #ack} is
+     * called.
+     */
+    public List<LogEntry> read(int max) {
+        List<LogEntry> entries = new ArrayList<>();
+        readEndPosition = readPosition;
+        readCount = 0;
+        if (pending == 0) {
+            return entries;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(readPosition);
+            InputStream stream = Channels.newInputStream(channel);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            while (entries.size() < max && entries.size() < pending) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                entries.add(codec.decode(bytes));
+                readEndPosition += Integer.BYTES + bytes.length;
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot read audit spill file: " + path, e);
+        }
+        readCount = entries.size();
+        return entries;
+    }
+
+    /**
+     * Acknowledges the entries returned by the last {@link #read}, the file is truncated once all its entries are
+     * acknowledged.
+     */
+    public void ack() {
+        readPosition = readEndPosition;
+        pending -= readCount;
+        readCount = 0;
+        if (pending == 0) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+                readPosition = 0;
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot truncate audit spill file: " + path, e);
+            }
+        }
+    }
+
+}
@@ -22,25 +22,45 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STREAM_NAME;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.platform.audit.api.AuditLogger;
 import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.CompactCodec;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.log.LogLag;
+import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.stream.StreamService;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
 /**
  * Computation that consumes a stream of log entries and write them to the audit backend.
  *
@@ -52,6 +72,48 @@ public class StreamAuditWriter implements StreamProcessorTopology {
 
     public static final String COMPUTATION_NAME = "audit/writer";
 
+    /**
+     * Property to enable spilling to a local file the log entries that cannot be written to the audit backend, instead
+     * of retrying and blocking the stream. The spilled entries are written before the next batch.
+     *
+     * @since 2023.19
+     */
+    public static final String SPILL_ENABLED_PROP = "nuxeo.stream.audit.spill.enabled";
+
+    /** @since 2023.19 */
+    public static final String SPILL_MAX_SIZE_PROP = "nuxeo.stream.audit.spill.maxSize";
+
+    /** @since 2023.19 */
+    public static final String SPILL_MAX_SIZE_DEFAULT = "1GB";
+
+    /**
+     * Property giving the number of consecutive failures to replay the spilled entries after which the first spilled
+     * entry is replayed alone. If the backend rejects it while accepting the next log entries, it is moved to a
+     * quarantine file next to the spill file, instead of blocking the replay of the other ones.
+     *
+     * @since 2023.19
+     */
+    public static final String SPILL_MAX_ATTEMPTS_PROP = "nuxeo.stream.audit.spill.maxAttempts";
+
+    /** @since 2023.19 */
+    public static final int SPILL_MAX_ATTEMPTS_DEFAULT = 3;
+
+    /**
+     * Binary encoding of the log entries, used for the records when enabled and for the spill file.
+     *
+     * @since 2023.19
+     */
+    public static final Codec<LogEntryImpl> LOG_ENTRY_CODEC = new CompactCodec<>(LogEntryImpl.class,
+            CompactCodec.Compression.LZ4);
+
+    // spill files opened by the running writer computations, guarded by itself
+    protected static final Set<Path> SPILL_FILES = new HashSet<>();
+
+    // event date of the last log entry written, to compute the audit lag while the stream is not drained
+    protected static final AtomicLong LAST_EVENT_DATE = new AtomicLong();
+
+    protected static final AtomicLong SPILLED_ENTRIES = new AtomicLong();
+
     @Override
     public Topology getTopology(Map<String, String> options) {
         return Topology.builder()
@@ -62,8 +124,109 @@ public class StreamAuditWriter implements StreamProcessorTopology {
 
     public static class AuditLogWriterComputation extends AbstractBatchComputation {
 
+        protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+        protected final Histogram batchSizeHistogram = registry.histogram(
+                MetricRegistry.name("nuxeo", "audit", "writer", "batch-size"));
+
+        protected final Timer writeTimer = registry.timer(MetricRegistry.name("nuxeo", "audit", "writer", "write"));
+
+        protected AuditSpillFile spillFile;
+
+        protected int spillMaxAttempts;
+
+        // consecutive failures to replay the spilled entries
+        protected int spillFailures;
+
         public AuditLogWriterComputation(String name) {
             super(name, 1, 0);
+            registry.gauge(MetricRegistry.name("nuxeo", "audit", "writer", "lag"),
+                    () -> AuditLogWriterComputation::getLag);
+            registry.gauge(MetricRegistry.name("nuxeo", "audit", "writer", "spilled"), () -> SPILLED_ENTRIES::get);
+        }
+
+        /**
+         * Returns how late the audit is in milliseconds: the age of the last log entry written, or 0 when there is no
+         * log entry left to write.
+         */
+        protected static long getLag() {
+            long last = LAST_EVENT_DATE.get();
+            StreamService streamService = Framework.getService(StreamService.class);
+            if (last == 0 || streamService == null) {
+                return 0;
+            }
+            LogLag lag = streamService.getLogManager().getLag(Name.ofUrn(STREAM_NAME), Name.ofUrn(COMPUTATION_NAME));
+            return lag.lag() == 0 ? 0 : System.currentTimeMillis() - last;
+        }
+
+        @Override
+        public void init(ComputationContext context) {
+            super.init(context);
+            // init is called again on rebalance, the spill file is kept until the computation is destroyed
+            if (spillFile == null && Framework.isBooleanPropertyTrue(SPILL_ENABLED_PROP)) {
+                Path dir = Environment.getDefault().getData().toPath().resolve("audit");
+                long maxSize = SizeUtils.parseSizeInBytes(
+                        Framework.getProperty(SPILL_MAX_SIZE_PROP, SPILL_MAX_SIZE_DEFAULT));
+                spillMaxAttempts = Integer.parseInt(
+                        Framework.getProperty(SPILL_MAX_ATTEMPTS_PROP, String.valueOf(SPILL_MAX_ATTEMPTS_DEFAULT)));
+                spillFile = openSpillFile(dir, maxSize);
+                SPILLED_ENTRIES.addAndGet(spillFile.getPending());
+                log.info("Audit writer spill file: {} with {} entries", spillFile.getPath(), spillFile.getPending());
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (spillFile != null) {
+                SPILLED_ENTRIES.addAndGet(-spillFile.getPending());
+                synchronized (SPILL_FILES) {
+                    SPILL_FILES.remove(spillFile.getPath());
+                }
+                spillFile = null;
+            }
+            super.destroy();
+        }
+
+        /**
+         * Opens the first spill file not used by another computation, taking over the entries of the spill files
+         * left by a previous run or by computations not running anymore, so that they are replayed.
+         */
+        protected AuditSpillFile openSpillFile(Path dir, long maxSize) {
+            synchronized (SPILL_FILES) {
+                Path path;
+                int i = 1;
+                while (SPILL_FILES.contains(path = dir.resolve("spill-" + i + ".log"))) {
+                    i++;
+                }
+                AuditSpillFile file = new AuditSpillFile(path, LOG_ENTRY_CODEC, maxSize);
+                SPILL_FILES.add(path);
+                List<Path> orphans = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "spill-*.log")) {
+                    stream.forEach(orphans::add);
+                } catch (IOException e) {
+                    throw new NuxeoException("Cannot list audit spill files in: " + dir, e);
+                }
+                orphans.sort(null);
+                for (Path orphan : orphans) {
+                    if (!SPILL_FILES.contains(orphan)) {
+                        transferSpilledEntries(new AuditSpillFile(orphan, LOG_ENTRY_CODEC, maxSize), file);
+                    }
+                }
+                return file;
+            }
+        }
+
+        protected void transferSpilledEntries(AuditSpillFile from, AuditSpillFile to) {
+            log.info("Taking over {} entries of audit spill file: {}", from.getPending(), from.getPath());
+            while (!from.isEmpty()) {
+                to.append(from.read(1000));
+                from.ack();
+            }
+            try {
+                Files.delete(from.getPath());
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot delete audit spill file: " + from.getPath(), e);
+            }
         }
 
         @Override
@@ -71,7 +234,7 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             List<LogEntry> logEntries = new ArrayList<>(records.size());
             for (Record record : records) {
                 try {
-                    logEntries.add(getLogEntryFromJson(record.getData()));
+                    logEntries.add(getLogEntry(record.getData()));
                 } catch (NuxeoException e) {
                     log.error("Discard invalid record: {}", record, e);
                 }
@@ -88,9 +251,95 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             if (logEntries.isEmpty()) {
                 return;
             }
+            writeEntriesToAudit(Framework.getService(AuditLogger.class), logEntries);
+        }
+
+        /** @since 2023.19 */
+        protected void writeEntriesToAudit(AuditLogger logger, List<LogEntry> logEntries) {
+            if (spillFile == null) {
+                writeEntries(logger, logEntries);
+                return;
+            }
+            try {
+                // spilled entries first to preserve ordering
+                if (!writeSpilledEntries(logger, logEntries)) {
+                    writeEntries(logger, logEntries);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot write to audit backend, spilling {} log entries to: {}", logEntries.size(),
+                        spillFile.getPath(), e);
+                spillFile.append(logEntries);
+                SPILLED_ENTRIES.addAndGet(logEntries.size());
+            }
+        }
+
+        /**
+         * Writes the spilled entries before the given log entries.
+         *
+         * @return {@code true} if the given log entries were written as well, to check that the backend is available
+         *         before quarantining a spilled entry
+         */
+        protected boolean writeSpilledEntries(AuditLogger logger, List<LogEntry> logEntries) {
+            boolean written = false;
+            while (!spillFile.isEmpty()) {
+                boolean isolate = spillFailures >= spillMaxAttempts;
+                List<LogEntry> spilled = spillFile.read(isolate ? 1 : logEntries.size());
+                try {
+                    writeEntries(logger, spilled);
+                } catch (RuntimeException e) {
+                    if (written) {
+                        // the remaining spilled entries are replayed before the next batch
+                        log.debug("Cannot replay spilled log entries", e);
+                        return true;
+                    } else if (!isolate) {
+                        spillFailures++;
+                        throw e;
+                    }
+                    // fails if the backend is not available
+                    writeEntries(logger, logEntries);
+                    written = true;
+                    quarantine(spilled, e);
+                }
+                spillFailures = 0;
+                spillFile.ack();
+                SPILLED_ENTRIES.addAndGet(-spilled.size());
+                log.debug("Replayed {} spilled log entries, {} remaining", spilled::size, spillFile::getPending);
+            }
+            return written;
+        }
+
+        protected void quarantine(List<LogEntry> logEntries, RuntimeException e) {
+            Path path = spillFile.getPath().resolveSibling(spillFile.getPath().getFileName() + ".quarantine");
+            log.error("Audit backend rejects a spilled log entry, moving it to: {}", path, e);
+            new AuditSpillFile(path, LOG_ENTRY_CODEC, Long.MAX_VALUE).append(logEntries);
+        }
+
+        protected void writeEntries(AuditLogger logger, List<LogEntry> logEntries) {
             log.debug("Writing {} log entries to audit backend.", logEntries::size);
-            AuditLogger logger = Framework.getService(AuditLogger.class);
-            logger.addLogEntries(logEntries);
+            batchSizeHistogram.update(logEntries.size());
+            try (Timer.Context ignored = writeTimer.time()) {
+                logger.addLogEntries(logEntries);
+            }
+            Date eventDate = logEntries.get(logEntries.size() - 1).getEventDate();
+            if (eventDate != null) {
+                LAST_EVENT_DATE.set(eventDate.getTime());
+            }
+        }
+
+        /**
+         * Decodes a log entry record, either in JSON or in the binary format.
+         *
+         * @since 2023.19
+         */
+        protected LogEntry getLogEntry(byte[] data) {
+            if (data.length > 0 && data[0] == '{') {
+                return getLogEntryFromJson(data);
+            }
+            try {
+                return LOG_ENTRY_CODEC.decode(data);
+            } catch (RuntimeException e) {
+                throw new NuxeoException("Invalid binary logEntry", e);
+            }
         }
 
         protected LogEntry getLogEntryFromJson(byte[] data) {
@@ -40,6 +40,8 @@ import org.nuxeo.ecm.core.io.registry.MarshallerHelper;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.platform.audit.api.AuditLogger;
 import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.Watermark;
@@ -48,7 +50,7 @@ import org.nuxeo.runtime.stream.StreamService;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 /**
- * An events collector that write log entries as json record into a stream.
+ * An events collector that write log entries as json or binary records into a stream.
  *
  * @since 9.3
  */
@@ -64,6 +66,14 @@ public class StreamAuditEventListener implements EventListener, Synchronization
 
     public static final String STREAM_NAME = "audit/audit";
 
+    /**
+     * Property to write the log entry records in a compact binary format instead of JSON. The audit writer reads both
+     * formats, but all the nodes must support the binary format before enabling it.
+     *
+     * @since 2023.19
+     */
+    public static final String STREAM_AUDIT_BINARY_PROP = "nuxeo.stream.audit.binary.enabled";
+
     protected static final AtomicInteger writeCounter = new AtomicInteger(0);
 
     @Deprecated
@@ -138,12 +148,33 @@ public class StreamAuditEventListener implements EventListener, Synchronization
     }
 
     protected Record recordOf(String partitionKey, LogEntry entry) {
-        String json = asJson(entry);
-        if (json == null) {
-            return null;
+        byte[] data = null;
+        if (entry instanceof LogEntryImpl && Framework.isBooleanPropertyTrue(STREAM_AUDIT_BINARY_PROP)) {
+            data = asBinary((LogEntryImpl) entry);
+        }
+        if (data == null) {
+            String json = asJson(entry);
+            if (json == null) {
+                return null;
+            }
+            data = json.getBytes(UTF_8);
         }
         long timestamp = getTimestampForEntry(entry);
-        return new Record(partitionKey, json.getBytes(UTF_8), Watermark.ofTimestamp(timestamp).getValue());
+        return new Record(partitionKey, data, Watermark.ofTimestamp(timestamp).getValue());
+    }
+
+    /**
+     * Encodes the entry in binary format, or returns {@code null} if one of its values cannot be encoded.
+     *
+     * @since 2023.19
+     */
+    protected byte[] asBinary(LogEntryImpl entry) {
+        try {
+            return StreamAuditWriter.LOG_ENTRY_CODEC.encode(entry);
+        } catch (IllegalArgumentException e) {
+            log.debug("Unable to encode entry, eventId: {}, fallback to json", entry.getEventId(), e);
+            return null;
+        }
     }
 
     protected long getTimestampForEntry(LogEntry entry) {
@@ -0,0 +1,276 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.LOG_ENTRY_CODEC;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.AuditLogger;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.AuditSpillFile;
+import org.nuxeo.ecm.platform.audit.impl.ExtendedInfoImpl;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.AuditLogWriterComputation;
+import org.nuxeo.lib.stream.codec.CompactCodec;
+
+/**
+ * @since 2023.19
+ */
+public class TestAuditSpillFile {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected static LogEntry newEntry(String eventId) {
+        LogEntry entry = new LogEntryImpl();
+        entry.setEventId(eventId);
+        entry.setEventDate(new Date());
+        entry.setDocUUID("uuid-" + eventId);
+        entry.setPrincipalName("Administrator");
+        Map<String, ExtendedInfo> infos = new HashMap<>();
+        infos.put("title", ExtendedInfoImpl.createExtendedInfo("Title of " + eventId));
+        entry.setExtendedInfos(infos);
+        return entry;
+    }
+
+    protected static List<LogEntry> newEntries(String... eventIds) {
+        List<LogEntry> entries = new ArrayList<>();
+        for (String eventId : eventIds) {
+            entries.add(newEntry(eventId));
+        }
+        return entries;
+    }
+
+    protected static List<String> eventIds(List<LogEntry> entries) {
+        List<String> eventIds = new ArrayList<>();
+        entries.forEach(entry -> eventIds.add(entry.getEventId()));
+        return eventIds;
+    }
+
+    @Test
+    public void testCodec() {
+        LogEntry entry = newEntry("documentCreated");
+        LogEntry decoded = LOG_ENTRY_CODEC.decode(LOG_ENTRY_CODEC.encode((LogEntryImpl) entry));
+        assertEquals(entry.getEventId(), decoded.getEventId());
+        assertEquals(entry.getEventDate(), decoded.getEventDate());
+        assertEquals(entry.getDocUUID(), decoded.getDocUUID());
+        assertEquals(entry.getPrincipalName(), decoded.getPrincipalName());
+        assertEquals("Title of documentCreated", decoded.getExtendedInfos().get("title").getValue(String.class));
+    }
+
+    @Test
+    public void testCodecWithoutJavaSerialization() {
+        LogEntry entry = newEntry("documentModified");
+        // as read by JPA
+        entry.setEventDate(new Timestamp(entry.getEventDate().getTime()));
+        entry.getExtendedInfos().put("date", ExtendedInfoImpl.createExtendedInfo(new Date()));
+        entry.getExtendedInfos().put("count", ExtendedInfoImpl.createExtendedInfo(Long.valueOf(42)));
+        byte[] data = new CompactCodec<>(LogEntryImpl.class).encode((LogEntryImpl) entry);
+        // no Java serialization stream magic
+        for (int i = 0; i < data.length - 1; i++) {
+            assertFalse("Java serialization at: " + i, data[i] == (byte) 0xAC && data[i + 1] == (byte) 0xED);
+        }
+        LogEntry decoded = LOG_ENTRY_CODEC.decode(LOG_ENTRY_CODEC.encode((LogEntryImpl) entry));
+        assertEquals(entry.getEventDate().getTime(), decoded.getEventDate().getTime());
+        Map<String, ExtendedInfo> infos = decoded.getExtendedInfos();
+        Date date = entry.getExtendedInfos().get("date").getValue(Date.class);
+        assertEquals(date, infos.get("date").getValue(Date.class));
+        assertEquals(Long.valueOf(42), infos.get("count").getValue(Long.class));
+    }
+
+    @Test
+    public void testAppendReadAck() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("spill/spill-1.log");
+        AuditSpillFile spill = new AuditSpillFile(path, LOG_ENTRY_CODEC, 1 << 20);
+        assertTrue(spill.isEmpty());
+
+        spill.append(newEntries("a", "b", "c"));
+        spill.append(newEntries("d"));
+        assertEquals(4, spill.getPending());
+
+        List<LogEntry> entries = spill.read(2);
+        assertEquals(Arrays.asList("a", "b"), eventIds(entries));
+        // not acknowledged, read again
+        entries = spill.read(2);
+        assertEquals(Arrays.asList("a", "b"), eventIds(entries));
+        spill.ack();
+        assertEquals(2, spill.getPending());
+
+        // reopening reads again the entries since the last truncation
+        spill = new AuditSpillFile(path, LOG_ENTRY_CODEC, 1 << 20);
+        assertEquals(4, spill.getPending());
+        entries = spill.read(10);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), eventIds(entries));
+        spill.ack();
+        assertTrue(spill.isEmpty());
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    public void testIncompleteEntryDropped() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("spill.log");
+        AuditSpillFile spill = new AuditSpillFile(path, LOG_ENTRY_CODEC, 1 << 20);
+        spill.append(newEntries("a"));
+        long size = Files.size(path);
+        // crash while writing an entry
+        Files.write(path, new byte[] { 0, 0, 1, 0, 42 }, StandardOpenOption.APPEND);
+
+        spill = new AuditSpillFile(path, LOG_ENTRY_CODEC, 1 << 20);
+        assertEquals(1, spill.getPending());
+        assertEquals(size, Files.size(path));
+        spill.append(newEntries("b"));
+        assertEquals(Arrays.asList("a", "b"), eventIds(spill.read(10)));
+    }
+
+    @Test
+    public void testMaxSize() {
+        Path path = folder.getRoot().toPath().resolve("spill.log");
+        AuditSpillFile spill = new AuditSpillFile(path, LOG_ENTRY_CODEC, 100);
+        try {
+            spill.append(newEntries("a", "b", "c", "d"));
+            fail();
+        } catch (NuxeoException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Audit spill file is full"));
+        }
+        assertTrue(spill.isEmpty());
+    }
+
+    protected static class SpillingWriter extends AuditLogWriterComputation {
+
+        public SpillingWriter(Path dir, int maxAttempts) {
+            super("audit/writer-test");
+            spillFile = openSpillFile(dir, 1 << 20);
+            spillMaxAttempts = maxAttempts;
+        }
+
+        @Override
+        public void writeEntriesToAudit(AuditLogger logger, List<LogEntry> logEntries) {
+            super.writeEntriesToAudit(logger, logEntries);
+        }
+
+        public AuditSpillFile getSpillFile() {
+            return spillFile;
+        }
+    }
+
+    /**
+     * An audit logger keeping the event ids written, rejecting the given ones and all of them while not available.
+     */
+    protected static AuditLogger newLogger(List<String> written, boolean[] available, String... rejected) {
+        return (AuditLogger) Proxy.newProxyInstance(AuditLogger.class.getClassLoader(),
+                new Class<?>[] { AuditLogger.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("addLogEntries")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    @SuppressWarnings("unchecked")
+                    List<String> eventIds = eventIds((List<LogEntry>) args[0]);
+                    if (!available[0] || eventIds.stream().anyMatch(Arrays.asList(rejected)::contains)) {
+                        throw new NuxeoException("rejected");
+                    }
+                    written.addAll(eventIds);
+                    return null;
+                });
+    }
+
+    @Test
+    public void testSpillFilesReused() throws IOException {
+        Path dir = folder.getRoot().toPath().resolve("audit");
+        new AuditSpillFile(dir.resolve("spill-1.log"), LOG_ENTRY_CODEC, 1 << 20).append(newEntries("a", "b"));
+        new AuditSpillFile(dir.resolve("spill-3.log"), LOG_ENTRY_CODEC, 1 << 20).append(newEntries("c"));
+
+        SpillingWriter writer = new SpillingWriter(dir, 3);
+        SpillingWriter other = new SpillingWriter(dir, 3);
+        try {
+            // the first writer reuses the first spill file and takes over the other one
+            assertEquals(dir.resolve("spill-1.log"), writer.getSpillFile().getPath());
+            assertEquals(3, writer.getSpillFile().getPending());
+            assertEquals(dir.resolve("spill-2.log"), other.getSpillFile().getPath());
+            assertTrue(other.getSpillFile().isEmpty());
+            assertFalse(Files.exists(dir.resolve("spill-3.log")));
+
+            List<String> written = new ArrayList<>();
+            writer.writeEntriesToAudit(newLogger(written, new boolean[] { true }), newEntries("d"));
+            assertEquals(Arrays.asList("a", "b", "c", "d"), written);
+            assertTrue(writer.getSpillFile().isEmpty());
+        } finally {
+            writer.destroy();
+            other.destroy();
+        }
+        // released, reused again
+        writer = new SpillingWriter(dir, 3);
+        try {
+            assertEquals(dir.resolve("spill-1.log"), writer.getSpillFile().getPath());
+        } finally {
+            writer.destroy();
+        }
+    }
+
+    @Test
+    public void testPoisonEntryQuarantined() throws IOException {
+        Path dir = folder.getRoot().toPath().resolve("audit");
+        List<String> written = new ArrayList<>();
+        boolean[] available = { false };
+        AuditLogger logger = newLogger(written, available, "poison");
+        SpillingWriter writer = new SpillingWriter(dir, 2);
+        try {
+            // backend not available, entries spilled
+            writer.writeEntriesToAudit(logger, newEntries("poison", "a"));
+            writer.writeEntriesToAudit(logger, newEntries("b"));
+            writer.writeEntriesToAudit(logger, newEntries("c"));
+            // too many failures, still not available: nothing quarantined
+            writer.writeEntriesToAudit(logger, newEntries("d"));
+            assertTrue(written.isEmpty());
+            assertEquals(5, writer.getSpillFile().getPending());
+            Path quarantine = dir.resolve("spill-1.log.quarantine");
+            assertFalse(Files.exists(quarantine));
+
+            // available again, the poison entry is quarantined and the others are written
+            available[0] = true;
+            writer.writeEntriesToAudit(logger, newEntries("e"));
+            assertEquals(Arrays.asList("e", "a", "b", "c", "d"), written);
+            assertTrue(writer.getSpillFile().isEmpty());
+            AuditSpillFile quarantined = new AuditSpillFile(quarantine, LOG_ENTRY_CODEC, 1 << 20);
+            assertEquals(Arrays.asList("poison"), eventIds(quarantined.read(10)));
+
+            writer.writeEntriesToAudit(logger, newEntries("f"));
+            assertEquals(Arrays.asList("e", "a", "b", "c", "d", "f"), written);
+        } finally {
+            writer.destroy();
+        }
+    }
+
+}
@@ -199,6 +199,14 @@ public class BaseDirectoryDescriptor implements Cloneable {
     @XNode("negativeCaching")
     public Boolean negativeCaching;
 
+    /**
+     * Name of the cache holding the query results, the query results are not cached if unset.
+     *
+     * @since 2023.19
+     */
+    @XNode("cacheQueryName")
+    public String cacheQueryName;
+
     @XNode("substringMatchType")
     public String substringMatchType;
 
@@ -403,6 +411,9 @@ public class BaseDirectoryDescriptor implements Cloneable {
         if (other.negativeCaching != null) {
             negativeCaching = other.negativeCaching;
         }
+        if (other.cacheQueryName != null) {
+            cacheQueryName = other.cacheQueryName;
+        }
         if (other.substringMatchType != null) {
             substringMatchType = other.substringMatchType;
         }
@@ -581,6 +581,30 @@ public abstract class BaseSession implements Session, EntrySource {
         return query(filter, fulltext, orderBy, fetchReferences, -1, 0);
     }
 
+    @Override
+    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
+            boolean fetchReferences, int limit, int offset) {
+        if (readAllColumns || !hasPermission(SecurityConstants.READ)) {
+            // bypass cache when reading all columns
+            return queryFromSource(filter, fulltext, orderBy, fetchReferences, limit, offset);
+        }
+        String tenantId = isMultiTenant() ? getCurrentTenantId() : null;
+        return directory.getCache()
+                        .query(filter, fulltext, orderBy, fetchReferences, limit, offset, tenantId,
+                                () -> queryFromSource(filter, fulltext, orderBy, fetchReferences, limit, offset));
+    }
+
+    /**
+     * Executes a query against the directory storage, without going through the directory cache.
+     * <p>
+     * Results returned by {@link #query(Map, Set, Map, boolean, int, int)} are cached by the directory query cache when
+     * it is configured.
+     *
+     * @since 2023.19
+     */
+    protected abstract DocumentModelList queryFromSource(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, int limit, int offset);
+
     @Override
     public List<String> getProjection(Map<String, Serializable> filter, String columnName) {
         return getProjection(filter, Collections.emptySet(), columnName);
@@ -20,13 +20,23 @@
 package org.nuxeo.ecm.directory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.core.cache.Cache;
 import org.nuxeo.ecm.core.cache.CacheManagement;
 import org.nuxeo.ecm.core.cache.CacheService;
@@ -39,7 +49,13 @@ import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
- * Very simple cache system to cache directory entry lookups (not search queries) on top of nuxeo cache
+ * Very simple cache system to cache directory entry lookups on top of nuxeo cache
+ * <p>
+ * Entries are cached as compact {@link DirectoryEntrySnapshot}s, a new {@link DocumentModel} being materialized for
+ * each lookup.
+ * <p>
+ * Search queries are also cached if a query cache is configured for the directory, their results are invalidated as a
+ * whole on any change of the directory.
  * <p>
  * Beware that this cache is not transaction aware (which is not a problem for LDAP directories anyway).
  */
@@ -61,6 +77,19 @@ public class DirectoryCache {
 
     protected boolean negativeCaching;
 
+    /**
+     * Maximum number of entries of a query result to cache it.
+     *
+     * @since 2023.19
+     */
+    public static final int QUERY_CACHE_MAX_RESULTS = 1000;
+
+    /** @since 2023.19 */
+    protected Cache queryCache;
+
+    /** @since 2023.19 */
+    protected String queryCacheName = null;
+
     protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
 
     protected final Counter hitsCounter;
@@ -73,6 +102,18 @@ public class DirectoryCache {
 
     protected final Counter sizeCounter;
 
+    /** @since 2023.19 */
+    protected final Counter queryHitsCounter;
+
+    /** @since 2023.19 */
+    protected final Counter queryMissesCounter;
+
+    /** @since 2023.19 */
+    protected final Counter querySizeCounter;
+
+    /** @since 2023.19 */
+    protected final Counter queryEntriesCounter;
+
     protected DirectoryCache(String name) {
         this.name = name;
         hitsCounter = registry.counter(
@@ -87,6 +128,18 @@ public class DirectoryCache {
                           .tagged("directory", name));
         sizeCounter = registry.counter(
                 MetricName.build("nuxeo", "directories", "directory", "cache", "size").tagged("directory", name));
+        queryHitsCounter = registry.counter(
+                MetricName.build("nuxeo", "directories", "directory", "cache", "query", "hit")
+                          .tagged("directory", name));
+        queryMissesCounter = registry.counter(
+                MetricName.build("nuxeo", "directories", "directory", "cache", "query", "miss")
+                          .tagged("directory", name));
+        querySizeCounter = registry.counter(
+                MetricName.build("nuxeo", "directories", "directory", "cache", "query", "size")
+                          .tagged("directory", name));
+        queryEntriesCounter = registry.counter(
+                MetricName.build("nuxeo", "directories", "directory", "cache", "query", "entries")
+                          .tagged("directory", name));
     }
 
     protected boolean isCacheEnabled() {
@@ -121,36 +174,48 @@ public class DirectoryCache {
         if (CACHE_MISS.equals(entry)) {
             negativeHitsCounter.inc();
             return null;
+        } else if (entry instanceof DirectoryEntrySnapshot) {
+            hitsCounter.inc();
+            return ((DirectoryEntrySnapshot) entry).toDocumentModel();
+        } else if (entry instanceof DocumentModel) {
+            hitsCounter.inc();
+            return copy((DocumentModel) entry);
         }
-        DocumentModel dm = (DocumentModel) entry;
+        // fetch the entry from the backend and cache it for later reuse
+        missesCounter.inc();
+        DocumentModel dm = source.getEntryFromSource(entryId, fetchReferences);
         if (dm == null) {
-            // fetch the entry from the backend and cache it for later reuse
-            dm = source.getEntryFromSource(entryId, fetchReferences);
-            if (dm != null) {
-                // DocumentModelImpl is not thread-safe and when we fetch and clone it when returning
-                // a value from the cache there may be concurrency.
-                // So we avoid thread-safety issues by exercising once the code paths that may do
-                // concurrent accesses to ComplexProperty (NXP-23458).
-                try {
-                    dm.clone();
-                } catch (CloneNotSupportedException e) {
-                    // ignore, no concurrency issues if not a DocumentModelImpl
-                }
-                ((CacheManagement) cache).putLocal(entryId, dm);
-                if (fetchReferences) {
-                    sizeCounter.inc();
-                }
-            } else if (negativeCaching) {
+            if (negativeCaching) {
                 ((CacheManagement) cache).putLocal(entryId, CACHE_MISS);
             }
-            missesCounter.inc();
+            return null;
+        }
+        String[] schemas = dm.getSchemas();
+        if (schemas.length == 1) {
+            // the snapshot doesn't share any mutable value with the entry, which can be returned as is
+            ((CacheManagement) cache).putLocal(entryId, DirectoryEntrySnapshot.of(dm, schemas[0]));
         } else {
-            hitsCounter.inc();
+            // entries with several schemas, like the ones of core directories, are cached as is.
+            // DocumentModelImpl is not thread-safe and when we fetch and clone it when returning
+            // a value from the cache there may be concurrency.
+            // So we avoid thread-safety issues by exercising once the code paths that may do
+            // concurrent accesses to ComplexProperty (NXP-23458).
+            try {
+                dm.clone();
+            } catch (CloneNotSupportedException e) {
+                // ignore, no concurrency issues if not a DocumentModelImpl
+            }
+            ((CacheManagement) cache).putLocal(entryId, dm);
+            dm = copy(dm);
         }
+        if (fetchReferences) {
+            sizeCounter.inc();
+        }
+        return dm;
+    }
+
+    protected DocumentModel copy(DocumentModel dm) {
         try {
-            if (dm == null) {
-                return null;
-            }
             // this is the clone() that needs to be careful (see above) when there's concurrency
             DocumentModel clone = dm.clone();
             // DocumentModelImpl#clone does not copy context data, hence
@@ -165,7 +230,126 @@ public class DirectoryCache {
         }
     }
 
+    /**
+     * @since 2023.19
+     */
+    protected boolean isQueryCacheEnabled() {
+        return queryCacheName != null;
+    }
+
+    /**
+     * Queries the directory through the query cache, if enabled.
+     *
+     * @param tenantId the tenant the query is restricted to, or {@code null}
+     * @param source computes the query result from the directory
+     * @since 2023.19
+     */
+    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, int limit, int offset, String tenantId,
+            Supplier<DocumentModelList> source) {
+        if (!isQueryCacheEnabled()) {
+            return source.get();
+        }
+        Cache cache = getQueryCache();
+        if (cache == null) {
+            log.debug(
+                    "The cache: {} is undefined for directory: {}, it will be created with the default cache configuration",
+                    queryCacheName, name);
+            return source.get();
+        }
+        String key = getQueryKey(filter, fulltext, orderBy, fetchReferences, limit, offset, tenantId);
+        @SuppressWarnings("unchecked")
+        List<DirectoryEntrySnapshot> snapshots = (List<DirectoryEntrySnapshot>) cache.get(key);
+        if (snapshots != null) {
+            queryHitsCounter.inc();
+            DocumentModelList result = new DocumentModelListImpl(snapshots.size());
+            for (DirectoryEntrySnapshot snapshot : snapshots) {
+                result.add(snapshot.toDocumentModel());
+            }
+            return result;
+        }
+        queryMissesCounter.inc();
+        DocumentModelList result = source.get();
+        if (result.size() <= QUERY_CACHE_MAX_RESULTS) {
+            ArrayList<DirectoryEntrySnapshot> list = new ArrayList<>(result.size());
+            for (DocumentModel entry : result) {
+                for (String schema : entry.getSchemas()) {
+                    list.add(DirectoryEntrySnapshot.of(entry, schema));
+                }
+            }
+            if (list.size() == result.size()) { // only single schema entries can be snapshotted
+                ((CacheManagement) cache).putLocal(key, list);
+                querySizeCounter.inc();
+                queryEntriesCounter.inc(list.size());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes a cache key that doesn't depend on the iteration order of the filter and fulltext collections.
+     *
+     * @since 2023.19
+     */
+    protected String getQueryKey(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
+            boolean fetchReferences, int limit, int offset, String tenantId) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(tenantId).append('|').append(fetchReferences).append('|').append(limit).append('|').append(offset);
+        sb.append("|filter:");
+        appendKeyValue(sb, filter == null ? null : new TreeMap<>(filter));
+        sb.append("|fulltext:");
+        appendKeyValue(sb, fulltext == null ? null : new TreeSet<>(fulltext));
+        // the order of the order by clauses matters
+        sb.append("|orderBy:");
+        appendKeyValue(sb, orderBy);
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static void appendKeyValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof Map) {
+            sb.append('{');
+            for (Entry<Object, Object> es : ((Map<Object, Object>) value).entrySet()) {
+                appendKeyValue(sb, es.getKey());
+                sb.append('=');
+                appendKeyValue(sb, es.getValue());
+                sb.append(',');
+            }
+            sb.append('}');
+        } else if (value instanceof Collection || value instanceof Object[]) {
+            Collection<Object> items = value instanceof Collection ? (Collection<Object>) value
+                    : Arrays.asList((Object[]) value);
+            sb.append('[');
+            for (Object item : items) {
+                appendKeyValue(sb, item);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (value instanceof String) {
+            // quote strings so that they can't be mistaken for other values
+            String string = (String) value;
+            sb.append('\'').append(string.replace("\\", "\\\\").replace("'", "\\'")).append('\'');
+        } else {
+            sb.append(value.getClass().getSimpleName()).append(':').append(value);
+        }
+    }
+
+    protected void invalidateQueries() {
+        if (isQueryCacheEnabled()) {
+            // cache may be null if we're called for invalidation during a hot-reload
+            Cache cache = getQueryCache();
+            if (cache != null) {
+                querySizeCounter.dec(querySizeCounter.getCount());
+                queryEntriesCounter.dec(queryEntriesCounter.getCount());
+                cache.invalidateAll();
+            }
+        }
+    }
+
     public void invalidate(List<String> entryIds) {
+        invalidateQueries();
         if (isCacheEnabled()) {
             synchronized (this) {
                 for (String entryId : entryIds) {
@@ -190,6 +374,7 @@ public class DirectoryCache {
     }
 
     public void invalidateAll() {
+        invalidateQueries();
         if (isCacheEnabled()) {
             synchronized (this) {
                 long count = sizeCounter.getCount();
@@ -220,6 +405,26 @@ public class DirectoryCache {
         this.negativeCaching = Boolean.TRUE.equals(negativeCaching);
     }
 
+    /**
+     * Sets the name of the cache holding the query results, enabling it.
+     *
+     * @since 2023.19
+     */
+    public void setQueryCacheName(String queryCacheName) {
+        this.queryCacheName = queryCacheName;
+        queryCache = null;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public Cache getQueryCache() {
+        if (queryCache == null) {
+            queryCache = getCacheService().getCache(queryCacheName);
+        }
+        return queryCache;
+    }
+
     public Cache getEntryCache() {
         if (entryCache == null) {
             entryCache = getCacheService().getCache(entryCacheName);
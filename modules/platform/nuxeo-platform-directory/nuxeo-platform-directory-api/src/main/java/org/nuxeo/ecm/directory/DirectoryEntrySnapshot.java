@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.directory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+
+/**
+ * Immutable snapshot of the values of a directory entry, as held by the directory caches.
+ * <p>
+ * A snapshot only keeps the non-null values of the entry schema in flat arrays, with interned field names, which is
+ * much more compact than the {@link DocumentModel} it is taken from. A new {@link DocumentModel} is materialized from
+ * the snapshot each time it is read, the snapshot values are never shared with the caller.
+ *
+ * @since 2023.19
+ */
+public final class DirectoryEntrySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private final String id;
+
+    private final String schema;
+
+    private final boolean readOnly;
+
+    private final String[] names;
+
+    private final Object[] values;
+
+    private DirectoryEntrySnapshot(String id, String schema, boolean readOnly, String[] names, Object[] values) {
+        this.id = id;
+        this.schema = schema;
+        this.readOnly = readOnly;
+        this.names = names;
+        this.values = values;
+    }
+
+    /**
+     * Takes a snapshot of the values of the given schema of an entry.
+     */
+    public static DirectoryEntrySnapshot of(DocumentModel entry, String schema) {
+        Map<String, Object> properties = entry.getProperties(schema);
+        List<String> names = new ArrayList<>(properties.size());
+        List<Object> values = new ArrayList<>(properties.size());
+        for (Entry<String, Object> es : properties.entrySet()) {
+            if (es.getValue() != null) {
+                names.add(es.getKey().intern());
+                values.add(copy(es.getValue()));
+            }
+        }
+        return new DirectoryEntrySnapshot(entry.getId(), schema.intern(), BaseSession.isReadOnlyEntry(entry),
+                names.isEmpty() ? NO_NAMES : names.toArray(new String[0]),
+                values.isEmpty() ? NO_VALUES : values.toArray());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSchema() {
+        return schema;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Gets the value of a field, keyed as in {@link DocumentModel#getProperties}.
+     * <p>
+     * The returned value must not be modified.
+     */
+    public Object getValue(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Materializes a new entry from this snapshot, owned by the caller.
+     */
+    public DocumentModel toDocumentModel() {
+        Map<String, Object> map = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], copy(values[i]));
+        }
+        return BaseSession.createEntryModel(schema, id, map, readOnly);
+    }
+
+    /**
+     * Copies the mutable parts of a property value.
+     */
+    @SuppressWarnings("unchecked")
+    protected static Object copy(Object value) {
+        if (value instanceof Calendar) {
+            return ((Calendar) value).clone();
+        } else if (value instanceof Object[]) {
+            Object[] array = ((Object[]) value).clone();
+            for (int i = 0; i < array.length; i++) {
+                array[i] = copy(array[i]);
+            }
+            return array;
+        } else if (value instanceof Collection) {
+            List<Object> list = new ArrayList<>(((Collection<Object>) value).size());
+            for (Object item : (Collection<Object>) value) {
+                list.add(copy(item));
+            }
+            return list;
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new HashMap<>();
+            for (Entry<Object, Object> es : ((Map<Object, Object>) value).entrySet()) {
+                map.put(es.getKey(), copy(es.getValue()));
+            }
+            return map;
+        }
+        // strings, numbers, booleans, blobs are shared
+        return value;
+    }
+
+    // field names are not interned anymore when read from a distributed cache
+    private Object readResolve() {
+        String[] interned = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            interned[i] = names[i].intern();
+        }
+        return new DirectoryEntrySnapshot(id, schema == null ? null : schema.intern(), readOnly, interned, values);
+    }
+
+}
@@ -116,6 +116,7 @@ public abstract class AbstractDirectory implements Directory {
         cache.setEntryCacheName(descriptor.cacheEntryName);
         cache.setEntryCacheWithoutReferencesName(descriptor.cacheEntryWithoutReferencesName);
         cache.setNegativeCaching(descriptor.negativeCaching);
+        cache.setQueryCacheName(descriptor.cacheQueryName);
 
     }
 
@@ -220,8 +220,8 @@ public class MemoryDirectorySession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
-            boolean fetchReferences, int limit, int offset) {
+    protected DocumentModelList queryFromSource(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, int limit, int offset) {
         checkClose();
         DocumentModelList results = new DocumentModelListImpl();
         // canonicalize filter
@@ -307,8 +307,8 @@ public class MongoDBSession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
-            boolean fetchReferences, int limit, int offset) {
+    protected DocumentModelList queryFromSource(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, int limit, int offset) {
         return doQuery(filter, fulltext, orderBy, fetchReferences, limit, offset, true);
     }
 
@@ -553,8 +553,8 @@ public class MultiDirectorySession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
-            boolean fetchReferences, int limit, int offset) {
+    protected DocumentModelList queryFromSource(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, int limit, int offset) {
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
         }
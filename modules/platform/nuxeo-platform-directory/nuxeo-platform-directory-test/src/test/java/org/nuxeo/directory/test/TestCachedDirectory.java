@@ -22,13 +22,22 @@ package org.nuxeo.directory.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.SerializationUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.directory.Directory;
 import org.nuxeo.ecm.directory.DirectoryCache;
+import org.nuxeo.ecm.directory.DirectoryEntrySnapshot;
 import org.nuxeo.ecm.directory.Session;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -52,6 +61,8 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
 
     protected final static String ENTRY_CACHE_WITHOUT_REFERENCES_NAME = "entry-cache-without-references";
 
+    protected final static String QUERY_CACHE_NAME = "query-cache";
+
     @Before
     public void setUp() throws Exception {
 
@@ -102,6 +113,27 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
         }
     }
 
+    @Test
+    public void testCachedEntryIsSnapshot() throws Exception {
+        try (Session session = getDirectory().getSession()) {
+            DocumentModel entry = session.getEntry("user_1");
+            Serializable cached = getDirectory().getCache().getEntryCache().get("user_1");
+            assertTrue(cached instanceof DirectoryEntrySnapshot);
+            // more compact than the entry
+            int snapshotSize = SerializationUtils.serialize(cached).length;
+            int entrySize = SerializationUtils.serialize(entry).length;
+            assertTrue(snapshotSize + " vs " + entrySize, snapshotSize < entrySize);
+
+            // the returned entries are not shared with the cache
+            entry.setProperty(SCHEMA, "email", "changed@m");
+            DocumentModel other = session.getEntry("user_1");
+            assertEquals("e@m", other.getProperty(SCHEMA, "email"));
+            other.setProperty(SCHEMA, "email", "changed@m");
+            assertEquals("e@m", session.getEntry("user_1").getProperty(SCHEMA, "email"));
+            assertEquals(entry.getProperty(SCHEMA, "dateField"), other.getProperty(SCHEMA, "dateField"));
+        }
+    }
+
     @Test
     public void testNegativeCaching() throws Exception {
         DirectoryCache cache = getDirectory().getCache();
@@ -151,4 +183,72 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
             assertEquals(baseMissesCount + 1, missesCounter.getCount());
         }
     }
+
+    @Test
+    public void testQueryCache() throws Exception {
+        DirectoryCache cache = getDirectory().getCache();
+        cache.setQueryCacheName(QUERY_CACHE_NAME);
+        try {
+            doTestQueryCache();
+        } finally {
+            cache.setQueryCacheName(null);
+        }
+    }
+
+    protected void doTestQueryCache() throws Exception {
+        try (Session session = getDirectory().getSession()) {
+            MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            Counter hitsCounter = registry.counter(
+                    MetricRegistry.name("nuxeo", "directories", "directory", "cache", "query", "hit")
+                                  .tagged("directory", "userDirectory"));
+            Counter missesCounter = registry.counter(
+                    MetricRegistry.name("nuxeo", "directories", "directory", "cache", "query", "miss")
+                                  .tagged("directory", "userDirectory"));
+            long baseHitsCount = hitsCounter.getCount();
+            long baseMissesCount = missesCounter.getCount();
+
+            Map<String, Serializable> filter = new LinkedHashMap<>();
+            filter.put("firstName", "f");
+            filter.put("lastName", "l");
+
+            // First call will update cache
+            DocumentModelList entries = session.query(filter);
+            assertEquals(1, entries.size());
+            assertEquals(baseHitsCount, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // Second call, with another filter order, will use the cache
+            Map<String, Serializable> reversed = new LinkedHashMap<>();
+            reversed.put("lastName", "l");
+            reversed.put("firstName", "f");
+            entries = session.query(reversed);
+            assertEquals(1, entries.size());
+            assertEquals(baseHitsCount + 1, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+            DocumentModel entry = entries.get(0);
+            assertEquals("user_1", entry.getId());
+            assertEquals("e@m", entry.getProperty(SCHEMA, "email"));
+            assertEquals(Long.valueOf(3), entry.getProperty(SCHEMA, "intField"));
+
+            // the returned entries are not shared with the cache
+            entry.setProperty(SCHEMA, "email", "changed@m");
+            entry = session.query(filter).get(0);
+            assertEquals("e@m", entry.getProperty(SCHEMA, "email"));
+            assertEquals(baseHitsCount + 2, hitsCounter.getCount());
+
+            // a different query is not served by the cache
+            entries = session.query(Collections.singletonMap("firstName", "f"));
+            assertEquals(1, entries.size());
+            assertEquals(baseMissesCount + 2, missesCounter.getCount());
+
+            // any write invalidates the queries
+            entry.setProperty(SCHEMA, "email", "changed@m");
+            session.updateEntry(entry);
+            entries = session.query(filter);
+            assertEquals(1, entries.size());
+            assertEquals("changed@m", entries.get(0).getProperty(SCHEMA, "email"));
+            assertEquals(baseHitsCount + 2, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 3, missesCounter.getCount());
+        }
+    }
 }
@@ -34,10 +34,13 @@ import org.nuxeo.ecm.automation.core.annotations.Param;
 import org.nuxeo.importer.stream.StreamImporters;
 import org.nuxeo.importer.stream.consumer.DocumentConsumerPolicy;
 import org.nuxeo.importer.stream.consumer.DocumentConsumerPool;
+import org.nuxeo.importer.stream.consumer.DocumentMessageConsumer.ImportPass;
 import org.nuxeo.importer.stream.consumer.DocumentMessageConsumerFactory;
 import org.nuxeo.importer.stream.message.DocumentMessage;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.lib.stream.pattern.consumer.BatchPolicy;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerPolicy;
 import org.nuxeo.runtime.api.Framework;
@@ -100,17 +103,50 @@ public class DocumentConsumers {
     @Param(name = "waitMessageTimeoutSeconds", required = false)
     protected Integer waitMessageTimeoutSeconds = 20;
 
+    /**
+     * When positive, the batch size and the number of active threads adapt to keep the batch latency around this
+     * target.
+     *
+     * @since 2023.19
+     */
+    @Param(name = "batchLatencyTargetMs", required = false)
+    protected Integer batchLatencyTargetMs = 0;
+
+    /**
+     * @since 2023.19
+     */
+    @Param(name = "maxBatchSize", required = false)
+    protected Integer maxBatchSize = 1000;
+
+    /**
+     * Imports the folderish documents in a first pass, so the other documents are imported without waiting for their
+     * parent.
+     *
+     * @since 2023.19
+     */
+    @Param(name = "folderishFirst", required = false)
+    protected Boolean folderishFirst = false;
+
     @OperationMethod
     public void run() throws OperationException {
         RandomBlobProducers.checkAccess(ctx);
         repositoryName = getRepositoryName();
+        if (Boolean.TRUE.equals(folderishFirst)) {
+            runConsumers(ID + "Folderish", ImportPass.FOLDERISH);
+            runConsumers(ID, ImportPass.LEAVES);
+        } else {
+            runConsumers(ID, ImportPass.ALL);
+        }
+    }
+
+    protected void runConsumers(String name, ImportPass pass) throws OperationException {
         ConsumerPolicy consumerPolicy = DocumentConsumerPolicy.builder()
                                                               .blockIndexing(blockIndexing)
                                                               .blockAsyncListeners(blockAsyncListeners)
                                                               .blockPostCommitListeners(blockPostCommitListeners)
                                                               .blockDefaultSyncListener(blockSyncListeners)
                                                               .useBulkMode(useBulkMode)
-                                                              .name(ID)
+                                                              .name(name)
                                                               .batchPolicy(BatchPolicy.builder()
                                                                                       .capacity(batchSize)
                                                                                       .timeThreshold(Duration.ofSeconds(
@@ -121,16 +157,19 @@ public class DocumentConsumers {
                                                                                          .withDelay(Duration.ofSeconds(
                                                                                                  retryDelayS)))
                                                               .maxThreads(getNbThreads())
+                                                              .adaptiveBatch(getBatchLatencyTarget(), maxBatchSize)
                                                               .waitMessageTimeout(
                                                                       Duration.ofSeconds(waitMessageTimeoutSeconds))
                                                               .salted()
                                                               .build();
-        log.warn("Import documents from log: {} into: {}/{}, with policy: {}", logName, repositoryName, rootFolder,
-                consumerPolicy);
+        log.warn("Import {} documents from log: {} into: {}/{}, with policy: {}", pass, logName, repositoryName,
+                rootFolder, consumerPolicy);
         LogManager manager = Framework.getService(StreamService.class).getLogManager();
         Codec<DocumentMessage> codec = StreamImporters.getDocCodec();
+        // documents whose parent is imported by another consumer are appended again to the log
+        LogAppender<DocumentMessage> appender = manager.getAppender(Name.ofUrn(logName), codec);
         try (DocumentConsumerPool<DocumentMessage> consumers = new DocumentConsumerPool<>(logName, manager, codec,
-                new DocumentMessageConsumerFactory(repositoryName, rootFolder), consumerPolicy)) {
+                new DocumentMessageConsumerFactory(repositoryName, rootFolder, pass, appender), consumerPolicy)) {
             consumers.start().get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -149,6 +188,13 @@ public class DocumentConsumers {
         return 0;
     }
 
+    protected Duration getBatchLatencyTarget() {
+        if (batchLatencyTargetMs != null && batchLatencyTargetMs > 0) {
+            return Duration.ofMillis(batchLatencyTargetMs);
+        }
+        return null;
+    }
+
     protected String getRepositoryName() {
         if (repositoryName != null && !repositoryName.isEmpty()) {
             return repositoryName;
@@ -21,23 +21,41 @@ package org.nuxeo.importer.stream.consumer;
 import static org.nuxeo.runtime.transaction.TransactionHelper.commitOrRollbackTransaction;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.Path;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentNotFoundException;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.api.model.PropertyNotFoundException;
 import org.nuxeo.ecm.core.blob.BlobInfo;
 import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.schema.DocumentType;
+import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.importer.stream.message.DocumentMessage;
+import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.pattern.consumer.AbstractConsumer;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 /**
  * Consumes DocumentMessage and produce Nuxeo document.
+ * <p>
+ * The paths of the known folders are kept in a bounded LRU cache to avoid looking them up for each child. A document
+ * whose parent does not exist yet is deferred until its parent is created by the same batch. When a deferred appender
+ * is given, the documents still waiting for their parent at the end of the batch are appended again to the stream
+ * before the batch is committed, to be retried once the parent has been imported by another consumer. Otherwise the
+ * batch fails as when the parent is missing.
  *
  * @since 9.1
  */
@@ -45,16 +63,105 @@ public class DocumentMessageConsumer extends AbstractConsumer<DocumentMessage> {
 
     private static final Logger log = LogManager.getLogger(DocumentMessageConsumer.class);
 
+    /**
+     * Documents imported by a consumer.
+     *
+     * @since 2023.19
+     */
+    public enum ImportPass {
+        /** Imports all the documents. */
+        ALL,
+        /** Imports only the folderish documents. */
+        FOLDERISH,
+        /** Imports only the non folderish documents. */
+        LEAVES
+    }
+
+    /** @since 2023.19 */
+    public static final int DEFAULT_PARENT_CACHE_SIZE = 10_000;
+
+    /** @since 2023.19 */
+    public static final int DEFAULT_MAX_DEFERRED = 10_000;
+
+    /** @since 2023.19 */
+    public static final int DEFAULT_MAX_DEFERRED_ATTEMPTS = 50;
+
+    /** @since 2023.19 */
+    public static final long DEFERRED_DELAY_MS = 200;
+
     protected final String rootPath;
 
     protected final String repositoryName;
 
     protected CoreSession session;
 
+    /** @since 2023.19 */
+    protected final ImportPass pass;
+
+    /** @since 2023.19 */
+    protected int maxDeferred = DEFAULT_MAX_DEFERRED;
+
+    // committed folders: path -> id
+    protected final Map<String, String> parentIds;
+
+    // folders created by the current batch: path -> id
+    protected final Map<String, String> batchParentIds = new HashMap<>();
+
+    // documents waiting for their parent, deferred by the current batch: parent path -> messages
+    protected final Map<String, List<DocumentMessage>> batchDeferred = new LinkedHashMap<>();
+
+    protected int deferredCount;
+
+    /** @since 2023.19 */
+    protected int maxDeferredAttempts = DEFAULT_MAX_DEFERRED_ATTEMPTS;
+
+    // number of times a document has been appended again to the stream: id -> attempts
+    protected final Map<String, Integer> deferredAttempts;
+
+    /** @since 2023.19 */
+    protected final LogAppender<DocumentMessage> deferredAppender;
+
+    protected int batchCreated;
+
     public DocumentMessageConsumer(String consumerId, String repositoryName, String rootPath) {
+        this(consumerId, repositoryName, rootPath, ImportPass.ALL);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public DocumentMessageConsumer(String consumerId, String repositoryName, String rootPath, ImportPass pass) {
+        this(consumerId, repositoryName, rootPath, pass, null);
+    }
+
+    /**
+     * @param deferredAppender the appender of the stream where to append the documents whose parent does not exist at
+     *            the end of a batch, or {@code null} to fail the batch
+     * @since 2023.19
+     */
+    public DocumentMessageConsumer(String consumerId, String repositoryName, String rootPath, ImportPass pass,
+            LogAppender<DocumentMessage> deferredAppender) {
         super(consumerId);
         this.rootPath = rootPath;
         this.repositoryName = repositoryName;
+        this.pass = pass;
+        this.deferredAppender = deferredAppender;
+        this.deferredAttempts = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > DEFAULT_MAX_DEFERRED;
+            }
+        };
+        this.parentIds = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > DEFAULT_PARENT_CACHE_SIZE;
+            }
+        };
     }
 
     @Override
@@ -73,6 +180,94 @@ public class DocumentMessageConsumer extends AbstractConsumer<DocumentMessage> {
 
     @Override
     public void accept(DocumentMessage message) {
+        if (!isPartOfPass(message)) {
+            return;
+        }
+        String parentPath = getParentPath(message);
+        if (getParentId(parentPath) == null) {
+            defer(parentPath, message);
+            return;
+        }
+        createDocument(message);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected boolean isPartOfPass(DocumentMessage message) {
+        if (pass == ImportPass.ALL) {
+            return true;
+        }
+        DocumentType type = Framework.getService(SchemaManager.class).getDocumentType(message.getType());
+        boolean folderish = type != null && type.isFolder();
+        return folderish == (pass == ImportPass.FOLDERISH);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected String getParentPath(DocumentMessage message) {
+        return new Path(rootPath + message.getParentPath()).removeTrailingSeparator().toString();
+    }
+
+    /**
+     * Returns the id of a parent, or {@code null} if it does not exist or is already known to be missing.
+     *
+     * @since 2023.19
+     */
+    protected String getParentId(String parentPath) {
+        String id = batchParentIds.get(parentPath);
+        if (id == null) {
+            id = parentIds.get(parentPath);
+        }
+        if (id == null && !batchDeferred.containsKey(parentPath)) {
+            id = lookupParentId(parentPath);
+        }
+        return id;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected String lookupParentId(String parentPath) {
+        String id;
+        try {
+            id = session.getDocument(new PathRef(parentPath)).getId();
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
+        parentIds.put(parentPath, id);
+        return id;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected void defer(String parentPath, DocumentMessage message) {
+        if (deferredCount >= maxDeferred) {
+            // too many pending documents, fail and retry the batch
+            throw new DocumentNotFoundException(parentPath);
+        }
+        log.debug("Defer: {} until its parent exists", message::getId);
+        batchDeferred.computeIfAbsent(parentPath, k -> new ArrayList<>()).add(message);
+        deferredCount++;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected void replayChildren(String parentPath) {
+        List<DocumentMessage> children = batchDeferred.remove(parentPath);
+        if (children != null) {
+            deferredCount -= children.size();
+            children.forEach(this::createDocument);
+        }
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected void createDocument(DocumentMessage message) {
         DocumentModel doc = session.createDocumentModel(rootPath + message.getParentPath(), message.getName(),
                 message.getType());
         doc.putContextData(CoreSession.SKIP_DESTINATION_CHECK_ON_CREATE, true);
@@ -85,6 +280,13 @@ public class DocumentMessageConsumer extends AbstractConsumer<DocumentMessage> {
             setDocumentProperties(doc, props);
         }
         doc = session.createDocument(doc);
+        deferredAttempts.remove(message.getId());
+        batchCreated++;
+        if (doc.isFolder()) {
+            String path = doc.getPathAsString();
+            batchParentIds.put(path, doc.getId());
+            replayChildren(path);
+        }
     }
 
     protected Blob getBlob(DocumentMessage message) {
@@ -101,9 +303,59 @@ public class DocumentMessageConsumer extends AbstractConsumer<DocumentMessage> {
     @Override
     public void commit() {
         log.debug("commit");
+        checkDeferred();
         session.save();
         // TODO: here if tx is in rollback we must throw something
         commitOrRollbackTransaction();
+        parentIds.putAll(batchParentIds);
+        appendDeferred();
+        clearBatch();
+    }
+
+    /**
+     * Fails the batch if the documents still waiting for their parent cannot be appended again to the stream.
+     *
+     * @since 2023.19
+     */
+    protected void checkDeferred() {
+        for (Map.Entry<String, List<DocumentMessage>> entry : batchDeferred.entrySet()) {
+            if (deferredAppender == null) {
+                throw new DocumentNotFoundException(entry.getKey());
+            }
+            for (DocumentMessage message : entry.getValue()) {
+                if (deferredAttempts.getOrDefault(message.getId(), 0) >= maxDeferredAttempts) {
+                    log.error("Parent of: {} still does not exist after {} attempts", message.getId(),
+                            maxDeferredAttempts);
+                    throw new DocumentNotFoundException(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends again to the stream the documents still waiting for their parent, before the offsets of the batch are
+     * committed, so that they are not lost if the consumer stops.
+     *
+     * @since 2023.19
+     */
+    protected void appendDeferred() {
+        if (batchDeferred.isEmpty()) {
+            return;
+        }
+        if (batchCreated == 0) {
+            // only orphans, give some time to the other consumers to import their parent
+            try {
+                Thread.sleep(DEFERRED_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+        }
+        batchDeferred.values().forEach(children -> children.forEach(message -> {
+            log.debug("Append again: {} until its parent exists", message::getId);
+            deferredAttempts.merge(message.getId(), 1, Integer::sum);
+            deferredAppender.append(message.getId(), message);
+        }));
     }
 
     @Override
@@ -111,6 +363,15 @@ public class DocumentMessageConsumer extends AbstractConsumer<DocumentMessage> {
         log.info("rollback");
         TransactionHelper.setTransactionRollbackOnly();
         TransactionHelper.commitOrRollbackTransaction();
+        // documents deferred by the batch are delivered again
+        clearBatch();
+    }
+
+    protected void clearBatch() {
+        batchParentIds.clear();
+        batchDeferred.clear();
+        deferredCount = 0;
+        batchCreated = 0;
     }
 
     protected void setDocumentProperties(DocumentModel doc, Map<String, Serializable> properties) {
@@ -18,7 +18,9 @@
  */
 package org.nuxeo.importer.stream.consumer;
 
+import org.nuxeo.importer.stream.consumer.DocumentMessageConsumer.ImportPass;
 import org.nuxeo.importer.stream.message.DocumentMessage;
+import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.pattern.consumer.Consumer;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerFactory;
 
@@ -30,13 +32,36 @@ public class DocumentMessageConsumerFactory implements ConsumerFactory<DocumentM
 
     protected final String rootPath;
 
+    protected final ImportPass pass;
+
+    protected final LogAppender<DocumentMessage> deferredAppender;
+
     public DocumentMessageConsumerFactory(String repositoryName, String rootPath) {
+        this(repositoryName, rootPath, ImportPass.ALL);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public DocumentMessageConsumerFactory(String repositoryName, String rootPath, ImportPass pass) {
+        this(repositoryName, rootPath, pass, null);
+    }
+
+    /**
+     * @param deferredAppender the appender of the imported stream, where the documents whose parent does not exist
+     *            yet are appended again
+     * @since 2023.19
+     */
+    public DocumentMessageConsumerFactory(String repositoryName, String rootPath, ImportPass pass,
+            LogAppender<DocumentMessage> deferredAppender) {
         this.repositoryName = repositoryName;
         this.rootPath = rootPath;
+        this.pass = pass;
+        this.deferredAppender = deferredAppender;
     }
 
     @Override
     public Consumer<DocumentMessage> createConsumer(String consumerId) {
-        return new DocumentMessageConsumer(consumerId, repositoryName, rootPath);
+        return new DocumentMessageConsumer(consumerId, repositoryName, rootPath, pass, deferredAppender);
     }
 }
@@ -74,6 +74,10 @@ public class ConsumerPolicy {
 
     protected final short maxThreads;
 
+    protected final Duration batchLatencyTarget;
+
+    protected final int maxBatchCapacity;
+
     public ConsumerPolicy(ConsumerPolicyBuilder builder) {
         batchPolicy = builder.batchPolicy;
         retryPolicy = builder.retryPolicy;
@@ -82,6 +86,8 @@ public class ConsumerPolicy {
         startOffset = builder.startOffset;
         salted = builder.salted;
         maxThreads = builder.maxThreads;
+        batchLatencyTarget = builder.batchLatencyTarget;
+        maxBatchCapacity = builder.maxBatchCapacity;
         if (builder.name != null) {
             name = builder.name;
         } else {
@@ -121,6 +127,29 @@ public class ConsumerPolicy {
         return maxThreads;
     }
 
+    /**
+     * Returns the batch latency to target when the batches are adaptive, {@code null} otherwise.
+     *
+     * @since 2023.19
+     */
+    public Duration getBatchLatencyTarget() {
+        return batchLatencyTarget;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public boolean isAdaptiveBatch() {
+        return batchLatencyTarget != null;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public int getMaxBatchCapacity() {
+        return maxBatchCapacity;
+    }
+
     public static ConsumerPolicyBuilder builder() {
         return new ConsumerPolicyBuilder();
     }
@@ -129,7 +158,8 @@ public class ConsumerPolicy {
     public String toString() {
         return "ConsumerPolicy{" + "batchPolicy=" + batchPolicy + ", retryPolicy=" + retryPolicy + ", skipFailure="
                 + skipFailure + ", waitMessageTimeout=" + waitMessageTimeout + ", startOffset=" + startOffset
-                + ", salted=" + salted + ", name='" + name + '\'' + ", maxThreads=" + maxThreads + '}';
+                + ", salted=" + salted + ", name='" + name + '\'' + ", maxThreads=" + maxThreads + ", batchLatencyTarget="
+                + batchLatencyTarget + ", maxBatchCapacity=" + maxBatchCapacity + '}';
     }
 
 }
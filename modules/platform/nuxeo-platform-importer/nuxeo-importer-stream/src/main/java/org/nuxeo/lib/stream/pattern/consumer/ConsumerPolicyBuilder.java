@@ -42,6 +42,10 @@ public class ConsumerPolicyBuilder {
 
     protected short maxThreads = 0;
 
+    protected Duration batchLatencyTarget;
+
+    protected int maxBatchCapacity;
+
     protected ConsumerPolicyBuilder() {
 
     }
@@ -72,6 +76,19 @@ public class ConsumerPolicyBuilder {
         return this;
     }
 
+    /**
+     * Adapts the batch capacity and the number of active consumers to keep the latency of a batch, from its first
+     * message to its commit, around the given target. The batch capacity starts from the one of the batch policy and
+     * grows up to {@code maxCapacity}, the number of active consumers is bounded by the pool size.
+     *
+     * @since 2023.19
+     */
+    public ConsumerPolicyBuilder adaptiveBatch(Duration latencyTarget, int maxCapacity) {
+        this.batchLatencyTarget = latencyTarget;
+        this.maxBatchCapacity = maxCapacity;
+        return this;
+    }
+
     /**
      * Consumer will stop if there is no more message after this timeout.
      */
@@ -124,6 +141,7 @@ public class ConsumerPolicyBuilder {
     public String toString() {
         return "ConsumerPolicyBuilder{" + "batchPolicy=" + batchPolicy + ", retryPolicy=" + retryPolicy
                 + ", skipFailure=" + skipFailure + ", waitMessageTimeout=" + waitMessageTimeout + ", startOffset="
-                + startOffset + ", salted=" + salted + ", name='" + name + '\'' + ", maxThreads=" + maxThreads + '}';
+                + startOffset + ", salted=" + salted + ", name='" + name + '\'' + ", maxThreads=" + maxThreads
+                + ", batchLatencyTarget=" + batchLatencyTarget + ", maxBatchCapacity=" + maxBatchCapacity + '}';
     }
 }
@@ -21,6 +21,7 @@ package org.nuxeo.lib.stream.pattern.consumer;
 import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -33,8 +34,14 @@ import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.lib.stream.log.kafka.KafkaUtils;
 import org.nuxeo.lib.stream.pattern.Message;
 import org.nuxeo.lib.stream.pattern.consumer.internals.AbstractCallablePool;
+import org.nuxeo.lib.stream.pattern.consumer.internals.AdaptiveBatchController;
 import org.nuxeo.lib.stream.pattern.consumer.internals.ConsumerRunner;
 
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * Run a pool of ConsumerRunner.
  *
@@ -56,6 +63,14 @@ public class ConsumerPool<M extends Message> extends AbstractCallablePool<Consum
 
     protected final List<List<LogPartition>> defaultAssignments;
 
+    // @since 2023.19, null unless the policy has adaptive batches
+    protected final AdaptiveBatchController controller;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(
+            ConsumerRunner.NUXEO_METRICS_REGISTRY_NAME);
+
+    protected final Map<MetricName, Gauge<?>> gauges = new HashMap<>();
+
     /**
      * @deprecated since 11.1, due to serialization issue with java 11, use
      *             {@link #ConsumerPool(String, LogManager, Codec, ConsumerFactory, ConsumerPolicy)} which allows to
@@ -77,6 +92,16 @@ public class ConsumerPool<M extends Message> extends AbstractCallablePool<Consum
         this.factory = factory;
         this.policy = policy;
         this.defaultAssignments = getDefaultAssignments();
+        if (policy.isAdaptiveBatch()) {
+            controller = new AdaptiveBatchController(policy.getBatchPolicy(), policy.getBatchLatencyTarget(),
+                    policy.getMaxBatchCapacity(), getNbThreads());
+            registerGauge("batchCapacity", controller::getCapacity);
+            registerGauge("activeConsumers", controller::getConcurrency);
+            registerGauge("batchLatencyAverage", controller::getLatencyMs);
+        } else {
+            controller = null;
+        }
+        registerGauge("lag", () -> manager.getLag(Name.ofUrn(logName), getConsumerGroupName()).lag());
         if (manager.supportSubscribe(defaultAssignments.get(0).iterator().next().name())) {
             log.info("Creating consumer pool using Log subscribe on {}", logName);
         } else {
@@ -84,6 +109,17 @@ public class ConsumerPool<M extends Message> extends AbstractCallablePool<Consum
         }
     }
 
+    protected void registerGauge(String name, Gauge<?> gauge) {
+        // tagged so that pools running concurrently on other streams or groups keep their own gauges
+        MetricName metricName = MetricRegistry.name("nuxeo", "importer", "stream", "consumer", name)
+                                              .tagged("stream", Name.ofUrn(logName).getId())
+                                              .tagged("group", getConsumerGroupName().getId());
+        // replace the gauge of a previous pool on the same stream and group
+        registry.remove(metricName);
+        registry.register(metricName, gauge);
+        gauges.put(metricName, gauge);
+    }
+
     protected static short computeNbThreads(short maxConcurrency, short maxThreads) {
         if (maxThreads > 0) {
             return (short) Math.min(maxConcurrency, maxThreads);
@@ -102,7 +138,7 @@ public class ConsumerPool<M extends Message> extends AbstractCallablePool<Consum
 
     @Override
     protected Callable<ConsumerStatus> getCallable(int i) {
-        return new ConsumerRunner<>(factory, policy, manager, codec, defaultAssignments.get(i));
+        return new ConsumerRunner<>(factory, policy, manager, codec, defaultAssignments.get(i), controller);
     }
 
     @Override
@@ -116,6 +152,13 @@ public class ConsumerPool<M extends Message> extends AbstractCallablePool<Consum
         log.warn(() -> ConsumerStatus.toString(ret));
     }
 
+    @Override
+    public void close() {
+        super.close();
+        // don't remove the gauges of a newer pool on the same stream and group
+        registry.removeMatching((name, metric) -> gauges.get(name) == metric);
+    }
+
     protected List<List<LogPartition>> getDefaultAssignments() {
         Map<String, Integer> streams = Collections.singletonMap(logName,
                 manager.getAppender(Name.ofUrn(logName)).size());
@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.pattern.consumer.internals;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.pattern.consumer.BatchPolicy;
+
+/**
+ * Adapts the batch capacity and the number of active consumers of a pool to keep the batch latency around a target.
+ * <p>
+ * Once every active consumer has reported a batch, the average latency is compared to the target: the pool grows
+ * additively while batches are fast enough, one consumer then a bit of capacity at a time, and shrinks
+ * multiplicatively when they are too slow or fail.
+ *
+ * @since 2023.19
+ */
+public class AdaptiveBatchController {
+
+    private static final Logger log = LogManager.getLogger(AdaptiveBatchController.class);
+
+    // weight of the last batch in the latency moving average
+    protected static final double LATENCY_SMOOTHING = 0.3;
+
+    // the pool grows only when batches are clearly below the target
+    protected static final double LOW_LATENCY_RATIO = 0.7;
+
+    protected final Duration timeThreshold;
+
+    protected final long targetNanos;
+
+    protected final int maxCapacity;
+
+    protected final int maxConcurrency;
+
+    protected final int capacityStep;
+
+    protected final ResizableSemaphore permits;
+
+    protected int capacity;
+
+    protected int concurrency;
+
+    protected double latencyNanos = -1;
+
+    protected int batchesSinceAdjust;
+
+    public AdaptiveBatchController(BatchPolicy initialPolicy, Duration latencyTarget, int maxCapacity,
+            int maxConcurrency) {
+        this.timeThreshold = initialPolicy.getTimeThreshold();
+        this.targetNanos = latencyTarget.toNanos();
+        this.capacity = initialPolicy.getCapacity();
+        this.maxCapacity = Math.max(maxCapacity, capacity);
+        this.capacityStep = Math.max(1, capacity / 4);
+        this.maxConcurrency = maxConcurrency;
+        this.concurrency = maxConcurrency;
+        this.permits = new ResizableSemaphore(maxConcurrency);
+    }
+
+    /**
+     * Returns {@code true} if the consumer is allowed to process a batch, it must then {@link #release} it once done.
+     * The caller must not block waiting for a permit, its partitions would be reassigned if it stopped polling.
+     */
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public synchronized BatchPolicy getBatchPolicy() {
+        return BatchPolicy.builder().capacity(capacity).timeThreshold(timeThreshold).build();
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Returns the moving average of the batch latency in milliseconds.
+     */
+    public synchronized long getLatencyMs() {
+        return latencyNanos < 0 ? 0 : (long) (latencyNanos / 1_000_000);
+    }
+
+    /**
+     * Reports a committed batch of {@code size} messages that took {@code nanos} to process, from the acceptance of its
+     * first message to its commit.
+     */
+    public synchronized void onBatchCommitted(int size, long nanos) {
+        latencyNanos = latencyNanos < 0 ? nanos
+                : LATENCY_SMOOTHING * nanos + (1 - LATENCY_SMOOTHING) * latencyNanos;
+        if (++batchesSinceAdjust < concurrency) {
+            return;
+        }
+        batchesSinceAdjust = 0;
+        if (latencyNanos > targetNanos) {
+            decrease(0.75);
+        } else if (latencyNanos < LOW_LATENCY_RATIO * targetNanos && size >= capacity) {
+            // a batch smaller than the capacity was cut by the time threshold, growing would not help
+            increase();
+        }
+    }
+
+    /**
+     * Reports a batch rolled back because of a failure.
+     */
+    public synchronized void onBatchFailure() {
+        batchesSinceAdjust = 0;
+        capacity = Math.max(1, capacity / 2);
+        if (concurrency > 1) {
+            concurrency--;
+            permits.reducePermits(1);
+        }
+        log.debug("Batch failure, capacity: {}, concurrency: {}", capacity, concurrency);
+    }
+
+    protected void decrease(double factor) {
+        if (capacity > 1) {
+            capacity = Math.max(1, (int) (capacity * factor));
+        } else if (concurrency > 1) {
+            concurrency--;
+            permits.reducePermits(1);
+        }
+        log.debug("Batch latency: {}ms above target, capacity: {}, concurrency: {}", this::getLatencyMs,
+                () -> capacity, () -> concurrency);
+    }
+
+    protected void increase() {
+        if (concurrency < maxConcurrency) {
+            concurrency++;
+            permits.release();
+        } else if (capacity < maxCapacity) {
+            capacity = Math.min(maxCapacity, capacity + capacityStep);
+        }
+        log.debug("Batch latency: {}ms below target, capacity: {}, concurrency: {}", this::getLatencyMs,
+                () -> capacity, () -> concurrency);
+    }
+
+    protected static class ResizableSemaphore extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        public ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        public void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+}
@@ -21,11 +21,13 @@ package org.nuxeo.lib.stream.pattern.consumer.internals;
 import static java.lang.Thread.currentThread;
 import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
@@ -45,6 +47,7 @@ import org.nuxeo.lib.stream.pattern.consumer.ConsumerPolicy;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerStatus;
 
 import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Meter;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
 import io.dropwizard.metrics5.Timer;
@@ -62,6 +65,9 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
     // This is the registry name used by Nuxeo without adding a dependency nuxeo-runtime
     public static final String NUXEO_METRICS_REGISTRY_NAME = "org.nuxeo.runtime.metrics.MetricsService";
 
+    // @since 2023.19, how long the tailer idles between two attempts to get a permit to process a batch
+    protected static final Duration PERMIT_WAIT = Duration.ofMillis(100);
+
     protected final ConsumerFactory<M> factory;
 
     protected final ConsumerPolicy policy;
@@ -101,8 +107,26 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
 
     protected Counter globalConsumersCounter;
 
+    // @since 2023.19
+    protected Meter globalImportedMeter;
+
+    // @since 2023.19
+    protected Timer globalBatchLatencyTimer;
+
+    // @since 2023.19
+    protected Counter globalBatchRetryCounter;
+
     protected boolean usingSubscribe;
 
+    // @since 2023.19, null unless the policy has adaptive batches
+    protected final AdaptiveBatchController controller;
+
+    // @since 2023.19, true once the first message of the current batch is accepted
+    protected boolean processing;
+
+    // @since 2023.19
+    protected long processingStartNanos;
+
     /**
      * @deprecated since 11.1, due to serialization issue with java 11, use
      *             {@link #ConsumerRunner(ConsumerFactory, ConsumerPolicy, LogManager, Codec, List)} which allows to
@@ -118,8 +142,17 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
 
     public ConsumerRunner(ConsumerFactory<M> factory, ConsumerPolicy policy, LogManager manager, Codec<M> codec,
             List<LogPartition> defaultAssignments) {
+        this(factory, policy, manager, codec, defaultAssignments, null);
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public ConsumerRunner(ConsumerFactory<M> factory, ConsumerPolicy policy, LogManager manager, Codec<M> codec,
+            List<LogPartition> defaultAssignments, AdaptiveBatchController controller) {
         this.factory = factory;
-        this.currentBatchPolicy = policy.getBatchPolicy();
+        this.controller = controller;
+        this.currentBatchPolicy = controller != null ? controller.getBatchPolicy() : policy.getBatchPolicy();
         this.policy = policy;
         this.tailer = createTailer(manager, codec, defaultAssignments);
         consumerId = tailer.toString();
@@ -168,6 +201,12 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
                 MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "batchFailure"));
         globalBatchCommitTimer = registry.timer(
                 MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "batchCommit"));
+        globalImportedMeter = registry.meter(
+                MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "imported"));
+        globalBatchLatencyTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "batchLatency"));
+        globalBatchRetryCounter = registry.counter(
+                MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "batchRetry"));
     }
 
     protected void addSalt() throws InterruptedException {
@@ -232,6 +271,7 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
                     // the current batch is rollback because of this exception
                     // we continue with the new tailer assignment
                 } else if (execution.canRetryOn(t)) {
+                    globalBatchRetryCounter.inc();
                     setBatchRetryPolicy();
                     tailer.toLastCommitted();
                 } else {
@@ -248,31 +288,68 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
     }
 
     protected void restoreBatchPolicy() {
-        currentBatchPolicy = policy.getBatchPolicy();
+        currentBatchPolicy = controller != null ? controller.getBatchPolicy() : policy.getBatchPolicy();
     }
 
     protected boolean processBatch() throws InterruptedException {
         boolean end = false;
-        beginBatch();
+        processing = false;
         try {
-            BatchState state = acceptBatch();
-            commitBatch(state);
-            if (state.getState() == BatchState.State.LAST) {
-                log.info("No more message on tailer: {}", tailer);
-                end = true;
-            }
-        } catch (Exception e) {
+            beginBatch();
             try {
-                rollbackBatch(e);
-            } catch (Exception rollbackException) {
-                log.error("Exception on rollback invocation", rollbackException);
-                // we propagate the initial error.
+                BatchState state = acceptBatch();
+                commitBatch(state);
+                if (processing) {
+                    // the wait for the first message and for a permit is not part of the latency
+                    long latency = System.nanoTime() - processingStartNanos;
+                    globalBatchLatencyTimer.update(latency, TimeUnit.NANOSECONDS);
+                    if (controller != null) {
+                        controller.onBatchCommitted(state.getSize(), latency);
+                    }
+                }
+                if (state.getState() == BatchState.State.LAST) {
+                    log.info("No more message on tailer: {}", tailer);
+                    end = true;
+                }
+            } catch (Exception e) {
+                try {
+                    rollbackBatch(e);
+                } catch (Exception rollbackException) {
+                    log.error("Exception on rollback invocation", rollbackException);
+                    // we propagate the initial error.
+                }
+                if (controller != null && !(e instanceof RebalanceException)) {
+                    controller.onBatchFailure();
+                }
+                throw e;
             }
-            throw e;
+        } finally {
+            if (processing && controller != null) {
+                controller.release();
+            }
+            processing = false;
         }
         return end;
     }
 
+    /**
+     * Starts the processing of a batch on its first message. With an adaptive batch the consumer waits for a permit,
+     * the tailer keeps idling meanwhile so that its partitions are not reassigned.
+     *
+     * @since 2023.19
+     */
+    protected void startProcessing(BatchState batch) throws InterruptedException {
+        if (controller != null) {
+            while (!controller.tryAcquire()) {
+                tailer.idle(PERMIT_WAIT);
+            }
+            // the time threshold applies to the processing
+            batch.start();
+        }
+        processing = true;
+        processingStartNanos = System.nanoTime();
+    }
+
     protected void beginBatch() {
         consumer.begin();
     }
@@ -282,6 +359,7 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
             consumer.commit();
             committedCounter += state.getSize();
             globalCommittedCounter.inc(state.getSize());
+            globalImportedMeter.mark(state.getSize());
             batchCommitCounter += 1;
             log.debug("Commit batch size: {}, total committed: {}", state.getSize(), committedCounter);
         }
@@ -308,6 +386,9 @@ public class ConsumerRunner<M extends Message> implements Callable<ConsumerStatu
                 log.warn("Receive a poison pill: {}", message);
                 batch.last();
             } else {
+                if (!processing) {
+                    startProcessing(batch);
+                }
                 try (Timer.Context ignore = globalAcceptTimer.time()) {
                     setThreadName(message.getId());
                     consumer.accept(message);
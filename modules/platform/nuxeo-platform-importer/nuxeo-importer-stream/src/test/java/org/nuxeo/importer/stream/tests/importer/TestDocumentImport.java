@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -39,11 +40,13 @@ import org.nuxeo.common.test.ModuleUnderTest;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.importer.stream.StreamImporters;
 import org.nuxeo.importer.stream.consumer.BlobInfoWriter;
 import org.nuxeo.importer.stream.consumer.BlobMessageConsumerFactory;
+import org.nuxeo.importer.stream.consumer.DocumentMessageConsumer.ImportPass;
 import org.nuxeo.importer.stream.consumer.DocumentMessageConsumerFactory;
 import org.nuxeo.importer.stream.consumer.LogBlobInfoWriter;
 import org.nuxeo.importer.stream.message.BlobInfoMessage;
@@ -53,8 +56,10 @@ import org.nuxeo.importer.stream.producer.FileBlobMessageProducerFactory;
 import org.nuxeo.importer.stream.producer.RandomDocumentMessageProducerFactory;
 import org.nuxeo.importer.stream.producer.RandomStringBlobMessageProducerFactory;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.pattern.consumer.BatchPolicy;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerFactory;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerPolicy;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerPool;
@@ -128,6 +133,107 @@ public class TestDocumentImport {
         assertEquals(NB_PRODUCERS * NB_DOCUMENTS, ret2.stream().mapToLong(r -> r.committed).sum());
     }
 
+    @Test
+    public void importChildBeforeParent() throws Exception {
+        final Name LOG_DOC = Name.ofUrn("import/childBeforeParent-doc");
+        streamsToClean.add(LOG_DOC);
+
+        Codec<DocumentMessage> docCodec = StreamImporters.getDocCodec();
+        getLogManager().createIfNotExists(LOG_DOC, 1);
+        LogAppender<DocumentMessage> appender = getLogManager().getAppender(LOG_DOC, docCodec);
+        appender.append(0, DocumentMessage.builder("File", "/folder/sub", "file").build());
+        appender.append(0, DocumentMessage.builder("Folder", "/folder", "sub").build());
+        appender.append(0, DocumentMessage.builder("File", "/folder", "file").build());
+        appender.append(0, DocumentMessage.builder("Folder", "", "folder").build());
+
+        DocumentModel root = session.getRootDocument();
+        ConsumerPool<DocumentMessage> consumers = new ConsumerPool<>(LOG_DOC.getUrn(), getLogManager(), docCodec,
+                new DocumentMessageConsumerFactory(root.getRepositoryName(), root.getPathAsString()),
+                ConsumerPolicy.BOUNDED);
+        List<ConsumerStatus> ret = consumers.start().get();
+        assertEquals(4, ret.stream().mapToLong(r -> r.committed).sum());
+
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertTrue(session.exists(new PathRef("/folder/file")));
+        assertTrue(session.exists(new PathRef("/folder/sub/file")));
+    }
+
+    @Test
+    public void importChildBeforeParentInAnotherBatch() throws Exception {
+        final Name LOG_DOC = Name.ofUrn("import/childBeforeParentInAnotherBatch-doc");
+        streamsToClean.add(LOG_DOC);
+
+        Codec<DocumentMessage> docCodec = StreamImporters.getDocCodec();
+        getLogManager().createIfNotExists(LOG_DOC, 1);
+        LogAppender<DocumentMessage> appender = getLogManager().getAppender(LOG_DOC, docCodec);
+        appender.append(0, DocumentMessage.builder("File", "/folder", "file").build());
+        appender.append(0, DocumentMessage.builder("Folder", "", "folder").build());
+
+        // one document per batch, the orphan is appended again to the log before its batch is committed
+        DocumentModel root = session.getRootDocument();
+        ConsumerPolicy policy = ConsumerPolicy.builder()
+                                              .batchPolicy(BatchPolicy.builder().capacity(1).build())
+                                              .waitMessageTimeout(Duration.ofSeconds(2))
+                                              .continueOnFailure(false)
+                                              .build();
+        ConsumerPool<DocumentMessage> consumers = new ConsumerPool<>(LOG_DOC.getUrn(), getLogManager(), docCodec,
+                new DocumentMessageConsumerFactory(root.getRepositoryName(), root.getPathAsString(), ImportPass.ALL,
+                        appender),
+                policy);
+        consumers.start().get();
+
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertTrue(session.exists(new PathRef("/folder/file")));
+        assertEquals(3, getLogManager().getLag(LOG_DOC, Name.ofUrn(policy.getName())).upper());
+        assertEquals(0, getLogManager().getLag(LOG_DOC, Name.ofUrn(policy.getName())).lag());
+    }
+
+    @Test
+    public void folderishFirstImport() throws Exception {
+        final int NB_QUEUE = 3;
+        final short NB_PRODUCERS = 3;
+        final int NB_DOCUMENTS = 100;
+        final Name LOG_DOC = Name.ofUrn("import/folderishFirst-doc");
+        streamsToClean.add(LOG_DOC);
+
+        Codec<DocumentMessage> docCodec = StreamImporters.getDocCodec();
+        getLogManager().createIfNotExists(LOG_DOC, NB_QUEUE);
+        ProducerPool<DocumentMessage> producers = new ProducerPool<>(LOG_DOC.getUrn(), getLogManager(), docCodec,
+                new RandomDocumentMessageProducerFactory(NB_DOCUMENTS, "en_US", 2), NB_PRODUCERS);
+        producers.start().get();
+
+        DocumentModel root = session.getRootDocument();
+        ConsumerPolicy folderishPolicy = ConsumerPolicy.builder()
+                                                       .name("folderishPass")
+                                                       .waitMessageTimeout(Duration.ofSeconds(5))
+                                                       .continueOnFailure(false)
+                                                       .build();
+        ConsumerPool<DocumentMessage> consumers = new ConsumerPool<>(LOG_DOC.getUrn(), getLogManager(), docCodec,
+                new DocumentMessageConsumerFactory(root.getRepositoryName(), root.getPathAsString(),
+                        ImportPass.FOLDERISH, getLogManager().getAppender(LOG_DOC, docCodec)),
+                folderishPolicy);
+        consumers.start().get();
+
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        long nbFolders = session.query("SELECT * FROM Folder").totalSize();
+        assertTrue(nbFolders > 0);
+        assertEquals(0, session.query("SELECT * FROM File").totalSize());
+
+        consumers = new ConsumerPool<>(LOG_DOC.getUrn(), getLogManager(), docCodec,
+                new DocumentMessageConsumerFactory(root.getRepositoryName(), root.getPathAsString(),
+                        ImportPass.LEAVES),
+                ConsumerPolicy.BOUNDED);
+        consumers.start().get();
+
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(nbFolders, session.query("SELECT * FROM Folder").totalSize());
+        assertEquals(NB_PRODUCERS * NB_DOCUMENTS, session.query("SELECT * FROM Document").totalSize());
+    }
+
     @Test
     public void fourStepsImport() throws Exception {
         final int NB_QUEUE = 5;
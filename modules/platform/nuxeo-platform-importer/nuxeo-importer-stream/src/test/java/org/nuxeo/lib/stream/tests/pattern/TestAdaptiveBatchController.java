@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.tests.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.nuxeo.lib.stream.pattern.consumer.BatchPolicy;
+import org.nuxeo.lib.stream.pattern.consumer.internals.AdaptiveBatchController;
+
+/**
+ * @since 2023.19
+ */
+public class TestAdaptiveBatchController {
+
+    protected static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+
+    protected static final long SLOW = TimeUnit.SECONDS.toNanos(5);
+
+    protected AdaptiveBatchController newController() {
+        BatchPolicy policy = BatchPolicy.builder().capacity(20).timeThreshold(Duration.ofSeconds(2)).build();
+        return new AdaptiveBatchController(policy, Duration.ofSeconds(1), 100, 4);
+    }
+
+    protected static void commit(AdaptiveBatchController controller, int batches, long latency) {
+        for (int i = 0; i < batches; i++) {
+            controller.onBatchCommitted(controller.getCapacity(), latency);
+        }
+    }
+
+    @Test
+    public void testGrowWhenFast() {
+        AdaptiveBatchController controller = newController();
+        assertEquals(4, controller.getConcurrency());
+        commit(controller, 4, FAST);
+        assertEquals(25, controller.getCapacity());
+        commit(controller, 400, FAST);
+        assertEquals(100, controller.getCapacity());
+        assertEquals(100, controller.getBatchPolicy().getCapacity());
+        assertEquals(Duration.ofSeconds(2), controller.getBatchPolicy().getTimeThreshold());
+    }
+
+    @Test
+    public void testShrinkWhenSlow() {
+        AdaptiveBatchController controller = newController();
+        commit(controller, 4, SLOW);
+        assertEquals(15, controller.getCapacity());
+        commit(controller, 400, SLOW);
+        assertEquals(1, controller.getCapacity());
+        assertEquals(1, controller.getConcurrency());
+
+        // only one consumer at a time
+        assertTrue(controller.tryAcquire());
+        assertFalse(controller.tryAcquire());
+        controller.release();
+
+        // recover once the latency is back to normal
+        commit(controller, 20, FAST);
+        assertEquals(4, controller.getConcurrency());
+        assertTrue(controller.getCapacity() > 1);
+    }
+
+    @Test
+    public void testFailure() {
+        AdaptiveBatchController controller = newController();
+        controller.onBatchFailure();
+        assertEquals(10, controller.getCapacity());
+        assertEquals(3, controller.getConcurrency());
+    }
+
+    @Test
+    public void testPartialBatchDoesNotGrow() {
+        AdaptiveBatchController controller = newController();
+        for (int i = 0; i < 40; i++) {
+            controller.onBatchCommitted(5, FAST);
+        }
+        assertEquals(20, controller.getCapacity());
+    }
+
+}
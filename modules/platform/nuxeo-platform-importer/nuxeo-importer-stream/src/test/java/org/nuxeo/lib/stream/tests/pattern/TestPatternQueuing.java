@@ -39,8 +39,13 @@ import org.nuxeo.lib.stream.pattern.KeyValueMessage;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerPolicy;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerPool;
 import org.nuxeo.lib.stream.pattern.consumer.ConsumerStatus;
+import org.nuxeo.lib.stream.pattern.consumer.internals.ConsumerRunner;
 import org.nuxeo.lib.stream.tests.pattern.consumer.IdMessageFactory;
 
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 public abstract class TestPatternQueuing {
 
     private static final Logger log = org.apache.logging.log4j.LogManager.getLogger(TestPatternQueuing.class);
@@ -127,6 +132,34 @@ public abstract class TestPatternQueuing {
         assertEquals(1, ret.stream().mapToLong(r -> r.committed).sum());
     }
 
+    @Test
+    public void gaugesPerConsumerGroup() throws Exception {
+        manager.createIfNotExists(logName, 1);
+        ConsumerPool<KeyValueMessage> consumers1 = new ConsumerPool<>(logName.getUrn(), manager,
+                IdMessageFactory.NOOP, ConsumerPolicy.builder().name("group1").build());
+        ConsumerPool<KeyValueMessage> consumers2 = new ConsumerPool<>(logName.getUrn(), manager,
+                IdMessageFactory.NOOP, ConsumerPolicy.builder().name("group2").build());
+        CompletableFuture<List<ConsumerStatus>> future1 = consumers1.start();
+        CompletableFuture<List<ConsumerStatus>> future2 = consumers2.start();
+        manager.getAppender(logName).append(0, KeyValueMessage.POISON_PILL);
+        future1.get();
+        future2.get();
+
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(ConsumerRunner.NUXEO_METRICS_REGISTRY_NAME);
+        MetricName lag = MetricRegistry.name("nuxeo", "importer", "stream", "consumer", "lag")
+                                       .tagged("stream", logName.getId());
+        MetricName lag1 = lag.tagged("group", "group1");
+        MetricName lag2 = lag.tagged("group", "group2");
+        assertTrue(registry.getGauges().containsKey(lag1));
+        assertTrue(registry.getGauges().containsKey(lag2));
+        // closing a pool keeps the gauges of the other one
+        consumers1.close();
+        assertFalse(registry.getGauges().containsKey(lag1));
+        assertTrue(registry.getGauges().containsKey(lag2));
+        consumers2.close();
+        assertFalse(registry.getGauges().containsKey(lag2));
+    }
+
     @Test
     public void killConsumers() throws Exception {
         final int LOG_SIZE = 2;
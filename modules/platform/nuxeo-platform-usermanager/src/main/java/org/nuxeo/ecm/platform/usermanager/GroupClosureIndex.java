@@ -0,0 +1,236 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.usermanager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.transaction.Synchronization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoGroup;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * Index of the transitive closure of the group hierarchy: for each group, the group itself followed by all its
+ * ancestor groups.
+ * <p>
+ * The closures are computed on demand, reusing the closures of the ancestors already indexed, and stored in a
+ * {@link KeyValueStore} shared by the cluster. Each invalidation starts a new generation of the index, the entries of
+ * the previous generations are left to expire. The current generation is read from the store at most once per
+ * {@link #GENERATION_REFRESH_INTERVAL}, bounding how late the other nodes see an invalidation.
+ *
+ * @since 2023.19
+ */
+public class GroupClosureIndex {
+
+    private static final Logger log = LogManager.getLogger(GroupClosureIndex.class);
+
+    public static final String KV_STORE_NAME = "usermanager";
+
+    protected static final String GENERATION_KEY = "groups:closure:generation";
+
+    protected static final String KEY_PREFIX = "groups:closure:";
+
+    protected static final String SEPARATOR = "\n";
+
+    protected static final long GENERATION_REFRESH_INTERVAL = Duration.ofSeconds(1).toNanos();
+
+    // stored for a group that does not exist
+    protected static final String MISSING = "";
+
+    // whether the index is already invalidated at the completion of the current transaction
+    protected static final ThreadLocal<Boolean> INVALIDATE_AFTER_COMPLETION = ThreadLocal.withInitial(
+            () -> Boolean.FALSE);
+
+    protected final Function<String, NuxeoGroup> groupResolver;
+
+    protected final Supplier<KeyValueStore> kvStoreSupplier;
+
+    protected final long ttl;
+
+    // the last generation read or written, and the nano time when its read or write started
+    protected long generation = -1;
+
+    protected long generationTime;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final Histogram closureSize = registry.histogram(
+            MetricName.build("nuxeo", "usermanager", "groups", "closure", "size"));
+
+    protected final Timer computeTimer = registry.timer(
+            MetricName.build("nuxeo", "usermanager", "groups", "closure", "compute"));
+
+    /**
+     * @param groupResolver resolves a group from its name, returning {@code null} if it does not exist
+     * @param kvStoreSupplier the store of the index
+     * @param ttl the time to live of the index entries, bounding the staleness of changes not made through Nuxeo
+     */
+    public GroupClosureIndex(Function<String, NuxeoGroup> groupResolver, Supplier<KeyValueStore> kvStoreSupplier,
+            Duration ttl) {
+        this.groupResolver = groupResolver;
+        this.kvStoreSupplier = kvStoreSupplier;
+        this.ttl = ttl.getSeconds();
+    }
+
+    /**
+     * Gets the name of a group, as stored in the directory, followed by the names of all its ancestors.
+     *
+     * @return the closure, or {@code null} if the group does not exist
+     */
+    public List<String> getClosure(String groupName) {
+        KeyValueStore kvStore = kvStoreSupplier.get();
+        String prefix = getKeyPrefix(kvStore);
+        List<String> closure = get(kvStore, prefix, groupName);
+        if (closure == null) {
+            try (Timer.Context ignored = computeTimer.time()) {
+                closure = compute(kvStore, prefix, groupName);
+            }
+        }
+        return closure.isEmpty() ? null : closure;
+    }
+
+    /**
+     * Invalidates the whole index, following a change of the group hierarchy.
+     * <p>
+     * When called in a transaction, the index is invalidated again after its completion, as the closures computed
+     * meanwhile by other transactions may have read the groups before the commit.
+     */
+    public void invalidate() {
+        incrementGeneration();
+        if (TransactionHelper.isTransactionActiveOrPreparing() && !INVALIDATE_AFTER_COMPLETION.get()) {
+            INVALIDATE_AFTER_COMPLETION.set(Boolean.TRUE);
+            TransactionHelper.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                    // nothing
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    INVALIDATE_AFTER_COMPLETION.remove();
+                    incrementGeneration();
+                }
+            });
+        }
+    }
+
+    protected void incrementGeneration() {
+        long now = System.nanoTime();
+        setGeneration(kvStoreSupplier.get().addAndGet(GENERATION_KEY, 1), now);
+    }
+
+    protected String getKeyPrefix(KeyValueStore kvStore) {
+        long now = System.nanoTime();
+        long current = getGeneration(now);
+        if (current < 0) {
+            Long stored = kvStore.getLong(GENERATION_KEY);
+            current = setGeneration(stored == null ? 0 : stored.longValue(), now);
+        }
+        return KEY_PREFIX + current + ':';
+    }
+
+    /**
+     * Returns the generation known locally, or -1 if it must be read again from the store.
+     */
+    protected synchronized long getGeneration(long now) {
+        return generation < 0 || now - generationTime > GENERATION_REFRESH_INTERVAL ? -1 : generation;
+    }
+
+    /**
+     * Sets the generation known locally, unless it was changed after the given time, and returns it.
+     */
+    protected synchronized long setGeneration(long value, long time) {
+        if (generation < 0 || time - generationTime >= 0) {
+            generation = value;
+            generationTime = time;
+        }
+        return generation;
+    }
+
+    /**
+     * Returns the indexed closure of a group, empty if the group does not exist, or {@code null} if not indexed.
+     */
+    protected List<String> get(KeyValueStore kvStore, String prefix, String groupName) {
+        String value = kvStore.getString(prefix + groupName);
+        if (value == null) {
+            return null;
+        } else if (MISSING.equals(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(value.split(SEPARATOR));
+    }
+
+    protected List<String> compute(KeyValueStore kvStore, String prefix, String groupName) {
+        NuxeoGroup group = groupResolver.apply(groupName);
+        if (group == null) {
+            kvStore.put(prefix + groupName, MISSING, ttl);
+            return Collections.emptyList();
+        }
+        // fetch the group name from the returned entry in case it does not have the same case than the actual entry
+        // in directory (for case insensitive directories)
+        Set<String> closure = new LinkedHashSet<>();
+        closure.add(group.getName());
+        Set<String> visited = new HashSet<>();
+        visited.add(groupName);
+        Deque<String> toProcess = new ArrayDeque<>(group.getParentGroups());
+        while (!toProcess.isEmpty()) {
+            String parentName = toProcess.poll();
+            if (!visited.add(parentName)) {
+                continue;
+            }
+            List<String> parentClosure = get(kvStore, prefix, parentName);
+            if (parentClosure != null && !parentClosure.isEmpty()) {
+                // already indexed, its ancestors don't need to be walked again
+                closure.addAll(parentClosure);
+                visited.addAll(parentClosure);
+                continue;
+            }
+            NuxeoGroup parent = parentClosure == null ? groupResolver.apply(parentName) : null;
+            if (parent == null) {
+                log.error("Group: {} has the ancestor group: {} that does not exist", groupName, parentName);
+                continue;
+            }
+            closure.add(parent.getName());
+            toProcess.addAll(parent.getParentGroups());
+        }
+        List<String> result = new ArrayList<>(closure);
+        kvStore.put(prefix + groupName, String.join(SEPARATOR, result), ttl);
+        closureSize.update(result.size());
+        return result;
+    }
+
+}
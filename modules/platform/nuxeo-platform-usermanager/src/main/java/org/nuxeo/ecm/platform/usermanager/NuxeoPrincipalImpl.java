@@ -35,6 +35,7 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -44,7 +45,6 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.DataModel;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.NuxeoException;
-import org.nuxeo.ecm.core.api.NuxeoGroup;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.PropertyException;
 import org.nuxeo.ecm.core.api.impl.SimpleDocumentModel;
@@ -314,31 +314,28 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
     public void updateAllGroups() {
         UserManager userManager = Framework.getService(UserManager.class);
         Set<String> checkedGroups = new HashSet<>();
-        List<String> groupsToProcess = new ArrayList<>();
-        List<String> resultingGroups = new ArrayList<>();
-        groupsToProcess.addAll(getGroups());
-
-        while (!groupsToProcess.isEmpty()) {
-            String groupName = groupsToProcess.remove(0);
-            if (!checkedGroups.contains(groupName)) {
-                checkedGroups.add(groupName);
-                NuxeoGroup nxGroup = null;
+        Set<String> resultingGroups = new LinkedHashSet<>();
+
+        for (String groupName : getGroups()) {
+            if (checkedGroups.add(groupName)) {
+                // the group followed by its ancestors
+                List<String> closure = null;
                 if (userManager != null) {
                     try {
-                        nxGroup = userManager.getGroup(groupName);
+                        closure = userManager.getGroupClosure(groupName);
                     } catch (DirectoryException de) {
                         if (virtualGroups.contains(groupName)) {
                             // do not fail while retrieving a virtual group
                             log.warn(
                                     "Failed to get group: {} due to: {}: permission resolution involving groups may not be correct",
                                     groupName, de.getMessage());
-                            nxGroup = null;
+                            closure = null;
                         } else {
                             throw de;
                         }
                     }
                 }
-                if (nxGroup == null) {
+                if (closure == null) {
                     if (virtualGroups.contains(groupName)) {
                         // just add the virtual group as is
                         resultingGroups.add(groupName);
@@ -348,14 +345,10 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
                         log.error("User: {} references the group: {} that does not exists", getName(), groupName);
                     }
                 } else {
-                    groupsToProcess.addAll(nxGroup.getParentGroups());
-                    // fetch the group name from the returned entry in case
-                    // it does not have the same case than the actual entry in
-                    // directory (for case insensitive directories)
-                    resultingGroups.add(nxGroup.getName());
                     // XXX: maybe remove group from virtual groups if it
                     // actually exists? otherwise it would be ignored when
                     // setting groups
+                    resultingGroups.addAll(closure);
                 }
             }
         }
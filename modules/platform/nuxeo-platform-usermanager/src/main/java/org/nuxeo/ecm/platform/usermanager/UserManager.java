@@ -19,6 +19,11 @@
 package org.nuxeo.ecm.platform.usermanager;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -416,6 +421,35 @@ public interface UserManager extends Authenticator, EventListener, Serializable
      */
     List<String> getAncestorGroups(String groupId);
 
+    /**
+     * Returns the name of the group with the given id, as stored in the directory, followed by the names of all its
+     * existing ancestor groups, or {@code null} if the group does not exist.
+     *
+     * @since 2023.19
+     */
+    default List<String> getGroupClosure(String groupId) {
+        NuxeoGroup group = getGroup(groupId);
+        if (group == null) {
+            return null;
+        }
+        Set<String> closure = new LinkedHashSet<>();
+        closure.add(group.getName());
+        Set<String> visited = new HashSet<>();
+        visited.add(groupId);
+        Deque<String> toProcess = new ArrayDeque<>(group.getParentGroups());
+        while (!toProcess.isEmpty()) {
+            String parentId = toProcess.poll();
+            if (visited.add(parentId)) {
+                NuxeoGroup parent = getGroup(parentId);
+                if (parent != null) {
+                    closure.add(parent.getName());
+                    toProcess.addAll(parent.getParentGroups());
+                }
+            }
+        }
+        return new ArrayList<>(closure);
+    }
+
     /**
      * Returns the descendant groups of the group with the given id.
      *
@@ -26,6 +26,7 @@ import static org.nuxeo.ecm.platform.usermanager.UserConfig.GROUPS_COLUMN;
 
 import java.io.Serializable;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -84,6 +85,7 @@ import org.nuxeo.ecm.platform.usermanager.exceptions.GroupAlreadyExistsException
 import org.nuxeo.ecm.platform.usermanager.exceptions.InvalidPasswordException;
 import org.nuxeo.ecm.platform.usermanager.exceptions.UserAlreadyExistsException;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 import org.nuxeo.runtime.services.event.Event;
 import org.nuxeo.runtime.services.event.EventService;
@@ -156,12 +158,30 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
      */
     public static final String USER_HAS_PARTIAL_CONTENT = "userHasPartialContent";
 
+    /**
+     * Controls whether the ancestors of the groups are resolved through the {@link GroupClosureIndex}.
+     *
+     * @since 2023.19
+     */
+    public static final String GROUP_CLOSURE_ENABLED_PARAM = "nuxeo.usermanager.groups.closure.enabled";
+
+    /** @since 2023.19 */
+    public static final String GROUP_CLOSURE_TTL_PARAM = "nuxeo.usermanager.groups.closure.ttl";
+
+    /** @since 2023.19 */
+    public static final Duration GROUP_CLOSURE_TTL_DEFAULT = Duration.ofMinutes(20);
+
     protected final DirectoryService dirService;
 
     protected final CacheService cacheService;
 
     protected Cache principalCache = null;
 
+    /**
+     * @since 2023.19
+     */
+    protected GroupClosureIndex groupClosureIndex;
+
     public UserMultiTenantManagement multiTenantManagement = new DefaultUserMultiTenantManagement();
 
     /**
@@ -292,6 +312,25 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             invalidateAllPrincipals();
         }
 
+        initGroupClosureIndex();
+    }
+
+    /**
+     * @since 2023.19
+     */
+    protected void initGroupClosureIndex() {
+        groupClosureIndex = null;
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        KeyValueService keyValueService = Framework.getService(KeyValueService.class);
+        Directory groupDirectory = dirService.getDirectory(groupDirectoryName);
+        if (configurationService == null || keyValueService == null || groupDirectory == null
+                || !configurationService.isBooleanTrue(GROUP_CLOSURE_ENABLED_PARAM)) {
+            return;
+        }
+        Duration ttl = configurationService.getDuration(GROUP_CLOSURE_TTL_PARAM, GROUP_CLOSURE_TTL_DEFAULT);
+        // invalidated by notifyGroupChanged, on group creations, updates and deletions
+        groupClosureIndex = new GroupClosureIndex(this::getGroup,
+                () -> keyValueService.getKeyValueStore(GroupClosureIndex.KV_STORE_NAME), ttl);
     }
 
     protected void setUserDirectoryName(String userDirectoryName) {
@@ -828,6 +867,7 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public void notifyGroupChanged(String groupName, String eventId, List<String> ancestorGroupNames) {
+        invalidateGroupClosures();
         invalidateAllPrincipals();
         notifyRuntime(groupName, GROUPCHANGED_EVENT_ID);
         if (eventId != null) {
@@ -842,6 +882,23 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         }
     }
 
+    /**
+     * @since 2023.19
+     */
+    protected void invalidateGroupClosures() {
+        if (groupClosureIndex != null) {
+            groupClosureIndex.invalidate();
+        }
+    }
+
+    @Override
+    public List<String> getGroupClosure(String groupId) {
+        if (groupClosureIndex == null) {
+            return UserManager.super.getGroupClosure(groupId);
+        }
+        return groupClosureIndex.getClosure(groupId);
+    }
+
     @Override
     public Boolean areGroupsReadOnly() {
         try (Session groupDir = dirService.open(groupDirectoryName)) {
@@ -1616,6 +1673,7 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         if (INVALIDATE_PRINCIPAL_EVENT_ID.equals(id)) {
             invalidatePrincipal((String) event.getData());
         } else if (INVALIDATE_ALL_PRINCIPALS_EVENT_ID.equals(id)) {
+            invalidateGroupClosures();
             invalidateAllPrincipals();
         }
     }
@@ -66,7 +66,10 @@ import org.nuxeo.ecm.platform.usermanager.exceptions.GroupAlreadyExistsException
 import org.nuxeo.ecm.platform.usermanager.exceptions.UserAlreadyExistsException;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.api.login.LoginComponent;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
 import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 /**
  * @author George Lefter
@@ -1404,6 +1407,64 @@ public class TestUserManager extends UserManagerTestCase {
                 userManager.getAncestorGroups("ABCD")));
     }
 
+    @Test
+    public void testGroupClosure() throws Exception {
+        DocumentModel groupABCD = getGroup("ABCD");
+        groupABCD.setProperty("group", "members", List.of("Administrator"));
+        userManager.createGroup(groupABCD);
+
+        DocumentModel groupAB = getGroup("AB");
+        groupAB.setPropertyValue("group:subGroups", (Serializable) Collections.singletonList("ABCD"));
+        userManager.createGroup(groupAB);
+
+        DocumentModel groupCD = getGroup("CD");
+        groupCD.setPropertyValue("group:subGroups", (Serializable) Collections.singletonList("ABCD"));
+        userManager.createGroup(groupCD);
+
+        DocumentModel groupA = getGroup("A");
+        groupA.setPropertyValue("group:subGroups", (Serializable) Collections.singletonList("AB"));
+        userManager.createGroup(groupA);
+
+        DocumentModel groupC = getGroup("C");
+        groupC.setPropertyValue("group:subGroups", (Serializable) Collections.singletonList("CD"));
+        userManager.createGroup(groupC);
+
+        List<String> closure = userManager.getGroupClosure("ABCD");
+        assertEquals("ABCD", closure.get(0));
+        assertTrue(CollectionUtils.isEqualCollection(Arrays.asList("ABCD", "AB", "A", "CD", "C"), closure));
+        // served by the index
+        assertEquals(closure, userManager.getGroupClosure("ABCD"));
+        assertEquals(Arrays.asList("AB", "A"), userManager.getGroupClosure("AB"));
+        assertNull(userManager.getGroupClosure("nosuchgroup"));
+        assertTrue(userManager.getPrincipal("Administrator").getAllGroups().containsAll(closure));
+
+        // a change of the hierarchy invalidates the index
+        groupA = userManager.getGroupModel("A");
+        groupA.setPropertyValue("group:subGroups", (Serializable) Collections.emptyList());
+        userManager.updateGroup(groupA);
+        assertTrue(CollectionUtils.isEqualCollection(Arrays.asList("ABCD", "AB", "CD", "C"),
+                userManager.getGroupClosure("ABCD")));
+        assertFalse(userManager.getPrincipal("Administrator").isMemberOf("A"));
+
+        // and again after the commit, as concurrent transactions may have indexed closures read before it
+        KeyValueStore kvStore = Framework.getService(KeyValueService.class)
+                                         .getKeyValueStore(GroupClosureIndex.KV_STORE_NAME);
+        long generation = kvStore.getLong(GroupClosureIndex.GENERATION_KEY).longValue();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(generation + 1, kvStore.getLong(GroupClosureIndex.GENERATION_KEY).longValue());
+
+        // a user change, even if it invalidates the group directory cache through references, keeps the index
+        generation = kvStore.getLong(GroupClosureIndex.GENERATION_KEY).longValue();
+        DocumentModel user = getUser("closureUser");
+        user.setProperty("user", "groups", List.of("ABCD"));
+        userManager.createUser(user);
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(generation, kvStore.getLong(GroupClosureIndex.GENERATION_KEY).longValue());
+        assertEquals(4, userManager.getGroupClosure("ABCD").size());
+    }
+
     @Test
     public void testNuxeoPrincipalSerialization() throws Exception {
         String userId = "test";
@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.codec;
+
+import java.util.Locale;
+import java.util.Map;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.CompactCodec;
+import org.nuxeo.lib.stream.codec.CompactCodec.Compression;
+
+/**
+ * Factory to generate {@link CompactCodec} with an optional compression: {@code none}, {@code lz4} or {@code zstd}.
+ *
+ * @since 2023.19
+ */
+public class CompactCodecFactory implements CodecFactory {
+
+    public static final String KEY_COMPRESSION = "compression";
+
+    public static final String DEFAULT_COMPRESSION = "none";
+
+    protected Compression compression;
+
+    @Override
+    public void init(Map<String, String> options) {
+        String value = options.getOrDefault(KEY_COMPRESSION, DEFAULT_COMPRESSION);
+        try {
+            compression = Compression.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid compression: " + value + " for compact codec", e);
+        }
+    }
+
+    @Override
+    public <T> Codec<T> newCodec(Class<T> objectClass) {
+        return new CompactCodec<>(objectClass, compression);
+    }
+}
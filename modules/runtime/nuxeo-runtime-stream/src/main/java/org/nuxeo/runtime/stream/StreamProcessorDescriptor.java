@@ -139,6 +139,8 @@ public class StreamProcessorDescriptor implements Descriptor {
 
         public static final Duration DEFAULT_BATCH_THRESHOLD = Duration.ofSeconds(1);
 
+        public static final Duration DEFAULT_BATCH_LATENCY_TARGET = Duration.ofSeconds(10);
+
         @XNode("@name")
         public String name;
 
@@ -174,6 +176,22 @@ public class StreamProcessorDescriptor implements Descriptor {
         @XNode("@batchThreshold")
         public Duration batchThreshold = DEFAULT_BATCH_THRESHOLD;
 
+        // @since 2023.19 the batch is adaptive when the max capacity is greater than the capacity
+        @XNode("@maxBatchCapacity")
+        public Integer maxBatchCapacity;
+
+        // @since 2023.19 defaults to the batch threshold
+        @XNode("@maxBatchThreshold")
+        public Duration maxBatchThreshold;
+
+        // @since 2023.19
+        @XNode("@batchLatencyTarget")
+        public Duration batchLatencyTarget = DEFAULT_BATCH_LATENCY_TARGET;
+
+        // @since 2023.19 number of records to read ahead
+        @XNode("@prefetch")
+        public Integer prefetch = 1;
+
         protected int getSkipFirstFailures() {
             return Integer.parseInt(
                     Framework.getProperty(RECOVERY_SKIP_FIRST_FAILURES_OPTION, Integer.toString(skipFirstFailures)));
@@ -183,10 +201,16 @@ public class StreamProcessorDescriptor implements Descriptor {
             RetryPolicy<Object> retryPolicy = new RetryPolicy<>().withMaxRetries(maxRetries)
                                                        .withBackoff(delay.toMillis(), maxDelay.toMillis(),
                                                                ChronoUnit.MILLIS);
-            return new ComputationPolicyBuilder().retryPolicy(retryPolicy)
-                                                 .batchPolicy(batchCapacity, batchThreshold)
-                                                 .continueOnFailure(continueOnFailure)
-                                                 .skipFirstFailures(getSkipFirstFailures());
+            ComputationPolicyBuilder builder = new ComputationPolicyBuilder().retryPolicy(retryPolicy)
+                                                                             .batchPolicy(batchCapacity, batchThreshold)
+                                                                             .continueOnFailure(continueOnFailure)
+                                                                             .skipFirstFailures(getSkipFirstFailures())
+                                                                             .prefetch(prefetch);
+            if (maxBatchCapacity != null) {
+                builder.adaptiveBatchPolicy(maxBatchCapacity,
+                        maxBatchThreshold == null ? batchThreshold : maxBatchThreshold, batchLatencyTarget);
+            }
+            return builder;
         }
     }
 
@@ -19,6 +19,7 @@
 package org.nuxeo.runtime.stream;
 
 import java.io.Externalizable;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -26,6 +27,9 @@ import java.util.List;
 
 import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.DurationUtils;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
@@ -44,6 +48,7 @@ import org.nuxeo.lib.stream.log.UnifiedLogManager;
 import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
 import org.nuxeo.lib.stream.log.kafka.KafkaLogConfig;
 import org.nuxeo.lib.stream.log.mem.MemLogConfig;
+import org.nuxeo.lib.stream.log.mmap.MMapLogConfig;
 import org.nuxeo.runtime.RuntimeMessage.Level;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.cluster.ClusterService;
@@ -137,6 +142,8 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
                 ret.add(createKafkaLogConfig(desc));
             } else if ("mem".equalsIgnoreCase(desc.type)) {
                 ret.add(createMemLogConfig(desc));
+            } else if ("mmap".equalsIgnoreCase(desc.type)) {
+                ret.add(createMMapLogConfig(desc));
             } else {
                 ret.add(createMemLogConfig(desc));
             }
@@ -154,6 +161,22 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
         return new MemLogConfig(desc.getId(), desc.isDefault(), desc.getPatterns());
     }
 
+    /**
+     * @since 2023.19
+     */
+    protected LogConfig createMMapLogConfig(LogConfigDescriptor desc) {
+        String basePath = desc.options.get("basePath");
+        Path path = basePath == null
+                ? Environment.getDefault().getData().toPath().resolve("stream").resolve(desc.getId())
+                : Path.of(basePath);
+        String segmentSize = desc.options.get("segmentSize");
+        int size = segmentSize == null ? MMapLogConfig.DEFAULT_SEGMENT_SIZE
+                : Math.toIntExact(SizeUtils.parseSizeInBytes(segmentSize));
+        Duration retention = DurationUtils.parsePositive(desc.options.get("retention"),
+                MMapLogConfig.DEFAULT_RETENTION);
+        return new MMapLogConfig(desc.getId(), desc.isDefault(), desc.getPatterns(), path, size, retention);
+    }
+
     protected LogConfig createKafkaLogConfig(LogConfigDescriptor desc) {
         String kafkaConfig = desc.options.getOrDefault("kafkaConfig", "default");
         KafkaConfigService service = Framework.getService(KafkaConfigService.class);
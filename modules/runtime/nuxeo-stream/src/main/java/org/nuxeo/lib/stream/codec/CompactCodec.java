@@ -0,0 +1,1153 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import com.github.luben.zstd.Zstd;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * Compact binary encoding of objects, written by reflection without a schema definition.
+ * <p>
+ * The field names of a class are interned into a schema shared by all the messages: the sorted names of its non
+ * transient fields, with the type of the fields of primitive, boxed, string, byte array or enum type. An object is
+ * written as the fingerprint of its schema, a bitmap of its null fields, then the values of its non null fields by
+ * position: the field names are never written, the values of the typed fields are written without a type tag, enums
+ * by ordinal. Integers are written as variable length zigzag integers, other values are prefixed with a one byte type
+ * tag.
+ * <p>
+ * The decoder matches the fields by name when the schema of the message differs from the one of its class: fields
+ * can be added or removed, unknown fields are ignored, as long as the schema of the writer is known to the decoder.
+ * The schemas of the classes loaded by the decoder are known, the schemas of other versions of a class can be added
+ * with {@link #registerSchema}.
+ * <p>
+ * The message can be compressed using LZ4 or Zstandard, it is left uncompressed when this doesn't make it smaller.
+ * <p>
+ * Primitives, strings, byte arrays, enums, dates and {@code java.time} values, collections, maps and objects with a
+ * no-arg constructor are written natively, their subclasses included. Other serializable values are written using Java
+ * serialization, and decoded only when they belong to the {@link #DESERIALIZATION_FILTER allowed packages}.
+ *
+ * @since 2023.19
+ */
+public class CompactCodec<T> implements Codec<T> {
+
+    public static final String NAME = "compact";
+
+    /** The compression applied to the encoded message. */
+    public enum Compression {
+        NONE, LZ4, ZSTD
+    }
+
+    // the first byte is the magic combined with the ordinal of the compression
+    protected static final int MAGIC = 0xC4;
+
+    protected static final int MAGIC_MASK = 0xFC;
+
+    protected static final int COMPRESSION_MASK = 0x03;
+
+    // messages smaller than this are not worth compressing
+    protected static final int MIN_COMPRESSION_SIZE = 128;
+
+    protected static final int ZSTD_LEVEL = 3;
+
+    protected static final byte T_NULL = 0;
+
+    protected static final byte T_FALSE = 1;
+
+    protected static final byte T_TRUE = 2;
+
+    protected static final byte T_BYTE = 3;
+
+    protected static final byte T_SHORT = 4;
+
+    protected static final byte T_CHAR = 5;
+
+    protected static final byte T_INT = 6;
+
+    protected static final byte T_LONG = 7;
+
+    protected static final byte T_FLOAT = 8;
+
+    protected static final byte T_DOUBLE = 9;
+
+    protected static final byte T_STRING = 10;
+
+    protected static final byte T_BYTES = 11;
+
+    protected static final byte T_ENUM = 12;
+
+    protected static final byte T_LIST = 13;
+
+    protected static final byte T_SET = 14;
+
+    protected static final byte T_MAP = 15;
+
+    protected static final byte T_OBJECT = 16;
+
+    protected static final byte T_SERIALIZED = 17;
+
+    protected static final byte T_TYPED_OBJECT = 18;
+
+    protected static final byte T_DATE = 19;
+
+    protected static final byte T_INSTANT = 20;
+
+    protected static final byte T_DURATION = 21;
+
+    protected static final byte T_LOCAL_DATE = 22;
+
+    protected static final byte T_LOCAL_TIME = 23;
+
+    protected static final byte T_LOCAL_DATE_TIME = 24;
+
+    protected static final byte T_OFFSET_DATE_TIME = 25;
+
+    protected static final byte T_ZONED_DATE_TIME = 26;
+
+    /**
+     * Classes allowed when decoding a value written with Java serialization.
+     */
+    public static final ObjectInputFilter DESERIALIZATION_FILTER = ObjectInputFilter.Config.createFilter(
+            "java.lang.*;java.util.*;java.time.*;java.math.*;java.net.URI;org.nuxeo.**;!*");
+
+    // schemas of the classes and constants of the enums, by fingerprint
+    protected static final Map<Integer, List<String>> SCHEMAS = new ConcurrentHashMap<>();
+
+    // the types of fields written without a type tag, by descriptor
+    protected static final Map<String, Class<?>> KNOWN_TYPES = Stream.of(boolean.class, byte.class, char.class,
+            short.class, int.class, long.class, float.class, double.class, Boolean.class, Byte.class, Character.class,
+            Short.class, Integer.class, Long.class, Float.class, Double.class, String.class, byte[].class)
+                                                                     .collect(Collectors.toUnmodifiableMap(
+                                                                             Class::descriptorString, c -> c));
+
+    protected static final char ENUM_SEPARATOR = '#';
+
+    protected static final ClassValue<ClassInfo> CLASS_INFOS = new ClassValue<>() {
+        @Override
+        protected ClassInfo computeValue(Class<?> type) {
+            return new ClassInfo(type);
+        }
+    };
+
+    protected final Class<T> objectClass;
+
+    protected final Compression compression;
+
+    public CompactCodec(Class<T> objectClass) {
+        this(objectClass, Compression.NONE);
+    }
+
+    public CompactCodec(Class<T> objectClass, Compression compression) {
+        this.objectClass = Objects.requireNonNull(objectClass);
+        this.compression = Objects.requireNonNull(compression);
+        // registers its schema
+        CLASS_INFOS.get(objectClass);
+    }
+
+    /**
+     * Registers the schema of a class declaring the same fields as another version of a class, so that the messages
+     * written with this version can be decoded.
+     */
+    public static void registerSchema(Class<?> type) {
+        CLASS_INFOS.get(type);
+    }
+
+    protected static int fingerprint(List<String> entries) {
+        CRC32 crc = new CRC32();
+        for (String entry : entries) {
+            crc.update(entry.getBytes(UTF_8));
+            crc.update('\n');
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the schema entry of a field: its name, followed by the descriptor of its type when the values are written
+     * without a type tag, and by the fingerprint of the constants for an enum.
+     */
+    protected static String schemaEntry(Field field) {
+        Class<?> type = field.getType();
+        if (type.isEnum()) {
+            List<String> constants = Stream.of(type.getEnumConstants())
+                                           .map(constant -> ((Enum<?>) constant).name())
+                                           .collect(Collectors.toUnmodifiableList());
+            int fingerprint = fingerprint(constants);
+            SCHEMAS.putIfAbsent(fingerprint, constants);
+            return field.getName() + ':' + type.descriptorString() + ENUM_SEPARATOR + Integer.toHexString(fingerprint);
+        } else if (KNOWN_TYPES.containsKey(type.descriptorString())) {
+            return field.getName() + ':' + type.descriptorString();
+        }
+        return field.getName();
+    }
+
+    /**
+     * Returns the descriptor part of a schema entry, or {@code null} for a value written with its type tag.
+     */
+    protected static String entryDescriptor(String entry) {
+        int sep = entry.indexOf(':');
+        return sep < 0 ? null : entry.substring(sep + 1);
+    }
+
+    protected static String entryName(String entry) {
+        int sep = entry.indexOf(':');
+        return sep < 0 ? entry : entry.substring(0, sep);
+    }
+
+    protected static boolean isPrimitive(String descriptor) {
+        return descriptor != null && descriptor.length() == 1;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(T object) {
+        Writer writer = new Writer();
+        writer.buf.write(MAGIC | Compression.NONE.ordinal());
+        writer.writeObject(object, CLASS_INFOS.get(objectClass));
+        byte[] raw = writer.buf.toByteArray();
+        if (compression == Compression.NONE || raw.length < MIN_COMPRESSION_SIZE) {
+            return raw;
+        }
+        byte[] compressed = compress(raw);
+        return compressed == null ? raw : compressed;
+    }
+
+    /**
+     * Returns the compressed message, or {@code null} if this doesn't make it smaller.
+     */
+    protected byte[] compress(byte[] raw) {
+        int rawLength = raw.length - 1;
+        Writer writer = new Writer();
+        writer.buf.write(MAGIC | compression.ordinal());
+        writer.writeVarint(rawLength);
+        int headerLength = writer.buf.size();
+        byte[] out;
+        int length;
+        if (compression == Compression.LZ4) {
+            LZ4Compressor compressor = LZ4Holder.FACTORY.fastCompressor();
+            out = new byte[headerLength + compressor.maxCompressedLength(rawLength)];
+            length = compressor.compress(raw, 1, rawLength, out, headerLength, out.length - headerLength);
+        } else {
+            out = new byte[headerLength + (int) Zstd.compressBound(rawLength)];
+            long ret = Zstd.compressByteArray(out, headerLength, out.length - headerLength, raw, 1, rawLength,
+                    ZSTD_LEVEL);
+            if (Zstd.isError(ret)) {
+                throw new IllegalArgumentException("Zstd compression failed: " + Zstd.getErrorName(ret));
+            }
+            length = (int) ret;
+        }
+        if (headerLength + length >= raw.length) {
+            return null;
+        }
+        System.arraycopy(writer.buf.toByteArray(), 0, out, 0, headerLength);
+        return Arrays.copyOf(out, headerLength + length);
+    }
+
+    @Override
+    public T decode(byte[] data) {
+        try {
+            if (data.length < 2 || (data[0] & MAGIC_MASK) != MAGIC) {
+                throw new IllegalArgumentException("Invalid compact encoding");
+            }
+            Reader reader;
+            if ((data[0] & COMPRESSION_MASK) == Compression.NONE.ordinal()) {
+                reader = new Reader(data, 1);
+            } else {
+                reader = new Reader(decompress(data), 0);
+            }
+            return objectClass.cast(reader.readObject(CLASS_INFOS.get(objectClass)));
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // corrupted data: out of bounds, negative sizes, wrong types...
+            throw new IllegalArgumentException("Invalid compact encoding", e);
+        }
+    }
+
+    protected byte[] decompress(byte[] data) {
+        Reader header = new Reader(data, 1);
+        int rawLength = header.readVarint();
+        byte[] raw = new byte[rawLength];
+        int ordinal = data[0] & COMPRESSION_MASK;
+        if (ordinal == Compression.LZ4.ordinal()) {
+            LZ4FastDecompressor decompressor = LZ4Holder.FACTORY.fastDecompressor();
+            decompressor.decompress(data, header.pos, raw, 0, rawLength);
+        } else if (ordinal == Compression.ZSTD.ordinal()) {
+            long ret = Zstd.decompressByteArray(raw, 0, rawLength, data, header.pos, data.length - header.pos);
+            if (Zstd.isError(ret)) {
+                throw new IllegalArgumentException("Zstd decompression failed: " + Zstd.getErrorName(ret));
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown compression: " + ordinal);
+        }
+        return raw;
+    }
+
+    // holder to load LZ4 only when used
+    protected static class LZ4Holder {
+        protected static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+    }
+
+    /** The fields of a class, sorted by name, and the fingerprint of its schema. */
+    protected static class ClassInfo {
+
+        protected final Class<?> type;
+
+        protected final Constructor<?> constructor;
+
+        protected final List<Field> fields = new ArrayList<>();
+
+        protected final Map<String, Field> fieldsByName = new HashMap<>();
+
+        // the schema entries of the fields
+        protected final List<String> entries;
+
+        // number of non primitive fields
+        protected final int nullables;
+
+        protected final int fingerprint;
+
+        protected ClassInfo(Class<?> type) {
+            this.type = type;
+            Constructor<?> c;
+            try {
+                c = type.getDeclaredConstructor();
+                c.setAccessible(true);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                c = null;
+            }
+            constructor = c;
+            // the JDK classes are not written field by field
+            Class<?> stop = isJdkClass(type) ? type : Object.class;
+            for (Class<?> klass = type; klass != null && klass != stop; klass = klass.getSuperclass()) {
+                for (Field field : klass.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                            || fieldsByName.containsKey(field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                    fieldsByName.put(field.getName(), field);
+                }
+            }
+            fields.sort(Comparator.comparing(Field::getName));
+            entries = fields.stream().map(CompactCodec::schemaEntry).collect(Collectors.toUnmodifiableList());
+            nullables = (int) fields.stream().filter(field -> !field.getType().isPrimitive()).count();
+            fingerprint = fingerprint(entries);
+            SCHEMAS.putIfAbsent(fingerprint, entries);
+        }
+
+        protected boolean isWritable() {
+            return constructor != null && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                    && !type.getName().startsWith("java.");
+        }
+
+        protected Object newInstance() {
+            if (constructor == null) {
+                throw new IllegalArgumentException("No default constructor for: " + type.getName());
+            }
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot instantiate: " + type.getName(), e);
+            }
+        }
+    }
+
+    protected static class Buffer extends ByteArrayOutputStream {
+
+        protected Buffer() {
+            super(256);
+        }
+
+        @Override
+        public void write(int b) {
+            // not synchronized
+            if (count == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (count + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+    }
+
+    protected static class Writer {
+
+        protected final Buffer buf = new Buffer();
+
+        // class names of the typed objects of this message
+        protected final Map<String, Integer> names = new HashMap<>();
+
+        protected void writeVarint(int value) {
+            writeVarlong(value & 0xFFFFFFFFL);
+        }
+
+        protected void writeVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buf.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buf.write((int) value);
+        }
+
+        protected void writeZigzag(long value) {
+            writeVarlong((value << 1) ^ (value >> 63));
+        }
+
+        protected void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarint(bytes.length);
+            buf.write(bytes, 0, bytes.length);
+        }
+
+        /** Writes the name the first time, then its index. */
+        protected void writeName(String name) {
+            Integer index = names.get(name);
+            if (index == null) {
+                names.put(name, names.size());
+                writeVarint(0);
+                writeString(name);
+            } else {
+                writeVarint(index + 1);
+            }
+        }
+
+        protected void writeObject(Object object, ClassInfo info) {
+            if (object == null) {
+                buf.write(T_NULL);
+                return;
+            }
+            buf.write(T_OBJECT);
+            writeFields(object, info);
+        }
+
+        /**
+         * Writes the fingerprint of the schema, a bitmap of the null fields, then the non null values. The values of
+         * the fields of a known type are written without a type tag.
+         */
+        protected void writeFields(Object object, ClassInfo info) {
+            writeFixed(info.fingerprint, 4);
+            int size = info.fields.size();
+            Object[] values = new Object[size];
+            byte[] nulls = new byte[(info.nullables + 7) >> 3];
+            int bit = 0;
+            for (int i = 0; i < size; i++) {
+                Field field = info.fields.get(i);
+                try {
+                    values[i] = field.get(object);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                if (!field.getType().isPrimitive()) {
+                    if (values[i] == null) {
+                        nulls[bit >> 3] |= 1 << (bit & 7);
+                    }
+                    bit++;
+                }
+            }
+            buf.write(nulls, 0, nulls.length);
+            for (int i = 0; i < size; i++) {
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                String descriptor = entryDescriptor(info.entries.get(i));
+                if (descriptor == null) {
+                    writeValue(value, info.fields.get(i).getGenericType());
+                } else if (value instanceof Enum) {
+                    writeVarint(((Enum<?>) value).ordinal());
+                } else {
+                    writeKnown(value);
+                }
+            }
+        }
+
+        protected void writeKnown(Object value) {
+            if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                writeVarint(bytes.length);
+                buf.write(bytes, 0, bytes.length);
+            } else if (value instanceof Boolean) {
+                buf.write((Boolean) value ? 1 : 0);
+            } else if (value instanceof Byte) {
+                buf.write((Byte) value);
+            } else if (value instanceof Character) {
+                writeVarint((Character) value);
+            } else if (value instanceof Float) {
+                writeFixed(Float.floatToIntBits((Float) value), 4);
+            } else if (value instanceof Double) {
+                writeFixed(Double.doubleToLongBits((Double) value), 8);
+            } else {
+                writeZigzag(((Number) value).longValue());
+            }
+        }
+
+        protected void writeValue(Object value, Type declaredType) {
+            if (value == null) {
+                buf.write(T_NULL);
+            } else if (value instanceof String) {
+                buf.write(T_STRING);
+                writeString((String) value);
+            } else if (value instanceof Long) {
+                buf.write(T_LONG);
+                writeZigzag((Long) value);
+            } else if (value instanceof Integer) {
+                buf.write(T_INT);
+                writeZigzag((Integer) value);
+            } else if (value instanceof Boolean) {
+                buf.write((Boolean) value ? T_TRUE : T_FALSE);
+            } else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                buf.write(T_BYTES);
+                writeVarint(bytes.length);
+                buf.write(bytes, 0, bytes.length);
+            } else if (value instanceof Short) {
+                buf.write(T_SHORT);
+                writeZigzag((Short) value);
+            } else if (value instanceof Byte) {
+                buf.write(T_BYTE);
+                buf.write((Byte) value);
+            } else if (value instanceof Character) {
+                buf.write(T_CHAR);
+                writeVarint((Character) value);
+            } else if (value instanceof Double) {
+                buf.write(T_DOUBLE);
+                writeFixed(Double.doubleToLongBits((Double) value), 8);
+            } else if (value instanceof Float) {
+                buf.write(T_FLOAT);
+                writeFixed(Float.floatToIntBits((Float) value), 4);
+            } else if (value instanceof Enum && rawClass(declaredType) == ((Enum<?>) value).getDeclaringClass()) {
+                buf.write(T_ENUM);
+                writeString(((Enum<?>) value).name());
+            } else if (isJdkClass(value.getClass()) && writeTime(value)) {
+                // written
+            } else if ((value instanceof List || value instanceof Set) && isJdkClass(value.getClass())) {
+                Collection<?> collection = (Collection<?>) value;
+                buf.write(value instanceof Set ? T_SET : T_LIST);
+                writeVarint(collection.size());
+                writeValues(collection, typeArgument(declaredType, 0));
+            } else if (value instanceof Map && isJdkClass(value.getClass())) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                buf.write(T_MAP);
+                writeVarint(map.size());
+                writeValues(map.keySet(), typeArgument(declaredType, 0));
+                writeValues(map.values(), typeArgument(declaredType, 1));
+            } else if (value.getClass() == rawClass(declaredType) && CLASS_INFOS.get(value.getClass()).isWritable()) {
+                // the decoder knows the class from the declared type
+                writeObject(value, CLASS_INFOS.get(value.getClass()));
+            } else if (!isJdkClass(value.getClass()) && isSubclass(value.getClass(), rawClass(declaredType))
+                    && CLASS_INFOS.get(value.getClass()).isWritable()) {
+                buf.write(T_TYPED_OBJECT);
+                writeName(value.getClass().getName());
+                writeFields(value, CLASS_INFOS.get(value.getClass()));
+            } else if (value instanceof Serializable) {
+                buf.write(T_SERIALIZED);
+                byte[] bytes = serialize(value);
+                writeVarint(bytes.length);
+                buf.write(bytes, 0, bytes.length);
+            } else {
+                throw new IllegalArgumentException("Cannot encode value of: " + value.getClass().getName());
+            }
+        }
+
+        /**
+         * Writes values with a single type tag when they are all strings, all longs or all integers, otherwise with a
+         * {@link #T_NULL} tag followed by each value with its own tag.
+         */
+        protected void writeValues(Collection<?> values, Type declaredType) {
+            byte tag = packedTag(values);
+            buf.write(tag);
+            for (Object value : values) {
+                if (tag == T_STRING) {
+                    writeString((String) value);
+                } else if (tag == T_NULL) {
+                    writeValue(value, declaredType);
+                } else {
+                    writeZigzag(((Number) value).longValue());
+                }
+            }
+        }
+
+        protected byte packedTag(Collection<?> values) {
+            byte tag = T_NULL;
+            for (Object value : values) {
+                byte valueTag;
+                if (value instanceof String) {
+                    valueTag = T_STRING;
+                } else if (value instanceof Long) {
+                    valueTag = T_LONG;
+                } else if (value instanceof Integer) {
+                    valueTag = T_INT;
+                } else {
+                    return T_NULL;
+                }
+                if (tag != T_NULL && tag != valueTag) {
+                    return T_NULL;
+                }
+                tag = valueTag;
+            }
+            return tag;
+        }
+
+        protected void writeFixed(long value, int bytes) {
+            for (int i = 0; i < bytes; i++) {
+                buf.write((int) (value >>> (i << 3)));
+            }
+        }
+
+        /**
+         * Writes a date or a {@code java.time} value, returns {@code false} for other values.
+         */
+        protected boolean writeTime(Object value) {
+            if (value instanceof Date) {
+                // java.sql types, like the timestamps read by JPA, are decoded as dates
+                buf.write(T_DATE);
+                writeZigzag(((Date) value).getTime());
+            } else if (value instanceof Instant) {
+                buf.write(T_INSTANT);
+                writeInstant((Instant) value);
+            } else if (value instanceof Duration) {
+                Duration duration = (Duration) value;
+                buf.write(T_DURATION);
+                writeZigzag(duration.getSeconds());
+                writeVarint(duration.getNano());
+            } else if (value instanceof LocalDate) {
+                buf.write(T_LOCAL_DATE);
+                writeZigzag(((LocalDate) value).toEpochDay());
+            } else if (value instanceof LocalTime) {
+                buf.write(T_LOCAL_TIME);
+                writeVarlong(((LocalTime) value).toNanoOfDay());
+            } else if (value instanceof LocalDateTime) {
+                buf.write(T_LOCAL_DATE_TIME);
+                writeInstant(((LocalDateTime) value).toInstant(ZoneOffset.UTC));
+            } else if (value instanceof OffsetDateTime) {
+                OffsetDateTime dateTime = (OffsetDateTime) value;
+                buf.write(T_OFFSET_DATE_TIME);
+                writeInstant(dateTime.toInstant());
+                writeZigzag(dateTime.getOffset().getTotalSeconds());
+            } else if (value instanceof ZonedDateTime) {
+                ZonedDateTime dateTime = (ZonedDateTime) value;
+                buf.write(T_ZONED_DATE_TIME);
+                writeInstant(dateTime.toInstant());
+                writeString(dateTime.getZone().getId());
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        protected void writeInstant(Instant instant) {
+            writeZigzag(instant.getEpochSecond());
+            writeVarint(instant.getNano());
+        }
+    }
+
+    protected static class Reader {
+
+        protected final byte[] data;
+
+        protected int pos;
+
+        // class names of the typed objects of this message
+        protected final List<String> names = new ArrayList<>();
+
+        protected Reader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        protected int readVarint() {
+            return (int) readVarlong();
+        }
+
+        protected long readVarlong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid varint");
+        }
+
+        /**
+         * Reads a number of bytes or of values, each value taking at least one byte.
+         */
+        protected int readSize() {
+            int size = readVarint();
+            if (size < 0 || size > data.length - pos) {
+                throw new IllegalArgumentException("Invalid size: " + size);
+            }
+            return size;
+        }
+
+        protected long readZigzag() {
+            long value = readVarlong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        protected long readFixed(int bytes) {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value |= (data[pos++] & 0xFFL) << (i << 3);
+            }
+            return value;
+        }
+
+        protected String readString() {
+            int length = readSize();
+            String value = new String(data, pos, length, UTF_8);
+            pos += length;
+            return value;
+        }
+
+        protected byte[] readBytes() {
+            int length = readSize();
+            byte[] value = Arrays.copyOfRange(data, pos, pos + length);
+            pos += length;
+            return value;
+        }
+
+        protected String readName() {
+            int index = readVarint();
+            if (index == 0) {
+                String name = readString();
+                names.add(name);
+                return name;
+            }
+            return names.get(index - 1);
+        }
+
+        /**
+         * Reads an object of the given class, or skips it when the class is {@code null}.
+         */
+        protected Object readObject(ClassInfo info) {
+            byte tag = data[pos++];
+            if (tag == T_NULL) {
+                return null;
+            }
+            if (tag != T_OBJECT) {
+                throw new IllegalArgumentException("Object expected, got type: " + tag);
+            }
+            return readObjectFields(info);
+        }
+
+        /**
+         * Reads the fields written by {@link Writer#writeFields}, matching them by name when the schema differs from
+         * the one of the class. A {@code null} class info skips them.
+         */
+        protected Object readObjectFields(ClassInfo info) {
+            Object object = info == null ? null : info.newInstance();
+            int fingerprint = (int) readFixed(4);
+            boolean sameSchema = info != null && fingerprint == info.fingerprint;
+            List<String> entries = sameSchema ? info.entries : SCHEMAS.get(fingerprint);
+            if (entries == null) {
+                throw new IllegalArgumentException("Unknown schema: " + Integer.toHexString(fingerprint)
+                        + (info == null ? "" : " for: " + info.type.getName()));
+            }
+            int nullables = sameSchema ? info.nullables
+                    : (int) entries.stream().filter(entry -> !isPrimitive(entryDescriptor(entry))).count();
+            int nullsPos = pos;
+            pos += (nullables + 7) >> 3;
+            int bit = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                String entry = entries.get(i);
+                // unknown fields are skipped
+                Field field = sameSchema ? info.fields.get(i)
+                        : info == null ? null : info.fieldsByName.get(entryName(entry));
+                String descriptor = entryDescriptor(entry);
+                Object value;
+                if (!isPrimitive(descriptor) && (data[nullsPos + (bit >> 3)] & (1 << (bit++ & 7))) != 0) {
+                    value = null;
+                } else if (descriptor == null) {
+                    value = readValue(field == null ? null : field.getGenericType());
+                } else if (descriptor.indexOf(ENUM_SEPARATOR) >= 0) {
+                    value = readEnum(descriptor, field);
+                } else {
+                    value = readKnown(descriptor);
+                }
+                if (field != null) {
+                    setField(object, info, field, value);
+                }
+            }
+            return object;
+        }
+
+        protected Object readKnown(String descriptor) {
+            Class<?> type = KNOWN_TYPES.get(descriptor);
+            if (type == String.class) {
+                return readString();
+            } else if (type == byte[].class) {
+                return readBytes();
+            } else if (type == boolean.class || type == Boolean.class) {
+                return data[pos++] != 0;
+            } else if (type == byte.class || type == Byte.class) {
+                return data[pos++];
+            } else if (type == short.class || type == Short.class) {
+                return (short) readZigzag();
+            } else if (type == char.class || type == Character.class) {
+                return (char) readVarint();
+            } else if (type == int.class || type == Integer.class) {
+                return (int) readZigzag();
+            } else if (type == long.class || type == Long.class) {
+                return readZigzag();
+            } else if (type == float.class || type == Float.class) {
+                return Float.intBitsToFloat((int) readFixed(4));
+            } else if (type == double.class || type == Double.class) {
+                return Double.longBitsToDouble(readFixed(8));
+            }
+            throw new IllegalArgumentException("Unknown type: " + descriptor);
+        }
+
+        /**
+         * Reads an enum written by its ordinal, matching the constants by name when they differ from the ones of the
+         * field type.
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected Object readEnum(String descriptor, Field field) {
+            int ordinal = readVarint();
+            if (field == null) {
+                return null;
+            }
+            int fingerprint = Integer.parseUnsignedInt(
+                    descriptor.substring(descriptor.indexOf(ENUM_SEPARATOR) + 1), 16);
+            List<String> constants = SCHEMAS.get(fingerprint);
+            if (constants == null) {
+                throw new IllegalArgumentException("Unknown enum: " + descriptor);
+            }
+            String name = constants.get(ordinal);
+            Class<?> type = field.getType();
+            if (!type.isEnum()) {
+                return type == String.class ? name : null;
+            }
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            // removed constant
+            return null;
+        }
+
+        protected void setField(Object object, ClassInfo info, Field field, Object value) {
+            value = coerce(value, field.getType());
+            if (value == null && field.getType().isPrimitive()) {
+                return;
+            }
+            try {
+                field.set(object, value);
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Cannot set field: " + field.getName() + " of: " + info.type.getName(), e);
+            }
+        }
+
+        /**
+         * Reads an object of a subclass of the declared class, or skips it when the declared class is {@code null}.
+         */
+        protected Object readTypedObject(Class<?> declaredClass) {
+            String className = readName();
+            if (declaredClass == null || declaredClass == Object.class) {
+                return readObjectFields(null);
+            }
+            Class<?> type;
+            try {
+                type = Class.forName(className, false, declaredClass.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Unknown class: " + className, e);
+            }
+            if (!isSubclass(type, declaredClass)) {
+                throw new IllegalArgumentException(
+                        "Class: " + className + " is not a subclass of: " + declaredClass.getName());
+            }
+            ClassInfo info = CLASS_INFOS.get(type);
+            if (!info.isWritable()) {
+                throw new IllegalArgumentException("Cannot decode class: " + className);
+            }
+            return readObjectFields(info);
+        }
+
+        /**
+         * Reads values written by {@link Writer#writeValues}.
+         */
+        protected void readValues(int size, Type declaredType, Consumer<Object> consumer) {
+            byte tag = data[pos++];
+            for (int i = 0; i < size; i++) {
+                consumer.accept(tag == T_NULL ? readValue(declaredType) : readValue(tag, declaredType));
+            }
+        }
+
+        protected Instant readInstant() {
+            long seconds = readZigzag();
+            return Instant.ofEpochSecond(seconds, readVarint());
+        }
+
+        /**
+         * Reads a value, the declared type is used for enums, objects and to build collections. A {@code null}
+         * declared type skips objects.
+         */
+        protected Object readValue(Type declaredType) {
+            return readValue(data[pos++], declaredType);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected Object readValue(byte tag, Type declaredType) {
+            switch (tag) {
+            case T_NULL:
+                return null;
+            case T_FALSE:
+                return Boolean.FALSE;
+            case T_TRUE:
+                return Boolean.TRUE;
+            case T_BYTE:
+                return data[pos++];
+            case T_SHORT:
+                return (short) readZigzag();
+            case T_CHAR:
+                return (char) readVarint();
+            case T_INT:
+                return (int) readZigzag();
+            case T_LONG:
+                return readZigzag();
+            case T_FLOAT:
+                return Float.intBitsToFloat((int) readFixed(4));
+            case T_DOUBLE:
+                return Double.longBitsToDouble(readFixed(8));
+            case T_STRING:
+                return readString();
+            case T_BYTES:
+                return readBytes();
+            case T_ENUM:
+                String constant = readString();
+                Class<?> enumClass = rawClass(declaredType);
+                if (enumClass == null || !enumClass.isEnum()) {
+                    return null;
+                }
+                return Enum.valueOf((Class<? extends Enum>) enumClass, constant);
+            case T_LIST:
+            case T_SET:
+                int size = readSize();
+                Collection<Object> collection = newCollection(rawClass(declaredType), tag == T_SET, size);
+                readValues(size, typeArgument(declaredType, 0), collection::add);
+                return collection;
+            case T_MAP:
+                int entries = readSize();
+                List<Object> keys = new ArrayList<>(entries);
+                readValues(entries, typeArgument(declaredType, 0), keys::add);
+                Map<Object, Object> map = newMap(rawClass(declaredType), entries);
+                Iterator<Object> it = keys.iterator();
+                readValues(entries, typeArgument(declaredType, 1), value -> map.put(it.next(), value));
+                return map;
+            case T_OBJECT:
+                Class<?> objectClass = rawClass(declaredType);
+                return readObjectFields(objectClass == null || objectClass == Object.class ? null
+                        : CLASS_INFOS.get(objectClass));
+            case T_TYPED_OBJECT:
+                return readTypedObject(rawClass(declaredType));
+            case T_SERIALIZED:
+                return deserialize(readBytes());
+            case T_DATE:
+                return new Date(readZigzag());
+            case T_INSTANT:
+                return readInstant();
+            case T_DURATION:
+                long seconds = readZigzag();
+                return Duration.ofSeconds(seconds, readVarint());
+            case T_LOCAL_DATE:
+                return LocalDate.ofEpochDay(readZigzag());
+            case T_LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(readVarlong());
+            case T_LOCAL_DATE_TIME:
+                return LocalDateTime.ofInstant(readInstant(), ZoneOffset.UTC);
+            case T_OFFSET_DATE_TIME:
+                Instant instant = readInstant();
+                return OffsetDateTime.ofInstant(instant, ZoneOffset.ofTotalSeconds((int) readZigzag()));
+            case T_ZONED_DATE_TIME:
+                Instant zonedInstant = readInstant();
+                return ZonedDateTime.ofInstant(zonedInstant, ZoneId.of(readString()));
+            default:
+                throw new IllegalArgumentException("Unknown type: " + tag);
+            }
+        }
+    }
+
+    protected static boolean isJdkClass(Class<?> klass) {
+        return klass.getName().startsWith("java.");
+    }
+
+    /**
+     * Checks that the class is a strict subclass of the declared class, the declared class being known to the decoder
+     * and restricting the classes it instantiates.
+     */
+    protected static boolean isSubclass(Class<?> klass, Class<?> declaredClass) {
+        return declaredClass != null && declaredClass != Object.class && declaredClass != Serializable.class
+                && declaredClass != klass && declaredClass.isAssignableFrom(klass);
+    }
+
+    protected static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return null;
+    }
+
+    protected static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static Collection<Object> newCollection(Class<?> type, boolean set, int size) {
+        if (type != null && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                && Collection.class.isAssignableFrom(type)) {
+            try {
+                return (Collection<Object>) type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                // use a default collection
+            }
+        }
+        if (set) {
+            return type != null && type.isAssignableFrom(HashSet.class) ? new HashSet<>(size * 2)
+                    : new LinkedHashSet<>(size * 2);
+        }
+        return new ArrayList<>(size);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static Map<Object, Object> newMap(Class<?> type, int size) {
+        if (type != null && !type.isInterface() && !Modifier.isAbstract(type.getModifiers())
+                && Map.class.isAssignableFrom(type)) {
+            try {
+                return (Map<Object, Object>) type.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                // use a default map
+            }
+        }
+        return new LinkedHashMap<>(size * 2);
+    }
+
+    /**
+     * Converts numbers to the type of the field, in case the field type has changed.
+     */
+    protected static Object coerce(Object value, Class<?> type) {
+        if (!(value instanceof Number) || type.isInstance(value)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (type == long.class || type == Long.class) {
+            return number.longValue();
+        } else if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        } else if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        } else if (type == byte.class || type == Byte.class) {
+            return number.byteValue();
+        } else if (type == double.class || type == Double.class) {
+            return number.doubleValue();
+        } else if (type == float.class || type == Float.class) {
+            return number.floatValue();
+        }
+        return value;
+    }
+
+    protected static byte[] serialize(Object value) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    protected static Object deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(DESERIALIZATION_FILTER);
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+}
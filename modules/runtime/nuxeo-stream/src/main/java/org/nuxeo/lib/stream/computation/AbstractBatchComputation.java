@@ -23,11 +23,18 @@ import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.computation.log.ComputationRunner;
+import org.nuxeo.lib.stream.log.Name;
+
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * An abstract {@link Computation} that processes records by batch.
  * <p>
- * The batch capacity and threshold are defined in the computation policy.
+ * The batch capacity and threshold are defined in the computation policy, they adapt to the load when the policy
+ * defines an adaptive batch.
  *
  * @since 10.3
  */
@@ -47,6 +54,12 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     protected boolean removeLastRecordOnRetry;
 
+    // @since 2023.19
+    protected AdaptiveBatchSize batchSize;
+
+    // @since 2023.19
+    protected Histogram batchSizeHistogram;
+
     /**
      * Constructor
      *
@@ -80,9 +93,14 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     @Override
     public void init(ComputationContext context) {
-        thresholdMillis = context.getPolicy().getBatchThreshold().toMillis();
+        batchSize = new AdaptiveBatchSize(context.getPolicy());
+        thresholdMillis = batchSize.getThresholdMillis();
         context.setTimer(TIMER_BATCH, System.currentTimeMillis() + thresholdMillis);
         batchRecords = new ArrayList<>(context.getPolicy().batchCapacity);
+        MetricName metricName = MetricName.build("nuxeo.streams.computation.batchSize")
+                                          .tagged("computation", Name.ofUrn(metadata.name()).getId());
+        batchSizeHistogram = SharedMetricRegistries.getOrCreate(ComputationRunner.NUXEO_METRICS_REGISTRY_NAME)
+                                                   .histogram(metricName);
     }
 
     @Override
@@ -91,7 +109,7 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
             return;
         }
         if (!batchRecords.isEmpty()) {
-            batchProcess(context);
+            batchProcess(context, false);
         }
         context.setTimer(TIMER_BATCH, System.currentTimeMillis() + thresholdMillis);
     }
@@ -99,23 +117,27 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
         if (!inputStreamName.equals(currentInputStream) && !batchRecords.isEmpty()) {
-            batchProcess(context);
+            batchProcess(context, false);
         }
         if (newBatch) {
             currentInputStream = inputStreamName;
             newBatch = false;
         }
         batchRecords.add(record);
-        if (record.getFlags().contains(Record.Flag.END_OF_BATCH)
-                || batchRecords.size() >= context.getPolicy().getBatchCapacity()) {
+        boolean full = batchRecords.size() >= batchSize.getCapacity();
+        if (full || record.getFlags().contains(Record.Flag.END_OF_BATCH)) {
             removeLastRecordOnRetry = true;
-            batchProcess(context);
+            batchProcess(context, full);
             removeLastRecordOnRetry = false;
         }
     }
 
-    private void batchProcess(ComputationContext context) {
+    private void batchProcess(ComputationContext context, boolean full) {
+        long start = System.nanoTime();
+        batchSizeHistogram.update(batchRecords.size());
         batchProcess(context, currentInputStream, batchRecords);
+        batchSize.update(full, System.nanoTime() - start);
+        thresholdMillis = batchSize.getThresholdMillis();
         checkpointBatch(context);
     }
 
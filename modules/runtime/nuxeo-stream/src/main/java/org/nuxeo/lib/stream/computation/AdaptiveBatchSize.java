@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.computation;
+
+/**
+ * Batch capacity and time threshold adapting to the load, as defined by
+ * {@link ComputationPolicyBuilder#adaptiveBatchPolicy}.
+ * <p>
+ * When the policy is not adaptive the capacity and threshold are the ones of the policy.
+ *
+ * @since 2023.19
+ */
+public class AdaptiveBatchSize {
+
+    protected final int minCapacity;
+
+    protected final int maxCapacity;
+
+    protected final long minThresholdMillis;
+
+    protected final long maxThresholdMillis;
+
+    // 0 when not adaptive
+    protected final long latencyTargetNanos;
+
+    protected int capacity;
+
+    protected long thresholdMillis;
+
+    public AdaptiveBatchSize(ComputationPolicy policy) {
+        minCapacity = policy.getBatchCapacity();
+        maxCapacity = policy.getMaxBatchCapacity();
+        minThresholdMillis = policy.getBatchThreshold().toMillis();
+        maxThresholdMillis = policy.getMaxBatchThreshold().toMillis();
+        latencyTargetNanos = policy.isAdaptiveBatch() ? policy.getBatchLatencyTarget().toNanos() : 0;
+        capacity = minCapacity;
+        thresholdMillis = minThresholdMillis;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    /**
+     * Adapts the capacity and threshold after a batch has been processed.
+     *
+     * @param full whether the batch was processed because it was full, meaning more records are waiting
+     * @param durationNanos the duration of the batch processing
+     */
+    public void update(boolean full, long durationNanos) {
+        if (latencyTargetNanos == 0) {
+            return;
+        }
+        if (durationNanos > latencyTargetNanos) {
+            capacity = Math.max(minCapacity, capacity / 2);
+        } else if (full && durationNanos * 2 <= latencyTargetNanos) {
+            // a batch twice as big should still be processed in time
+            capacity = (int) Math.min(maxCapacity, capacity * 2L);
+        } else {
+            return;
+        }
+        if (maxCapacity > minCapacity) {
+            thresholdMillis = minThresholdMillis
+                    + (maxThresholdMillis - minThresholdMillis) * (capacity - minCapacity) / (maxCapacity - minCapacity);
+        }
+    }
+
+}
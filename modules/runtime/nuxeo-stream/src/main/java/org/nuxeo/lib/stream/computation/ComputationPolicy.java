@@ -46,12 +46,34 @@ public class ComputationPolicy {
 
     protected final int skipFirstFailures;
 
+    protected final boolean virtualThreads;
+
+    protected final int maxBatchCapacity;
+
+    protected final Duration maxBatchThreshold;
+
+    protected final Duration batchLatencyTarget;
+
+    protected final int prefetchDepth;
+
     public ComputationPolicy(ComputationPolicyBuilder builder) {
         batchCapacity = builder.batchCapacity;
         batchThreshold = builder.batchThreshold;
         skipFailure = builder.skipFailure;
         retryPolicy = builder.retryPolicy;
         skipFirstFailures = builder.skipFirstFailures;
+        virtualThreads = builder.virtualThreads;
+        if (builder.maxBatchCapacity > builder.batchCapacity) {
+            maxBatchCapacity = builder.maxBatchCapacity;
+            maxBatchThreshold = builder.maxBatchThreshold.compareTo(batchThreshold) > 0 ? builder.maxBatchThreshold
+                    : batchThreshold;
+            batchLatencyTarget = builder.batchLatencyTarget;
+        } else {
+            maxBatchCapacity = batchCapacity;
+            maxBatchThreshold = batchThreshold;
+            batchLatencyTarget = null;
+        }
+        prefetchDepth = builder.prefetchDepth;
     }
 
     public RetryPolicy<Object> getRetryPolicy() {
@@ -74,6 +96,54 @@ public class ComputationPolicy {
         return skipFirstFailures;
     }
 
+    /**
+     * Whether the batch capacity and threshold adapt to the load.
+     *
+     * @since 2023.19
+     */
+    public boolean isAdaptiveBatch() {
+        return batchLatencyTarget != null;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public int getMaxBatchCapacity() {
+        return maxBatchCapacity;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public Duration getMaxBatchThreshold() {
+        return maxBatchThreshold;
+    }
+
+    /**
+     * @since 2023.19
+     */
+    public Duration getBatchLatencyTarget() {
+        return batchLatencyTarget;
+    }
+
+    /**
+     * The maximum number of records read ahead, 1 when there is no read ahead.
+     *
+     * @since 2023.19
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Whether the computation threads should be virtual threads, when supported by the JVM.
+     *
+     * @since 2023.19
+     */
+    public boolean useVirtualThreads() {
+        return virtualThreads;
+    }
+
     /**
      * @deprecated since 10.3 use {@link #continueOnFailure()} instead
      */
@@ -86,6 +156,8 @@ public class ComputationPolicy {
     public String toString() {
         return "ComputationPolicy{" + "maxRetries=" + retryPolicy.getMaxRetries() + ", delay=" + retryPolicy.getDelay()
                 + ", delayMax=" + retryPolicy.getMaxDelay() + ", continueOnFailure=" + skipFailure + ", batchCapacity="
-                + batchCapacity + ", batchThreshold=" + batchThreshold + '}';
+                + batchCapacity + ", batchThreshold=" + batchThreshold + ", maxBatchCapacity=" + maxBatchCapacity
+                + ", maxBatchThreshold=" + maxBatchThreshold + ", batchLatencyTarget=" + batchLatencyTarget
+                + ", prefetchDepth=" + prefetchDepth + ", virtualThreads=" + virtualThreads + '}';
     }
 }
@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.computation;
 
 import java.time.Duration;
+import java.util.Objects;
 
 import net.jodah.failsafe.RetryPolicy;
 
@@ -43,6 +44,16 @@ public class ComputationPolicyBuilder {
 
     protected Duration batchThreshold = Duration.ofSeconds(DEFAULT_BATCH_THRESHOLD_SECOND);
 
+    protected boolean virtualThreads = false;
+
+    protected int maxBatchCapacity;
+
+    protected Duration maxBatchThreshold;
+
+    protected Duration batchLatencyTarget;
+
+    protected int prefetchDepth = 1;
+
     public ComputationPolicyBuilder() {
         // Empty constructor
     }
@@ -61,6 +72,43 @@ public class ComputationPolicyBuilder {
         return this;
     }
 
+    /**
+     * Makes the batch capacity and time threshold adaptive.
+     * <p>
+     * The batch policy capacity and threshold are the initial and minimum values. The capacity doubles when batches
+     * are full, meaning there is a backlog, as long as processing a batch takes less than half the latency target. It
+     * is halved when processing a batch takes more than the latency target. The threshold follows the capacity between
+     * its minimum and maximum values. As a checkpoint is done after each batch, the checkpoint interval grows with the
+     * batch.
+     * <p>
+     * This is used only by computation that extends AbstractBatchComputation.
+     *
+     * @param maxCapacity the maximum number of records in the batch
+     * @param maxTimeThreshold the maximum time threshold
+     * @param latencyTarget the maximum duration wanted for processing a batch
+     * @since 2023.19
+     */
+    public ComputationPolicyBuilder adaptiveBatchPolicy(int maxCapacity, Duration maxTimeThreshold,
+            Duration latencyTarget) {
+        maxBatchCapacity = maxCapacity;
+        maxBatchThreshold = Objects.requireNonNull(maxTimeThreshold);
+        batchLatencyTarget = Objects.requireNonNull(latencyTarget);
+        return this;
+    }
+
+    /**
+     * Reads ahead up to {@code depth} records already available in the input streams before processing them, so that
+     * the records are fetched in bulk instead of one by one. The checkpoint is delayed until all the records read
+     * ahead are processed. A depth of 1, the default, disables the read ahead. Batch computations, which hold their
+     * records until their batch is complete, never read ahead.
+     *
+     * @since 2023.19
+     */
+    public ComputationPolicyBuilder prefetch(int depth) {
+        prefetchDepth = Math.max(1, depth);
+        return this;
+    }
+
     /**
      * Defines what to do in case of failure during the batch processing.
      */
@@ -93,6 +141,18 @@ public class ComputationPolicyBuilder {
         return this;
     }
 
+    /**
+     * Runs the computation threads on virtual threads instead of platform threads, this is suited to computations
+     * mostly waiting on I/O. The concurrency is unchanged. Platform threads are used when the JVM doesn't support
+     * virtual threads.
+     *
+     * @since 2023.19
+     */
+    public ComputationPolicyBuilder virtualThreads(boolean value) {
+        virtualThreads = value;
+        return this;
+    }
+
     /**
      * Creates the policy.
      */
@@ -88,7 +88,7 @@ public class ComputationPool {
             return;
         }
         log.info("{}: Starting pool", metadata::name);
-        threadPool = newFixedThreadPool(threads, new NamedThreadFactory(metadata.name() + "Pool"));
+        threadPool = newFixedThreadPool(threads, getThreadFactory());
         defaultAssignments.forEach(assignments -> {
             ComputationRunner runner = new ComputationRunner(supplier, metadata, assignments, streamManager, policy);
             threadPool.submit(runner);
@@ -99,6 +99,17 @@ public class ComputationPool {
         log.debug("{}: Pool started, threads: {}", metadata.name(), threads);
     }
 
+    protected ThreadFactory getThreadFactory() {
+        if (policy.useVirtualThreads()) {
+            if (VirtualThreads.isSupported()) {
+                log.info("{}: Using virtual threads", metadata::name);
+                return VirtualThreads.newThreadFactory(metadata.name() + "Pool-");
+            }
+            log.warn("{}: Virtual threads are not supported by this JVM, using platform threads", metadata::name);
+        }
+        return new NamedThreadFactory(metadata.name() + "Pool");
+    }
+
     public boolean isTerminated() {
         return threadPool == null ? true : threadPool.isTerminated();
     }
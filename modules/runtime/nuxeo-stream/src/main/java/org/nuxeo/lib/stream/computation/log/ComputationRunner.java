@@ -21,7 +21,9 @@ package org.nuxeo.lib.stream.computation.log;
 import java.nio.channels.ClosedByInterruptException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -35,6 +37,7 @@ import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.lib.stream.Log4jCorrelation;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
 import org.nuxeo.lib.stream.computation.Computation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
@@ -50,6 +53,7 @@ import org.nuxeo.lib.stream.log.RebalanceException;
 import org.nuxeo.lib.stream.log.RebalanceListener;
 
 import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Histogram;
 import io.dropwizard.metrics5.MetricName;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
@@ -153,6 +157,19 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected Timer processTimerTimer;
 
+    // @since 2023.19
+    protected Histogram recordLatencyHistogram;
+
+    // @since 2023.19
+    protected Histogram prefetchDepthHistogram;
+
+    // @since 2023.19
+    // records read ahead and not yet processed
+    protected final Deque<LogRecord<Record>> prefetched = new ArrayDeque<>();
+
+    // @since 2023.19
+    protected int prefetchDepth = 1;
+
     // @since 11.1
     protected static AtomicInteger skipFailures = new AtomicInteger(0);
 
@@ -214,6 +231,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
     public void run() {
         threadName = Thread.currentThread().getName();
         computation = supplier.get();
+        prefetchDepth = getPrefetchDepth(computation);
         log.debug("{}: Init", metadata::name);
         registerMetrics();
         ReturnCode returnCode = ReturnCode.TERMINATE;
@@ -300,6 +318,10 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                 MetricName.build("nuxeo.streams.computation.processRecord").tagged("computation", name));
         processTimerTimer = registry.timer(
                 MetricName.build("nuxeo.streams.computation.processTimer").tagged("computation", name));
+        recordLatencyHistogram = registry.histogram(
+                MetricName.build("nuxeo.streams.computation.recordLatency").tagged("computation", name));
+        prefetchDepthHistogram = registry.histogram(
+                MetricName.build("nuxeo.streams.computation.prefetchDepth").tagged("computation", name));
     }
 
     protected void closeTailer() {
@@ -431,15 +453,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         if (tailer == null) {
             return false;
         }
-        Duration timeoutRead = getTimeoutDuration();
-        LogRecord<Record> logRecord = null;
-        try {
-            logRecord = tailer.read(timeoutRead);
-        } catch (RebalanceException e) {
-            // the revoke has done a checkpoint we can continue
-        } catch (IllegalArgumentException e) {
-            log.error("Unable to decode record, skipping", e);
-        }
+        LogRecord<Record> logRecord = nextRecord();
         if (logRecord == null) {
             return false;
         }
@@ -455,6 +469,10 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         }
         lastReadTime = System.currentTimeMillis();
         inRecords++;
+        if (record.getWatermark() > 0) {
+            // time elapsed since the record was produced
+            recordLatencyHistogram.update(lastReadTime - Watermark.ofValue(record.getWatermark()).getTimestamp());
+        }
         lowWatermark.mark(record.getWatermark());
         context.setLastOffset(logRecord.offset());
         String from = metadata.reverseMap(stream.getUrn());
@@ -462,6 +480,69 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         return true;
     }
 
+    /**
+     * Returns the next record to process, reading ahead the records already available when the policy defines a
+     * prefetch depth.
+     *
+     * @since 2023.19
+     */
+    protected LogRecord<Record> nextRecord() throws InterruptedException {
+        if (!prefetched.isEmpty()) {
+            return prefetched.poll();
+        }
+        LogRecord<Record> logRecord = readRecord(getTimeoutDuration());
+        if (logRecord == null || prefetchDepth <= 1) {
+            return logRecord;
+        }
+        prefetched.add(logRecord);
+        while (prefetched.size() < prefetchDepth && !isPoisonPill(logRecord)) {
+            // don't wait, only take what is already there
+            logRecord = readRecord(Duration.ZERO);
+            if (logRecord == null) {
+                break;
+            }
+            prefetched.add(logRecord);
+        }
+        prefetchDepthHistogram.update(prefetched.size());
+        // can be empty if a rebalance happened during the read ahead
+        return prefetched.poll();
+    }
+
+    /**
+     * Returns the number of records to read ahead.
+     * <p>
+     * The checkpoint is delayed until the records read ahead are processed, so it commits the records processed in
+     * the meantime. A batch computation only processes its records when its batch is complete, committing them before
+     * would lose the ones of an incomplete batch on failure, so there is no read ahead for batch computations.
+     *
+     * @since 2023.19
+     */
+    protected int getPrefetchDepth(Computation computation) {
+        int depth = policy.getPrefetchDepth();
+        if (depth > 1 && computation instanceof AbstractBatchComputation) {
+            log.warn("{}: Read ahead is not supported by batch computations, ignoring prefetch: {}", metadata.name(),
+                    depth);
+            return 1;
+        }
+        return depth;
+    }
+
+    protected boolean isPoisonPill(LogRecord<Record> logRecord) {
+        // stop reading ahead at a poison pill, so that it can be checkpointed before stopping
+        return logRecord.message().getFlags().contains(Record.Flag.POISON_PILL);
+    }
+
+    protected LogRecord<Record> readRecord(Duration timeout) throws InterruptedException {
+        try {
+            return tailer.read(timeout);
+        } catch (RebalanceException e) {
+            // the revoke has done a checkpoint we can continue
+        } catch (IllegalArgumentException e) {
+            log.error("Unable to decode record, skipping", e);
+        }
+        return null;
+    }
+
     protected void processRecordWithTracing(String from, Record record) {
         Span span = getSpanFromRecord(record);
         try (Scope scope = Tracing.getTracer().withSpan(span)) {
@@ -581,6 +662,10 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         if (!context.requireCheckpoint()) {
             return;
         }
+        if (!prefetched.isEmpty()) {
+            // the tailer position includes the records read ahead, wait until they are processed
+            return;
+        }
         try {
             checkpoint();
         } catch (Exception e) {
@@ -660,6 +745,8 @@ public class ComputationRunner implements Runnable, RebalanceListener {
     @Override
     public void onPartitionsRevoked(Collection<LogPartition> partitions) {
         setThreadName("rebalance revoked");
+        // the records read ahead will be read again by the new owner of their partition
+        prefetched.clear();
         // Flush the context in case of incomplete rebalance (NXP-29208)
         this.context = new ComputationContextImpl(streamManager, metadata, policy, true);
         computation.init(context);
@@ -670,6 +757,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         lastReadTime = System.currentTimeMillis();
         boolean isSpare = partitions.isEmpty();
         setThreadName("rebalance assigned");
+        prefetched.clear();
         // reset the context
         this.context = new ComputationContextImpl(streamManager, metadata, policy, isSpare);
         log.debug("{}: Init isSpare={}", metadata.name(), isSpare);
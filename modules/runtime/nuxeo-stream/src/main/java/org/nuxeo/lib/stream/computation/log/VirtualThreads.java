@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.computation.log;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Creates virtual threads when the JVM supports them (Java 21+).
+ * <p>
+ * The code is compiled for Java 17, so the virtual thread builder is looked up by reflection.
+ *
+ * @since 2023.19
+ */
+public final class VirtualThreads {
+
+    private static final Logger log = LogManager.getLogger(VirtualThreads.class);
+
+    // null when not supported
+    protected static final Method OF_VIRTUAL;
+
+    protected static final Method NAME;
+
+    protected static final Method FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+            log.debug("Virtual threads are not supported by this JVM");
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+    }
+
+    private VirtualThreads() {
+        // utility class
+    }
+
+    /**
+     * Whether the JVM supports virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns a factory of virtual threads named with the given prefix followed by a counter.
+     *
+     * @throws UnsupportedOperationException if the JVM doesn't support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+            return runnable -> {
+                Thread t = factory.newThread(runnable);
+                t.setUncaughtExceptionHandler((t1, e) -> log.error("Uncaught exception: {}", e.getMessage(), e));
+                return t;
+            };
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Cannot create virtual threads", e);
+        }
+    }
+
+}
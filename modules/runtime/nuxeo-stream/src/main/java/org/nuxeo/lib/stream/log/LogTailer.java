@@ -51,6 +51,19 @@ public interface LogTailer<M extends Externalizable> extends AutoCloseable {
      */
     LogRecord<M> read(Duration timeout) throws InterruptedException;
 
+    /**
+     * Waits for the timeout without reading messages, while staying a live member of the consumer group: a tailer that
+     * must be polled to keep its partitions, like Kafka, pauses its partitions and polls. The next read returns the
+     * message following the last one read.
+     *
+     * @throws RebalanceException if a partition rebalancing happen during the wait, this is possible only when using
+     *             {@link LogManager#subscribe}.
+     * @since 2023.19
+     */
+    default void idle(Duration timeout) throws InterruptedException {
+        Thread.sleep(timeout.toMillis());
+    }
+
     /**
      * Commit current positions for all partitions (last message offset returned by read).
      */
@@ -32,6 +32,8 @@ import org.nuxeo.lib.stream.log.kafka.KafkaLogConfig;
 import org.nuxeo.lib.stream.log.kafka.KafkaLogManager;
 import org.nuxeo.lib.stream.log.mem.MemLogConfig;
 import org.nuxeo.lib.stream.log.mem.MemLogManager;
+import org.nuxeo.lib.stream.log.mmap.MMapLogConfig;
+import org.nuxeo.lib.stream.log.mmap.MMapLogManager;
 
 /**
  * @since 11.1
@@ -44,6 +46,9 @@ public class UnifiedLogManager implements LogManager {
 
     protected LogManager kafkaManager;
 
+    // @since 2023.19
+    protected List<LogManager> mmapManagers = new ArrayList<>();
+
     protected LogManager defaultManager;
 
     protected LogConfig defaultConfig;
@@ -57,6 +62,7 @@ public class UnifiedLogManager implements LogManager {
         this.configs = configs;
         createMemLogManager();
         createKafkaLogManager();
+        createMMapLogManagers();
         findDefaultLogManger();
     }
 
@@ -82,6 +88,22 @@ public class UnifiedLogManager implements LogManager {
         }
     }
 
+    /**
+     * Creates a manager per config, each config owning its own base directory.
+     *
+     * @since 2023.19
+     */
+    protected void createMMapLogManagers() {
+        configs.stream()
+               .filter(MMapLogConfig.class::isInstance)
+               .map(MMapLogConfig.class::cast)
+               .forEach(config -> {
+                   LogManager manager = new MMapLogManager(config);
+                   mmapManagers.add(manager);
+                   managers.put(config, manager);
+               });
+    }
+
     protected void findDefaultLogManger() {
         List<LogConfig> defaultConfigs = configs.stream().filter(LogConfig::isDefault).collect(Collectors.toList());
         // use the last default config
@@ -92,6 +114,8 @@ public class UnifiedLogManager implements LogManager {
         }
         if (defaultConfig instanceof MemLogConfig) {
             defaultManager = memManager;
+        } else if (defaultConfig instanceof MMapLogConfig) {
+            defaultManager = managers.get(defaultConfig);
         } else {
             defaultManager = kafkaManager;
         }
@@ -184,6 +208,7 @@ public class UnifiedLogManager implements LogManager {
         if (kafkaManager != null) {
             names.addAll(kafkaManager.listAllNames());
         }
+        mmapManagers.forEach(manager -> names.addAll(manager.listAllNames()));
         return names;
     }
 
@@ -200,6 +225,7 @@ public class UnifiedLogManager implements LogManager {
         if (kafkaManager != null) {
             kafkaManager.close();
         }
+        mmapManagers.forEach(LogManager::close);
     }
 
     @Override
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -173,17 +174,7 @@ public class KafkaLogTailer<M extends Externalizable> implements LogTailer<M>, C
         }
         if (records.isEmpty()) {
             int items = poll(timeout);
-            if (isRebalanced || isRevoked || isLost) {
-                if (isRebalanced) {
-                    log.debug("Rebalance happens during poll, raising exception");
-                    isRebalanced = false;
-                } else {
-                    log.warn("Incomplete rebalance during poll, raising exception, revoked: {}, lost: {}", isRevoked,
-                            isLost);
-                    isRevoked = isLost = false;
-                }
-                throw new RebalanceException("Partitions has been rebalanced");
-            }
+            checkRebalance();
             if (items == 0) {
                 log.trace("No data {} after {} ms", () -> id, timeout::toMillis);
                 return null;
@@ -205,6 +196,47 @@ public class KafkaLogTailer<M extends Externalizable> implements LogTailer<M>, C
         return new LogRecord<>(value, offset);
     }
 
+    protected void checkRebalance() {
+        if (isRebalanced || isRevoked || isLost) {
+            if (isRebalanced) {
+                log.debug("Rebalance happens during poll, raising exception");
+                isRebalanced = false;
+            } else {
+                log.warn("Incomplete rebalance during poll, raising exception, revoked: {}, lost: {}", isRevoked,
+                        isLost);
+                isRevoked = isLost = false;
+            }
+            throw new RebalanceException("Partitions has been rebalanced");
+        }
+    }
+
+    @Override
+    public void idle(Duration timeout) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The tailer has been closed.");
+        }
+        // polling paused partitions returns no record but keeps the consumer in the group
+        Set<TopicPartition> paused = consumer.assignment();
+        consumer.pause(paused);
+        try {
+            lastPollTimestamp = System.currentTimeMillis();
+            // partitions assigned by a rebalance are not paused, their records are read after the rebalance exception
+            consumer.poll(timeout).forEach(records::add);
+        } catch (org.apache.kafka.common.errors.InterruptException e) {
+            throw new InterruptedException(e.getMessage());
+        } catch (WakeupException e) {
+            log.debug("Receiving wakeup from another thread to close the tailer");
+            close();
+            throw new IllegalStateException("poll interrupted because tailer has been closed");
+        } finally {
+            if (consumer != null) {
+                Set<TopicPartition> assigned = consumer.assignment();
+                consumer.resume(paused.stream().filter(assigned::contains).collect(Collectors.toSet()));
+            }
+        }
+        checkRebalance();
+    }
+
     protected int poll(Duration timeout) throws InterruptedException {
         records.clear();
         try {
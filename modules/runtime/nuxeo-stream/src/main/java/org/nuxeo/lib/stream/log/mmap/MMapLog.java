@@ -0,0 +1,135 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * A Log stored in a directory, with one sub directory per partition.
+ *
+ * @since 2023.19
+ */
+public class MMapLog {
+
+    protected static final String METADATA_FILE = "metadata.properties";
+
+    protected static final String PARTITIONS_KEY = "partitions";
+
+    private static final int MAX_PARTITIONS = 100;
+
+    protected final Name name;
+
+    protected final Path dir;
+
+    protected final MMapLogPartition[] partitions;
+
+    protected MMapLog(Name name, Path dir, int size, int segmentSize, Duration retention) {
+        this.name = name;
+        this.dir = dir;
+        partitions = new MMapLogPartition[size];
+        for (int i = 0; i < size; i++) {
+            partitions[i] = new MMapLogPartition(dir.resolve(String.format("partition-%02d", i)), segmentSize,
+                    retention);
+        }
+    }
+
+    /**
+     * Creates the Log directory, the metadata file is written last so a Log exists only once fully created.
+     */
+    public static MMapLog create(Name name, Path dir, int size, int segmentSize, Duration retention) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be > 0, requested: %d".formatted(size));
+        }
+        if (size > MAX_PARTITIONS) {
+            throw new IllegalArgumentException(
+                    "Cannot create more than: %d partitions for log: %s, requested: %d".formatted(MAX_PARTITIONS, name,
+                            size));
+        }
+        MMapLog log = new MMapLog(name, dir, size, segmentSize, retention);
+        Properties metadata = new Properties();
+        metadata.setProperty(PARTITIONS_KEY, String.valueOf(size));
+        try (Writer writer = Files.newBufferedWriter(dir.resolve(METADATA_FILE))) {
+            metadata.store(writer, name.getUrn());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write metadata for log: " + name, e);
+        }
+        return log;
+    }
+
+    public static MMapLog open(Name name, Path dir, int segmentSize, Duration retention) {
+        Properties metadata = new Properties();
+        try (Reader reader = Files.newBufferedReader(dir.resolve(METADATA_FILE))) {
+            metadata.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read metadata for log: " + name, e);
+        }
+        int size = Integer.parseInt(metadata.getProperty(PARTITIONS_KEY));
+        return new MMapLog(name, dir, size, segmentSize, retention);
+    }
+
+    public static boolean exists(Path dir) {
+        return Files.exists(dir.resolve(METADATA_FILE));
+    }
+
+    public int size() {
+        return partitions.length;
+    }
+
+    public MMapLogPartition getPartition(int partition) {
+        return partitions[partition];
+    }
+
+    public List<Name> getGroups() {
+        return Stream.of(partitions).map(MMapLogPartition::getGroups).flatMap(Collection::stream).distinct().toList();
+    }
+
+    public void flush() {
+        Stream.of(partitions).forEach(MMapLogPartition::flush);
+    }
+
+    /**
+     * Deletes the Log directory, the metadata file is removed first so the Log does not exist anymore.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(dir.resolve(METADATA_FILE));
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted((a, b) -> b.compareTo(a))::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete log: " + name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLog{name=" + name + ", dir=" + dir + ", size=" + partitions.length + "}";
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
+
+import java.io.Externalizable;
+import java.time.Duration;
+import java.util.Objects;
+
+import org.apache.commons.lang3.SerializationException;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.StreamRuntimeException;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.LogOffset;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.internals.CloseableLogAppender;
+import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
+
+/**
+ * Memory-mapped file implementation of {@link CloseableLogAppender}.
+ *
+ * @since 2023.19
+ */
+public class MMapLogAppender<M extends Externalizable> implements CloseableLogAppender<M> {
+
+    private static final Logger log = LogManager.getLogger(MMapLogAppender.class);
+
+    protected static final long POLL_INTERVAL_MS = 100L;
+
+    private final Name name;
+
+    private final Codec<M> codec;
+
+    private final MMapLog mmapLog;
+
+    private volatile boolean closed;
+
+    public MMapLogAppender(MMapLogs mmapLogs, Name name, Codec<M> codec) {
+        Objects.requireNonNull(codec);
+        this.name = name;
+        this.codec = codec;
+        mmapLog = mmapLogs.getLog(name);
+        log.debug("Opening: {}", this);
+    }
+
+    @Override
+    public Name name() {
+        return name;
+    }
+
+    @Override
+    public Codec<M> getCodec() {
+        return codec;
+    }
+
+    @Override
+    public boolean closed() {
+        return closed;
+    }
+
+    @Override
+    public int size() {
+        return mmapLog.size();
+    }
+
+    @Override
+    public LogOffset append(int partition, M message) {
+        if (closed) {
+            throw new IndexOutOfBoundsException();
+        }
+        boolean noCodec = NO_CODEC.equals(codec);
+        byte[] bytes;
+        if (noCodec) {
+            // default format for backward compatibility
+            try {
+                bytes = SerializationUtils.serialize(message);
+            } catch (SerializationException e) {
+                throw new StreamRuntimeException(e);
+            }
+        } else {
+            bytes = codec.encode(message);
+        }
+        long offset = mmapLog.getPartition(partition).append(noCodec, bytes);
+        LogOffset ret = new LogOffsetImpl(name, partition, offset);
+        log.debug("append to {}, value: {}", ret, message);
+        return ret;
+    }
+
+    public LogTailer<M> createTailer(LogPartition partition, Name group, Codec<M> codec) {
+        return new MMapLogTailer<>(mmapLog, partition, group, codec);
+    }
+
+    @Override
+    public boolean waitFor(LogOffset offset, Name group, Duration timeout) throws InterruptedException {
+        if (!name.equals(offset.partition().name())) {
+            throw new IllegalArgumentException(name + " can not wait for an offset with a different Log: " + offset);
+        }
+        MMapLogPartition partition = mmapLog.getPartition(offset.partition().partition());
+        boolean ret = isProcessed(partition, group, offset.offset());
+        long timeoutMs = timeout.toMillis();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long delay = Math.min(POLL_INTERVAL_MS, timeoutMs);
+        while (!ret && System.currentTimeMillis() < deadline) {
+            Thread.sleep(delay);
+            ret = isProcessed(partition, group, offset.offset());
+        }
+        log.debug("waitFor {}/{} returns: {}", offset, group, ret);
+        return ret;
+    }
+
+    protected boolean isProcessed(MMapLogPartition partition, Name group, long offset) {
+        // the committed offset is the next offset to read
+        return partition.committed(group) > offset;
+    }
+
+    @Override
+    public void close() {
+        log.debug("Closing: {}", this);
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLogAppender{nbPartitions=%d, name='%s', closed=%s, codec=%s}".formatted(mmapLog.size(), name,
+                closed, codec);
+    }
+
+}
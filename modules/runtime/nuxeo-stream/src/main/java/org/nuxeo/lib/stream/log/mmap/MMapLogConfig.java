@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.nuxeo.lib.stream.log.AbstractLogConfig;
+
+/**
+ * @since 2023.19
+ */
+public class MMapLogConfig extends AbstractLogConfig {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+
+    protected final String name;
+
+    protected final Path basePath;
+
+    protected final int segmentSize;
+
+    protected final Duration retention;
+
+    public MMapLogConfig(String name, boolean defaultConfig, List<String> patterns, Path basePath) {
+        this(name, defaultConfig, patterns, basePath, DEFAULT_SEGMENT_SIZE, DEFAULT_RETENTION);
+    }
+
+    /**
+     * @param segmentSize the size in bytes of a segment file
+     * @param retention the minimum age of a segment before deletion, a zero duration disables the retention
+     */
+    public MMapLogConfig(String name, boolean defaultConfig, List<String> patterns, Path basePath, int segmentSize,
+            Duration retention) {
+        super(defaultConfig, patterns);
+        if (basePath == null) {
+            throw new IllegalArgumentException("basePath required");
+        }
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.name = name;
+        this.basePath = basePath;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+    }
+
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLogConfig{name='" + name + "', basePath=" + basePath + ", segmentSize=" + segmentSize
+                + ", retention=" + retention + "}";
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import static org.nuxeo.lib.stream.log.mmap.MMapLogConfig.DEFAULT_RETENTION;
+import static org.nuxeo.lib.stream.log.mmap.MMapLogConfig.DEFAULT_SEGMENT_SIZE;
+
+import java.io.Externalizable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.LogLag;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.RebalanceListener;
+import org.nuxeo.lib.stream.log.internals.AbstractLogManager;
+import org.nuxeo.lib.stream.log.internals.CloseableLogAppender;
+
+/**
+ * A {@link org.nuxeo.lib.stream.log.LogManager} persisting Logs on local disk.
+ * <p>
+ * Each partition is a sequence of append-only segment files read through memory mapping, committed offsets are
+ * persisted per group. Segments older than the retention are deleted when a new segment is rolled.
+ * <p>
+ * A base directory must be used by a single JVM, there is no cross process coordination.
+ *
+ * @since 2023.19
+ */
+public class MMapLogManager extends AbstractLogManager {
+
+    protected final MMapLogs mmapLogs;
+
+    public MMapLogManager(Path basePath) {
+        this(basePath, DEFAULT_SEGMENT_SIZE, DEFAULT_RETENTION);
+    }
+
+    public MMapLogManager(MMapLogConfig config) {
+        this(config.getBasePath(), config.getSegmentSize(), config.getRetention());
+    }
+
+    public MMapLogManager(Path basePath, int segmentSize, Duration retention) {
+        mmapLogs = new MMapLogs(basePath, segmentSize, retention);
+    }
+
+    @Override
+    public boolean exists(Name name) {
+        return mmapLogs.exists(name);
+    }
+
+    @Override
+    public void create(Name name, int size) {
+        mmapLogs.createLog(name, size);
+    }
+
+    @Override
+    public int getSize(Name name) {
+        return mmapLogs.getLog(name).size();
+    }
+
+    @Override
+    public boolean delete(Name name) {
+        appenders.remove(name);
+        return mmapLogs.deleteLog(name);
+    }
+
+    @Override
+    public List<LogLag> getLagPerPartition(Name name, Name group) {
+        MMapLog log = mmapLogs.getLog(name);
+        int size = log.size();
+        List<LogLag> lags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            MMapLogPartition partition = log.getPartition(i);
+            long end = partition.endOffset();
+            // records removed by the retention are not part of the lag
+            long committed = Math.max(partition.committed(group), partition.firstOffset());
+            lags.add(new LogLag(committed, end, end - committed, end));
+        }
+        return lags;
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLogManager{basePath=" + mmapLogs.basePath + "}";
+    }
+
+    @Override
+    public List<Name> listAllNames() {
+        return mmapLogs.listAllNames();
+    }
+
+    @Override
+    public List<Name> listConsumerGroups(Name name) {
+        return mmapLogs.getLogOptional(name).map(MMapLog::getGroups).orElse(List.of());
+    }
+
+    @Override
+    public <M extends Externalizable> CloseableLogAppender<M> createAppender(Name name, Codec<M> codec) {
+        return new MMapLogAppender<>(mmapLogs, name, codec);
+    }
+
+    @Override
+    protected <M extends Externalizable> LogTailer<M> doCreateTailer(Collection<LogPartition> partitions, Name group,
+            Codec<M> codec) {
+        List<MMapLogTailer<M>> tailers = partitions.stream() //
+                                                   .map(p -> createMMapLogTailer(p, group, codec))
+                                                   .toList();
+        if (tailers.size() == 1) {
+            return tailers.iterator().next();
+        }
+        return new MMapCompoundLogTailer<>(tailers, group);
+    }
+
+    private <M extends Externalizable> MMapLogTailer<M> createMMapLogTailer(LogPartition p, Name group,
+            Codec<M> codec) {
+        return (MMapLogTailer<M>) ((MMapLogAppender<M>) getAppender(p.name(), codec)).createTailer(p, group, codec);
+    }
+
+    @Override
+    protected <M extends Externalizable> LogTailer<M> doSubscribe(Name group, Collection<Name> names,
+            RebalanceListener listener, Codec<M> codec) {
+        throw new UnsupportedOperationException("subscribe is not supported by MMap implementation");
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        mmapLogs.close();
+    }
+
+}
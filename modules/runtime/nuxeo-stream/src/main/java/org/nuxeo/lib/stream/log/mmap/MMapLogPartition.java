@@ -0,0 +1,331 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import static org.nuxeo.lib.stream.log.mmap.MMapLogSegment.FLAG_NOCODEC;
+import static org.nuxeo.lib.stream.log.mmap.MMapLogSegment.HEADER_SIZE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * A partition stored as a sequence of memory-mapped segment files.
+ * <p>
+ * Appends are serialized on the partition, tailers read directly from the mapped segments without locking.
+ *
+ * @since 2023.19
+ */
+public class MMapLogPartition {
+
+    private static final Logger log = LogManager.getLogger(MMapLogPartition.class);
+
+    public record BytesAndOffset(byte[] bytes, long offset) { // NOSONAR (doesn't need equals/hashCode)
+    }
+
+    protected final Path dir;
+
+    protected final int segmentSize;
+
+    protected final Duration retention;
+
+    // base offset -> segment
+    protected final ConcurrentSkipListMap<Long, MMapLogSegment> segments = new ConcurrentSkipListMap<>();
+
+    // group -> committed offset tracker
+    protected final Map<Name, MMapOffsetTracker> offsetTrackers = new ConcurrentHashMap<>();
+
+    // group -> tailer
+    protected final Map<Name, MMapPartitionTailer> tailers = new ConcurrentHashMap<>();
+
+    // the segment receiving appends, guarded by this
+    protected volatile MMapLogSegment active;
+
+    public MMapLogPartition(Path dir, int segmentSize, Duration retention) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (MMapLogSegment.isSegment(file)) {
+                        MMapLogSegment segment = MMapLogSegment.open(file);
+                        segments.put(segment.baseOffset(), segment);
+                    } else if (MMapOffsetTracker.isOffsetFile(file)) {
+                        Name group = MMapOffsetTracker.parseGroup(file);
+                        offsetTrackers.put(group, new MMapOffsetTracker(dir, group));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open partition: " + dir, e);
+        }
+        if (!segments.isEmpty()) {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    /**
+     * Appends a record and returns its offset.
+     */
+    public synchronized long append(boolean noCodec, byte[] bytes) {
+        MMapLogSegment segment = active;
+        if (segment == null || !segment.hasRoom(bytes.length)) {
+            segment = roll(bytes.length);
+        }
+        return segment.append(noCodec ? FLAG_NOCODEC : 0, System.currentTimeMillis(), bytes);
+    }
+
+    protected MMapLogSegment roll(int payloadLength) {
+        MMapLogSegment previous = active;
+        // a record larger than the segment size gets its own segment
+        int capacity = Math.max(segmentSize, HEADER_SIZE + payloadLength);
+        MMapLogSegment segment = MMapLogSegment.create(dir, endOffset(), capacity);
+        segments.put(segment.baseOffset(), segment);
+        active = segment;
+        if (previous != null) {
+            previous.flush();
+            log.debug("Roll segment: {} -> {}", previous, segment);
+            applyRetention();
+        }
+        return segment;
+    }
+
+    /**
+     * Deletes the non active segments whose last record is older than the retention duration.
+     */
+    protected void applyRetention() {
+        if (retention == null || retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        long limit = System.currentTimeMillis() - retention.toMillis();
+        for (MMapLogSegment segment : segments.values()) {
+            if (segment == active || segment.lastTimestamp() >= limit) {
+                // segments are ordered, next ones are more recent
+                break;
+            }
+            log.debug("Retention, delete segment: {}", segment);
+            segments.remove(segment.baseOffset());
+            segment.delete();
+        }
+    }
+
+    /**
+     * Returns the offset of the first available record.
+     */
+    public long firstOffset() {
+        Map.Entry<Long, MMapLogSegment> first = segments.firstEntry();
+        return first == null ? 0 : first.getKey();
+    }
+
+    /**
+     * Returns the offset following the last record.
+     */
+    public long endOffset() {
+        MMapLogSegment segment = active;
+        return segment == null ? 0 : segment.endOffset();
+    }
+
+    public long size() {
+        return endOffset();
+    }
+
+    /**
+     * Returns the offset of the first record whose append timestamp is greater or equal to {@code timestamp}, or -1 if
+     * there is none.
+     */
+    public long offsetForTimestamp(long timestamp) {
+        for (MMapLogSegment segment : segments.values()) {
+            if (segment.lastTimestamp() < timestamp) {
+                continue;
+            }
+            int pos = 0;
+            for (long offset = segment.baseOffset(); offset < segment.endOffset(); offset++) {
+                if (segment.timestamp(pos) >= timestamp) {
+                    return offset;
+                }
+                pos = segment.next(pos);
+            }
+        }
+        return -1;
+    }
+
+    public MMapOffsetTracker getCommittedOffsetTracker(Name group) {
+        return offsetTrackers.computeIfAbsent(group, k -> new MMapOffsetTracker(dir, group));
+    }
+
+    public long committed(Name group) {
+        MMapOffsetTracker tracker = offsetTrackers.get(group);
+        return tracker == null ? 0 : tracker.get();
+    }
+
+    public Set<Name> getGroups() {
+        return offsetTrackers.keySet();
+    }
+
+    public MMapPartitionTailer createTailer(Name group) {
+        MutableBoolean created = new MutableBoolean();
+        MMapPartitionTailer tailer = tailers.computeIfAbsent(group, k -> {
+            created.setTrue();
+            return new MMapPartitionTailer(group, getCommittedOffsetTracker(group));
+        });
+        if (created.isFalse()) {
+            throw new IllegalArgumentException("Tailer already exists: " + group);
+        }
+        return tailer;
+    }
+
+    public void closeTailer(Name group) {
+        // note that we don't reset the committed offset
+        tailers.remove(group);
+    }
+
+    public void flush() {
+        segments.values().forEach(MMapLogSegment::flush);
+        offsetTrackers.values().forEach(MMapOffsetTracker::flush);
+    }
+
+    public List<MMapLogSegment> getSegments() {
+        return List.copyOf(segments.values());
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLogPartition{dir=" + dir + ", segments=" + segments.size() + ", first=" + firstOffset() + ", end="
+                + endOffset() + "}";
+    }
+
+    /**
+     * A tailer for a partition maintains an offset (current reading position) and a cursor on the mapped segment.
+     */
+    public class MMapPartitionTailer {
+
+        protected final Name group;
+
+        protected final MMapOffsetTracker offsetTracker;
+
+        protected long offset;
+
+        // the segment and position of the current offset, null when the cursor needs to be located
+        protected MMapLogSegment segment;
+
+        protected int position;
+
+        public MMapPartitionTailer(Name group, MMapOffsetTracker offsetTracker) {
+            this.group = group;
+            this.offsetTracker = offsetTracker;
+        }
+
+        /**
+         * Reads a record from the partition and increments the current offset.
+         *
+         * @param noCodec {@code true} if the record is expected to be written without codec
+         * @return the record, or {@code null} if there is no record at the current offset
+         * @throws IllegalArgumentException if the record encoding does not match
+         */
+        public BytesAndOffset read(boolean noCodec) {
+            if (!locate()) {
+                return null;
+            }
+            boolean recordNoCodec = (segment.flags(position) & FLAG_NOCODEC) != 0;
+            if (noCodec != recordNoCodec) {
+                throw new IllegalArgumentException("bad tag");
+            }
+            BytesAndOffset ret = new BytesAndOffset(segment.payload(position), offset);
+            position = segment.next(position);
+            offset++;
+            return ret;
+        }
+
+        /**
+         * Positions the cursor on the segment containing the current offset, returns {@code true} if a record is
+         * available at this offset.
+         */
+        protected boolean locate() {
+            MMapLogSegment current = segment;
+            if (current != null && offset < current.endOffset()) {
+                return true;
+            }
+            Map.Entry<Long, MMapLogSegment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                // records before the first segment have been removed by the retention
+                entry = segments.firstEntry();
+                if (entry == null) {
+                    return false;
+                }
+                offset = entry.getKey();
+            }
+            MMapLogSegment found = entry.getValue();
+            if (found != current) {
+                segment = found;
+                position = found.positionOf(offset);
+            }
+            return offset < found.endOffset();
+        }
+
+        public long offset() {
+            return offset;
+        }
+
+        public void toStart() {
+            moveTo(firstOffset());
+        }
+
+        public void toEnd() {
+            moveTo(endOffset());
+        }
+
+        public boolean moveToOffset(long offset) {
+            if (offset < 0 || offset > endOffset()) {
+                return false;
+            }
+            moveTo(offset);
+            return true;
+        }
+
+        protected void moveTo(long offset) {
+            this.offset = offset;
+            segment = null;
+        }
+
+        public void commit(long committed) {
+            offsetTracker.set(committed);
+        }
+
+        public long committed() {
+            return offsetTracker.get();
+        }
+
+        public void close() {
+            MMapLogPartition.this.closeTailer(group);
+        }
+    }
+
+}
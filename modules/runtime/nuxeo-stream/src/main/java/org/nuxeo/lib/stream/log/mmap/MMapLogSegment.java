@@ -0,0 +1,220 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An append-only segment file of a partition, accessed through a {@link MappedByteBuffer}.
+ * <p>
+ * A segment contains consecutive records starting at {@link #baseOffset()}, which is also the name of the file. Each
+ * record is laid out as: {@code [int recordSize][byte flags][long timestamp][payload]}. The record size includes the
+ * header so it is never 0, a 0 size marks the end of the written data.
+ * <p>
+ * Appends must be serialized by the caller, reads are lock free: the number of records and the write position are
+ * published through volatile fields after the record is fully written.
+ *
+ * @since 2023.19
+ */
+public class MMapLogSegment {
+
+    protected static final String SUFFIX = ".log";
+
+    protected static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES;
+
+    protected static final byte FLAG_NOCODEC = 1;
+
+    protected final Path file;
+
+    protected final long baseOffset;
+
+    protected final MappedByteBuffer buffer;
+
+    protected final int capacity;
+
+    // number of records, written only by the appender
+    protected volatile int count;
+
+    // next write position, written only by the appender
+    protected volatile int position;
+
+    protected MMapLogSegment(Path file, long baseOffset, MappedByteBuffer buffer) {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    /**
+     * Creates a new segment file of {@code capacity} bytes.
+     */
+    public static MMapLogSegment create(Path dir, long baseOffset, int capacity) {
+        Path file = dir.resolve(fileName(baseOffset));
+        try (FileChannel channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            return new MMapLogSegment(file, baseOffset, channel.map(READ_WRITE, 0, capacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create segment: " + file, e);
+        }
+    }
+
+    /**
+     * Opens an existing segment file, the records are scanned to recover the write position.
+     */
+    public static MMapLogSegment open(Path file) {
+        long baseOffset = parseBaseOffset(file);
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            MMapLogSegment segment = new MMapLogSegment(file, baseOffset, channel.map(READ_WRITE, 0, channel.size()));
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open segment: " + file, e);
+        }
+    }
+
+    protected static String fileName(long baseOffset) {
+        return String.format("%020d%s", baseOffset, SUFFIX);
+    }
+
+    protected static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    protected static long parseBaseOffset(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    protected void recover() {
+        int pos = 0;
+        int records = 0;
+        while (pos + HEADER_SIZE <= capacity) {
+            int size = buffer.getInt(pos);
+            if (size < HEADER_SIZE || pos + size > capacity) {
+                // end of data or partially written record
+                break;
+            }
+            pos += size;
+            records++;
+        }
+        position = pos;
+        count = records;
+    }
+
+    public long baseOffset() {
+        return baseOffset;
+    }
+
+    /**
+     * Returns the offset following the last record of the segment.
+     */
+    public long endOffset() {
+        return baseOffset + count;
+    }
+
+    public boolean hasRoom(int payloadLength) {
+        return position + HEADER_SIZE + payloadLength <= capacity;
+    }
+
+    /**
+     * Appends a record, the caller must check that there is enough room. Returns the offset of the record.
+     */
+    public long append(byte flags, long timestamp, byte[] payload) {
+        int pos = position;
+        int size = HEADER_SIZE + payload.length;
+        buffer.put(pos + HEADER_SIZE, payload);
+        buffer.put(pos + Integer.BYTES, flags);
+        buffer.putLong(pos + Integer.BYTES + Byte.BYTES, timestamp);
+        // the size is written last, a non zero size means a complete record
+        buffer.putInt(pos, size);
+        position = pos + size;
+        return baseOffset + count++;
+    }
+
+    /**
+     * Returns the position of the record following the one at {@code pos}.
+     */
+    public int next(int pos) {
+        return pos + buffer.getInt(pos);
+    }
+
+    public byte flags(int pos) {
+        return buffer.get(pos + Integer.BYTES);
+    }
+
+    public long timestamp(int pos) {
+        return buffer.getLong(pos + Integer.BYTES + Byte.BYTES);
+    }
+
+    /**
+     * Copies the payload of the record at {@code pos} straight from the mapped memory.
+     */
+    public byte[] payload(int pos) {
+        byte[] ret = new byte[buffer.getInt(pos) - HEADER_SIZE];
+        buffer.get(pos + HEADER_SIZE, ret);
+        return ret;
+    }
+
+    /**
+     * Returns the position of the record at {@code offset}, the offset must belong to the segment.
+     */
+    public int positionOf(long offset) {
+        int pos = 0;
+        for (long i = baseOffset; i < offset; i++) {
+            pos = next(pos);
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the timestamp of the last record or -1 for an empty segment.
+     */
+    public long lastTimestamp() {
+        int records = count;
+        if (records == 0) {
+            return -1;
+        }
+        return timestamp(positionOf(baseOffset + records - 1));
+    }
+
+    public void flush() {
+        buffer.force();
+    }
+
+    public void delete() {
+        try {
+            // the mapping is released when the buffer is garbage collected
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete segment: " + file, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MMapLogSegment{file=" + file + ", count=" + count + ", position=" + position + ", capacity="
+                + capacity + "}";
+    }
+}
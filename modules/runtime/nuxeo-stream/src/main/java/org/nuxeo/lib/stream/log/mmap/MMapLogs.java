@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * The Logs stored under a base directory, each Log is opened lazily on first access.
+ *
+ * @since 2023.19
+ */
+public class MMapLogs {
+
+    protected final Path basePath;
+
+    protected final int segmentSize;
+
+    protected final Duration retention;
+
+    protected final Map<Name, MMapLog> logs = new ConcurrentHashMap<>();
+
+    public MMapLogs(Path basePath, int segmentSize, Duration retention) {
+        this.basePath = basePath;
+        this.segmentSize = segmentSize;
+        this.retention = retention;
+        try {
+            Files.createDirectories(basePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create base directory: " + basePath, e);
+        }
+    }
+
+    protected Path getLogPath(Name name) {
+        return basePath.resolve(name.getId());
+    }
+
+    public synchronized MMapLog createLog(Name name, int size) {
+        MutableBoolean created = new MutableBoolean();
+        MMapLog log = logs.computeIfAbsent(name, k -> {
+            if (MMapLog.exists(getLogPath(name))) {
+                return null;
+            }
+            created.setTrue();
+            return MMapLog.create(name, getLogPath(name), size, segmentSize, retention);
+        });
+        if (created.isFalse()) {
+            throw new IllegalArgumentException("Log already exists: " + name);
+        }
+        return log;
+    }
+
+    public Optional<MMapLog> getLogOptional(Name name) {
+        return Optional.ofNullable(logs.computeIfAbsent(name, k -> {
+            Path path = getLogPath(name);
+            return MMapLog.exists(path) ? MMapLog.open(name, path, segmentSize, retention) : null;
+        }));
+    }
+
+    public MMapLog getLog(Name name) {
+        return getLogOptional(name).orElseThrow(() -> new IllegalArgumentException("Invalid name: " + name));
+    }
+
+    public synchronized boolean deleteLog(Name name) {
+        Optional<MMapLog> log = getLogOptional(name);
+        log.ifPresent(MMapLog::delete);
+        logs.remove(name);
+        return log.isPresent();
+    }
+
+    public List<Name> listAllNames() {
+        try (Stream<Path> dirs = Files.list(basePath)) {
+            return dirs.filter(MMapLog::exists).map(dir -> Name.ofId(dir.getFileName().toString())).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list logs in: " + basePath, e);
+        }
+    }
+
+    public boolean exists(Name name) {
+        return logs.containsKey(name) || MMapLog.exists(getLogPath(name));
+    }
+
+    public void close() {
+        logs.values().forEach(MMapLog::flush);
+        logs.clear();
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.mmap;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * Tracks the committed offset of a group on a partition, the offset is persisted in a small memory-mapped file so a
+ * commit does not involve any system call.
+ *
+ * @since 2023.19
+ */
+public class MMapOffsetTracker {
+
+    protected static final String SUFFIX = ".offset";
+
+    protected final Name group;
+
+    protected final Path file;
+
+    protected final MappedByteBuffer buffer;
+
+    public MMapOffsetTracker(Path dir, Name group) {
+        this.group = group;
+        this.file = dir.resolve(group.getId() + SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            buffer = channel.map(READ_WRITE, 0, Long.BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open offset file: " + file, e);
+        }
+    }
+
+    protected static boolean isOffsetFile(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    protected static Name parseGroup(Path file) {
+        String name = file.getFileName().toString();
+        return Name.ofId(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    public Name group() {
+        return group;
+    }
+
+    /**
+     * Returns the committed offset, which is the offset of the next record to read, 0 if nothing was committed.
+     */
+    public synchronized long get() {
+        return buffer.getLong(0);
+    }
+
+    public synchronized void set(long offset) {
+        buffer.putLong(0, offset);
+    }
+
+    public void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public String toString() {
+        return "MMapOffsetTracker{group=" + group + ", offset=" + get() + "}";
+    }
+}
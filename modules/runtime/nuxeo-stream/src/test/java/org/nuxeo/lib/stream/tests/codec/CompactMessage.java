@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.tests.codec;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * @since 2023.19
+ */
+public class CompactMessage {
+
+    public Instant instant;
+
+    public Date date;
+
+    public LocalDate localDate;
+
+    public ZonedDateTime zonedDateTime;
+
+    public Duration duration;
+
+    public Record.Flag flag;
+
+    public MessageV1 message;
+
+    public Serializable value;
+}
@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.tests.codec;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -32,6 +33,12 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
 import java.util.EnumSet;
 
 import org.apache.avro.reflect.ReflectData;
@@ -46,6 +53,8 @@ import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.AvroSchemaStore;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.CompactCodec;
+import org.nuxeo.lib.stream.codec.CompactCodec.Compression;
 import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.Record;
@@ -186,6 +195,131 @@ public class TestCodec {
         testCodecFromFile("data/record-avro-confluent.bin", codec);
     }
 
+    @Test
+    public void testRecordCompact() throws Exception {
+        Record src = getRecord();
+        for (Compression compression : Compression.values()) {
+            Codec<Record> codec = new CompactCodec<>(Record.class, compression);
+            Record dest = testCodec(src, codec);
+            assertEquals(src.toString(), dest.toString());
+            assertEquals(src.getFlags(), dest.getFlags());
+        }
+    }
+
+    @Test
+    public void testRecordCompactCompression() {
+        // a compressible payload like a serialized Work
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("org.nuxeo.ecm.core.work.SomeWork:docId-").append(i % 10).append(';');
+        }
+        Record src = Record.of("key", sb.toString().getBytes(UTF_8));
+        int avroSize = new AvroBinaryCodec<>(Record.class).encode(src).length;
+        int javaSize = new SerializableCodec<Record>().encode(src).length;
+        int compactSize = new CompactCodec<>(Record.class).encode(src).length;
+        assertTrue(compactSize < javaSize);
+        for (Compression compression : EnumSet.of(Compression.LZ4, Compression.ZSTD)) {
+            Codec<Record> codec = new CompactCodec<>(Record.class, compression);
+            Record dest = testCodec(src, codec);
+            assertArrayEquals(src.getData(), dest.getData());
+            int size = codec.encode(src).length;
+            assertTrue(compression + " size: " + size, size < compactSize / 4);
+            assertTrue(compression + " size: " + size, size < avroSize);
+        }
+    }
+
+    @Test
+    public void testCompactEvolution() {
+        Codec<MessageV1> codec1 = new CompactCodec<>(MessageV1.class);
+        Codec<MessageV2> codec2 = new CompactCodec<>(MessageV2.class);
+        MessageV1 src1 = new MessageV1();
+        src1.intValue = 42;
+        src1.stringValue = "foo";
+        testCodec(src1, codec1);
+
+        // new fields keep their default value
+        MessageV2 dest2 = codec2.decode(codec1.encode(src1));
+        assertEquals(42, dest2.intValue);
+        assertEquals("foo", dest2.stringValue);
+        assertEquals("new", dest2.newString);
+
+        // unknown fields are ignored
+        MessageV2 src2 = new MessageV2();
+        src2.newString = "bar";
+        MessageV1 dest1 = codec1.decode(codec2.encode(src2));
+        assertEquals(src2.intValue, dest1.intValue);
+        assertEquals(src2.stringValue, dest1.stringValue);
+    }
+
+    @Test
+    public void testCompactTypes() {
+        Codec<CompactMessage> codec = new CompactCodec<>(CompactMessage.class);
+        CompactMessage src = new CompactMessage();
+        src.instant = Instant.ofEpochSecond(1_700_000_000L, 123_456_789);
+        src.date = new Date(1_700_000_000_123L);
+        src.localDate = LocalDate.of(2024, 2, 29);
+        src.zonedDateTime = ZonedDateTime.of(2024, 2, 29, 10, 30, 0, 0, ZoneId.of("Europe/Paris"));
+        src.duration = Duration.ofMillis(1500);
+        src.flag = Record.Flag.USER2;
+        MessageV2 message = new MessageV2();
+        message.newString = "subclass";
+        src.message = message;
+        src.value = 42L;
+        byte[] data = codec.encode(src);
+
+        CompactMessage dest = codec.decode(data);
+        assertEquals(src.instant, dest.instant);
+        assertEquals(src.date, dest.date);
+        assertEquals(src.localDate, dest.localDate);
+        assertEquals(src.zonedDateTime, dest.zonedDateTime);
+        assertEquals(src.duration, dest.duration);
+        assertEquals(src.flag, dest.flag);
+        assertTrue(dest.message instanceof MessageV2);
+        assertEquals("subclass", ((MessageV2) dest.message).newString);
+        assertEquals(42L, dest.value);
+        assertEquals(data.length, codec.encode(dest).length);
+
+        // dates are written natively, their Java serialization takes more than 90 bytes
+        CompactMessage dates = new CompactMessage();
+        dates.instant = src.instant;
+        dates.date = src.date;
+        data = codec.encode(dates);
+        assertTrue("size: " + data.length, data.length < 30);
+
+        CompactMessage empty = codec.decode(codec.encode(new CompactMessage()));
+        assertNull(empty.instant);
+        assertNull(empty.flag);
+        assertNull(empty.message);
+    }
+
+    @Test
+    public void testCompactDeserializationFilter() {
+        Codec<CompactMessage> codec = new CompactCodec<>(CompactMessage.class);
+        CompactMessage src = new CompactMessage();
+        src.value = new File("/tmp");
+        byte[] data = codec.encode(src);
+        try {
+            codec.decode(data);
+            fail("class outside of the allowed packages should not be deserialized");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompactUnknownSchema() {
+        Codec<MessageV1> codec = new CompactCodec<>(MessageV1.class);
+        byte[] data = codec.encode(new MessageV1());
+        // corrupt the schema fingerprint that follows the header and the object tag
+        data[2] ^= 0x55;
+        try {
+            codec.decode(data);
+            fail("failure expected on decode");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown schema"));
+        }
+    }
+
     @Test
     public void testInvalidEncoding() throws Exception {
         byte[] data = readFile("data/record-externalizable.bin");
@@ -212,6 +346,14 @@ public class TestCodec {
         } catch (IllegalArgumentException e) {
             // expected
         }
+
+        codec = new CompactCodec<>(Record.class);
+        try {
+            codec.decode(data);
+            fail("failure expected on decode");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
     }
 
     protected void testCodecFromFile(String path, Codec<Record> codec) throws IOException {
@@ -28,6 +28,7 @@ import java.util.EnumSet;
 
 import org.junit.Test;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.AdaptiveBatchSize;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
@@ -109,4 +110,65 @@ public class TestBatchComputation {
         comp.destroy();
     }
 
+    @Test
+    public void testComputationAdaptiveBatch() {
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(2, Duration.ofMillis(100))
+                                                                 .adaptiveBatchPolicy(8, Duration.ofMillis(500),
+                                                                         Duration.ofSeconds(10))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 1);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+        Record aRecord = Record.of("foo", "bar".getBytes(StandardCharsets.UTF_8));
+        // fast full batches: the capacity doubles up to the max
+        int[] expectedBatchSizes = { 2, 4, 8, 8 };
+        for (int expected : expectedBatchSizes) {
+            for (int i = 0; i < expected - 1; i++) {
+                comp.processRecord(context, "i1", aRecord);
+            }
+            assertEquals(0, context.getRecords(OUTPUT_1).size());
+            comp.processRecord(context, "i1", aRecord);
+            assertEquals(expected, context.getRecords(OUTPUT_1).size());
+            context.getRecords(OUTPUT_1).clear();
+        }
+        comp.destroy();
+    }
+
+    @Test
+    public void testAdaptiveBatchSize() {
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(10, Duration.ofMillis(100))
+                                                                 .adaptiveBatchPolicy(50, Duration.ofMillis(500),
+                                                                         Duration.ofMillis(100))
+                                                                 .build();
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(policy);
+        assertEquals(10, batchSize.getCapacity());
+        assertEquals(100, batchSize.getThresholdMillis());
+        long fast = Duration.ofMillis(10).toNanos();
+        long slow = Duration.ofMillis(200).toNanos();
+        // no backlog, no change
+        batchSize.update(false, fast);
+        assertEquals(10, batchSize.getCapacity());
+        batchSize.update(true, fast);
+        assertEquals(20, batchSize.getCapacity());
+        assertEquals(200, batchSize.getThresholdMillis());
+        batchSize.update(true, fast);
+        batchSize.update(true, fast);
+        assertEquals(50, batchSize.getCapacity());
+        assertEquals(500, batchSize.getThresholdMillis());
+        // latency target missed, shrink even with a backlog
+        batchSize.update(true, slow);
+        assertEquals(25, batchSize.getCapacity());
+        batchSize.update(true, slow);
+        batchSize.update(true, slow);
+        assertEquals(10, batchSize.getCapacity());
+        assertEquals(100, batchSize.getThresholdMillis());
+
+        // not adaptive
+        policy = new ComputationPolicyBuilder().batchPolicy(10, Duration.ofMillis(100)).build();
+        batchSize = new AdaptiveBatchSize(policy);
+        batchSize.update(true, fast);
+        assertEquals(10, batchSize.getCapacity());
+    }
+
 }
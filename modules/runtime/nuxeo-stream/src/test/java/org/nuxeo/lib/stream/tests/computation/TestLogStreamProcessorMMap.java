@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.tests.computation;
+
+import static org.nuxeo.lib.stream.tests.TestUtils.getBuildDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.mmap.MMapLogManager;
+
+/**
+ * @since 2023.19
+ */
+public class TestLogStreamProcessorMMap extends TestStreamProcessor {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File(getBuildDirectory()));
+
+    protected Path basePath;
+
+    @Override
+    public LogManager getLogManager() throws Exception {
+        basePath = folder.newFolder().toPath();
+        return new MMapLogManager(basePath);
+    }
+
+    @Override
+    public LogManager getSameLogManager() {
+        if (basePath == null) {
+            try {
+                basePath = folder.newFolder().toPath();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new MMapLogManager(basePath);
+    }
+
+}
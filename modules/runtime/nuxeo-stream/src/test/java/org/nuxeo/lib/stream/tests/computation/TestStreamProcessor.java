@@ -70,6 +70,8 @@ public abstract class TestStreamProcessor {
 
     public Codec<Record> codec = new AvroMessageCodec<>(Record.class);
 
+    public ComputationPolicy policy;
+
     public abstract LogManager getLogManager() throws Exception;
 
     public abstract LogManager getSameLogManager();
@@ -92,7 +94,7 @@ public abstract class TestStreamProcessor {
                                             Arrays.asList("i1:s4", "o1:" + OUTPUT_STREAM))
                                     .build();
         // one thread for each computation
-        Settings settings = new Settings(concurrency, concurrency, codec).setConcurrency("GENERATOR", 1);
+        Settings settings = new Settings(concurrency, concurrency, codec, policy).setConcurrency("GENERATOR", 1);
         // uncomment to get the plantuml diagram
         // System.out.println(topology.toPlantuml(settings));
         try (LogManager manager = getLogManager()) {
@@ -183,6 +185,27 @@ public abstract class TestStreamProcessor {
         }
     }
 
+    @Test
+    public void testSimpleTopoFewRecordsOneThreadVirtualThreads() throws Exception {
+        // falls back to platform threads when not supported by the JVM
+        policy = new ComputationPolicyBuilder().virtualThreads(true).build();
+        try {
+            testSimpleTopo(17, 1);
+        } finally {
+            policy = null;
+        }
+    }
+
+    @Test
+    public void testSimpleTopoManyRecordsOneThreadPrefetch() throws Exception {
+        policy = new ComputationPolicyBuilder().prefetch(10).build();
+        try {
+            testSimpleTopo(1003, 1);
+        } finally {
+            policy = null;
+        }
+    }
+
     protected void restoreDefaultCodec() {
         codec = new AvroMessageCodec<>(Record.class);
     }
@@ -657,6 +680,31 @@ public abstract class TestStreamProcessor {
 
     }
 
+    @Test
+    public void testPolicyBatchComputationWithPrefetch() throws Exception {
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationBatchFailureForward("C1", 1),
+                                            Arrays.asList("i1:input", "o1:output"))
+                                    .build();
+        // the read ahead is ignored, the records of a failing batch must not be committed
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(2, Duration.ofMillis(200))
+                                                                 .prefetch(10)
+                                                                 .build();
+        try (LogManager manager = getLogManager()) {
+            StreamManager streamManager = new LogStreamManager(manager);
+            Settings settings = new Settings(1, 1, policy);
+            StreamProcessor processor = streamManager.registerAndCreateProcessor("processor", topology, settings);
+            processor.start();
+            processor.waitForAssignments(Duration.ofSeconds(10));
+            streamManager.append("input", Record.of("foo", null));
+            streamManager.append("input", Record.of("bar", null));
+            streamManager.append("input", Record.of("foo", null));
+            assertTrue(processor.drainAndStop(Duration.ofSeconds(20)));
+            LogLag lag = manager.getLag(Name.ofUrn("input"), Name.ofUrn("C1"));
+            assertEquals(lag.toString(), 3, lag.lag());
+        }
+    }
+
     @Test
     public void testRegisterWithoutExecution() throws Exception {
         Topology topology = Topology.builder()
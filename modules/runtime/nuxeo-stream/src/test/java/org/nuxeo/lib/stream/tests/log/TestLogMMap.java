@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2024 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.tests.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.lib.stream.tests.TestUtils.getBuildDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogLag;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogOffset;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
+import org.nuxeo.lib.stream.log.mmap.MMapLogManager;
+import org.nuxeo.lib.stream.tests.KeyValueMessage;
+
+/**
+ * @since 2023.19
+ */
+public class TestLogMMap extends TestLog {
+
+    // small segments to exercise the segment rolling
+    protected static final int SEGMENT_SIZE = 4 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File(getBuildDirectory()));
+
+    protected Path basePath;
+
+    protected Duration retention = Duration.ZERO;
+
+    @Override
+    public LogManager createManager() throws Exception {
+        if (basePath == null) {
+            basePath = folder.newFolder().toPath();
+        }
+        return new MMapLogManager(basePath, SEGMENT_SIZE, retention);
+    }
+
+    @Test
+    public void testSegmentRollAndReopen() throws Exception {
+        final int NB_MSG = 1000;
+        final Name GROUP = Name.ofUrn("test/group");
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < NB_MSG; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        assertTrue(countSegments() > 1);
+
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            for (int i = 0; i < NB_MSG / 2; i++) {
+                assertEquals("id" + i, tailer.read(DEF_TIMEOUT).message().key());
+            }
+            tailer.commit();
+        }
+
+        // a new manager recovers records and committed offsets from disk
+        resetManager();
+        assertEquals(LogLag.of(NB_MSG / 2), manager.getLag(logName, GROUP));
+        appender = manager.getAppender(logName);
+        LogOffset offset = appender.append(0, KeyValueMessage.of("last"));
+        assertEquals(NB_MSG, offset.offset());
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            for (int i = NB_MSG / 2; i < NB_MSG; i++) {
+                assertEquals("id" + i, tailer.read(DEF_TIMEOUT).message().key());
+            }
+            assertEquals("last", tailer.read(DEF_TIMEOUT).message().key());
+            assertNull(tailer.read(SMALL_TIMEOUT));
+
+            // seek backward into a previous segment
+            tailer.seek(new LogOffsetImpl(logName, 0, 10));
+            assertEquals("id10", tailer.read(DEF_TIMEOUT).message().key());
+        }
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        final int NB_MSG = 1000;
+        final Name GROUP = Name.ofUrn("test/group");
+        retention = Duration.ofMillis(1);
+        resetManager();
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < NB_MSG / 2; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        Thread.sleep(10);
+        for (int i = NB_MSG / 2; i < NB_MSG; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            // first records have been deleted, the tailer starts on the first available one
+            String key = tailer.read(DEF_TIMEOUT).message().key();
+            assertTrue(key, Integer.parseInt(key.substring(2)) > 0);
+        }
+        LogLag lag = manager.getLag(logName, GROUP);
+        assertTrue(lag.toString(), lag.lag() < NB_MSG);
+    }
+
+    @Test
+    public void testOffsetForTimestamp() throws Exception {
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        appender.append(0, KeyValueMessage.of("id1"));
+        Thread.sleep(10);
+        long timestamp = System.currentTimeMillis();
+        LogOffset offset = appender.append(0, KeyValueMessage.of("id2"));
+        LogPartition partition = LogPartition.of(logName, 0);
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(Name.ofUrn("test/group"), partition)) {
+            LogOffset found = tailer.offsetForTimestamp(partition, timestamp);
+            assertNotNull(found);
+            assertEquals(offset, found);
+            assertNull(tailer.offsetForTimestamp(partition, System.currentTimeMillis() + 1000));
+        }
+    }
+
+    protected long countSegments() throws IOException {
+        try (Stream<Path> files = Files.walk(basePath)) {
+            return files.filter(file -> file.toString().endsWith(".log")).count();
+        }
+    }
+
+}